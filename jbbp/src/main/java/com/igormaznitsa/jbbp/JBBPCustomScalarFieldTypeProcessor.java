@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter;
+import com.igormaznitsa.jbbp.io.JBBPBitInputStream;
+import com.igormaznitsa.jbbp.io.JBBPBitOrder;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayLong;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldLong;
+import java.io.IOException;
+
+/**
+ * Custom field type processor for scalar numeric types (like 24 bit integers or packed BCD) which reads values as primitives.
+ * The parser reads such fields directly into primitive arrays without intermediate field objects,
+ * values are represented by {@link JBBPFieldInt}, {@link JBBPFieldLong} and their arrays.
+ *
+ * @since 3.0.3
+ */
+public interface JBBPCustomScalarFieldTypeProcessor extends JBBPCustomFieldTypeProcessor {
+  /**
+   * Check that values of the custom type fit into int.
+   *
+   * @param customTypeFieldInfo the field type info, must not be null
+   * @param extraData           extra numeric value for the field, followed by ':', if not presented then 0
+   * @return true if values are represented as int fields, false if as long fields
+   */
+  boolean isIntValue(JBBPFieldTypeParameterContainer customTypeFieldInfo, int extraData);
+
+  /**
+   * Read single value of custom type from stream.
+   *
+   * @param in                  the data source stream, must not be null
+   * @param bitOrder            the bit order defined for parsing, must not be null
+   * @param parserFlags         the flags defined for parsing
+   * @param customTypeFieldInfo the field type info, must not be null
+   * @param extraData           extra numeric value for the field, followed by ':', if not presented then 0
+   * @return read value
+   * @throws IOException it can be thrown for transport errors
+   */
+  long readCustomScalarValue(JBBPBitInputStream in, JBBPBitOrder bitOrder, int parserFlags,
+                             JBBPFieldTypeParameterContainer customTypeFieldInfo, int extraData)
+      throws IOException;
+
+  /**
+   * Default implementation reads values through {@link #readCustomScalarValue(JBBPBitInputStream, JBBPBitOrder, int, JBBPFieldTypeParameterContainer, int)}.
+   */
+  @Override
+  default JBBPAbstractField readCustomFieldType(final JBBPBitInputStream in,
+                                                final JBBPBitOrder bitOrder,
+                                                final int parserFlags,
+                                                final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                                final JBBPNamedFieldInfo fieldName,
+                                                final int extraData,
+                                                final boolean readWholeStream,
+                                                final int arrayLength,
+                                                final JBBPArraySizeLimiter arraySizeLimiter)
+      throws IOException {
+    return readScalarField(this, in, bitOrder, parserFlags, customTypeFieldInfo, fieldName,
+        extraData, this.isIntValue(customTypeFieldInfo, extraData), readWholeStream, arrayLength,
+        arraySizeLimiter);
+  }
+
+  /**
+   * Read scalar custom field or array of such fields into primitive based field.
+   *
+   * @param processor           processor to read values, must not be null
+   * @param in                  the data source stream, must not be null
+   * @param bitOrder            the bit order defined for parsing, must not be null
+   * @param parserFlags         the flags defined for parsing
+   * @param customTypeFieldInfo the field type info, must not be null
+   * @param fieldName           the field name info, it can be null if the field is anonymous one
+   * @param extraData           extra numeric value for the field
+   * @param intValue            true if values should be represented as int ones
+   * @param readWholeStream     if true then read array till the stream end
+   * @param arrayLength         -1 if not array else length of the array to be read
+   * @param arraySizeLimiter    limiter for whole stream array, must not be null
+   * @return read field, must not be null
+   * @throws IOException it can be thrown for transport errors
+   */
+  static JBBPAbstractField readScalarField(final JBBPCustomScalarFieldTypeProcessor processor,
+                                           final JBBPBitInputStream in,
+                                           final JBBPBitOrder bitOrder,
+                                           final int parserFlags,
+                                           final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                           final JBBPNamedFieldInfo fieldName,
+                                           final int extraData,
+                                           final boolean intValue,
+                                           final boolean readWholeStream,
+                                           final int arrayLength,
+                                           final JBBPArraySizeLimiter arraySizeLimiter)
+      throws IOException {
+    if (readWholeStream) {
+      in.setDetectedArrayLimit(false);
+      long[] buffer = new long[16];
+      int counter = 0;
+      while (in.hasAvailableData()) {
+        if (counter == buffer.length) {
+          final long[] newBuffer = new long[buffer.length << 1];
+          System.arraycopy(buffer, 0, newBuffer, 0, counter);
+          buffer = newBuffer;
+        }
+        buffer[counter++] =
+            processor.readCustomScalarValue(in, bitOrder, parserFlags, customTypeFieldInfo,
+                extraData);
+        if (JBBPArraySizeLimiter.isBreakReadWholeStream(counter, arraySizeLimiter)) {
+          in.setDetectedArrayLimit(true);
+          break;
+        }
+      }
+      if (intValue) {
+        final int[] result = new int[counter];
+        for (int i = 0; i < counter; i++) {
+          result[i] = (int) buffer[i];
+        }
+        return new JBBPFieldArrayInt(fieldName, result);
+      } else {
+        final long[] result = new long[counter];
+        System.arraycopy(buffer, 0, result, 0, counter);
+        return new JBBPFieldArrayLong(fieldName, result);
+      }
+    } else if (arrayLength < 0) {
+      final long value =
+          processor.readCustomScalarValue(in, bitOrder, parserFlags, customTypeFieldInfo,
+              extraData);
+      return intValue ? new JBBPFieldInt(fieldName, (int) value) :
+          new JBBPFieldLong(fieldName, value);
+    } else if (intValue) {
+      final int[] result = new int[arrayLength];
+      for (int i = 0; i < arrayLength; i++) {
+        result[i] = (int) processor.readCustomScalarValue(in, bitOrder, parserFlags,
+            customTypeFieldInfo, extraData);
+      }
+      return new JBBPFieldArrayInt(fieldName, result);
+    } else {
+      final long[] result = new long[arrayLength];
+      for (int i = 0; i < arrayLength; i++) {
+        result[i] = processor.readCustomScalarValue(in, bitOrder, parserFlags,
+            customTypeFieldInfo, extraData);
+      }
+      return new JBBPFieldArrayLong(fieldName, result);
+    }
+  }
+}
@@ -0,0 +1,658 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.conversion.CompiledBlockVisitor;
+import com.igormaznitsa.jbbp.compiler.conversion.IntConstValueEvaluator;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.compiler.varlen.JBBPIntegerValueEvaluator;
+import com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter;
+import com.igormaznitsa.jbbp.io.JBBPBitAccess;
+import com.igormaznitsa.jbbp.io.JBBPBitInputStream;
+import com.igormaznitsa.jbbp.io.JBBPBitOrder;
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.finder.JBBPPath;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Patcher to overwrite value of a single field directly in binary data, without parsing and writing of the whole
+ * structure. Position of the field is calculated once from the compiled script if all fields before it have
+ * constant size, otherwise the data is parsed only till the field for every operation.
+ * The new value is written with the byte order of the field and the bit order of the parser, so that the patched
+ * data is the same as if it was written by {@link com.igormaznitsa.jbbp.io.JBBPEncoder}.
+ * <pre>{@code
+ * JBBPFieldPatcher ttl = JBBPFieldPatcher.prepare(ipHeaderParser, "header.ttl");
+ * ttl.setLong(packet, 64);
+ * }</pre>
+ * Only single (not array) numeric, boolean and bit fields with constant width can be patched,
+ * the path must not go through structure arrays.
+ * The object is immutable and thread safe.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPFieldPatcher {
+
+  private static final long NOT_STATIC = -1L;
+
+  private final JBBPParser parser;
+  private final JBBPNamedFieldInfo target;
+  private final JBBPVarFieldProcessor varFieldProcessor;
+  private final JBBPExternalValueProvider externalValueProvider;
+  private final int fieldType;
+  private final boolean floatingPoint;
+  private final JBBPByteOrder byteOrder;
+  private final int bitWidth;
+  private final long staticBitOffset;
+
+  private JBBPFieldPatcher(final JBBPParser parser, final JBBPNamedFieldInfo target,
+                           final JBBPVarFieldProcessor varFieldProcessor,
+                           final JBBPExternalValueProvider externalValueProvider,
+                           final LayoutDetector layout) {
+    this.parser = parser;
+    this.target = target;
+    this.varFieldProcessor = varFieldProcessor;
+    this.externalValueProvider = externalValueProvider;
+    this.fieldType = layout.fieldType;
+    this.floatingPoint = layout.floatingPoint;
+    this.byteOrder = layout.byteOrder;
+    this.bitWidth = layout.bitWidth;
+    this.staticBitOffset = layout.dynamic ? NOT_STATIC : layout.bitOffset;
+  }
+
+  /**
+   * Prepare patcher for a field of a parser script which doesn't contain var fields and external values.
+   *
+   * @param parser    parser which script describes data, must not be null
+   * @param fieldPath path to the field, must not be null
+   * @return prepared patcher, must not be null
+   * @throws IllegalArgumentException if the field can't be found or it can't be patched
+   */
+  public static JBBPFieldPatcher prepare(final JBBPParser parser, final String fieldPath) {
+    return prepare(parser, fieldPath, null, null);
+  }
+
+  /**
+   * Prepare patcher for a field of a parser script.
+   *
+   * @param parser                parser which script describes data, must not be null
+   * @param fieldPath             path to the field, must not be null
+   * @param varFieldProcessor     processor for var fields met before the field, can be null if there are no such fields
+   * @param externalValueProvider provider of external values met before the field, can be null if there are no such values
+   * @return prepared patcher, must not be null
+   * @throws IllegalArgumentException if the field can't be found or it can't be patched
+   */
+  public static JBBPFieldPatcher prepare(final JBBPParser parser, final String fieldPath,
+                                         final JBBPVarFieldProcessor varFieldProcessor,
+                                         final JBBPExternalValueProvider externalValueProvider) {
+    JBBPUtils.assertNotNull(parser, "Parser must not be null");
+    JBBPUtils.assertNotNull(fieldPath, "Field path must not be null");
+    final JBBPCompiledBlock block = parser.getCompiledBlock();
+    JBBPPath.compile(block, fieldPath);
+    final JBBPNamedFieldInfo target =
+        block.findFieldForPath(JBBPUtils.normalizeFieldNameOrPath(fieldPath));
+
+    final LayoutDetector layout = new LayoutDetector(parser.getFlags(), block, target);
+    layout.visit();
+    if (layout.bitWidth == 0) {
+      throw new IllegalArgumentException("Field '" + fieldPath + "' can't be patched");
+    }
+    return new JBBPFieldPatcher(parser, target, varFieldProcessor, externalValueProvider,
+        layout);
+  }
+
+  /**
+   * Get info of the patched field.
+   *
+   * @return the field info, must not be null
+   */
+  public JBBPNamedFieldInfo getFieldInfo() {
+    return this.target;
+  }
+
+  /**
+   * Get number of bits occupied by the field in data.
+   *
+   * @return the field width in bits
+   */
+  public int getBitWidth() {
+    return this.bitWidth;
+  }
+
+  /**
+   * Check that the field offset is constant and calculated from the script without data parsing.
+   *
+   * @return true if the offset is constant, false if data is parsed to find the field
+   */
+  public boolean isStaticOffset() {
+    return this.staticBitOffset != NOT_STATIC;
+  }
+
+  /**
+   * Find offset of the first bit of the field in data.
+   *
+   * @param data data to be processed, must not be null
+   * @return offset of the field in bits from the array start
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   */
+  public long getBitOffset(final byte[] data) throws IOException {
+    JBBPUtils.assertNotNull(data, "Data must not be null");
+    return this.findBitOffset(new PatchTarget(data, null, 0, data.length));
+  }
+
+  /**
+   * Find offset of the first bit of the field in a byte buffer, the buffer position is not changed.
+   *
+   * @param buffer buffer contains data between its position and limit, must not be null
+   * @return offset of the field in bits from the buffer position
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   */
+  public long getBitOffset(final ByteBuffer buffer) throws IOException {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    return this.findBitOffset(
+        new PatchTarget(null, buffer, buffer.position(), buffer.limit()));
+  }
+
+  /**
+   * Overwrite the field with an integer value. Value of a bit field is cut to the field width, a boolean field gets
+   * true for non-zero value and a floating point field gets the value converted to float or double.
+   *
+   * @param data  data to be patched, must not be null
+   * @param value new value of the field
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   */
+  public void setLong(final byte[] data, final long value) throws IOException {
+    JBBPUtils.assertNotNull(data, "Data must not be null");
+    this.patch(new PatchTarget(data, null, 0, data.length), this.floatingPoint ?
+        this.encodeFloatingPoint(value) : value);
+  }
+
+  /**
+   * Overwrite the field in a byte buffer with an integer value, the buffer position is not changed.
+   *
+   * @param buffer buffer contains data between its position and limit, must not be null
+   * @param value  new value of the field
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   * @see #setLong(byte[], long)
+   */
+  public void setLong(final ByteBuffer buffer, final long value) throws IOException {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    this.patch(new PatchTarget(null, buffer, buffer.position(), buffer.limit()),
+        this.floatingPoint ? this.encodeFloatingPoint(value) : value);
+  }
+
+  /**
+   * Overwrite the field with a floating point value. Integer fields get the value converted to long.
+   *
+   * @param data  data to be patched, must not be null
+   * @param value new value of the field
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   */
+  public void setDouble(final byte[] data, final double value) throws IOException {
+    JBBPUtils.assertNotNull(data, "Data must not be null");
+    this.patch(new PatchTarget(data, null, 0, data.length), this.floatingPoint ?
+        this.encodeFloatingPoint(value) : (long) value);
+  }
+
+  /**
+   * Overwrite the field in a byte buffer with a floating point value, the buffer position is not changed.
+   *
+   * @param buffer buffer contains data between its position and limit, must not be null
+   * @param value  new value of the field
+   * @throws IOException  if data can't be parsed till the field
+   * @throws EOFException if there is not enough data to contain the field
+   * @see #setDouble(byte[], double)
+   */
+  public void setDouble(final ByteBuffer buffer, final double value) throws IOException {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    this.patch(new PatchTarget(null, buffer, buffer.position(), buffer.limit()),
+        this.floatingPoint ? this.encodeFloatingPoint(value) : (long) value);
+  }
+
+  private long encodeFloatingPoint(final double value) {
+    return this.fieldType == JBBPCompiler.CODE_INT ?
+        Float.floatToIntBits((float) value) & 0xFFFFFFFFL : Double.doubleToLongBits(value);
+  }
+
+  private long findBitOffset(final PatchTarget data) throws IOException {
+    final long result;
+    if (this.staticBitOffset == NOT_STATIC) {
+      final OffsetSink sink = new OffsetSink(this.target,
+          new JBBPBitInputStream(data, this.parser.getBitOrder()), data);
+      try {
+        this.parser.parse(sink.stream, sink, this.varFieldProcessor, this.externalValueProvider,
+            JBBPArraySizeLimiter.NO_LIMIT_FOR_ARRAY_SIZE);
+      } catch (FieldReached ex) {
+        // the field is found
+      }
+      if (sink.bitOffset < 0L) {
+        throw new EOFException("Field " + this.target.getFieldPath() + " is not presented in data");
+      }
+      result = sink.bitOffset - this.bitWidth;
+    } else {
+      result = this.staticBitOffset;
+    }
+    if (result + this.bitWidth > (long) (data.end - data.start) * 8L) {
+      throw new EOFException("Field " + this.target.getFieldPath() + " is out of data bounds");
+    }
+    return result;
+  }
+
+  private void patch(final PatchTarget data, final long value) throws IOException {
+    final long bitOffset = ((long) data.start << 3) + this.findBitOffset(data);
+    final JBBPBitOrder bitOrder = this.parser.getBitOrder();
+    if (this.fieldType == JBBPCompiler.CODE_BIT) {
+      data.setBits(bitOffset, (int) value, this.bitWidth, bitOrder);
+    } else if (this.fieldType == JBBPCompiler.CODE_BOOL) {
+      data.setBits(bitOffset, value == 0L ? 0 : 1, 8, bitOrder);
+    } else {
+      data.setValue(bitOffset, value, this.bitWidth >>> 3, this.byteOrder, bitOrder);
+    }
+  }
+
+  /**
+   * Input stream over a byte array or a byte buffer, it allows to get number of read bytes and to change data
+   * by absolute index.
+   */
+  private static final class PatchTarget extends InputStream {
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+    private int position;
+
+    PatchTarget(final byte[] array, final ByteBuffer buffer, final int start,
+                    final int end) {
+      this.array = array;
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+      this.position = start;
+    }
+
+    int get(final int index) {
+      return (this.array == null ? this.buffer.get(index) : this.array[index]) & 0xFF;
+    }
+
+    void setBits(final long bitOffset, final int value, final int bits,
+                 final JBBPBitOrder bitOrder) {
+      if (this.array == null) {
+        JBBPBitAccess.setBits(this.buffer, bitOffset, value, bits, bitOrder);
+      } else {
+        JBBPBitAccess.setBits(this.array, bitOffset, value, bits, bitOrder);
+      }
+    }
+
+    void setValue(final long bitOffset, final long value, final int bytes,
+                  final JBBPByteOrder byteOrder, final JBBPBitOrder bitOrder) {
+      if (this.array == null) {
+        JBBPBitAccess.setValue(this.buffer, bitOffset, value, bytes, byteOrder, bitOrder);
+      } else {
+        JBBPBitAccess.setValue(this.array, bitOffset, value, bytes, byteOrder, bitOrder);
+      }
+    }
+
+    long getReadBytes() {
+      return this.position - this.start;
+    }
+
+    @Override
+    public int read() {
+      return this.position < this.end ? this.get(this.position++) : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+      if (len == 0) {
+        return 0;
+      }
+      final int available = Math.min(len, this.end - this.position);
+      if (available <= 0) {
+        return -1;
+      }
+      if (this.array == null) {
+        for (int i = 0; i < available; i++) {
+          b[off + i] = this.buffer.get(this.position + i);
+        }
+      } else {
+        System.arraycopy(this.array, this.position, b, off, available);
+      }
+      this.position += available;
+      return available;
+    }
+
+    @Override
+    public long skip(final long n) {
+      final int skipped = (int) Math.max(0L, Math.min(n, this.end - this.position));
+      this.position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return this.end - this.position;
+    }
+  }
+
+  /**
+   * Exception to stop parsing when the field is reached.
+   */
+  private static final class FieldReached extends RuntimeException {
+    private static final long serialVersionUID = -3712480215379842104L;
+
+    FieldReached() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Sink catches the patched field during parsing and calculates its offset from the number of consumed bits.
+   */
+  private static final class OffsetSink implements JBBPFieldSink {
+    private final JBBPNamedFieldInfo target;
+    private final JBBPBitInputStream stream;
+    private final PatchTarget data;
+    private long bitOffset = -1L;
+
+    OffsetSink(final JBBPNamedFieldInfo target, final JBBPBitInputStream stream,
+               final PatchTarget data) {
+      this.target = target;
+      this.stream = stream;
+      this.data = data;
+    }
+
+    @Override
+    public void onField(final JBBPAbstractField field) {
+      if (field.getNameInfo() == this.target) {
+        // the field is just read so that the position is right after its last bit
+        this.bitOffset = this.data.getReadBytes() * 8L - this.stream.getBufferedBitsNumber();
+        throw new FieldReached();
+      }
+    }
+
+    @Override
+    public JBBPFieldSink onStructStart(final JBBPNamedFieldInfo name, final int index) {
+      return this;
+    }
+
+    @Override
+    public void onStructEnd(final JBBPNamedFieldInfo name, final int index,
+                            final JBBPFieldSink structSink) {
+    }
+
+    @Override
+    public void onStructArrayStart(final JBBPNamedFieldInfo name, final int length) {
+    }
+
+    @Override
+    public void onStructArrayEnd(final JBBPNamedFieldInfo name, final int length) {
+    }
+  }
+
+  /**
+   * Visitor detects type of the field and calculates its offset if all items before the field have constant size.
+   */
+  private static final class LayoutDetector extends CompiledBlockVisitor {
+    private final JBBPNamedFieldInfo target;
+    private final List<long[]> structures = new ArrayList<>();
+    private long bits;
+    private long counterOrigin;
+    private boolean dynamic;
+    private boolean found;
+    private long bitOffset;
+    private int fieldType;
+    private boolean floatingPoint;
+    private JBBPByteOrder byteOrder;
+    private int bitWidth;
+
+    LayoutDetector(final int parserFlags, final JBBPCompiledBlock block,
+                   final JBBPNamedFieldInfo target) {
+      super(parserFlags, block);
+      this.target = target;
+    }
+
+    private static int constant(final JBBPIntegerValueEvaluator evaluator) {
+      return evaluator instanceof IntConstValueEvaluator ?
+          evaluator.eval(null, 0, null, null) : -1;
+    }
+
+    private boolean isActive() {
+      return !(this.found || this.dynamic);
+    }
+
+    private void alignByte() {
+      this.bits = (this.bits + 7L) & ~7L;
+    }
+
+    private void markNotRepeatable() {
+      // an element of structure array can't contain items depending on the counter
+      for (final long[] structure : this.structures) {
+        if (structure[1] > 1L) {
+          this.dynamic = true;
+        }
+      }
+    }
+
+    private void addArray(final long itemBits,
+                          final JBBPIntegerValueEvaluator nullableArraySize) {
+      if (nullableArraySize == null) {
+        this.bits += itemBits;
+      } else {
+        final int size = constant(nullableArraySize);
+        if (size < 0) {
+          this.dynamic = true;
+        } else {
+          this.bits += itemBits * size;
+        }
+      }
+    }
+
+    private void onTarget(final JBBPNamedFieldInfo name, final int type,
+                          final boolean floatingPoint, final JBBPByteOrder byteOrder,
+                          final int bitWidth) {
+      if (name == this.target) {
+        this.found = true;
+        this.bitOffset = this.bits;
+        this.fieldType = type;
+        this.floatingPoint = floatingPoint;
+        this.byteOrder = byteOrder;
+        this.bitWidth = bitWidth;
+      }
+    }
+
+    @Override
+    public void visitActionItem(final int offsetInCompiledBlock, final int actionType,
+                                final JBBPIntegerValueEvaluator nullableArgument) {
+      if (!this.isActive()) {
+        return;
+      }
+      switch (actionType & 0xF) {
+        case JBBPCompiler.CODE_RESET_COUNTER: {
+          this.markNotRepeatable();
+          this.alignByte();
+          this.counterOrigin = this.bits >>> 3;
+        }
+        break;
+        case JBBPCompiler.CODE_ALIGN: {
+          this.markNotRepeatable();
+          final int align = constant(nullableArgument);
+          if (align < 0) {
+            this.dynamic = true;
+          } else {
+            this.alignByte();
+            if (align > 0) {
+              final long counter = (this.bits >>> 3) - this.counterOrigin;
+              this.bits += ((align - counter % align) % align) << 3;
+            }
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_SKIP: {
+          final int skip = constant(nullableArgument);
+          if (skip < 0) {
+            this.dynamic = true;
+          } else {
+            this.bits += (long) skip << 3;
+          }
+        }
+        break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void visitPrimitiveField(final int offsetInCompiledBlock, final int primitiveType,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStreamAsArray,
+                                    final boolean altFieldType,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      if (this.found) {
+        return;
+      }
+      final int size;
+      switch (primitiveType) {
+        case JBBPCompiler.CODE_BOOL: {
+          size = altFieldType ? -1 : 8;
+        }
+        break;
+        case JBBPCompiler.CODE_BYTE: {
+          size = altFieldType ? 32 : 8;
+        }
+        break;
+        case JBBPCompiler.CODE_UBYTE: {
+          size = 8;
+        }
+        break;
+        case JBBPCompiler.CODE_SHORT:
+        case JBBPCompiler.CODE_USHORT: {
+          size = 16;
+        }
+        break;
+        case JBBPCompiler.CODE_INT: {
+          size = 32;
+        }
+        break;
+        case JBBPCompiler.CODE_LONG: {
+          size = 64;
+        }
+        break;
+        default:
+          throw new Error("Unexpected primitive type, contact developer! [" + primitiveType + ']');
+      }
+      if (nullableArraySize == null && size > 0) {
+        this.onTarget(nullableNameFieldInfo, primitiveType, altFieldType &&
+                (primitiveType == JBBPCompiler.CODE_INT || primitiveType == JBBPCompiler.CODE_LONG),
+            byteOrder, size);
+      }
+      if (this.isActive()) {
+        if (size < 0 || readWholeStreamAsArray) {
+          this.dynamic = true;
+        } else {
+          this.addArray(size, nullableArraySize);
+        }
+      }
+    }
+
+    @Override
+    public void visitBitField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final boolean readWholeStream,
+                              final JBBPIntegerValueEvaluator notNullFieldSize,
+                              final JBBPIntegerValueEvaluator nullableArraySize) {
+      if (this.found) {
+        return;
+      }
+      final int size = constant(notNullFieldSize);
+      if (nullableArraySize == null && size > 0) {
+        this.onTarget(nullableNameFieldInfo, JBBPCompiler.CODE_BIT, false, byteOrder, size);
+      }
+      if (this.isActive()) {
+        if (size < 0 || readWholeStream) {
+          this.dynamic = true;
+        } else {
+          this.addArray(size, nullableArraySize);
+        }
+      }
+    }
+
+    @Override
+    public void visitVarField(final int offsetInCompiledBlock,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final JBBPByteOrder byteOrder,
+                              final boolean readWholeStreamIntoArray,
+                              final JBBPIntegerValueEvaluator nullableArraySizeEvaluator,
+                              final JBBPIntegerValueEvaluator extraDataValueEvaluator) {
+      this.dynamic = true;
+    }
+
+    @Override
+    public void visitCustomField(final int offsetInCompiledBlock,
+                                 final JBBPFieldTypeParameterContainer notNullFieldType,
+                                 final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                 final JBBPByteOrder byteOrder,
+                                 final boolean readWholeStream,
+                                 final JBBPIntegerValueEvaluator nullableArraySizeEvaluator,
+                                 final JBBPIntegerValueEvaluator extraDataValueEvaluator) {
+      this.dynamic = true;
+    }
+
+    @Override
+    public void visitStructureStart(final int offsetInCompiledBlock,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStream,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      final long elements;
+      if (nullableArraySize == null) {
+        elements = 1L;
+      } else if (readWholeStream) {
+        elements = -1L;
+      } else {
+        elements = constant(nullableArraySize);
+      }
+      if (elements < 0L && this.isActive()) {
+        this.dynamic = true;
+      }
+      this.structures.add(new long[] {this.bits, elements});
+    }
+
+    @Override
+    public void visitStructureEnd(final int offsetInCompiledBlock,
+                                  final JBBPNamedFieldInfo nullableNameFieldInfo) {
+      final long[] structure = this.structures.remove(this.structures.size() - 1);
+      if (this.isActive() && structure[1] != 1L) {
+        this.bits = structure[0] + (this.bits - structure[0]) * structure[1];
+      }
+    }
+  }
+}
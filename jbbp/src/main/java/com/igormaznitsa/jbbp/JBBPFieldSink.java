@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+
+/**
+ * Receiver of fields read by a parser. The parser notifies it about every read field of a structure and
+ * about start and end of nested structures and structure arrays, so that parsed data can be consumed
+ * without building of the structure tree. Fields of skipped structures are not notified.
+ *
+ * @see JBBPParser#parse(java.io.InputStream, JBBPFieldSink, JBBPVarFieldProcessor, JBBPExternalValueProvider, com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter)
+ * @see JBBPFieldStructBuilder
+ * @since 3.0.3
+ */
+public interface JBBPFieldSink {
+  /**
+   * Called for every read non-structure field (including arrays of non-structure fields) of the current structure.
+   *
+   * @param field read field, must not be null
+   */
+  void onField(JBBPAbstractField field);
+
+  /**
+   * Called before parsing of a structure or an element of a structure array.
+   *
+   * @param name  the structure name info, can be null for anonymous structure
+   * @param index index of the element in structure array or -1 if the structure is not an array element
+   * @return sink to get fields of the structure, must not be null
+   */
+  JBBPFieldSink onStructStart(JBBPNamedFieldInfo name, int index);
+
+  /**
+   * Called after parsing of a structure or an element of a structure array.
+   *
+   * @param name       the structure name info, can be null for anonymous structure
+   * @param index      index of the element in structure array or -1 if the structure is not an array element
+   * @param structSink the sink returned by {@link #onStructStart(JBBPNamedFieldInfo, int)} for the structure
+   */
+  void onStructEnd(JBBPNamedFieldInfo name, int index, JBBPFieldSink structSink);
+
+  /**
+   * Called before parsing of a structure array elements.
+   *
+   * @param name   the structure array name info, can be null for anonymous array
+   * @param length number of elements or -1 if elements are read till the stream end
+   */
+  void onStructArrayStart(JBBPNamedFieldInfo name, int length);
+
+  /**
+   * Called after parsing of all elements of a structure array.
+   *
+   * @param name   the structure array name info, can be null for anonymous array
+   * @param length number of read elements
+   */
+  void onStructArrayEnd(JBBPNamedFieldInfo name, int length);
+}
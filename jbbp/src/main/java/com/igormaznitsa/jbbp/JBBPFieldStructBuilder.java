@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import static com.igormaznitsa.jbbp.utils.JBBPUtils.ARRAY_FIELD_EMPTY;
+
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field sink which collects fields of a structure and builds the structure tree, it is the default way of parser to make results.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPFieldStructBuilder implements JBBPFieldSink {
+  private static final JBBPFieldStruct[] EMPTY_STRUCT_ARRAY = new JBBPFieldStruct[0];
+
+  private final List<JBBPAbstractField> fields = new ArrayList<>();
+  private List<JBBPFieldStruct> structArrayElements;
+
+  /**
+   * Get collected fields.
+   *
+   * @return list of collected fields of the structure, must not be null
+   */
+  public List<JBBPAbstractField> getFields() {
+    return this.fields;
+  }
+
+  /**
+   * Get the last collected field.
+   *
+   * @return the last collected field or null if there is no any collected field
+   */
+  public JBBPAbstractField getLastField() {
+    return this.fields.isEmpty() ? null : this.fields.get(this.fields.size() - 1);
+  }
+
+  /**
+   * Make structure contains collected fields.
+   *
+   * @param name name info of the structure, can be null
+   * @return the structure, must not be null
+   */
+  public JBBPFieldStruct build(final JBBPNamedFieldInfo name) {
+    return new JBBPFieldStruct(name, this.fields.toArray(ARRAY_FIELD_EMPTY));
+  }
+
+  @Override
+  public void onField(final JBBPAbstractField field) {
+    this.fields.add(field);
+  }
+
+  @Override
+  public JBBPFieldSink onStructStart(final JBBPNamedFieldInfo name, final int index) {
+    return new JBBPFieldStructBuilder();
+  }
+
+  @Override
+  public void onStructEnd(final JBBPNamedFieldInfo name, final int index,
+                          final JBBPFieldSink structSink) {
+    final JBBPFieldStruct struct = ((JBBPFieldStructBuilder) structSink).build(name);
+    if (index < 0) {
+      this.fields.add(struct);
+    } else {
+      this.structArrayElements.add(struct);
+    }
+  }
+
+  @Override
+  public void onStructArrayStart(final JBBPNamedFieldInfo name, final int length) {
+    this.structArrayElements = new ArrayList<>(length < 0 ? 16 : length);
+  }
+
+  @Override
+  public void onStructArrayEnd(final JBBPNamedFieldInfo name, final int length) {
+    this.fields.add(new JBBPFieldArrayStruct(name, this.structArrayElements.isEmpty() ?
+        EMPTY_STRUCT_ARRAY : this.structArrayElements.toArray(EMPTY_STRUCT_ARRAY)));
+    this.structArrayElements = null;
+  }
+}
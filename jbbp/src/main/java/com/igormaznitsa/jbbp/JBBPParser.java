@@ -17,7 +17,6 @@
 package com.igormaznitsa.jbbp;
 
 import static com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter.NO_LIMIT_FOR_ARRAY_SIZE;
-import static com.igormaznitsa.jbbp.utils.JBBPUtils.ARRAY_FIELD_EMPTY;
 
 import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
 import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
@@ -32,6 +31,9 @@ import com.igormaznitsa.jbbp.io.JBBPBitInputStream;
 import com.igormaznitsa.jbbp.io.JBBPBitNumber;
 import com.igormaznitsa.jbbp.io.JBBPBitOrder;
 import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.mapper.JBBPMapper;
+import com.igormaznitsa.jbbp.mapper.JBBPMapperCustomFieldProcessor;
+import com.igormaznitsa.jbbp.mapper.JBBPMappingPlan;
 import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
 import com.igormaznitsa.jbbp.model.JBBPAbstractField;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayBit;
@@ -43,7 +45,6 @@ import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayLong;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayShort;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayString;
-import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayUByte;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayUInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayUShort;
@@ -61,18 +62,28 @@ import com.igormaznitsa.jbbp.model.JBBPFieldUByte;
 import com.igormaznitsa.jbbp.model.JBBPFieldUInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
 import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.utils.Function;
+import com.igormaznitsa.jbbp.utils.JBBPCustomFieldTypeProcessorAggregator;
 import com.igormaznitsa.jbbp.utils.JBBPIntCounter;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
 import com.igormaznitsa.jbbp.utils.TargetSources;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * the Main class allows a user to parse a binary stream or block for predefined
@@ -103,9 +114,19 @@ public final class JBBPParser {
       DEFAULT_EXPRESSION_ARRAY_SIZE_CONTROLLER =
       (parser, expressionEvaluator, fieldName, arraySize) -> arraySize;
   /**
-   * Empty structure array
+   * Default max length of a record which data can be rescanned after parsing error during parsing with re-synchronization.
+   *
+   * @since 3.0.3
+   */
+  public static final int DEFAULT_RESYNC_MAX_RECORD_LENGTH = 1024 * 1024;
+  /**
+   * Size of buffer used to wrap streams which don't support mark and reset during parsing with re-synchronization.
+   */
+  private static final int RESYNC_STREAM_BUFFER_SIZE = 64 * 1024;
+  /**
+   * Number of messages taken by a worker at once during batch parsing.
    */
-  private static final JBBPFieldStruct[] EMPTY_STRUCT_ARRAY = new JBBPFieldStruct[0];
+  private static final int BATCH_WORKER_PORTION = 64;
   /**
    * the Compiled block contains compiled script and extra information.
    */
@@ -122,6 +143,25 @@ public final class JBBPParser {
    * Custom field type processor for the parser, it can be null.
    */
   private final JBBPCustomFieldTypeProcessor customFieldTypeProcessor;
+  /**
+   * Dispatch table of custom field type processors resolved for custom type fields, index is the custom type field index in the compiled block.
+   *
+   * @since 3.0.3
+   */
+  private final JBBPCustomFieldTypeProcessor[] customTypeFieldProcessors;
+  /**
+   * Primitive fast path processors for custom type fields, element is null if the processor is not a scalar one
+   * or it overrides {@link JBBPCustomFieldTypeProcessor#readCustomFieldType}.
+   *
+   * @since 3.0.3
+   */
+  private final JBBPCustomScalarFieldTypeProcessor[] customTypeFieldScalarProcessors;
+  /**
+   * Mapping plans made for the root structure of the compiled block, key is the mapping class.
+   *
+   * @since 3.0.3
+   */
+  private final Map<Class<?>, JBBPMappingPlan> mappingPlans = new ConcurrentHashMap<>();
   /**
    * Controller to get and change values calculated by expressions as size for array fields.
    *
@@ -155,6 +195,61 @@ public final class JBBPParser {
     } catch (IOException ex) {
       throw new RuntimeException("Can't compile script for unexpected IOException", ex);
     }
+
+    final JBBPFieldTypeParameterContainer[] customTypeFields =
+        this.compiledBlock.getCustomTypeFields();
+    this.customTypeFieldProcessors = new JBBPCustomFieldTypeProcessor[customTypeFields.length];
+    this.customTypeFieldScalarProcessors =
+        new JBBPCustomScalarFieldTypeProcessor[customTypeFields.length];
+    for (int i = 0; i < customTypeFields.length; i++) {
+      final JBBPCustomFieldTypeProcessor processor =
+          resolveCustomTypeProcessor(customFieldTypeProcessor, customTypeFields[i].getTypeName());
+      this.customTypeFieldProcessors[i] = processor;
+      if (processor instanceof JBBPCustomScalarFieldTypeProcessor
+          && !isCustomFieldReadOverridden(processor)) {
+        this.customTypeFieldScalarProcessors[i] = (JBBPCustomScalarFieldTypeProcessor) processor;
+      }
+    }
+  }
+
+  /**
+   * Check that a scalar processor has its own implementation of custom field reading, such processor
+   * must be called through the implementation instead of the primitive fast path.
+   *
+   * @param processor scalar processor to be checked, must not be null
+   * @return true if reading of custom fields is overridden, false if the default one is used
+   */
+  private static boolean isCustomFieldReadOverridden(final JBBPCustomFieldTypeProcessor processor) {
+    try {
+      return processor.getClass().getMethod("readCustomFieldType", JBBPBitInputStream.class,
+              JBBPBitOrder.class, int.class, JBBPFieldTypeParameterContainer.class,
+              JBBPNamedFieldInfo.class, int.class, boolean.class, int.class,
+              JBBPArraySizeLimiter.class).getDeclaringClass()
+          != JBBPCustomScalarFieldTypeProcessor.class;
+    } catch (NoSuchMethodException ex) {
+      throw new Error("Unexpected missing method of custom field type processor", ex);
+    }
+  }
+
+  /**
+   * Find processor which directly processes a custom type, aggregators are unpacked.
+   *
+   * @param processor processor provided for parser, must not be null
+   * @param type      custom field type
+   * @return the processor to process the type, must not be null
+   */
+  private static JBBPCustomFieldTypeProcessor resolveCustomTypeProcessor(
+      final JBBPCustomFieldTypeProcessor processor, final String type) {
+    JBBPCustomFieldTypeProcessor result = processor;
+    while (result instanceof JBBPCustomFieldTypeProcessorAggregator) {
+      final JBBPCustomFieldTypeProcessor found =
+          ((JBBPCustomFieldTypeProcessorAggregator) result).findProcessor(type);
+      if (found == null) {
+        break;
+      }
+      result = found;
+    }
+    return result;
   }
 
   /**
@@ -292,7 +387,7 @@ public final class JBBPParser {
   }
 
   /**
-   * Inside method to parse a structure.
+   * Inside method to parse a structure into list of fields.
    *
    * @param inStream                      the input stream, must not be null
    * @param positionAtCompiledBlock       the current position in the compiled script
@@ -307,7 +402,7 @@ public final class JBBPParser {
    * @param arraySizeLimiter              limiter for only whole stream arrays, must not be null
    * @param skipStructureFields           the flag shows that content of fields must be
    *                                      skipped because the structure is skipped
-   * @return list of read fields for the structure
+   * @return list of read fields for the structure, null if the structure is skipped
    * @throws IOException                        it will be thrown for transport errors
    * @throws JBBPReachedArraySizeLimitException thrown if reached limit for a whole stream array
    */
@@ -320,7 +415,42 @@ public final class JBBPParser {
                                               final JBBPArraySizeLimiter arraySizeLimiter,
                                               final boolean skipStructureFields)
       throws IOException {
-    final List<JBBPAbstractField> structureFields = skipStructureFields ? null : new ArrayList<>();
+    final JBBPFieldStructBuilder builder =
+        skipStructureFields ? null : new JBBPFieldStructBuilder();
+    parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor, namedNumericFieldMap,
+        positionAtNamedFieldList, positionAtVarLengthProcessors, arraySizeLimiter, builder);
+    return builder == null ? null : builder.getFields();
+  }
+
+  /**
+   * Inside method to parse a structure.
+   *
+   * @param inStream                      the input stream, must not be null
+   * @param positionAtCompiledBlock       the current position in the compiled script
+   *                                      block
+   * @param varFieldProcessor             a processor to process var fields, it can be null,
+   *                                      but it will thrown NPE if a var field is met
+   * @param namedNumericFieldMap          the named numeric field map
+   * @param positionAtNamedFieldList      the current position at the named field
+   *                                      list
+   * @param positionAtVarLengthProcessors the current position at the variable
+   *                                      array length processor list
+   * @param arraySizeLimiter              limiter for only whole stream arrays, must not be null
+   * @param sink                          the sink to get read fields, null if content of fields must be
+   *                                      skipped because the structure is skipped
+   * @throws IOException                        it will be thrown for transport errors
+   * @throws JBBPReachedArraySizeLimitException thrown if reached limit for a whole stream array
+   */
+  private void parseStruct(final JBBPBitInputStream inStream,
+                           final JBBPIntCounter positionAtCompiledBlock,
+                           final JBBPVarFieldProcessor varFieldProcessor,
+                           final JBBPNamedNumericFieldMap namedNumericFieldMap,
+                           final JBBPIntCounter positionAtNamedFieldList,
+                           final JBBPIntCounter positionAtVarLengthProcessors,
+                           final JBBPArraySizeLimiter arraySizeLimiter,
+                           final JBBPFieldSink sink)
+      throws IOException {
+    final boolean skipStructureFields = sink == null;
     final byte[] compiled = this.compiledBlock.getCompiledData();
 
     boolean endStructureNotMet = true;
@@ -464,7 +594,7 @@ public final class JBBPParser {
                 final int read = inStream.readBitField(bitNumber);
                 singleAtomicField = new JBBPFieldBit(name, read & 0xFF, bitNumber);
               } else {
-                structureFields.add(new JBBPFieldArrayBit(name,
+                sink.onField(new JBBPFieldArrayBit(name,
                     inStream.readBitsArray(wholeStreamArray ? -1 : arrayLength, bitNumber,
                         arraySizeLimiter),
                     bitNumber));
@@ -503,7 +633,7 @@ public final class JBBPParser {
                       "Detected wrong name for a read field array, must be " + name +
                           " but detected " + array.getNameInfo() + ']');
                 }
-                structureFields.add(array);
+                sink.onField(array);
               }
             }
           }
@@ -512,18 +642,29 @@ public final class JBBPParser {
             final int extraData = extraFieldNumAsExpr ? extraFieldNumExprResult :
                 JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
             if (resultNotIgnored) {
+              final int customTypeFieldIndex =
+                  JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
               final JBBPFieldTypeParameterContainer fieldTypeInfo =
-                  this.compiledBlock.getCustomTypeFields()[JBBPUtils
-                      .unpackInt(compiled, positionAtCompiledBlock)];
-              final JBBPAbstractField field = this.customFieldTypeProcessor
-                  .readCustomFieldType(inStream, this.bitOrder, this.flags, fieldTypeInfo, name,
-                      extraData, wholeStreamArray, arrayLength, arraySizeLimiter);
+                  this.compiledBlock.getCustomTypeFields()[customTypeFieldIndex];
+              final JBBPCustomScalarFieldTypeProcessor scalarProcessor =
+                  this.customTypeFieldScalarProcessors[customTypeFieldIndex];
+              final JBBPAbstractField field;
+              if (scalarProcessor == null) {
+                field = this.customTypeFieldProcessors[customTypeFieldIndex]
+                    .readCustomFieldType(inStream, this.bitOrder, this.flags, fieldTypeInfo, name,
+                        extraData, wholeStreamArray, arrayLength, arraySizeLimiter);
+              } else {
+                field = JBBPCustomScalarFieldTypeProcessor.readScalarField(scalarProcessor,
+                    inStream, this.bitOrder, this.flags, fieldTypeInfo, name, extraData,
+                    scalarProcessor.isIntValue(fieldTypeInfo, extraData), wholeStreamArray,
+                    arrayLength, arraySizeLimiter);
+              }
               JBBPUtils.assertNotNull(field, "Must not return null as read result");
 
               if (arrayLength < 0) {
                 singleAtomicField = field;
               } else {
-                structureFields.add(field);
+                sink.onField(field);
               }
             }
           }
@@ -535,7 +676,7 @@ public final class JBBPParser {
                     new JBBPFieldUInt(name, inStream.readInt(byteOrder) & 0xFFFFFFFFL) :
                     new JBBPFieldByte(name, (byte) inStream.readByte());
               } else {
-                structureFields.add(fieldTypeDiff ?
+                sink.onField(fieldTypeDiff ?
                     new JBBPFieldArrayUInt(name,
                         inStream.readIntArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                             arraySizeLimiter)) :
@@ -551,7 +692,7 @@ public final class JBBPParser {
               if (arrayLength < 0) {
                 singleAtomicField = new JBBPFieldUByte(name, (byte) inStream.readByte());
               } else {
-                structureFields.add(new JBBPFieldArrayUByte(name,
+                sink.onField(new JBBPFieldArrayUByte(name,
                     inStream.readByteArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                         arraySizeLimiter)));
               }
@@ -565,7 +706,7 @@ public final class JBBPParser {
                     fieldTypeDiff ? new JBBPFieldString(name, inStream.readString(byteOrder)) :
                         new JBBPFieldBoolean(name, inStream.readBoolean());
               } else {
-                structureFields.add(fieldTypeDiff ?
+                sink.onField(fieldTypeDiff ?
                     new JBBPFieldArrayString(name,
                         inStream.readStringArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                             arraySizeLimiter)) :
@@ -584,7 +725,7 @@ public final class JBBPParser {
                     fieldTypeDiff ? new JBBPFieldFloat(name, inStream.readFloat(byteOrder)) :
                         new JBBPFieldInt(name, inStream.readInt(byteOrder));
               } else {
-                structureFields.add(fieldTypeDiff ?
+                sink.onField(fieldTypeDiff ?
                     new JBBPFieldArrayFloat(name,
                         inStream.readFloatArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                             arraySizeLimiter)) :
@@ -603,7 +744,7 @@ public final class JBBPParser {
                     fieldTypeDiff ? new JBBPFieldDouble(name, inStream.readDouble(byteOrder)) :
                         new JBBPFieldLong(name, inStream.readLong(byteOrder));
               } else {
-                structureFields.add(fieldTypeDiff ?
+                sink.onField(fieldTypeDiff ?
                     new JBBPFieldArrayDouble(name,
                         inStream.readDoubleArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                             arraySizeLimiter)) :
@@ -621,7 +762,7 @@ public final class JBBPParser {
                 final int value = inStream.readUnsignedShort(byteOrder);
                 singleAtomicField = new JBBPFieldShort(name, (short) value);
               } else {
-                structureFields.add(new JBBPFieldArrayShort(name,
+                sink.onField(new JBBPFieldArrayShort(name,
                     inStream.readShortArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                         arraySizeLimiter)));
               }
@@ -634,7 +775,7 @@ public final class JBBPParser {
                 final int value = inStream.readUnsignedShort(byteOrder);
                 singleAtomicField = new JBBPFieldUShort(name, (short) value);
               } else {
-                structureFields.add(new JBBPFieldArrayUShort(name,
+                sink.onField(new JBBPFieldArrayUShort(name,
                     inStream.readShortArray(wholeStreamArray ? -1 : arrayLength, byteOrder,
                         arraySizeLimiter)));
               }
@@ -643,37 +784,36 @@ public final class JBBPParser {
           break;
           case JBBPCompiler.CODE_STRUCT_START: {
             if (arrayLength < 0) {
-              final List<JBBPAbstractField> structFields =
-                  parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
-                      namedNumericFieldMap, positionAtNamedFieldList, positionAtVarLengthProcessors,
-                      arraySizeLimiter, skipStructureFields);
+              final JBBPFieldSink structSink = resultNotIgnored ? sink.onStructStart(name, -1) : null;
+              parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
+                  namedNumericFieldMap, positionAtNamedFieldList, positionAtVarLengthProcessors,
+                  arraySizeLimiter, structSink);
               // skip offset
               JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
               if (resultNotIgnored) {
-                structureFields
-                    .add(new JBBPFieldStruct(name, structFields.toArray(ARRAY_FIELD_EMPTY)));
+                sink.onStructEnd(name, -1, structSink);
               }
             } else {
               final int nameFieldCurrent = positionAtNamedFieldList.get();
               final int varLenProcCurrent = positionAtVarLengthProcessors.get();
 
-              final JBBPFieldStruct[] result;
               if (resultNotIgnored) {
                 if (wholeStreamArray) {
                   // read till the stream end
-                  final List<JBBPFieldStruct> list = new ArrayList<>();
+                  sink.onStructArrayStart(name, -1);
+                  int counter = 0;
                   while (inStream.hasAvailableData()) {
                     positionAtNamedFieldList.set(nameFieldCurrent);
                     positionAtVarLengthProcessors.set(varLenProcCurrent);
 
-                    final List<JBBPAbstractField> fieldsForStruct =
-                        parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
-                            namedNumericFieldMap, positionAtNamedFieldList,
-                            positionAtVarLengthProcessors, arraySizeLimiter, skipStructureFields);
-                    list.add(new JBBPFieldStruct(name, fieldsForStruct));
+                    final JBBPFieldSink structSink = sink.onStructStart(name, counter);
+                    parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
+                        namedNumericFieldMap, positionAtNamedFieldList,
+                        positionAtVarLengthProcessors, arraySizeLimiter, structSink);
+                    sink.onStructEnd(name, counter, structSink);
+                    counter++;
 
-                    if (JBBPArraySizeLimiter.isBreakReadWholeStream(list.size(),
-                        arraySizeLimiter)) {
+                    if (JBBPArraySizeLimiter.isBreakReadWholeStream(counter, arraySizeLimiter)) {
                       inStream.setDetectedArrayLimit(true);
                       break;
                     }
@@ -684,29 +824,26 @@ public final class JBBPParser {
                       positionAtCompiledBlock.set(structStart + (wideCode ? 2 : 1));
                     }
                   }
-
-                  result = list.isEmpty() ? EMPTY_STRUCT_ARRAY : list.toArray(EMPTY_STRUCT_ARRAY);
+                  sink.onStructArrayEnd(name, counter);
                 } else {
                   // read number of items
+                  sink.onStructArrayStart(name, arrayLength);
                   if (arrayLength == 0) {
                     // skip the structure
-                    result = EMPTY_STRUCT_ARRAY;
                     parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
                         namedNumericFieldMap, positionAtNamedFieldList,
-                        positionAtVarLengthProcessors, arraySizeLimiter, true);
+                        positionAtVarLengthProcessors, arraySizeLimiter, null);
                     JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
                   } else {
-                    result = new JBBPFieldStruct[arrayLength];
                     for (int i = 0; i < arrayLength; i++) {
-
-                      final List<JBBPAbstractField> fieldsForStruct =
-                          parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
-                              namedNumericFieldMap, positionAtNamedFieldList,
-                              positionAtVarLengthProcessors, arraySizeLimiter, skipStructureFields);
+                      final JBBPFieldSink structSink = sink.onStructStart(name, i);
+                      parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
+                          namedNumericFieldMap, positionAtNamedFieldList,
+                          positionAtVarLengthProcessors, arraySizeLimiter, structSink);
                       final int structBodyStart =
                           JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
 
-                      result[i] = new JBBPFieldStruct(name, fieldsForStruct);
+                      sink.onStructEnd(name, i, structSink);
 
                       if (i < arrayLength - 1) {
                         // not the last
@@ -717,15 +854,12 @@ public final class JBBPParser {
                       }
                     }
                   }
-                }
-
-                if (result != null) {
-                  structureFields.add(new JBBPFieldArrayStruct(name, result));
+                  sink.onStructArrayEnd(name, arrayLength);
                 }
               } else {
                 parseStruct(inStream, positionAtCompiledBlock, varFieldProcessor,
                     namedNumericFieldMap, positionAtNamedFieldList, positionAtVarLengthProcessors,
-                    arraySizeLimiter, skipStructureFields);
+                    arraySizeLimiter, null);
                 JBBPUtils.unpackInt(compiled, positionAtCompiledBlock);
               }
             }
@@ -749,7 +883,7 @@ public final class JBBPParser {
       }
 
       if (singleAtomicField != null) {
-        structureFields.add(singleAtomicField);
+        sink.onField(singleAtomicField);
         if (namedNumericFieldMap != null && singleAtomicField instanceof JBBPNumericField &&
             name != null) {
           namedNumericFieldMap.putField((JBBPNumericField) singleAtomicField);
@@ -757,8 +891,6 @@ public final class JBBPParser {
       }
 
     }
-
-    return structureFields;
   }
 
   /**
@@ -818,6 +950,34 @@ public final class JBBPParser {
       final JBBPExternalValueProvider externalValueProvider,
       final JBBPArraySizeLimiter arraySizeLimiter
   ) throws IOException {
+    final JBBPFieldStructBuilder builder = new JBBPFieldStructBuilder();
+    this.parse(in, builder, varFieldProcessor, externalValueProvider, arraySizeLimiter);
+    return builder.build(new JBBPNamedFieldInfo("", "", -1));
+  }
+
+  /**
+   * Parse an input stream and send read fields into a sink instead of building of the structure tree.
+   *
+   * @param in                    an input stream which content will be parsed, it must not be null
+   * @param sink                  sink to get read fields of the root structure, must not be null
+   * @param varFieldProcessor     a var field processor, it may be null if there is
+   *                              not any var field in a script, otherwise NPE will be thrown during parsing
+   * @param externalValueProvider an external value provider, it can be null but
+   *                              only if the script doesn't have fields desired the provider
+   * @param arraySizeLimiter      limiter to read whole stream arrays, must not be null
+   * @throws IOException                        it will be thrown for transport errors
+   * @throws JBBPReachedArraySizeLimitException thrown if reached limit for a whole stream array
+   * @see JBBPFieldStructBuilder
+   * @since 3.0.3
+   */
+  public void parse(
+      final InputStream in,
+      final JBBPFieldSink sink,
+      final JBBPVarFieldProcessor varFieldProcessor,
+      final JBBPExternalValueProvider externalValueProvider,
+      final JBBPArraySizeLimiter arraySizeLimiter
+  ) throws IOException {
+    JBBPUtils.assertNotNull(sink, "Sink must not be null");
     final JBBPBitInputStream bitInStream =
         in instanceof JBBPBitInputStream ? (JBBPBitInputStream) in :
             new JBBPBitInputStream(in, bitOrder);
@@ -835,9 +995,8 @@ public final class JBBPParser {
           "The Script contains VAR fields, a var field processor must be provided");
     }
     try {
-      return new JBBPFieldStruct(new JBBPNamedFieldInfo("", "", -1),
-          parseStruct(bitInStream, new JBBPIntCounter(), varFieldProcessor, fieldMap,
-              new JBBPIntCounter(), new JBBPIntCounter(), arraySizeLimiter, false));
+      parseStruct(bitInStream, new JBBPIntCounter(), varFieldProcessor, fieldMap,
+          new JBBPIntCounter(), new JBBPIntCounter(), arraySizeLimiter, sink);
     } finally {
       this.finalStreamByteCounter = bitInStream.getCounter();
     }
@@ -853,6 +1012,16 @@ public final class JBBPParser {
     return this.flags;
   }
 
+  /**
+   * Get the bit order used by the parser for bit input streams.
+   *
+   * @return the bit order, must not be null
+   * @since 3.0.3
+   */
+  public JBBPBitOrder getBitOrder() {
+    return this.bitOrder;
+  }
+
   /**
    * Parse a byte array content.
    *
@@ -885,6 +1054,466 @@ public final class JBBPParser {
     return this.parse(new ByteArrayInputStream(array), varFieldProcessor, externalValueProvider);
   }
 
+  /**
+   * Get mapping plan for the root structure of the compiled block and a mapping class. Plan is made once
+   * for every mapping class and then kept by the parser.
+   *
+   * @param mappingClass mapping class, must not be null
+   * @return the mapping plan, must not be null
+   * @see JBBPMappingPlan#make(JBBPCompiledBlock, Class)
+   * @since 3.0.3
+   */
+  public JBBPMappingPlan getMappingPlan(final Class<?> mappingClass) {
+    JBBPUtils.assertNotNull(mappingClass, "Mapping class must not be null");
+    JBBPMappingPlan result = this.mappingPlans.get(mappingClass);
+    if (result == null) {
+      result = JBBPMappingPlan.make(this.compiledBlock, mappingClass);
+      final JBBPMappingPlan alreadyMade = this.mappingPlans.putIfAbsent(mappingClass, result);
+      if (alreadyMade != null) {
+        result = alreadyMade;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Parse a byte array content directly into an instance of mapping class without building of the structure tree.
+   *
+   * @param <T>           type of the instance
+   * @param array         a byte array which content should be parsed, it must not be null
+   * @param plan          mapping plan made for the compiled block of the parser, must not be null
+   * @param instance      instance to be filled, must not be null and must be instance of the plan mapping class
+   * @param instantiators functions to produce class instances, must not be null
+   * @return the filled instance
+   * @throws IOException it will be thrown for transport errors
+   * @see #parseInto(InputStream, JBBPMappingPlan, Object, JBBPVarFieldProcessor, JBBPExternalValueProvider, JBBPMapperCustomFieldProcessor, int, Function[])
+   * @since 3.0.3
+   */
+  @SafeVarargs
+  public final <T> T parseInto(final byte[] array, final JBBPMappingPlan plan, final T instance,
+                               final Function<Class<?>, Object>... instantiators)
+      throws IOException {
+    JBBPUtils.assertNotNull(array, "Array must not be null");
+    return this.parseInto(new ByteArrayInputStream(array), plan, instance, null, null, null, 0,
+        instantiators);
+  }
+
+  /**
+   * Parse an input stream directly into an instance of mapping class. Read values are written into the instance,
+   * its nested structure instances and arrays just after reading so that the structure tree is not built.
+   * Structures whose mapping classes contain custom or path mapped fields are collected as trees and mapped
+   * when they are completely read.
+   *
+   * @param <T>                   type of the instance
+   * @param in                    an input stream which content will be parsed, it must not be null
+   * @param plan                  mapping plan made for the root structure of the compiled block of the parser, must not be null
+   * @param instance              instance to be filled, must not be null and must be instance of the plan mapping class
+   * @param varFieldProcessor     a var field processor, it may be null if there is
+   *                              not any var field in a script, otherwise NPE will be thrown during parsing
+   * @param externalValueProvider an external value provider, it can be null but
+   *                              only if the script doesn't have fields desired the provider
+   * @param customFieldProcessor  custom mapping field processor, can be null if there is no custom mapping fields
+   * @param mapperFlags           mapping flags
+   * @param instantiators         functions to produce class instances, must not be null
+   * @return the filled instance
+   * @throws IOException it will be thrown for transport errors
+   * @throws IllegalArgumentException if the plan is not made for the root structure of the parser compiled block
+   * @see JBBPMappingPlan#makeFieldSink(Object, JBBPMapperCustomFieldProcessor, int, Function[])
+   * @see JBBPMapper#FLAG_IGNORE_MISSING_VALUES
+   * @since 3.0.3
+   */
+  @SafeVarargs
+  public final <T> T parseInto(final InputStream in, final JBBPMappingPlan plan, final T instance,
+                               final JBBPVarFieldProcessor varFieldProcessor,
+                               final JBBPExternalValueProvider externalValueProvider,
+                               final JBBPMapperCustomFieldProcessor customFieldProcessor,
+                               final int mapperFlags,
+                               final Function<Class<?>, Object>... instantiators)
+      throws IOException {
+    JBBPUtils.assertNotNull(plan, "Plan must not be null");
+    if (plan.getCompiledBlock() != this.compiledBlock || !plan.getStructPath().isEmpty()) {
+      throw new IllegalArgumentException(
+          "Plan must be made for the root structure of the parser compiled block");
+    }
+    final JBBPMappingPlan.MappingSink<T> sink =
+        plan.makeFieldSink(instance, customFieldProcessor, mapperFlags, instantiators);
+    this.parse(in, sink, varFieldProcessor, externalValueProvider, NO_LIMIT_FOR_ARRAY_SIZE);
+    return sink.complete();
+  }
+
+  /**
+   * Parse consecutive records started with a sync marker, if a record can't be parsed then the parser re-synchronizes on the next sync marker and continues.
+   * The script must read the sync marker as the first field of record.
+   *
+   * @param in         an input stream which content should be parsed, it must not be null, if it doesn't support mark and reset then it will be buffered
+   * @param syncMarker byte sequence marking every record start, must not be null and must not be empty
+   * @param listener   listener to get parsed records and skipped byte ranges, must not be null
+   * @return number of successfully parsed records
+   * @throws IOException it will be thrown for transport errors
+   * @see #parseWithResync(InputStream, byte[], int, JBBPVarFieldProcessor, JBBPExternalValueProvider, JBBPResyncListener)
+   * @since 3.0.3
+   */
+  public long parseWithResync(final InputStream in, final byte[] syncMarker,
+                              final JBBPResyncListener listener) throws IOException {
+    return this.parseWithResync(in, syncMarker, DEFAULT_RESYNC_MAX_RECORD_LENGTH, null, null,
+        listener);
+  }
+
+  /**
+   * Parse consecutive records started with a sync marker, if a record can't be parsed then the parser re-synchronizes on the next sync marker and continues.
+   * The script must read the sync marker as the first field of record. After a failed record the stream is rolled back to the record start
+   * and search of the next sync marker is started from the next byte, so that a marker read by a broken record is not lost if the record is not longer than allowed max length.
+   *
+   * @param in                    an input stream which content should be parsed, it must not be null, if it doesn't support mark and reset then it will be buffered
+   * @param syncMarker            byte sequence marking every record start, must not be null and must not be empty
+   * @param maxRecordLength       max expected record length in bytes, data of a failed record longer than the value can't be rescanned
+   * @param varFieldProcessor     a var field processor, it may be null if there is
+   *                              not any var field in a script, otherwise NPE will be thrown during parsing
+   * @param externalValueProvider an external value provider, it can be null but
+   *                              only if the script doesn't have fields desired the provider
+   * @param listener              listener to get parsed records and skipped byte ranges, must not be null
+   * @return number of successfully parsed records
+   * @throws IOException              it will be thrown for transport errors, end of stream inside a record is reported as a skipped range
+   * @throws IllegalArgumentException if provided bit stream doesn't support mark and reset
+   * @see JBBPBitInputStream#skipToMarker(byte[])
+   * @since 3.0.3
+   */
+  public long parseWithResync(
+      final InputStream in,
+      final byte[] syncMarker,
+      final int maxRecordLength,
+      final JBBPVarFieldProcessor varFieldProcessor,
+      final JBBPExternalValueProvider externalValueProvider,
+      final JBBPResyncListener listener
+  ) throws IOException {
+    JBBPUtils.assertNotNull(in, "Input stream must not be null");
+    JBBPUtils.assertNotNull(syncMarker, "Sync marker must not be null");
+    JBBPUtils.assertNotNull(listener, "Listener must not be null");
+
+    final JBBPBitInputStream bitInStream;
+    if (in instanceof JBBPBitInputStream) {
+      if (!in.markSupported()) {
+        throw new IllegalArgumentException("Bit stream must support mark and reset");
+      }
+      bitInStream = (JBBPBitInputStream) in;
+    } else {
+      bitInStream = new JBBPBitInputStream(in.markSupported() ? in :
+          new BufferedInputStream(in, RESYNC_STREAM_BUFFER_SIZE), this.bitOrder);
+    }
+
+    long parsedRecords = 0L;
+    long position = 0L;
+    long gapStart = -1L;
+    Exception gapCause = null;
+
+    while (true) {
+      long counterBefore = bitInStream.getCounter();
+      final long found = bitInStream.skipToMarker(syncMarker);
+      final long skipped = bitInStream.getCounter() - counterBefore;
+      if (skipped > 0L && gapStart < 0L) {
+        gapStart = position;
+      }
+      position += skipped;
+
+      if (gapStart >= 0L) {
+        final boolean continueParsing =
+            listener.onSkippedBytes(this, gapStart, position - gapStart, gapCause);
+        gapStart = -1L;
+        gapCause = null;
+        if (!continueParsing) {
+          break;
+        }
+      }
+
+      if (found < 0L) {
+        break;
+      }
+
+      final long recordStart = position;
+      bitInStream.mark(maxRecordLength);
+      counterBefore = bitInStream.getCounter();
+
+      JBBPFieldStruct record = null;
+      Exception error = null;
+      try {
+        record = this.parse(bitInStream, varFieldProcessor, externalValueProvider);
+        if (bitInStream.getCounter() == counterBefore) {
+          record = null;
+          error = new JBBPParsingException("Record must not have zero length");
+        }
+      } catch (IOException ex) {
+        final IOException transportError = findTransportError(ex);
+        if (transportError != null) {
+          throw transportError;
+        }
+        error = ex;
+      } catch (RuntimeException ex) {
+        // WARNING! Don't replace by multi-catch for Android compatibility!
+        final IOException transportError = findTransportError(ex);
+        if (transportError != null) {
+          throw transportError;
+        }
+        error = ex;
+      }
+
+      if (record == null) {
+        boolean rolledBack;
+        try {
+          bitInStream.reset();
+          rolledBack = true;
+        } catch (IOException ex) {
+          // too long record, its data can't be rescanned
+          rolledBack = false;
+        }
+        if (rolledBack) {
+          // step over the first byte of the sync marker
+          bitInStream.read();
+        }
+        position += bitInStream.getCounter() - counterBefore;
+        gapStart = recordStart;
+        gapCause = error;
+      } else {
+        final long recordLength = bitInStream.getCounter() - counterBefore;
+        position += recordLength;
+        parsedRecords++;
+        if (!listener.onRecord(this, record, recordStart, recordLength)) {
+          break;
+        }
+      }
+    }
+    return parsedRecords;
+  }
+
+  /**
+   * Find transport error among exceptions thrown during record parsing. End of stream inside a record and
+   * format errors are not transport errors and can be processed by re-synchronization.
+   *
+   * @param error exception thrown during parsing, must not be null
+   * @return found transport error or null if the exception is a record error
+   */
+  private static IOException findTransportError(final Exception error) {
+    final Throwable cause = error instanceof JBBPParsingException ? error.getCause() : error;
+    if (cause instanceof IOException && !(cause instanceof EOFException)) {
+      return (IOException) cause;
+    }
+    return null;
+  }
+
+  /**
+   * Parse a batch of messages in the current thread. Internal stream and parsing state objects are reused between messages,
+   * errors are not thrown but saved per message.
+   *
+   * @param messages messages to be parsed, must not be null
+   * @param results  container to get parsed messages, must not be null and its length must not be less than number of messages, its item is null if the message can't be parsed
+   * @param errors   container to get parsing errors, can be null, otherwise its length must not be less than number of messages, its item is null if the message is parsed successfully
+   * @return number of successfully parsed messages
+   * @see #parseBatch(byte[][], JBBPFieldStruct[], Exception[], JBBPVarFieldProcessor, JBBPExternalValueProvider, Executor)
+   * @since 3.0.3
+   */
+  public int parseBatch(final byte[][] messages, final JBBPFieldStruct[] results,
+                        final Exception[] errors) {
+    JBBPUtils.assertNotNull(messages, "Messages must not be null");
+    return this.processBatch(messages.length, (context, index) -> context.parse(messages[index]),
+        results, errors, null, null);
+  }
+
+  /**
+   * Parse a batch of messages, optionally with a worker pool. Internal stream and parsing state objects are reused between messages processed by the same worker,
+   * errors are not thrown but saved per message. Results are placed in containers in the same order as messages.
+   *
+   * @param messages              messages to be parsed, must not be null
+   * @param results               container to get parsed messages, must not be null and its length must not be less than number of messages, its item is null if the message can't be parsed
+   * @param errors                container to get parsing errors, can be null, otherwise its length must not be less than number of messages, its item is null if the message is parsed successfully
+   * @param varFieldProcessor     a var field processor, it may be null if there is
+   *                              not any var field in a script, must be thread-safe if executor is provided
+   * @param externalValueProvider an external value provider, it can be null but
+   *                              only if the script doesn't have fields desired the provider, must be thread-safe if executor is provided
+   * @param executor              executor to run parsing workers, if null then messages are parsed in the current thread, the current thread works as one of workers in any case
+   * @return number of successfully parsed messages
+   * @throws InterruptedException if the current thread has been interrupted during waiting for workers
+   * @since 3.0.3
+   */
+  public int parseBatch(final byte[][] messages, final JBBPFieldStruct[] results,
+                        final Exception[] errors, final JBBPVarFieldProcessor varFieldProcessor,
+                        final JBBPExternalValueProvider externalValueProvider,
+                        final Executor executor) throws InterruptedException {
+    JBBPUtils.assertNotNull(messages, "Messages must not be null");
+    return this.processBatch(messages.length, (context, index) -> context.parse(messages[index]),
+        results, errors, varFieldProcessor, externalValueProvider, executor);
+  }
+
+  /**
+   * Parse a batch of messages placed in a byte buffer in the current thread. Internal stream and parsing state objects are reused between messages,
+   * errors are not thrown but saved per message.
+   *
+   * @param buffer  buffer contains messages, must not be null, it can be direct one, its position and limit are not changed
+   * @param offsets table of absolute message bounds in the buffer, message with index i is placed between offsets[i] (inclusive) and offsets[i+1] (exclusive), so that number of messages is offsets.length-1
+   * @param results container to get parsed messages, must not be null and its length must not be less than number of messages, its item is null if the message can't be parsed
+   * @param errors  container to get parsing errors, can be null, otherwise its length must not be less than number of messages, its item is null if the message is parsed successfully
+   * @return number of successfully parsed messages
+   * @see #parseBatch(ByteBuffer, int[], JBBPFieldStruct[], Exception[], JBBPVarFieldProcessor, JBBPExternalValueProvider, Executor)
+   * @since 3.0.3
+   */
+  public int parseBatch(final ByteBuffer buffer, final int[] offsets,
+                        final JBBPFieldStruct[] results, final Exception[] errors) {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    JBBPUtils.assertNotNull(offsets, "Offsets must not be null");
+    return this.processBatch(Math.max(0, offsets.length - 1),
+        (context, index) -> context.parse(buffer, offsets[index], offsets[index + 1]),
+        results, errors, null, null);
+  }
+
+  /**
+   * Parse a batch of messages placed in a byte buffer, optionally with a worker pool. Internal stream and parsing state objects are reused between messages processed by the same worker,
+   * errors are not thrown but saved per message. Results are placed in containers in the same order as messages.
+   *
+   * @param buffer                buffer contains messages, must not be null, it can be direct one, its position and limit are not changed
+   * @param offsets               table of absolute message bounds in the buffer, message with index i is placed between offsets[i] (inclusive) and offsets[i+1] (exclusive), so that number of messages is offsets.length-1
+   * @param results               container to get parsed messages, must not be null and its length must not be less than number of messages, its item is null if the message can't be parsed
+   * @param errors                container to get parsing errors, can be null, otherwise its length must not be less than number of messages, its item is null if the message is parsed successfully
+   * @param varFieldProcessor     a var field processor, it may be null if there is
+   *                              not any var field in a script, must be thread-safe if executor is provided
+   * @param externalValueProvider an external value provider, it can be null but
+   *                              only if the script doesn't have fields desired the provider, must be thread-safe if executor is provided
+   * @param executor              executor to run parsing workers, if null then messages are parsed in the current thread, the current thread works as one of workers in any case
+   * @return number of successfully parsed messages
+   * @throws InterruptedException if the current thread has been interrupted during waiting for workers
+   * @since 3.0.3
+   */
+  public int parseBatch(final ByteBuffer buffer, final int[] offsets,
+                        final JBBPFieldStruct[] results, final Exception[] errors,
+                        final JBBPVarFieldProcessor varFieldProcessor,
+                        final JBBPExternalValueProvider externalValueProvider,
+                        final Executor executor) throws InterruptedException {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    JBBPUtils.assertNotNull(offsets, "Offsets must not be null");
+    return this.processBatch(Math.max(0, offsets.length - 1),
+        (context, index) -> context.parse(buffer, offsets[index], offsets[index + 1]),
+        results, errors, varFieldProcessor, externalValueProvider, executor);
+  }
+
+  private int processBatch(final int messageNumber, final BatchMessageSource source,
+                           final JBBPFieldStruct[] results, final Exception[] errors,
+                           final JBBPVarFieldProcessor varFieldProcessor,
+                           final JBBPExternalValueProvider externalValueProvider,
+                           final Executor executor) throws InterruptedException {
+    if (executor == null || messageNumber <= BATCH_WORKER_PORTION) {
+      return this.processBatch(messageNumber, source, results, errors, varFieldProcessor,
+          externalValueProvider);
+    }
+    this.assertBatchArguments(messageNumber, results, errors, varFieldProcessor);
+
+    final AtomicInteger nextIndex = new AtomicInteger();
+    final AtomicInteger parsed = new AtomicInteger();
+    final AtomicReference<Throwable> workerFailure = new AtomicReference<>();
+
+    final int workers = Math.min(Runtime.getRuntime().availableProcessors(),
+        (messageNumber + BATCH_WORKER_PORTION - 1) / BATCH_WORKER_PORTION);
+    final CountDownLatch workersLatch = new CountDownLatch(workers - 1);
+
+    final Runnable worker = () -> {
+      try {
+        parsed.addAndGet(this.runBatchWorker(messageNumber, nextIndex, source, results, errors,
+            varFieldProcessor, externalValueProvider));
+      } catch (Throwable ex) {
+        workerFailure.compareAndSet(null, ex);
+      } finally {
+        workersLatch.countDown();
+      }
+    };
+
+    for (int i = 1; i < workers; i++) {
+      try {
+        executor.execute(worker);
+      } catch (RejectedExecutionException ex) {
+        // the current thread processes the rest
+        workersLatch.countDown();
+      }
+    }
+
+    try {
+      parsed.addAndGet(this.runBatchWorker(messageNumber, nextIndex, source, results, errors,
+          varFieldProcessor, externalValueProvider));
+    } finally {
+      workersLatch.await();
+    }
+
+    final Throwable failure = workerFailure.get();
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return parsed.get();
+  }
+
+  private int processBatch(final int messageNumber, final BatchMessageSource source,
+                           final JBBPFieldStruct[] results, final Exception[] errors,
+                           final JBBPVarFieldProcessor varFieldProcessor,
+                           final JBBPExternalValueProvider externalValueProvider) {
+    this.assertBatchArguments(messageNumber, results, errors, varFieldProcessor);
+    return this.runBatchWorker(messageNumber, new AtomicInteger(), source, results, errors,
+        varFieldProcessor, externalValueProvider);
+  }
+
+  private void assertBatchArguments(final int messageNumber, final JBBPFieldStruct[] results,
+                                    final Exception[] errors,
+                                    final JBBPVarFieldProcessor varFieldProcessor) {
+    JBBPUtils.assertNotNull(results, "Results container must not be null");
+    if (results.length < messageNumber) {
+      throw new IllegalArgumentException(
+          "Results container is too short: " + results.length + " < " + messageNumber);
+    }
+    if (errors != null && errors.length < messageNumber) {
+      throw new IllegalArgumentException(
+          "Errors container is too short: " + errors.length + " < " + messageNumber);
+    }
+    if (this.compiledBlock.hasVarFields()) {
+      JBBPUtils.assertNotNull(varFieldProcessor,
+          "The Script contains VAR fields, a var field processor must be provided");
+    }
+  }
+
+  /**
+   * Parse messages which indexes are taken portion by portion from shared counter, all parsing state objects are reused.
+   *
+   * @return number of successfully parsed messages
+   */
+  private int runBatchWorker(final int messageNumber, final AtomicInteger nextIndex,
+                             final BatchMessageSource source,
+                             final JBBPFieldStruct[] results, final Exception[] errors,
+                             final JBBPVarFieldProcessor varFieldProcessor,
+                             final JBBPExternalValueProvider externalValueProvider) {
+    final ReusableContext context =
+        new ReusableContext(this, varFieldProcessor, externalValueProvider);
+    int parsed = 0;
+    while (true) {
+      final int portionStart = nextIndex.getAndAdd(BATCH_WORKER_PORTION);
+      if (portionStart >= messageNumber) {
+        break;
+      }
+      final int portionEnd = Math.min(messageNumber, portionStart + BATCH_WORKER_PORTION);
+      for (int i = portionStart; i < portionEnd; i++) {
+        JBBPFieldStruct result = null;
+        Exception error = null;
+        try {
+          result = source.parse(context, i);
+          parsed++;
+        } catch (IOException ex) {
+          error = ex;
+        } catch (RuntimeException ex) {
+          // WARNING! Don't replace by multi-catch for Android compatibility!
+          error = ex;
+        }
+        results[i] = result;
+        if (errors != null) {
+          errors[i] = error;
+        }
+      }
+    }
+    return parsed;
+  }
+
   /**
    * Get the final input stream byte counter value for the last parsing
    * operation. It is loaded just after exception or parsing completion. NB: It
@@ -959,4 +1588,173 @@ public final class JBBPParser {
     }
     throw new IllegalArgumentException("Unsupported target : " + target);
   }
+
+  /**
+   * Source of messages for batch parsing, it parses message with provided index through a reusable context.
+   */
+  @FunctionalInterface
+  private interface BatchMessageSource {
+    JBBPFieldStruct parse(ReusableContext context, int index) throws IOException;
+  }
+
+  /**
+   * Reusable parsing state for sequential parsing of many messages by the same thread.
+   * Region stream, bit stream, numeric field map and position counters are reused between messages.
+   */
+  static final class ReusableContext {
+    private final JBBPParser parser;
+    private final JBBPVarFieldProcessor varFieldProcessor;
+    private final RegionInputStream region = new RegionInputStream();
+    private final JBBPBitInputStream bitInStream;
+    private final JBBPNamedNumericFieldMap fieldMap;
+    private final JBBPIntCounter positionAtCompiledBlock = new JBBPIntCounter();
+    private final JBBPIntCounter positionAtNamedFieldList = new JBBPIntCounter();
+    private final JBBPIntCounter positionAtVarLengthProcessors = new JBBPIntCounter();
+    private final JBBPNamedFieldInfo rootName = new JBBPNamedFieldInfo("", "", -1);
+
+    ReusableContext(final JBBPParser parser, final JBBPVarFieldProcessor varFieldProcessor,
+                    final JBBPExternalValueProvider externalValueProvider) {
+      this.parser = parser;
+      this.varFieldProcessor = varFieldProcessor;
+      this.bitInStream = new JBBPBitInputStream(this.region, parser.bitOrder);
+      this.fieldMap = parser.compiledBlock.hasEvaluatedSizeArrays() ||
+          parser.compiledBlock.hasVarFields() ?
+          new JBBPNamedNumericFieldMap(externalValueProvider) : null;
+    }
+
+    JBBPFieldStruct parse(final byte[] array) throws IOException {
+      JBBPUtils.assertNotNull(array, "Message must not be null");
+      return this.parse(array, 0, array.length);
+    }
+
+    JBBPFieldStruct parse(final byte[] array, final int offset, final int length)
+        throws IOException {
+      this.region.set(array, offset, length);
+      return this.parseRegion();
+    }
+
+    JBBPFieldStruct parse(final ByteBuffer buffer, final int start, final int end)
+        throws IOException {
+      this.region.set(buffer, start, end);
+      return this.parseRegion();
+    }
+
+    private JBBPFieldStruct parseRegion() throws IOException {
+      this.bitInStream.rewrap(this.region);
+      if (this.fieldMap != null) {
+        this.fieldMap.clear();
+      }
+      this.positionAtCompiledBlock.set(0);
+      this.positionAtNamedFieldList.set(0);
+      this.positionAtVarLengthProcessors.set(0);
+      return new JBBPFieldStruct(this.rootName,
+          this.parser.parseStruct(this.bitInStream, this.positionAtCompiledBlock,
+              this.varFieldProcessor, this.fieldMap, this.positionAtNamedFieldList,
+              this.positionAtVarLengthProcessors, NO_LIMIT_FOR_ARRAY_SIZE, false));
+    }
+  }
+
+  /**
+   * Reusable input stream over a region of a byte array or a byte buffer.
+   */
+  private static final class RegionInputStream extends InputStream {
+    private byte[] array;
+    private ByteBuffer sourceBuffer;
+    private ByteBuffer bufferView;
+    private int position;
+    private int end;
+    private int markedPosition;
+
+    void set(final byte[] array, final int offset, final int length) {
+      if (offset < 0 || length < 0 || offset + length > array.length) {
+        throw new IndexOutOfBoundsException(
+            "Wrong message bounds: " + offset + '+' + length + " (length " + array.length + ')');
+      }
+      this.array = array;
+      this.bufferView = null;
+      this.position = offset;
+      this.end = offset + length;
+      this.markedPosition = offset;
+    }
+
+    void set(final ByteBuffer buffer, final int start, final int end) {
+      if (start < 0 || end < start || end > buffer.capacity()) {
+        throw new IndexOutOfBoundsException(
+            "Wrong message bounds: " + start + ".." + end + " (capacity " + buffer.capacity() + ')');
+      }
+      if (buffer.hasArray()) {
+        this.array = buffer.array();
+        this.bufferView = null;
+        this.position = buffer.arrayOffset() + start;
+        this.end = buffer.arrayOffset() + end;
+      } else {
+        if (this.sourceBuffer != buffer) {
+          this.sourceBuffer = buffer;
+          this.bufferView = buffer.duplicate();
+        }
+        this.array = null;
+        this.position = start;
+        this.end = end;
+      }
+      this.markedPosition = this.position;
+    }
+
+    @Override
+    public int read() {
+      if (this.position >= this.end) {
+        return -1;
+      }
+      return (this.array == null ? this.bufferView.get(this.position++) :
+          this.array[this.position++]) & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) {
+      if (length == 0) {
+        return 0;
+      }
+      final int len = Math.min(length, this.end - this.position);
+      if (len <= 0) {
+        return -1;
+      }
+      if (this.array == null) {
+        // cast to Buffer for compatibility with Android API
+        ((Buffer) this.bufferView).limit(this.position + len);
+        ((Buffer) this.bufferView).position(this.position);
+        this.bufferView.get(buffer, offset, len);
+        ((Buffer) this.bufferView).clear();
+      } else {
+        System.arraycopy(this.array, this.position, buffer, offset, len);
+      }
+      this.position += len;
+      return len;
+    }
+
+    @Override
+    public long skip(final long number) {
+      final int len = (int) Math.max(0L, Math.min(number, this.end - this.position));
+      this.position += len;
+      return len;
+    }
+
+    @Override
+    public int available() {
+      return this.end - this.position;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public synchronized void mark(final int readLimit) {
+      this.markedPosition = this.position;
+    }
+
+    @Override
+    public synchronized void reset() {
+      this.position = this.markedPosition;
+    }
+  }
 }
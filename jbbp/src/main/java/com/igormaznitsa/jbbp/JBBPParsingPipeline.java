@@ -0,0 +1,729 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pipeline to parse framed records of a stream concurrently. A reader thread splits the stream into records
+ * placed into pooled buffers, worker threads parse them and results are provided in the original record order.
+ * Number of records in flight is bounded, so that the reader is blocked if results are not taken.
+ * <pre>{@code
+ * try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+ *     .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(4, JBBPByteOrder.BIG_ENDIAN, false))
+ *     .setWorkers(4)
+ *     .start(inputStream)) {
+ *   JBBPParsingPipeline.Result result;
+ *   while ((result = pipeline.take()) != null) {
+ *     ...
+ *   }
+ * }
+ * }</pre>
+ *
+ * @since 3.0.3
+ */
+public final class JBBPParsingPipeline implements Closeable {
+
+  /**
+   * Default max allowed length of a record.
+   */
+  public static final int DEFAULT_MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+  private static final AtomicInteger PIPELINE_COUNTER = new AtomicInteger();
+
+  private final JBBPParser parser;
+  private final RecordFramer framer;
+  private final JBBPVarFieldProcessor varFieldProcessor;
+  private final JBBPExternalValueProvider externalValueProvider;
+  private final int maxRecordLength;
+  private final InputStream source;
+
+  private final Semaphore inFlightPermits;
+  private final BlockingQueue<RecordBuffer> freeBuffers;
+  private final BlockingQueue<RecordBuffer> workQueue;
+  private final Result[] orderedResults;
+
+  private final ReentrantLock resultLock = new ReentrantLock();
+  private final Condition resultReady = this.resultLock.newCondition();
+
+  private final Thread readerThread;
+  private final Thread[] workerThreads;
+
+  private long nextResultIndex;
+  private long readRecords = -1L;
+  private IOException readerError;
+  private volatile boolean closed;
+
+  private JBBPParsingPipeline(final Builder builder, final InputStream source) {
+    this.parser = builder.parser;
+    this.framer = builder.framer;
+    this.varFieldProcessor = builder.varFieldProcessor;
+    this.externalValueProvider = builder.externalValueProvider;
+    this.maxRecordLength = builder.maxRecordLength;
+    this.source = source;
+
+    this.inFlightPermits = new Semaphore(builder.capacity);
+    this.freeBuffers = new ArrayBlockingQueue<>(builder.capacity);
+    this.workQueue = new ArrayBlockingQueue<>(builder.capacity + builder.workers);
+    this.orderedResults = new Result[builder.capacity];
+    for (int i = 0; i < builder.capacity; i++) {
+      this.freeBuffers.add(new RecordBuffer(this.maxRecordLength));
+    }
+
+    final String namePrefix = "jbbp-pipeline-" + PIPELINE_COUNTER.incrementAndGet();
+    this.readerThread = makeThread(builder.threadFactory, this::readRecords, namePrefix + "-reader");
+    this.workerThreads = new Thread[builder.workers];
+    for (int i = 0; i < builder.workers; i++) {
+      this.workerThreads[i] =
+          makeThread(builder.threadFactory, this::parseRecords, namePrefix + "-worker-" + i);
+    }
+  }
+
+  /**
+   * Make new builder.
+   *
+   * @param parser parser to parse records, must not be null
+   * @return the new builder instance, must not be null
+   */
+  public static Builder makeBuilder(final JBBPParser parser) {
+    return new Builder(parser);
+  }
+
+  /**
+   * Make framer for records prefixed by their length.
+   *
+   * @param prefixBytes number of bytes in length prefix, must be 1..4
+   * @param byteOrder   byte order of length prefix, must not be null
+   * @param keepPrefix  if true then prefix bytes are placed at the start of record data to be read by script, otherwise only data after the prefix is parsed
+   * @return new framer instance, must not be null
+   */
+  public static RecordFramer makeLengthPrefixedFramer(final int prefixBytes,
+                                                      final JBBPByteOrder byteOrder,
+                                                      final boolean keepPrefix) {
+    if (prefixBytes < 1 || prefixBytes > 4) {
+      throw new IllegalArgumentException("Length prefix must be 1..4 bytes: " + prefixBytes);
+    }
+    JBBPUtils.assertNotNull(byteOrder, "Byte order must not be null");
+    return (in, buffer) -> {
+      long length = 0L;
+      for (int i = 0; i < prefixBytes; i++) {
+        final int next = in.read();
+        if (next < 0) {
+          if (i == 0) {
+            return false;
+          }
+          throw new EOFException("Unexpected end of stream in record length prefix");
+        }
+        if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
+          length = (length << 8) | next;
+        } else {
+          length |= (long) next << (i << 3);
+        }
+        if (keepPrefix) {
+          buffer.ensureCapacity(i + 1)[i] = (byte) next;
+        }
+      }
+      final int dataOffset = keepPrefix ? prefixBytes : 0;
+      final long recordLength = dataOffset + length;
+      if (recordLength > buffer.getMaxLength()) {
+        throw new IOException("Too long record: " + recordLength);
+      }
+      readFully(in, buffer.ensureCapacity((int) recordLength), dataOffset, (int) length);
+      buffer.setLength((int) recordLength);
+      return true;
+    };
+  }
+
+  /**
+   * Make framer for records separated by a delimiter byte sequence. Delimiters are not included into record data,
+   * empty records are skipped, the stream end finishes the last record. The framer keeps read-ahead data so that
+   * its instance must not be shared among pipelines.
+   *
+   * @param delimiter delimiter byte sequence, must not be null and must not be empty
+   * @return new framer instance, must not be null
+   */
+  public static RecordFramer makeDelimitedFramer(final byte[] delimiter) {
+    return new DelimitedFramer(delimiter);
+  }
+
+  private static Thread makeThread(final ThreadFactory threadFactory, final Runnable runnable,
+                                   final String name) {
+    final Thread result;
+    if (threadFactory == null) {
+      result = new Thread(runnable, name);
+      result.setDaemon(true);
+    } else {
+      result = threadFactory.newThread(runnable);
+      if (result == null) {
+        throw new IllegalStateException("Thread factory returned null");
+      }
+    }
+    return result;
+  }
+
+  private static void readFully(final InputStream in, final byte[] array, final int offset,
+                                final int length) throws IOException {
+    int position = offset;
+    int rest = length;
+    while (rest > 0) {
+      final int read = in.read(array, position, rest);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of stream, record is not completed");
+      }
+      position += read;
+      rest -= read;
+    }
+  }
+
+  private void start() {
+    for (final Thread worker : this.workerThreads) {
+      worker.start();
+    }
+    this.readerThread.start();
+  }
+
+  private void readRecords() {
+    long index = 0L;
+    IOException error = null;
+    try {
+      while (!this.closed) {
+        this.inFlightPermits.acquire();
+        final RecordBuffer buffer = this.freeBuffers.take();
+        buffer.reset(index);
+        if (this.framer.readRecord(this.source, buffer)) {
+          this.workQueue.put(buffer);
+          index++;
+        } else {
+          this.freeBuffers.put(buffer);
+          this.inFlightPermits.release();
+          break;
+        }
+      }
+    } catch (IOException ex) {
+      error = ex;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException ex) {
+      error = new IOException("Error during record framing", ex);
+    } finally {
+      for (int i = 0; i < this.workerThreads.length; i++) {
+        this.workQueue.offer(RecordBuffer.END);
+      }
+      this.resultLock.lock();
+      try {
+        this.readRecords = index;
+        this.readerError = error;
+        this.resultReady.signalAll();
+      } finally {
+        this.resultLock.unlock();
+      }
+    }
+  }
+
+  private void parseRecords() {
+    final JBBPParser.ReusableContext context =
+        new JBBPParser.ReusableContext(this.parser, this.varFieldProcessor,
+            this.externalValueProvider);
+    try {
+      while (true) {
+        final RecordBuffer buffer = this.workQueue.take();
+        if (buffer == RecordBuffer.END) {
+          break;
+        }
+        JBBPFieldStruct record = null;
+        Exception error = null;
+        try {
+          record = context.parse(buffer.data, 0, buffer.length);
+        } catch (IOException ex) {
+          error = ex;
+        } catch (RuntimeException ex) {
+          // WARNING! Don't replace by multi-catch for Android compatibility!
+          error = ex;
+        }
+        final Result result = new Result(buffer.index, buffer.length, record, error);
+        this.freeBuffers.put(buffer);
+
+        this.resultLock.lock();
+        try {
+          this.orderedResults[(int) (result.index % this.orderedResults.length)] = result;
+          this.resultReady.signalAll();
+        } finally {
+          this.resultLock.unlock();
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Take the next parsed record result in the original record order, blocks till the result is ready.
+   *
+   * @return the next result or null if all records have been provided or the pipeline is closed
+   * @throws IOException          if the reader has got error during reading or framing, it is thrown after all results read before the error
+   * @throws InterruptedException if the current thread has been interrupted
+   */
+  public Result take() throws IOException, InterruptedException {
+    final Result result;
+    this.resultLock.lockInterruptibly();
+    try {
+      if (this.closed) {
+        return null;
+      }
+      final int slot = (int) (this.nextResultIndex % this.orderedResults.length);
+      while (this.orderedResults[slot] == null) {
+        if (this.readRecords >= 0L && this.nextResultIndex >= this.readRecords) {
+          if (this.readerError != null) {
+            final IOException error = this.readerError;
+            this.readerError = null;
+            throw error;
+          }
+          return null;
+        }
+        this.resultReady.await();
+        if (this.closed) {
+          return null;
+        }
+      }
+      result = this.orderedResults[slot];
+      this.orderedResults[slot] = null;
+      this.nextResultIndex++;
+    } finally {
+      this.resultLock.unlock();
+    }
+    this.inFlightPermits.release();
+    return result;
+  }
+
+  /**
+   * Check that the pipeline is closed.
+   *
+   * @return true if closed, false otherwise
+   */
+  public boolean isClosed() {
+    return this.closed;
+  }
+
+  /**
+   * Close the pipeline, the source stream is closed and all threads are interrupted.
+   *
+   * @throws IOException if the source stream can't be closed
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.source.close();
+    } finally {
+      this.readerThread.interrupt();
+      for (final Thread worker : this.workerThreads) {
+        worker.interrupt();
+      }
+      this.resultLock.lock();
+      try {
+        this.resultReady.signalAll();
+      } finally {
+        this.resultLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Framer reads the next record from a stream into a buffer. It is called only from the reader thread.
+   */
+  @FunctionalInterface
+  public interface RecordFramer {
+    /**
+     * Read the next record.
+     *
+     * @param in     source stream, must not be null
+     * @param buffer buffer to get record data, must not be null
+     * @return true if record has been read, false if end of stream and there is no more records
+     * @throws IOException it will be thrown for transport errors and wrong framing
+     */
+    boolean readRecord(InputStream in, RecordBuffer buffer) throws IOException;
+  }
+
+  /**
+   * Pooled growing buffer to keep data of a record.
+   */
+  public static final class RecordBuffer {
+    private static final RecordBuffer END = new RecordBuffer(0);
+
+    private final int maxLength;
+    private byte[] data = new byte[0];
+    private int length;
+    private long index;
+
+    private RecordBuffer(final int maxLength) {
+      this.maxLength = maxLength;
+    }
+
+    private void reset(final long index) {
+      this.index = index;
+      this.length = 0;
+    }
+
+    /**
+     * Get max allowed record length.
+     *
+     * @return max allowed length in bytes
+     */
+    public int getMaxLength() {
+      return this.maxLength;
+    }
+
+    /**
+     * Ensure that the buffer array has needed capacity, already placed data is kept.
+     *
+     * @param capacity needed capacity
+     * @return the buffer array, must not be null
+     * @throws IOException if the capacity is greater than max allowed record length
+     */
+    public byte[] ensureCapacity(final int capacity) throws IOException {
+      if (capacity > this.maxLength) {
+        throw new IOException("Too long record: " + capacity);
+      }
+      if (this.data.length < capacity) {
+        final byte[] newData =
+            new byte[(int) Math.min(this.maxLength, Math.max(capacity, this.data.length * 2L))];
+        System.arraycopy(this.data, 0, newData, 0, this.data.length);
+        this.data = newData;
+      }
+      return this.data;
+    }
+
+    /**
+     * Get current buffer array.
+     *
+     * @return the buffer array, must not be null
+     */
+    public byte[] getData() {
+      return this.data;
+    }
+
+    /**
+     * Get length of record data.
+     *
+     * @return number of bytes in the record
+     */
+    public int getLength() {
+      return this.length;
+    }
+
+    /**
+     * Set length of record data.
+     *
+     * @param length number of bytes in the record, must not be greater than array length
+     */
+    public void setLength(final int length) {
+      if (length < 0 || length > this.data.length) {
+        throw new IllegalArgumentException("Wrong record length: " + length);
+      }
+      this.length = length;
+    }
+  }
+
+  /**
+   * Result of record parsing.
+   */
+  public static final class Result {
+    private final long index;
+    private final int length;
+    private final JBBPFieldStruct record;
+    private final Exception error;
+
+    private Result(final long index, final int length, final JBBPFieldStruct record,
+                   final Exception error) {
+      this.index = index;
+      this.length = length;
+      this.record = record;
+      this.error = error;
+    }
+
+    /**
+     * Get zero based record index in the stream.
+     *
+     * @return the record index
+     */
+    public long getIndex() {
+      return this.index;
+    }
+
+    /**
+     * Get length of record data.
+     *
+     * @return number of bytes in the framed record
+     */
+    public int getLength() {
+      return this.length;
+    }
+
+    /**
+     * Get parsed record.
+     *
+     * @return parsed record or null if error
+     */
+    public JBBPFieldStruct getRecord() {
+      return this.record;
+    }
+
+    /**
+     * Get parsing error.
+     *
+     * @return error or null if the record is parsed successfully
+     */
+    public Exception getError() {
+      return this.error;
+    }
+  }
+
+  private static final class DelimitedFramer implements RecordFramer {
+    private final byte[] delimiter;
+    private final int[] shiftTable;
+    private final byte[] readBuffer = new byte[STREAM_BUFFER_SIZE];
+    private InputStream lastStream;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+
+    private DelimitedFramer(final byte[] delimiter) {
+      JBBPUtils.assertNotNull(delimiter, "Delimiter must not be null");
+      this.delimiter = delimiter.clone();
+      this.shiftTable = JBBPUtils.makeSearchShiftTable(this.delimiter);
+    }
+
+    @Override
+    public boolean readRecord(final InputStream in, final RecordBuffer buffer)
+        throws IOException {
+      if (this.lastStream != in) {
+        this.lastStream = in;
+        this.position = 0;
+        this.limit = 0;
+        this.endOfStream = false;
+      }
+      int length = 0;
+      while (true) {
+        if (this.position < this.limit) {
+          final int found = JBBPUtils.indexOf(this.readBuffer, this.position,
+              this.limit - this.position, this.delimiter, this.shiftTable);
+          final int dataEnd;
+          if (found < 0) {
+            // keep tail which can contain start of delimiter
+            dataEnd = this.endOfStream ? this.limit :
+                Math.max(this.position, this.limit - this.delimiter.length + 1);
+          } else {
+            dataEnd = found;
+          }
+          final int portion = dataEnd - this.position;
+          if (portion > 0) {
+            System.arraycopy(this.readBuffer, this.position,
+                buffer.ensureCapacity(length + portion), length, portion);
+            length += portion;
+          }
+          if (found >= 0) {
+            this.position = found + this.delimiter.length;
+            if (length > 0) {
+              buffer.setLength(length);
+              return true;
+            }
+            continue;
+          }
+          this.position = dataEnd;
+        }
+        if (this.endOfStream) {
+          if (length > 0) {
+            buffer.setLength(length);
+            return true;
+          }
+          return false;
+        }
+        final int rest = this.limit - this.position;
+        System.arraycopy(this.readBuffer, this.position, this.readBuffer, 0, rest);
+        this.position = 0;
+        this.limit = rest;
+        final int read = in.read(this.readBuffer, rest, this.readBuffer.length - rest);
+        if (read < 0) {
+          this.endOfStream = true;
+        } else {
+          this.limit += read;
+        }
+      }
+    }
+  }
+
+  /**
+   * Builder of parsing pipeline.
+   */
+  public static final class Builder {
+    private final JBBPParser parser;
+    private RecordFramer framer;
+    private JBBPVarFieldProcessor varFieldProcessor;
+    private JBBPExternalValueProvider externalValueProvider;
+    private ThreadFactory threadFactory;
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private int capacity = 256;
+    private int maxRecordLength = DEFAULT_MAX_RECORD_LENGTH;
+
+    private Builder(final JBBPParser parser) {
+      JBBPUtils.assertNotNull(parser, "Parser must not be null");
+      this.parser = parser;
+    }
+
+    /**
+     * Set framer to split stream into records, must be provided before start.
+     *
+     * @param framer framer instance, must not be null
+     * @return the builder instance, must not be null
+     * @see #makeLengthPrefixedFramer(int, JBBPByteOrder, boolean)
+     * @see #makeDelimitedFramer(byte[])
+     */
+    public Builder setFramer(final RecordFramer framer) {
+      JBBPUtils.assertNotNull(framer, "Framer must not be null");
+      this.framer = framer;
+      return this;
+    }
+
+    /**
+     * Set number of parsing worker threads.
+     *
+     * @param value number of workers, must be greater than zero
+     * @return the builder instance, must not be null
+     */
+    public Builder setWorkers(final int value) {
+      if (value <= 0) {
+        throw new IllegalArgumentException("Number of workers must be greater than zero");
+      }
+      this.workers = value;
+      return this;
+    }
+
+    /**
+     * Set max number of records in flight (read but not taken), it defines number of pooled buffers.
+     *
+     * @param value capacity, must be greater than zero
+     * @return the builder instance, must not be null
+     */
+    public Builder setCapacity(final int value) {
+      if (value <= 0) {
+        throw new IllegalArgumentException("Capacity must be greater than zero");
+      }
+      this.capacity = value;
+      return this;
+    }
+
+    /**
+     * Set max allowed length of a record, framing error is generated for longer records.
+     *
+     * @param value max record length in bytes, must be greater than zero
+     * @return the builder instance, must not be null
+     */
+    public Builder setMaxRecordLength(final int value) {
+      if (value <= 0) {
+        throw new IllegalArgumentException("Max record length must be greater than zero");
+      }
+      this.maxRecordLength = value;
+      return this;
+    }
+
+    /**
+     * Set thread factory to make reader and worker threads, for instance it can be a virtual thread factory.
+     *
+     * @param value thread factory, if null then daemon platform threads are used
+     * @return the builder instance, must not be null
+     */
+    public Builder setThreadFactory(final ThreadFactory value) {
+      this.threadFactory = value;
+      return this;
+    }
+
+    /**
+     * Set var field processor, it is called concurrently from workers.
+     *
+     * @param value var field processor, can be null if there is no var fields in the script
+     * @return the builder instance, must not be null
+     */
+    public Builder setVarFieldProcessor(final JBBPVarFieldProcessor value) {
+      this.varFieldProcessor = value;
+      return this;
+    }
+
+    /**
+     * Set external value provider, it is called concurrently from workers.
+     *
+     * @param value external value provider, can be null if not needed by the script
+     * @return the builder instance, must not be null
+     */
+    public Builder setExternalValueProvider(final JBBPExternalValueProvider value) {
+      this.externalValueProvider = value;
+      return this;
+    }
+
+    /**
+     * Start pipeline for an input stream, the stream is buffered if needed.
+     *
+     * @param in source stream, must not be null
+     * @return started pipeline, must not be null
+     */
+    public JBBPParsingPipeline start(final InputStream in) {
+      JBBPUtils.assertNotNull(in, "Stream must not be null");
+      JBBPUtils.assertNotNull(this.framer, "Framer must be provided");
+      if (this.parser.getCompiledBlock().hasVarFields()) {
+        JBBPUtils.assertNotNull(this.varFieldProcessor,
+            "The Script contains VAR fields, a var field processor must be provided");
+      }
+      final InputStream source =
+          in instanceof BufferedInputStream || in instanceof ByteArrayInputStream ? in :
+              new BufferedInputStream(in, STREAM_BUFFER_SIZE);
+      final JBBPParsingPipeline result = new JBBPParsingPipeline(this, source);
+      result.start();
+      return result;
+    }
+
+    /**
+     * Start pipeline for a channel, for instance a file channel.
+     *
+     * @param channel source channel, must not be null
+     * @return started pipeline, must not be null
+     */
+    public JBBPParsingPipeline start(final ReadableByteChannel channel) {
+      JBBPUtils.assertNotNull(channel, "Channel must not be null");
+      return this.start(Channels.newInputStream(channel));
+    }
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter;
+import com.igormaznitsa.jbbp.io.JBBPBitInputStream;
+import com.igormaznitsa.jbbp.mapper.JBBPMapper;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.utils.Function;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of consecutive records parsed from a stream. Records are parsed only on demand requested by subscriber,
+ * so that there is no any buffering of parsed but not requested records. Parsing is executed by provided executor,
+ * the stream can be subscribed only once and it is closed when the subscription is completed, failed or cancelled.
+ *
+ * @param <T> type of published items
+ * @since 3.0.3
+ */
+public final class JBBPRecordPublisher<T> implements Flow.Publisher<T> {
+
+  private final JBBPParser parser;
+  private final InputStream source;
+  private final JBBPVarFieldProcessor varFieldProcessor;
+  private final JBBPExternalValueProvider externalValueProvider;
+  private final Function<JBBPFieldStruct, T> converter;
+  private final Executor executor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  private JBBPRecordPublisher(final JBBPParser parser,
+                              final InputStream source,
+                              final JBBPVarFieldProcessor varFieldProcessor,
+                              final JBBPExternalValueProvider externalValueProvider,
+                              final Function<JBBPFieldStruct, T> converter,
+                              final Executor executor) {
+    JBBPUtils.assertNotNull(parser, "Parser must not be null");
+    JBBPUtils.assertNotNull(source, "Stream must not be null");
+    JBBPUtils.assertNotNull(executor, "Executor must not be null");
+    if (parser.getCompiledBlock().hasVarFields()) {
+      JBBPUtils.assertNotNull(varFieldProcessor,
+          "The Script contains VAR fields, a var field processor must be provided");
+    }
+    this.parser = parser;
+    this.source = source;
+    this.varFieldProcessor = varFieldProcessor;
+    this.externalValueProvider = externalValueProvider;
+    this.converter = converter;
+    this.executor = executor;
+  }
+
+  /**
+   * Make publisher of parsed records.
+   *
+   * @param parser   parser to parse records, must not be null
+   * @param source   source stream, must not be null
+   * @param executor executor to parse records, must not be null
+   * @return new publisher, must not be null
+   */
+  public static JBBPRecordPublisher<JBBPFieldStruct> makeRecordPublisher(
+      final JBBPParser parser,
+      final InputStream source,
+      final Executor executor) {
+    return makeRecordPublisher(parser, source, null, null, executor);
+  }
+
+  /**
+   * Make publisher of parsed records.
+   *
+   * @param parser                parser to parse records, must not be null
+   * @param source                source stream, must not be null
+   * @param varFieldProcessor     var field processor, can be null if there is no var fields in the script
+   * @param externalValueProvider external value provider, can be null if not needed by the script
+   * @param executor              executor to parse records, must not be null
+   * @return new publisher, must not be null
+   */
+  public static JBBPRecordPublisher<JBBPFieldStruct> makeRecordPublisher(
+      final JBBPParser parser,
+      final InputStream source,
+      final JBBPVarFieldProcessor varFieldProcessor,
+      final JBBPExternalValueProvider externalValueProvider,
+      final Executor executor) {
+    return new JBBPRecordPublisher<>(parser, source, varFieldProcessor, externalValueProvider,
+        record -> record, executor);
+  }
+
+  /**
+   * Make publisher of objects mapped from parsed records.
+   *
+   * @param <T>              type of mapped objects
+   * @param parser           parser to parse records, must not be null
+   * @param source           source stream, must not be null
+   * @param instanceMaker    function makes new instance to be mapped for every parsed record, must not be null
+   * @param executor         executor to parse records, must not be null
+   * @return new publisher, must not be null
+   * @see JBBPMapper#map(JBBPFieldStruct, Object, Function[])
+   */
+  public static <T> JBBPRecordPublisher<T> makeMappedPublisher(
+      final JBBPParser parser,
+      final InputStream source,
+      final Function<JBBPFieldStruct, T> instanceMaker,
+      final Executor executor) {
+    return makeMappedPublisher(parser, source, null, null, instanceMaker, executor);
+  }
+
+  /**
+   * Make publisher of objects mapped from parsed records.
+   *
+   * @param <T>                   type of mapped objects
+   * @param parser                parser to parse records, must not be null
+   * @param source                source stream, must not be null
+   * @param varFieldProcessor     var field processor, can be null if there is no var fields in the script
+   * @param externalValueProvider external value provider, can be null if not needed by the script
+   * @param instanceMaker         function makes new instance to be mapped for every parsed record, must not be null
+   * @param executor              executor to parse records, must not be null
+   * @return new publisher, must not be null
+   * @see JBBPMapper#map(JBBPFieldStruct, Object, Function[])
+   */
+  public static <T> JBBPRecordPublisher<T> makeMappedPublisher(
+      final JBBPParser parser,
+      final InputStream source,
+      final JBBPVarFieldProcessor varFieldProcessor,
+      final JBBPExternalValueProvider externalValueProvider,
+      final Function<JBBPFieldStruct, T> instanceMaker,
+      final Executor executor) {
+    JBBPUtils.assertNotNull(instanceMaker, "Instance maker must not be null");
+    return new JBBPRecordPublisher<>(parser, source, varFieldProcessor, externalValueProvider,
+        record -> JBBPMapper.map(record, instanceMaker.apply(record)), executor);
+  }
+
+  @Override
+  public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+    JBBPUtils.assertNotNull(subscriber, "Subscriber must not be null");
+    if (this.subscribed.compareAndSet(false, true)) {
+      final RecordSubscription subscription = new RecordSubscription(subscriber);
+      subscriber.onSubscribe(subscription);
+    } else {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(final long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("Publisher allows only one subscriber"));
+    }
+  }
+
+  private final class RecordSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super T> subscriber;
+    private final JBBPBitInputStream stream;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger workInProgress = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable wrongRequest;
+    private boolean done;
+
+    private RecordSubscription(final Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+      this.stream = source instanceof JBBPBitInputStream ? (JBBPBitInputStream) source :
+          new JBBPBitInputStream(source, parser.getBitOrder());
+    }
+
+    @Override
+    public void request(final long n) {
+      if (n <= 0L) {
+        this.wrongRequest =
+            new IllegalArgumentException("Requested number must be positive: " + n);
+      } else {
+        long current;
+        long next;
+        do {
+          current = this.demand.get();
+          next = current + n < 0L ? Long.MAX_VALUE : current + n;
+        } while (!this.demand.compareAndSet(current, next));
+      }
+      this.schedule();
+    }
+
+    @Override
+    public void cancel() {
+      if (!this.cancelled) {
+        this.cancelled = true;
+        // close stream to interrupt a blocked read as soon as possible
+        this.closeQuietly();
+        this.schedule();
+      }
+    }
+
+    private void schedule() {
+      if (this.workInProgress.getAndIncrement() == 0) {
+        try {
+          executor.execute(this);
+        } catch (RuntimeException ex) {
+          this.cancelled = true;
+          this.closeQuietly();
+          this.subscriber.onError(ex);
+        }
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        this.stream.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+
+    private void finish(final Throwable error) {
+      this.done = true;
+      this.closeQuietly();
+      if (!this.cancelled) {
+        if (error == null) {
+          this.subscriber.onComplete();
+        } else {
+          this.subscriber.onError(error);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        if (this.done) {
+          return;
+        }
+        final long requested = this.demand.get();
+        long emitted = 0L;
+        while (!this.cancelled) {
+          if (this.wrongRequest != null) {
+            this.finish(this.wrongRequest);
+            return;
+          }
+          if (emitted == requested) {
+            break;
+          }
+          final T item;
+          try {
+            if (!this.stream.hasAvailableData()) {
+              this.finish(null);
+              return;
+            }
+            item = converter.apply(parser.parse(this.stream, varFieldProcessor,
+                externalValueProvider, JBBPArraySizeLimiter.NO_LIMIT_FOR_ARRAY_SIZE));
+          } catch (Exception ex) {
+            this.finish(ex);
+            return;
+          }
+          this.subscriber.onNext(item);
+          emitted++;
+        }
+        if (this.cancelled) {
+          this.done = true;
+          this.closeQuietly();
+          return;
+        }
+        if (requested != Long.MAX_VALUE) {
+          this.demand.addAndGet(-emitted);
+        }
+        missed = this.workInProgress.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+
+/**
+ * Listener gets records and skipped byte ranges during parsing of a stream with re-synchronization by a sync marker.
+ * Offsets are calculated from the stream position at the start of parsing, they are appropriate ones only if the script doesn't make any counter reset operation.
+ *
+ * @see JBBPParser#parseWithResync(java.io.InputStream, byte[], JBBPResyncListener)
+ * @since 3.0.3
+ */
+public interface JBBPResyncListener {
+  /**
+   * Called for every successfully parsed record.
+   *
+   * @param parser       source parser, must not be null
+   * @param record       parsed record, must not be null
+   * @param recordOffset offset of the record start (the sync marker position)
+   * @param recordLength number of bytes read for the record
+   * @return true if parsing should be continued, false to stop parsing
+   */
+  boolean onRecord(JBBPParser parser, JBBPFieldStruct record, long recordOffset,
+                   long recordLength);
+
+  /**
+   * Called for every range of bytes skipped during re-synchronization.
+   *
+   * @param parser source parser, must not be null
+   * @param offset offset of the first skipped byte
+   * @param length number of skipped bytes
+   * @param cause  error detected during parsing of a record started at the range start, null if the range is just garbage before a sync marker or the stream end
+   * @return true if parsing should be continued, false to stop parsing
+   */
+  boolean onSkippedBytes(JBBPParser parser, long offset, long length, Exception cause);
+}
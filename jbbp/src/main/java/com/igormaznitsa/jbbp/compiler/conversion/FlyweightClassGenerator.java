@@ -0,0 +1,526 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.compiler.conversion;
+
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.compiler.varlen.JBBPIntegerValueEvaluator;
+import com.igormaznitsa.jbbp.io.JBBPBitOrder;
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.utils.JavaSrcTextBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Visitor generates source of flyweight class for a script with fixed layout. The generated class doesn't keep
+ * field values but wraps a byte buffer (or a byte array) with a base offset and its getters and setters decode and
+ * encode values directly at offsets precomputed during generation. Structures are represented by nested view classes,
+ * their instances are created once per parent and repositioned on every call, so that access to any field is O(1)
+ * and makes no allocation.
+ * <p>
+ * Only items with size known during generation are allowed, var, custom, string fields and items with
+ * expression based or whole stream sizes are rejected. Val fields are ignored because they don't occupy data.
+ *
+ * @since 3.0.3
+ */
+final class FlyweightClassGenerator extends CompiledBlockVisitor {
+
+  private static final String NAME_BUFFER = "_Buffer_";
+  private static final String NAME_BASE = "_Base_";
+  private static final String NAME_ARRAY = "_Array_";
+  private static final String NAME_POSITION = "_At_";
+
+  private final JBBPBitOrder bitOrder;
+  private final String className;
+  private final String packageName;
+  private final String headComment;
+  private final String superClass;
+  private final Set<String> implementedInterfaces;
+  private final String customText;
+  private final List<View> viewStack = new ArrayList<>();
+  private int anonymousCounter;
+  private long bits;
+  private long counterOrigin;
+  private String result;
+
+  FlyweightClassGenerator(final int parserFlags, final JBBPCompiledBlock block,
+                          final JBBPBitOrder bitOrder, final String className,
+                          final String packageName, final String headComment,
+                          final String superClass, final Set<String> implementedInterfaces,
+                          final String customText) {
+    super(parserFlags, block);
+    this.bitOrder = bitOrder;
+    this.className = className;
+    this.packageName = packageName;
+    this.headComment = headComment;
+    this.superClass = superClass;
+    this.implementedInterfaces = implementedInterfaces;
+    this.customText = customText;
+  }
+
+  private static int constant(final JBBPIntegerValueEvaluator evaluator, final String item) {
+    if (evaluator instanceof IntConstValueEvaluator) {
+      return evaluator.eval(null, 0, null, null);
+    }
+    throw new IllegalArgumentException(
+        "Flyweight can't be generated for expression based " + item + " size");
+  }
+
+  private static String makeAccessorName(final String fieldName) {
+    return fieldName.toUpperCase(Locale.ENGLISH);
+  }
+
+  String getResult() {
+    return this.result;
+  }
+
+  private View getCurrentView() {
+    return this.viewStack.get(0);
+  }
+
+  private String makeFieldName(final JBBPNamedFieldInfo nullableNameFieldInfo) {
+    if (nullableNameFieldInfo == null) {
+      return "_AStruct" + (this.anonymousCounter++);
+    }
+    final String name = nullableNameFieldInfo.getFieldName();
+    return JBBPToJavaConverter.RESERVED_JAVA_KEYWORDS.contains(name) ? '_' + name : name;
+  }
+
+  private String makeOffset(final long relativeBitOffset, final long itemBits) {
+    final StringBuilder buffer = new StringBuilder("this.").append(NAME_BASE);
+    if (relativeBitOffset != 0L) {
+      buffer.append(" + ").append(relativeBitOffset).append('L');
+    }
+    if (itemBits >= 0L) {
+      buffer.append(" + index * ").append(itemBits).append('L');
+    }
+    return buffer.toString();
+  }
+
+  private void assertNotRepeated(final String item) {
+    for (final View view : this.viewStack) {
+      if (view.elements != 1) {
+        throw new IllegalArgumentException(
+            "Flyweight can't be generated for " + item + " inside structure array");
+      }
+    }
+  }
+
+  private void alignByte() {
+    this.bits = (this.bits + 7L) & ~7L;
+  }
+
+  @Override
+  public void visitStart() {
+    this.viewStack.clear();
+    this.anonymousCounter = 1;
+    this.bits = 0L;
+    this.counterOrigin = 0L;
+    this.viewStack.add(new View(null, this.className, 0L, 1));
+  }
+
+  @Override
+  public void visitActionItem(final int offsetInCompiledBlock, final int actionType,
+                              final JBBPIntegerValueEvaluator nullableArgument) {
+    switch (actionType & 0xF) {
+      case JBBPCompiler.CODE_RESET_COUNTER: {
+        this.assertNotRepeated("counter reset");
+        this.alignByte();
+        this.counterOrigin = this.bits >>> 3;
+      }
+      break;
+      case JBBPCompiler.CODE_ALIGN: {
+        this.assertNotRepeated("align");
+        final int align = constant(nullableArgument, "align");
+        this.alignByte();
+        if (align > 0) {
+          final long counter = (this.bits >>> 3) - this.counterOrigin;
+          this.bits += ((align - counter % align) % align) << 3;
+        }
+      }
+      break;
+      case JBBPCompiler.CODE_SKIP: {
+        this.bits += (long) constant(nullableArgument, "skip") << 3;
+      }
+      break;
+      default:
+        throw new Error("Unexpected action item, contact developer! [" + actionType + ']');
+    }
+  }
+
+  @Override
+  public void visitPrimitiveField(final int offsetInCompiledBlock, final int primitiveType,
+                                  final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                  final JBBPByteOrder byteOrder,
+                                  final boolean readWholeStreamAsArray,
+                                  final boolean altFieldType,
+                                  final JBBPIntegerValueEvaluator nullableArraySize) {
+    final String javaType;
+    final int bytes;
+    final String getter;
+    final String setter;
+    switch (primitiveType) {
+      case JBBPCompiler.CODE_BOOL: {
+        if (altFieldType) {
+          throw new IllegalArgumentException("Flyweight can't be generated for string field");
+        }
+        javaType = "boolean";
+        bytes = 1;
+        getter = "%s != 0L";
+        setter = "value ? 1L : 0L";
+      }
+      break;
+      case JBBPCompiler.CODE_BYTE: {
+        javaType = altFieldType ? "long" : "byte";
+        bytes = altFieldType ? 4 : 1;
+        getter = altFieldType ? "%s" : "(byte) %s";
+        setter = "value";
+      }
+      break;
+      case JBBPCompiler.CODE_UBYTE: {
+        javaType = "char";
+        bytes = 1;
+        getter = "(char) %s";
+        setter = "value";
+      }
+      break;
+      case JBBPCompiler.CODE_SHORT: {
+        javaType = "short";
+        bytes = 2;
+        getter = "(short) %s";
+        setter = "value";
+      }
+      break;
+      case JBBPCompiler.CODE_USHORT: {
+        javaType = "char";
+        bytes = 2;
+        getter = "(char) %s";
+        setter = "value";
+      }
+      break;
+      case JBBPCompiler.CODE_INT: {
+        javaType = altFieldType ? "float" : "int";
+        bytes = 4;
+        getter = altFieldType ? "Float.intBitsToFloat((int) %s)" : "(int) %s";
+        setter = altFieldType ? "Float.floatToIntBits(value)" : "value";
+      }
+      break;
+      case JBBPCompiler.CODE_LONG: {
+        javaType = altFieldType ? "double" : "long";
+        bytes = 8;
+        getter = altFieldType ? "Double.longBitsToDouble(%s)" : "%s";
+        setter = altFieldType ? "Double.doubleToLongBits(value)" : "value";
+      }
+      break;
+      default:
+        throw new Error("Unexpected primitive type, contact developer! [" + primitiveType + ']');
+    }
+
+    final int elements = this.makeElements(readWholeStreamAsArray, nullableArraySize);
+    final long itemBits = bytes * 8L;
+    if (nullableNameFieldInfo != null) {
+      final String offset = this.makeOffset(this.bits - this.getCurrentView().start,
+          nullableArraySize == null ? -1L : itemBits);
+      final String orders = String.format("JBBPByteOrder.%s, JBBPBitOrder.%s", byteOrder.name(),
+          this.bitOrder.name());
+      final String read = String.format(getter, String.format(
+          "JBBPBitAccess.getValue(this.%s, %s, %d, %s)", NAME_BUFFER, offset, bytes, orders));
+      final String write = String.format("JBBPBitAccess.setValue(this.%s, %s, %s, %d, %s);",
+          NAME_BUFFER, offset, setter, bytes, orders);
+      this.getCurrentView().addAccessors(this.makeFieldName(nullableNameFieldInfo), javaType,
+          read, write, nullableArraySize == null ? -1 : elements);
+    }
+    this.bits += itemBits * elements;
+  }
+
+  @Override
+  public void visitBitField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                            final JBBPNamedFieldInfo nullableNameFieldInfo,
+                            final boolean readWholeStream,
+                            final JBBPIntegerValueEvaluator notNullFieldSize,
+                            final JBBPIntegerValueEvaluator nullableArraySize) {
+    final int width = constant(notNullFieldSize, "bit field");
+    if (width < 1 || width > 8) {
+      throw new IllegalArgumentException("Wrong bit field width: " + width);
+    }
+    final int elements = this.makeElements(readWholeStream, nullableArraySize);
+    if (nullableNameFieldInfo != null) {
+      final String offset = this.makeOffset(this.bits - this.getCurrentView().start,
+          nullableArraySize == null ? -1L : width);
+      final String read = String.format("(byte) JBBPBitAccess.getBits(this.%s, %s, %d, JBBPBitOrder.%s)",
+          NAME_BUFFER, offset, width, this.bitOrder.name());
+      final String write =
+          String.format("JBBPBitAccess.setBits(this.%s, %s, value, %d, JBBPBitOrder.%s);",
+              NAME_BUFFER, offset, width, this.bitOrder.name());
+      this.getCurrentView().addAccessors(this.makeFieldName(nullableNameFieldInfo), "byte", read,
+          write, nullableArraySize == null ? -1 : elements);
+    }
+    this.bits += (long) width * elements;
+  }
+
+  private int makeElements(final boolean readWholeStream,
+                           final JBBPIntegerValueEvaluator nullableArraySize) {
+    if (readWholeStream) {
+      throw new IllegalArgumentException("Flyweight can't be generated for whole stream array");
+    }
+    return nullableArraySize == null ? 1 : constant(nullableArraySize, "array");
+  }
+
+  @Override
+  public void visitValField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                            final JBBPNamedFieldInfo nameFieldInfo,
+                            final JBBPIntegerValueEvaluator expression) {
+    // val fields don't occupy data
+  }
+
+  @Override
+  public void visitVarField(final int offsetInCompiledBlock,
+                            final JBBPNamedFieldInfo nullableNameFieldInfo,
+                            final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                            final JBBPIntegerValueEvaluator nullableArraySize,
+                            final JBBPIntegerValueEvaluator extraDataValue) {
+    throw new IllegalArgumentException("Flyweight can't be generated for var field");
+  }
+
+  @Override
+  public void visitCustomField(final int offsetInCompiledBlock,
+                               final JBBPFieldTypeParameterContainer notNullFieldType,
+                               final JBBPNamedFieldInfo nullableNameFieldInfo,
+                               final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                               final JBBPIntegerValueEvaluator nullableArraySize,
+                               final JBBPIntegerValueEvaluator extraDataValue) {
+    throw new IllegalArgumentException(
+        "Flyweight can't be generated for custom field: " + notNullFieldType);
+  }
+
+  @Override
+  public void visitStructureStart(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                                  final boolean readWholeStream,
+                                  final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                  final JBBPIntegerValueEvaluator nullableArraySize) {
+    final String name = this.makeFieldName(nullableNameFieldInfo).toLowerCase(Locale.ENGLISH);
+    final int elements = nullableArraySize == null ? 1 : this.makeElements(readWholeStream,
+        nullableArraySize);
+    final View parent = this.getCurrentView();
+    final View view = new View(parent, name.toUpperCase(Locale.ENGLISH), this.bits,
+        nullableArraySize == null ? 1 : elements);
+    view.fieldName = name;
+    view.array = nullableArraySize != null;
+    parent.children.add(view);
+    this.viewStack.add(0, view);
+  }
+
+  @Override
+  public void visitStructureEnd(final int offsetInCompiledBlock,
+                                final JBBPNamedFieldInfo nullableNameFieldInfo) {
+    final View view = this.viewStack.remove(0);
+    view.sizeInBits = this.bits - view.start;
+    this.bits = view.start + view.sizeInBits * view.elements;
+    final View parent = this.getCurrentView();
+    final String offset = this.makeOffset(view.start - parent.start,
+        view.array ? view.sizeInBits : -1L);
+    final String read = String.format("this.%s.%s(this.%s, %s)", view.fieldName, NAME_POSITION,
+        NAME_BUFFER, offset);
+    parent.addAccessors(view.fieldName, view.className, read, null,
+        view.array ? view.elements : -1);
+  }
+
+  @Override
+  public void visitEnd() {
+    final View root = this.viewStack.get(0);
+    root.sizeInBits = this.bits;
+    final long sizeInBytes = (this.bits + 7L) >>> 3;
+    if (sizeInBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too big structure: " + sizeInBytes + " bytes");
+    }
+
+    final JavaSrcTextBuffer buffer = new JavaSrcTextBuffer();
+    if (this.headComment != null) {
+      buffer.printCommentMultiLinesWithIndent(this.headComment);
+    }
+    if (this.packageName != null && !this.packageName.isEmpty()) {
+      buffer.print("package ").print(this.packageName).println(";");
+    }
+    buffer.println();
+    buffer.println("import com.igormaznitsa.jbbp.io.*;");
+    buffer.println("import java.nio.ByteBuffer;");
+    buffer.println();
+    buffer.printJavaDocLinesWithIndent(
+        "Generated from JBBP script by internal JBBP Class Source Generator as flyweight,\n"
+            + "it wraps data and reads and writes fields directly in it.");
+    buffer.indent().printf("public class %s%s%s {%n", this.className,
+        this.superClass == null ? "" : " extends " + this.superClass,
+        this.implementedInterfaces.isEmpty() ? "" :
+            " implements " + String.join(", ", this.implementedInterfaces));
+    buffer.incIndent();
+
+    buffer.printJavaDocLinesWithIndent("Size of wrapped data in bytes.");
+    buffer.indent().printf("public static final int SIZE = %d;%n", sizeInBytes);
+    root.printBody(buffer);
+
+    buffer.println();
+    buffer.printJavaDocLinesWithIndent(
+        "Wrap byte array, the same array can be wrapped again without allocation.\n"
+            + "@param array array to be wrapped, must not be null\n"
+            + "@param offset offset of data start in the array\n"
+            + "@return the instance\n"
+            + "@throws IndexOutOfBoundsException if not enough data in the array");
+    buffer.indent().printf("public %s wrap(final byte[] array, final int offset) {%n",
+        this.className);
+    buffer.incIndent();
+    buffer.indent().printf("if (this.%1$s != array) { this.%1$s = array; this.%2$s = "
+        + "ByteBuffer.wrap(array); }%n", NAME_ARRAY, NAME_BUFFER);
+    buffer.indent().printf("return this.%s(this.%s, offset);%n", NAME_POSITION, NAME_BUFFER);
+    buffer.decIndent();
+    buffer.indent().println("}");
+
+    buffer.println();
+    buffer.printJavaDocLinesWithIndent(
+        "Wrap byte buffer, its position and limit are not changed.\n"
+            + "@param buffer buffer to be wrapped, must not be null\n"
+            + "@param offset absolute index of data start in the buffer\n"
+            + "@return the instance\n"
+            + "@throws IndexOutOfBoundsException if not enough data in the buffer");
+    buffer.indent().printf("public %s wrap(final ByteBuffer buffer, final int offset) {%n",
+        this.className);
+    buffer.incIndent();
+    buffer.indent().printf("this.%s = null;%n", NAME_ARRAY);
+    buffer.indent().printf("return this.%s(buffer, offset);%n", NAME_POSITION);
+    buffer.decIndent();
+    buffer.indent().println("}");
+
+    buffer.println();
+    buffer.indent().printf("private %s %s(final ByteBuffer buffer, final int offset) {%n",
+        this.className, NAME_POSITION);
+    buffer.incIndent();
+    buffer.indent().println("if (offset < 0 || buffer.limit() - offset < SIZE) {");
+    buffer.incIndent();
+    buffer.indent().println(
+        "throw new IndexOutOfBoundsException(\"Not enough data for flyweight at offset \" + offset);");
+    buffer.decIndent();
+    buffer.indent().println("}");
+    buffer.indent().printf("this.%s = buffer;%n", NAME_BUFFER);
+    buffer.indent().printf("this.%s = (long) offset << 3;%n", NAME_BASE);
+    buffer.indent().println("return this;");
+    buffer.decIndent();
+    buffer.indent().println("}");
+
+    if (this.customText != null) {
+      buffer.println();
+      buffer.printCommentLinesWithIndent("------ Custom section START");
+      buffer.printLinesWithIndent(this.customText);
+      buffer.printCommentLinesWithIndent("------ Custom section END");
+    }
+
+    buffer.decIndent();
+    buffer.indent().println("}");
+    this.result = buffer.toString();
+  }
+
+  /**
+   * Generated class for a structure or for the root.
+   */
+  private static final class View {
+    private final View parent;
+    private final String className;
+    private final long start;
+    private final int elements;
+    private final List<View> children = new ArrayList<>();
+    private final JavaSrcTextBuffer accessors = new JavaSrcTextBuffer();
+    private String fieldName;
+    private boolean array;
+    private long sizeInBits;
+
+    private View(final View parent, final String className, final long start,
+                 final int elements) {
+      this.parent = parent;
+      this.className = className;
+      this.start = start;
+      this.elements = elements;
+    }
+
+    private void addAccessors(final String fieldName, final String javaType, final String read,
+                              final String nullableWrite, final int arrayLength) {
+      final String name = makeAccessorName(fieldName);
+      if (!this.accessors.isEmpty()) {
+        this.accessors.println();
+      }
+      final String index;
+      final String check;
+      if (arrayLength < 0) {
+        index = "";
+        check = "";
+      } else {
+        index = "final int index";
+        check = String.format("if (index < 0 || index >= %d) throw new "
+            + "IndexOutOfBoundsException(Integer.toString(index)); ", arrayLength);
+        this.accessors.indent()
+            .printf("public int get%sLength() { return %d; }%n", name, arrayLength);
+      }
+      this.accessors.indent()
+          .printf("public %s get%s(%s) { %sreturn %s; }%n", javaType, name, index, check, read);
+      if (nullableWrite != null) {
+        this.accessors.indent().printf("public void set%s(%sfinal %s value) { %s%s }%n",
+            name, index.isEmpty() ? "" : index + ", ", javaType, check, nullableWrite);
+      }
+    }
+
+    private void printBody(final JavaSrcTextBuffer buffer) {
+      buffer.printJavaDocLinesWithIndent("Size of wrapped data in bits.");
+      buffer.indent().printf("public static final long SIZE_IN_BITS = %dL;%n", this.sizeInBits);
+
+      for (final View c : this.children) {
+        buffer.println();
+        buffer.printJavaDocLinesWithIndent(
+            "View of structure '" + c.fieldName + "', instances are reused by the parent.");
+        buffer.indent().printf("public static final class %s {%n", c.className);
+        buffer.incIndent();
+        c.printBody(buffer);
+        buffer.println();
+        buffer.indent().printf("%s %s(final ByteBuffer buffer, final long base) {%n",
+            c.className, NAME_POSITION);
+        buffer.incIndent();
+        buffer.indent().printf("this.%s = buffer;%n", NAME_BUFFER);
+        buffer.indent().printf("this.%s = base;%n", NAME_BASE);
+        buffer.indent().println("return this;");
+        buffer.decIndent();
+        buffer.indent().println("}");
+        buffer.decIndent();
+        buffer.indent().println("}");
+      }
+
+      buffer.println();
+      if (this.parent == null) {
+        buffer.indent().printf("private byte[] %s;%n", NAME_ARRAY);
+      }
+      buffer.indent().printf("private ByteBuffer %s;%n", NAME_BUFFER);
+      buffer.indent().printf("private long %s;%n", NAME_BASE);
+      for (final View c : this.children) {
+        buffer.indent().printf("private final %1$s %2$s = new %1$s();%n", c.className,
+            c.fieldName);
+      }
+      if (!this.accessors.isEmpty()) {
+        buffer.println();
+        buffer.printLinesWithIndent(this.accessors.toString().trim());
+      }
+    }
+  }
+}
@@ -62,7 +62,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
   private static final int FLAG_DETECTED_VAR_FIELDS = 4;
   private static final int FLAG_ADD_ASSERT_NOT_NEGATIVE_EXPR = 8;
 
-  private static final Set<String> RESERVED_JAVA_KEYWORDS;
+  static final Set<String> RESERVED_JAVA_KEYWORDS;
   /**
    * Name of the field to be used as link to the root structure instance in
    * child structures.
@@ -80,6 +80,26 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
    * Name of the output stream argument.
    */
   private static final String NAME_OUTPUT_STREAM = "Out";
+  /**
+   * Name of the bit counter in size calculation methods.
+   */
+  private static final String NAME_SIZE_BITS = "_Bits_";
+  /**
+   * Name of the holder of the counter origin in size calculation methods.
+   */
+  private static final String NAME_SIZE_ORIGIN = "_Origin_";
+  /**
+   * Name of the size calculation method of generated classes.
+   */
+  private static final String NAME_SIZE_METHOD = "_BitLength_";
+  /**
+   * Stream name to mark stream counter in size calculation expressions.
+   */
+  private static final String NAME_SIZE_STREAM = "_SizeCounter_";
+  /**
+   * Name of local variable keeping read bits of a bit field group.
+   */
+  private static final String NAME_BIT_GROUP = "_BitGroup_";
 
   static {
 
@@ -102,6 +122,18 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
    * Map of detected named fields to their name field info object.
    */
   private final Map<JBBPNamedFieldInfo, NamedFieldInfo> foundNamedFields = new HashMap<>();
+  /**
+   * Names of collected consecutive single bit fields to be read and written as one group.
+   */
+  private final List<String> bitGroupFields = new ArrayList<>();
+  /**
+   * Widths of collected consecutive single bit fields.
+   */
+  private final List<Integer> bitGroupWidths = new ArrayList<>();
+  /**
+   * Summary width of collected bit fields.
+   */
+  private int bitGroupWidth;
   /**
    * Counter of anonymous fields to generate unique names.
    */
@@ -158,8 +190,18 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
    * Do conversion.
    *
    * @return generated class with needed parameters as text, must not be null.
+   * @throws IllegalArgumentException if flyweight generation is requested but the script doesn't have fixed layout
+   * @see Builder#generateFlyweight()
    */
   public String convert() {
+    if (this.builder.generateFlyweight) {
+      this.result = ((FlyweightClassGenerator) new FlyweightClassGenerator(this.parserFlags,
+          this.builder.srcParser.getCompiledBlock(), this.builder.srcParser.getBitOrder(),
+          this.builder.mainClassName, this.builder.mainClassPackage, this.builder.headComment,
+          this.builder.superClass, this.builder.mainClassImplements,
+          this.builder.mainClassCustomText).visit()).getResult();
+      return this.result;
+    }
     return ((JBBPToJavaConverter) this.visit()).getResult();
   }
 
@@ -181,13 +223,17 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
   public void visitStart() {
     this.flagSet.set(0);
     this.foundNamedFields.clear();
+    this.bitGroupFields.clear();
+    this.bitGroupWidths.clear();
+    this.bitGroupWidth = 0;
     this.anonymousFieldCounter.set(1234);
     this.specialFieldsCounter.set(1);
     this.specialSection.clean();
     this.structStack.clear();
     this.specialMethods.clean();
 
-    final Struct rootStruct = new Struct(null, this.builder.mainClassName, "public");
+    final Struct rootStruct = new Struct(null, this.builder.mainClassName, "public",
+        this.builder.addSizeMethods);
     this.structStack.add(rootStruct);
   }
 
@@ -203,6 +249,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
 
   @Override
   public void visitEnd() {
+    flushBitGroup();
     final JavaSrcTextBuffer buffer = new JavaSrcTextBuffer();
 
     if (this.builder.headComment != null) {
@@ -302,8 +349,49 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
         "Generated from JBBP script by internal JBBP Class Source Generator");
 
     final Struct rootStruct = this.structStack.get(0);
+    rootStruct.flushSizeBits();
+
+    if (this.builder.addSizeMethods) {
+      rootStruct.misc.printJavaDocLinesWithIndent(
+          "Calculate number of bits to be written by write(JBBPBitOutputStream) into a new stream,\narray sizes are calculated for the current field values.\n@return number of bits");
+      rootStruct.misc.printf("public long bitLength() { return this.%s(0L, new long[1]); }%n",
+          NAME_SIZE_METHOD);
+      rootStruct.misc.println();
+      rootStruct.misc.printJavaDocLinesWithIndent(
+          "Calculate number of bytes to be written by write(JBBPBitOutputStream) into a new stream,\narray sizes are calculated for the current field values.\n@return number of bytes");
+      rootStruct.misc.println(
+          "public int sizeOf() { return (int) ((this.bitLength() + 7L) >>> 3); }");
+    }
+
+    if (this.builder.addBufferWriteMethods) {
+      rootStruct.misc.println();
+      rootStruct.misc.printJavaDocLinesWithIndent(
+          "Write data into byte array.\n@param array target array, must not be null\n@param offset offset of data start in the array\n@return number of written bytes\n@throws IOException if data can't be written\n@throws IndexOutOfBoundsException if not enough space in the array");
+      rootStruct.misc.println(
+          "public int write(final byte[] array, final int offset) throws IOException { return this.write(java.nio.ByteBuffer.wrap(array), offset); }");
+      rootStruct.misc.println();
+      rootStruct.misc.printJavaDocLinesWithIndent(
+          "Write data into byte buffer, position and limit of the buffer are not changed.\n@param buffer target buffer, must not be null and must not be read-only one\n@param offset absolute index of data start in the buffer\n@return number of written bytes\n@throws IOException if data can't be written\n@throws IndexOutOfBoundsException if not enough space in the buffer");
+      rootStruct.misc.println(
+          "public int write(final java.nio.ByteBuffer buffer, final int offset) throws IOException {");
+      rootStruct.misc.incIndent();
+      rootStruct.misc.indent().println("final int size = this.sizeOf();");
+      rootStruct.misc.indent().println(
+          "if (offset < 0 || buffer.limit() - offset < size) throw new IndexOutOfBoundsException(\"Not enough space for \" + size + \" byte(s) at \" + offset);");
+      rootStruct.misc.indent().println("final java.nio.ByteBuffer target = buffer.duplicate();");
+      rootStruct.misc.indent().println("((java.nio.Buffer) target).position(offset);");
+      rootStruct.misc.indent().printf(
+          "final JBBPBitOutputStream %1$s = new JBBPBitOutputStream(new JBBPByteBufferOutputStream(target), JBBPBitOrder.%2$s);%n",
+          NAME_OUTPUT_STREAM, this.builder.srcParser.getBitOrder().name());
+      rootStruct.misc.indent().printf("this.write(%s);%n", NAME_OUTPUT_STREAM);
+      rootStruct.misc.indent().printf("%s.flush();%n", NAME_OUTPUT_STREAM);
+      rootStruct.misc.indent().println("return size;");
+      rootStruct.misc.decIndent();
+      rootStruct.misc.println("}");
+    }
 
     if (this.builder.addNewInstanceMethods) {
+      rootStruct.misc.println();
       rootStruct.misc.println(String.format("public Object %s(Class<?> aClass) {",
           JBBPMapper.MAKE_CLASS_INSTANCE_METHOD_NAME));
       rootStruct.misc.incIndent();
@@ -342,6 +430,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
                                   final boolean readWholeStream,
                                   final JBBPNamedFieldInfo nullableNameFieldInfo,
                                   final JBBPIntegerValueEvaluator nullableArraySize) {
+    flushBitGroup();
     final String structName = (nullableNameFieldInfo == null ? makeAnonymousStructName() :
         prepFldName(nullableNameFieldInfo.getFieldName())).toLowerCase(Locale.ENGLISH);
     final String structBaseTypeName = structName.toUpperCase(Locale.ENGLISH);
@@ -352,7 +441,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
         evaluatorToString(NAME_OUTPUT_STREAM, offsetInCompiledBlock, nullableArraySize,
             this.flagSet, true);
     final Struct newStruct = new Struct(this.getCurrentStruct(), structBaseTypeName,
-        "public" + (builder.internalClassesNotStatic ? "" : " static"));
+        "public" + (builder.internalClassesNotStatic ? "" : " static"), builder.addSizeMethods);
 
     final String fieldModifier = makeModifier(nullableNameFieldInfo);
 
@@ -385,6 +474,13 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       this.getCurrentStruct().getWriteFunc().indent()
           .print(toType.isEmpty() ? structName : '(' + toType + structName + ')')
           .println(".write(Out);");
+      if (this.isFlagSkipRemainingFieldsIfEOF()) {
+        getSizeFunc().indent()
+            .printf("if (this.%s == null) return %s;%n", structName, NAME_SIZE_BITS);
+      }
+      getSizeFunc().indent().printf("%1$s = %2$s.%3$s(%1$s, %4$s);%n", NAME_SIZE_BITS,
+          toType.isEmpty() ? "this." + structName : '(' + toType + "this." + structName + ')',
+          NAME_SIZE_METHOD, NAME_SIZE_ORIGIN);
     } else {
       structType = structBaseTypeName + " []";
       if (this.builder.generateFields) {
@@ -393,7 +489,31 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       }
       processSkipRemainingFlag();
       processSkipRemainingFlagForWriting("this." + structName);
-      if (readWholeStream) {
+      if (this.isFlagSkipRemainingFieldsIfEOF()) {
+        getSizeFunc().indent()
+            .printf("if (this.%s == null) return %s;%n", structName, NAME_SIZE_BITS);
+      }
+      getSizeFunc().indent().printf("for (int I = 0; I < %5$s; I++) { %1$s = %2$s.%3$s(%1$s, %4$s); }%n",
+          NAME_SIZE_BITS,
+          toType.isEmpty() ? "this." + structName + "[I]" :
+              '(' + toType + "this." + structName + "[I])",
+          NAME_SIZE_METHOD, NAME_SIZE_ORIGIN,
+          readWholeStream ? "this." + structName + ".length" :
+              makeSizeExpression(offsetInCompiledBlock, nullableArraySize));
+      if (readWholeStream && this.builder.reuseObjectsOnRead) {
+        this.getCurrentStruct().getReadFunc().indent()
+            .printf(
+                "%3$s [] __%1$s_arr__ = this.%1$s instanceof %3$s[] ? (%3$s[]) this.%1$s : null; int __%1$s_cnt__ = 0; while (%5$s.hasAvailableData()){ if (__%1$s_arr__ == null || __%1$s_cnt__ == __%1$s_arr__.length) { __%1$s_arr__ = __%1$s_arr__ == null ? new %3$s[8] : java.util.Arrays.copyOf(__%1$s_arr__, Math.max(8, __%1$s_cnt__ << 1)); } if (__%1$s_arr__[__%1$s_cnt__] == null) { __%1$s_arr__[__%1$s_cnt__] = new %3$s(%4$s); } __%1$s_arr__[__%1$s_cnt__++].read(%5$s);} this.%1$s = __%1$s_arr__ == null ? new %3$s[0] : __%1$s_arr__.length == __%1$s_cnt__ ? __%1$s_arr__ : java.util.Arrays.copyOf(__%1$s_arr__, __%1$s_cnt__);%n",
+                structName,
+                arraySizeIn,
+                structBaseTypeName,
+                pathToRootObject,
+                NAME_INPUT_STREAM);
+        this.getCurrentStruct().getWriteFunc().indent()
+            .printf("for (int I=0;I<this.%1$s.length;I++){ %2$s.write(%3$s); }%n", structName,
+                toType.isEmpty() ? "this." + structName + "[I]" :
+                    '(' + toType + "this." + structName + "[I])", NAME_OUTPUT_STREAM);
+      } else if (readWholeStream) {
         this.getCurrentStruct().getReadFunc().indent()
             .printf(
                 "List<%3$s> __%1$s_tmplst__ = new ArrayList<%3$s>(); while (%5$s.hasAvailableData()){ __%1$s_tmplst__.add(new %3$s(%4$s).read(%5$s));} this.%1$s = __%1$s_tmplst__.toArray(new %3$s[__%1$s_tmplst__.size()]);__%1$s_tmplst__ = null;%n",
@@ -430,6 +550,67 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
     this.structStack.add(0, newStruct);
   }
 
+  /**
+   * Print read and write code for collected consecutive single bit fields. All fields of a group are
+   * read and written by one bit stream call and extracted with shifts and masks, the order of fields
+   * inside read bits depends on the bit order of the stream.
+   */
+  private void flushBitGroup() {
+    if (this.bitGroupFields.isEmpty()) {
+      return;
+    }
+    final String groupWidth = "JBBPBitNumber." + JBBPBitNumber.decode(this.bitGroupWidth).name();
+    if (this.bitGroupFields.size() == 1) {
+      getCurrentStruct().getReadFunc().indent()
+          .printf("this.%s = In.readBitField(%s);%n", this.bitGroupFields.get(0), groupWidth);
+      getCurrentStruct().getWriteFunc().indent()
+          .printf("%s.writeBits(this.%s,%s);%n", NAME_OUTPUT_STREAM, this.bitGroupFields.get(0),
+              groupWidth);
+    } else {
+      final StringBuilder readLsb = new StringBuilder();
+      final StringBuilder readMsb = new StringBuilder();
+      final StringBuilder writeLsb = new StringBuilder();
+      final StringBuilder writeMsb = new StringBuilder();
+      int shift = 0;
+      for (int i = 0; i < this.bitGroupFields.size(); i++) {
+        final String name = this.bitGroupFields.get(i);
+        final int width = this.bitGroupWidths.get(i);
+        final int mask = (1 << width) - 1;
+        final int msbShift = this.bitGroupWidth - shift - width;
+        readLsb.append(String.format(" this.%s = (byte) %s;", name,
+            makeBitExtraction(shift, width, this.bitGroupWidth)));
+        readMsb.append(String.format(" this.%s = (byte) %s;", name,
+            makeBitExtraction(msbShift, width, this.bitGroupWidth)));
+        writeLsb.append(i == 0 ? "" : " | ").append(shift == 0
+            ? String.format("(this.%s & %d)", name, mask)
+            : String.format("((this.%s & %d) << %d)", name, mask, shift));
+        writeMsb.append(i == 0 ? "" : " | ").append(msbShift == 0
+            ? String.format("(this.%s & %d)", name, mask)
+            : String.format("((this.%s & %d) << %d)", name, mask, msbShift));
+        shift += width;
+      }
+      getCurrentStruct().getReadFunc().indent().printf(
+          "{ final int %1$s = %2$s.readBitField(%3$s) & 0xFF; if (%2$s.getBitOrder() == JBBPBitOrder.MSB0_DIRECT) {%4$s } else {%5$s } }%n",
+          NAME_BIT_GROUP, NAME_INPUT_STREAM, groupWidth, readMsb, readLsb);
+      getCurrentStruct().getWriteFunc().indent().printf(
+          "%1$s.writeBits(%1$s.getBitOrder() == JBBPBitOrder.MSB0_DIRECT ? %2$s : %3$s, %4$s);%n",
+          NAME_OUTPUT_STREAM, writeMsb, writeLsb, groupWidth);
+    }
+    this.bitGroupFields.clear();
+    this.bitGroupWidths.clear();
+    this.bitGroupWidth = 0;
+  }
+
+  private static String makeBitExtraction(final int shift, final int width, final int groupWidth) {
+    if (shift == 0) {
+      return String.format("(%s & %d)", NAME_BIT_GROUP, (1 << width) - 1);
+    } else if (shift + width == groupWidth) {
+      return String.format("(%s >>> %d)", NAME_BIT_GROUP, shift);
+    } else {
+      return String.format("((%s >>> %d) & %d)", NAME_BIT_GROUP, shift, (1 << width) - 1);
+    }
+  }
+
   private void processSkipRemainingFlag() {
     if (this.isFlagSkipRemainingFieldsIfEOF()) {
       this.getCurrentStruct().getReadFunc().indent()
@@ -467,7 +648,9 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
   @Override
   public void visitStructureEnd(final int offsetInCompiledBlock,
                                 final JBBPNamedFieldInfo nullableNameFieldInfo) {
+    flushBitGroup();
     final Struct struct = this.structStack.remove(0);
+    struct.flushSizeBits();
 
     if (this.builder.addNewInstanceMethods) {
       struct.misc.println(String
@@ -496,6 +679,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       final JBBPNamedFieldInfo nameFieldInfo,
       final JBBPIntegerValueEvaluator expression
   ) {
+    flushBitGroup();
     final String fieldName = prepFldName(nameFieldInfo.getFieldName());
     FieldType type = FieldType.VAL;
 
@@ -608,6 +792,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       final boolean altFieldType,
       final JBBPIntegerValueEvaluator nullableArraySize
   ) {
+    flushBitGroup();
     final String fieldName = nullableNameFieldInfo == null ? makeAnonymousFieldName() :
         prepFldName(nullableNameFieldInfo.getFieldName());
     FieldType type = FieldType.findForCode(primitiveType);
@@ -665,14 +850,32 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       getCurrentStruct().getWriteFunc()
           .print(type.makeWriterForSingleField(NAME_OUTPUT_STREAM, "this." + fieldName, byteOrder))
           .println(";");
+      if (type == FieldType.STRING) {
+        getSizeFunc().indent().printf("%s += JBBPBitOutputStream.getStringBitLength(this.%s);%n",
+            NAME_SIZE_BITS, fieldName);
+      } else {
+        getCurrentStruct().addSizeBits(bitSizeOf(type));
+      }
     } else {
       textFieldType = type.asJavaArrayFieldType() + " []";
       if (this.builder.generateFields) {
         printField(nullableNameFieldInfo, byteOrder, true, offsetInCompiledBlock,
             getCurrentStruct().getFields(), type, fieldModifier, textFieldType, fieldName);
       }
-      getCurrentStruct().getReadFunc().printf("this.%s = %s;%n", fieldName,
-          type.makeReaderForArray(NAME_INPUT_STREAM, arraySizeIn, byteOrder));
+      if (this.builder.reuseObjectsOnRead && !readWholeStreamAsArray) {
+        final String fill;
+        if (type == FieldType.BYTE || type == FieldType.UBYTE) {
+          fill = String.format("%s.readByteArray(this.%s, JBBPByteOrder.%s);", NAME_INPUT_STREAM,
+              fieldName, byteOrder.name());
+        } else {
+          fill = String.format("for (int I = 0; I < _Len_; I++) { this.%s[I] = %s; }", fieldName,
+              type.makeReaderForSingleField(NAME_INPUT_STREAM, byteOrder));
+        }
+        printReusedArrayRead(fieldName, type.asJavaArrayFieldType(), arraySizeIn, fill);
+      } else {
+        getCurrentStruct().getReadFunc().printf("this.%s = %s;%n", fieldName,
+            type.makeReaderForArray(NAME_INPUT_STREAM, arraySizeIn, byteOrder));
+      }
       if (readWholeStreamAsArray) {
         getCurrentStruct().getWriteFunc().print(
             type.makeWriterForArrayWithUnknownSize(NAME_OUTPUT_STREAM, "this." + fieldName,
@@ -682,6 +885,16 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
             type.makeWriterForArray(NAME_OUTPUT_STREAM, "this." + fieldName, arraySizeOut,
                 byteOrder)).println(";");
       }
+      if (type == FieldType.STRING) {
+        getSizeFunc().indent().printf(
+            "for (int I = 0; I < %s; I++) { %s += JBBPBitOutputStream.getStringBitLength(this.%s[I]); }%n",
+            readWholeStreamAsArray ? "this." + fieldName + ".length" :
+                makeSizeExpression(offsetInCompiledBlock, nullableArraySize), NAME_SIZE_BITS,
+            fieldName);
+      } else {
+        addArraySize(offsetInCompiledBlock, fieldName, readWholeStreamAsArray, nullableArraySize,
+            Integer.toString(bitSizeOf(type)));
+      }
     }
 
     if (nullableNameFieldInfo != null && this.builder.addGettersSetters) {
@@ -767,28 +980,53 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
 
     final String fieldModifier = makeModifier(nullableNameFieldInfo);
 
+    final int constWidth = notNullFieldSize instanceof IntConstValueEvaluator ?
+        notNullFieldSize.eval(null, 0, null, null) : 8;
+    final boolean groupable =
+        arraySizeIn == null && constWidth < 8 && !this.isFlagSkipRemainingFieldsIfEOF();
+    if (!groupable || this.bitGroupWidth + constWidth > 8) {
+      flushBitGroup();
+    }
+
     processSkipRemainingFlag();
 
-    if (arraySizeIn == null) {
+    if (groupable) {
+      this.bitGroupFields.add(fieldName);
+      this.bitGroupWidths.add(constWidth);
+      this.bitGroupWidth += constWidth;
+    } else if (arraySizeIn == null) {
       getCurrentStruct().getReadFunc().indent()
           .printf("this.%s = In.readBitField(%s);%n", fieldName, sizeOfFieldIn);
+    } else if (this.builder.reuseObjectsOnRead && !readWholeStream) {
+      printReusedArrayRead(fieldName, "byte", arraySizeIn,
+          String.format("%s.readBitsArray(this.%s, %s);", NAME_INPUT_STREAM, fieldName,
+              sizeOfFieldIn));
     } else {
       getCurrentStruct().getReadFunc().indent().print(fieldName).print(" = In.readBitsArray(")
           .print(arraySizeIn).print(",").print(sizeOfFieldIn).println(");");
     }
 
-    if (arraySizeOut == null) {
+    if (groupable) {
+      // written together with the group
+    } else if (arraySizeOut == null) {
       getCurrentStruct().getWriteFunc().indent()
           .printf("%s.writeBits(this.%s,%s);%n", NAME_OUTPUT_STREAM, fieldName, sizeOfFieldOut);
     } else {
-      if ("-1".equals(arraySizeIn)) {
-        getCurrentStruct().getWriteFunc().indent()
-            .printf("for(int I=0; I<%s.length; I++)", fieldName)
-            .printf(" Out.writeBits(this.%s[I],%s);%n", fieldName, sizeOfFieldOut);
-      } else {
-        getCurrentStruct().getWriteFunc().indent().printf("for(int I=0; I<%s; I++)", arraySizeOut)
-            .printf(" Out.writeBits(this.%s[I],%s);%n", fieldName, sizeOfFieldOut);
-      }
+      getCurrentStruct().getWriteFunc().indent()
+          .printf("%s.writeBitsArray(this.%s,%s,%s);%n", NAME_OUTPUT_STREAM, fieldName,
+              "-1".equals(arraySizeIn) ? "-1" : arraySizeOut, sizeOfFieldOut);
+    }
+
+    final String bitWidth = notNullFieldSize instanceof IntConstValueEvaluator ?
+        Integer.toString(notNullFieldSize.eval(null, 0, null, null)) :
+        "JBBPBitNumber.decode(" + makeSizeExpression(offsetInCompiledBlock, notNullFieldSize) +
+            ").getBitNumber()";
+    if (nullableArraySize == null) {
+      addArraySize(offsetInCompiledBlock, fieldName, false, new IntConstValueEvaluator(1),
+          bitWidth);
+    } else {
+      addArraySize(offsetInCompiledBlock, fieldName, readWholeStream, nullableArraySize,
+          bitWidth);
     }
 
     final String fieldType = nullableArraySize == null ? "byte" : "byte []";
@@ -811,6 +1049,75 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
     }
   }
 
+  private static int bitSizeOf(final FieldType type) {
+    switch (type) {
+      case BOOL:
+      case BYTE:
+      case UBYTE:
+        return 8;
+      case SHORT:
+      case USHORT:
+        return 16;
+      case INT:
+      case FLOAT:
+      case UINT:
+        return 32;
+      case LONG:
+      case DOUBLE:
+        return 64;
+      default:
+        throw new Error("Unexpected type : " + type);
+    }
+  }
+
+  /**
+   * Make text of expression to be used in size calculation methods, the stream counter is replaced by number of
+   * bytes since the last counter reset.
+   *
+   * @param offsetInBlock offset in compiled block
+   * @param evaluator     evaluator to be converted, must not be null
+   * @return text of the expression, must not be null
+   */
+  private String makeSizeExpression(final int offsetInBlock,
+                                    final JBBPIntegerValueEvaluator evaluator) {
+    return evaluatorToString(NAME_SIZE_STREAM, offsetInBlock, evaluator, this.flagSet, true)
+        .replace("(int)" + NAME_SIZE_STREAM + ".getCounter()",
+            String.format("(int) ((%s - %s[0]) >>> 3)", NAME_SIZE_BITS, NAME_SIZE_ORIGIN));
+  }
+
+  private JavaSrcTextBuffer getSizeFunc() {
+    return this.getCurrentStruct().flushSizeBits();
+  }
+
+  private void addArraySize(final int offsetInBlock, final String fieldName,
+                            final boolean wholeStream,
+                            final JBBPIntegerValueEvaluator arraySize,
+                            final String itemBits) {
+    if (wholeStream) {
+      getSizeFunc().indent().printf("%s += (long) this.%s.length * %s;%n", NAME_SIZE_BITS,
+          fieldName, itemBits);
+    } else if (arraySize instanceof IntConstValueEvaluator && itemBits.matches("\\d+")) {
+      getCurrentStruct().addSizeBits(
+          Math.max(0L, arraySize.eval(null, 0, null, null)) * Integer.parseInt(itemBits));
+    } else {
+      getSizeFunc().indent().printf("%s += (long) (%s) * %s;%n", NAME_SIZE_BITS,
+          makeSizeExpression(offsetInBlock, arraySize), itemBits);
+    }
+  }
+
+  private void addSizeThroughWriting(final String writerText) {
+    getSizeFunc().indent().printf(
+        "{ final long _Start_ = %3$s - %4$s[0]; final JBBPBitOutputStream %1$s = JBBPBitOutputStream.makeCountingStream(_Start_); try { %2$s } catch (IOException ex) { throw new java.io.UncheckedIOException(ex); } %3$s += %1$s.getCounter() * 8L + %1$s.getBufferedBitsNumber() - _Start_; }%n",
+        NAME_OUTPUT_STREAM, writerText, NAME_SIZE_BITS, NAME_SIZE_ORIGIN);
+  }
+
+  private void printReusedArrayRead(final String fieldName, final String elementType,
+                                    final String arraySize, final String fillText) {
+    getCurrentStruct().getReadFunc().indent().printf(
+        "{ final int _Len_ = %1$s; if (this.%2$s == null || this.%2$s.length != _Len_) { this.%2$s = new %3$s[_Len_]; } %4$s }%n",
+        arraySize, fieldName, elementType, fillText);
+  }
+
   private String makeAnonymousFieldName() {
     return "_AField" + this.anonymousFieldCounter.getAndIncrement();
   }
@@ -834,6 +1141,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
                                final JBBPByteOrder byteOrder, final boolean readWholeStream,
                                final JBBPIntegerValueEvaluator nullableArraySizeEvaluator,
                                final JBBPIntegerValueEvaluator extraDataValueEvaluator) {
+    flushBitGroup();
     this.flagSet.set(this.flagSet.get() | FLAG_DETECTED_CUSTOM_FIELDS);
 
     registerNamedField(nullableNameFieldInfo, FieldType.CUSTOM);
@@ -885,8 +1193,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
         )
     );
 
-    this.getCurrentStruct().getWriteFunc().printf("%s;%n",
-        String.format("%s.writeCustomFieldType(this, Out, %s, %s, %s, %s, %b, %s)",
+    final String customFieldWriter =
+        String.format("%s.writeCustomFieldType(this, Out, %s, %s, %s, %s, %b, %s);",
             this.getCurrentStruct().isRoot() ? "this" : "this." + NAME_ROOT_STRUCT,
             "this." + fieldName,
             specialFieldName_typeParameterContainer,
@@ -898,8 +1206,9 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
             nullableArraySizeEvaluator == null ? "-1" :
                 evaluatorToString(NAME_OUTPUT_STREAM, offsetInCompiledBlock,
                     nullableArraySizeEvaluator, this.flagSet, true)
-        )
-    );
+        );
+    this.getCurrentStruct().getWriteFunc().println(customFieldWriter);
+    addSizeThroughWriting(customFieldWriter);
 
     if (nullableNameFieldInfo != null && this.builder.addGettersSetters) {
       registerGetterSetter("JBBPAbstractField", fieldName, true);
@@ -915,6 +1224,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       final JBBPIntegerValueEvaluator nullableArraySizeEvaluator,
       final JBBPIntegerValueEvaluator extraDataValue
   ) {
+    flushBitGroup();
     this.flagSet.set(this.flagSet.get() | FLAG_DETECTED_VAR_FIELDS);
 
     registerNamedField(nullableNameFieldInfo, FieldType.VAR);
@@ -960,8 +1270,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
           )
       );
 
-      this.getCurrentStruct().getWriteFunc()
-          .printf("%s.writeVarArray(this, this.%s, Out, %s, %s, %s, %s);%n",
+      final String varArrayWriter =
+          String.format("%s.writeVarArray(this, this.%s, Out, %s, %s, %s, %s);",
               this.getCurrentStruct().isRoot() ? "this" : "this." + NAME_ROOT_STRUCT,
               fieldName,
               "JBBPByteOrder." + byteOrder.name(),
@@ -973,7 +1283,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
                   evaluatorToString(NAME_OUTPUT_STREAM, offsetInCompiledBlock,
                       nullableArraySizeEvaluator, this.flagSet, true)
           );
-
+      this.getCurrentStruct().getWriteFunc().println(varArrayWriter);
+      addSizeThroughWriting(varArrayWriter);
     } else {
       fieldType = "JBBPAbstractField";
       if (this.builder.generateFields) {
@@ -992,8 +1303,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
                       extraDataValue, this.flagSet, true))
       );
 
-      this.getCurrentStruct().getWriteFunc()
-          .printf("%s.writeVarField(this, this.%s, Out, %s, %s, %s);%n",
+      final String varFieldWriter =
+          String.format("%s.writeVarField(this, this.%s, Out, %s, %s, %s);",
               this.getCurrentStruct().isRoot() ? "this" : "this." + NAME_ROOT_STRUCT,
               fieldName,
               "JBBPByteOrder." + byteOrder.name(),
@@ -1002,6 +1313,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
                   evaluatorToString(NAME_OUTPUT_STREAM, offsetInCompiledBlock,
                       extraDataValue, this.flagSet, true)
           );
+      this.getCurrentStruct().getWriteFunc().println(varFieldWriter);
+      addSizeThroughWriting(varFieldWriter);
     }
 
     if (nullableNameFieldInfo != null && this.builder.addGettersSetters) {
@@ -1127,7 +1440,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
               }
             }
             i++;
-            this.stack.add(i, newItem);
+            this.stack.add(i, foldConstants(newItem));
           }
         }
 
@@ -1145,6 +1458,99 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
         return this;
       }
 
+      /**
+       * Replace an operator which arguments are constants by its result and drop neutral
+       * constant operands, like x+0 or x*1.
+       *
+       * @param item operator item, must not be null
+       * @return folded constant, one of operands or the same item
+       */
+      private Object foldConstants(final ExprTreeItem item) {
+        final Object left = item.left;
+        final Object right = item.right;
+        if (right instanceof Integer && (left == null || left instanceof Integer)) {
+          final int b = (Integer) right;
+          if (left == null) {
+            switch (item.op) {
+              case NOT:
+                return ~b;
+              case UNARY_MINUS:
+                return -b;
+              default:
+                return b;
+            }
+          }
+          final int a = (Integer) left;
+          switch (item.op) {
+            case ADD:
+              return a + b;
+            case SUB:
+              return a - b;
+            case MUL:
+              return a * b;
+            case DIV:
+              return b == 0 ? item : a / b;
+            case MOD:
+              return b == 0 ? item : a % b;
+            case OR:
+              return a | b;
+            case AND:
+              return a & b;
+            case XOR:
+              return a ^ b;
+            case LSHIFT:
+              return a << b;
+            case RSHIFT:
+              return a >> b;
+            case URSHIFT:
+              return a >>> b;
+            default:
+              throw new Error("Unexpected operator: " + item.op);
+          }
+        }
+        if (item.op == Operator.UNARY_PLUS) {
+          return right;
+        }
+        final Integer constRight = right instanceof Integer ? (Integer) right : null;
+        final Integer constLeft = left instanceof Integer ? (Integer) left : null;
+        switch (item.op) {
+          case ADD:
+          case OR:
+          case XOR:
+            if (constRight != null && constRight == 0) {
+              return left;
+            }
+            if (constLeft != null && constLeft == 0) {
+              return right;
+            }
+            break;
+          case SUB:
+          case LSHIFT:
+          case RSHIFT:
+          case URSHIFT:
+            if (constRight != null && constRight == 0) {
+              return left;
+            }
+            break;
+          case MUL:
+            if (constRight != null && constRight == 1) {
+              return left;
+            }
+            if (constLeft != null && constLeft == 1) {
+              return right;
+            }
+            break;
+          case DIV:
+            if (constRight != null && constRight == 1) {
+              return left;
+            }
+            break;
+          default:
+            break;
+        }
+        return item;
+      }
+
       class ExprTreeItem {
 
         final Operator op;
@@ -1196,7 +1602,14 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       }
     }
 
-    if (!(evaluator instanceof IntConstValueEvaluator)) {
+    int constResult = -1;
+    try {
+      constResult = Integer.parseInt(result);
+    } catch (NumberFormatException ex) {
+      // not constant
+    }
+
+    if (!(evaluator instanceof IntConstValueEvaluator || constResult >= 0)) {
       if (doResultPostprocessing) {
         if ((this.parserFlags & JBBPParser.FLAG_NEGATIVE_EXPRESSION_RESULT_AS_ZERO) != 0) {
           result = "java.lang.Math.max(0," + result + ')';
@@ -1213,6 +1626,7 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
   @Override
   public void visitActionItem(final int offsetInCompiledBlock, final int actionType,
                               final JBBPIntegerValueEvaluator nullableArgument) {
+    flushBitGroup();
     final String valueTxtIn = nullableArgument == null ? "1" :
         evaluatorToString(NAME_INPUT_STREAM, offsetInCompiledBlock, nullableArgument, this.flagSet,
             true);
@@ -1224,6 +1638,8 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       case CODE_RESET_COUNTER: {
         getCurrentStruct().getReadFunc().println(NAME_INPUT_STREAM + ".resetCounter();");
         getCurrentStruct().getWriteFunc().println(NAME_OUTPUT_STREAM + ".resetCounter();");
+        getSizeFunc().indent().printf("%1$s &= ~7L; %2$s[0] = %1$s;%n", NAME_SIZE_BITS,
+            NAME_SIZE_ORIGIN);
       }
       break;
       case CODE_ALIGN: {
@@ -1231,6 +1647,10 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
             .print(valueTxtIn).println(");");
         getCurrentStruct().getWriteFunc().indent().print(NAME_OUTPUT_STREAM + ".align(")
             .print(valueTxtOut).println(");");
+        getSizeFunc().indent().printf(
+            "%1$s = (%1$s + 7L) & ~7L; { final long _Align_ = %3$s; if (_Align_ > 0) { %1$s += ((_Align_ - ((%1$s - %2$s[0]) >>> 3) %% _Align_) %% _Align_) << 3; } }%n",
+            NAME_SIZE_BITS, NAME_SIZE_ORIGIN, nullableArgument == null ? "1" :
+                makeSizeExpression(offsetInCompiledBlock, nullableArgument));
       }
       break;
       case CODE_SKIP: {
@@ -1238,6 +1658,13 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
             .print(valueTxtIn).println(");");
         getCurrentStruct().getWriteFunc().indent()
             .printf("for(int I=0; I<%s; I++) %s.write(0);%n", valueTxtOut, NAME_OUTPUT_STREAM);
+        if (nullableArgument instanceof IntConstValueEvaluator) {
+          getCurrentStruct().addSizeBits(
+              Math.max(0L, nullableArgument.eval(null, 0, null, null)) << 3);
+        } else {
+          getSizeFunc().indent().printf("%s += (long) Math.max(0, %s) << 3;%n", NAME_SIZE_BITS,
+              makeSizeExpression(offsetInCompiledBlock, nullableArgument));
+        }
       }
       break;
       default: {
@@ -1481,6 +1908,30 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
      * @since 1.4.0
      */
     private boolean generateFields;
+    /**
+     * Flag to generate flyweight class instead of class with fields.
+     *
+     * @since 3.0.3
+     */
+    private boolean generateFlyweight;
+    /**
+     * Flag to reuse already allocated arrays and structures during reading.
+     *
+     * @since 3.0.3
+     */
+    private boolean reuseObjectsOnRead;
+    /**
+     * Flag to generate methods to write data directly into byte arrays and byte buffers.
+     *
+     * @since 3.0.3
+     */
+    private boolean addBufferWriteMethods;
+    /**
+     * Flag to generate methods to calculate size of written data.
+     *
+     * @since 3.0.3
+     */
+    private boolean addSizeMethods;
 
     private Builder(final JBBPParser parser) {
       this.srcParser = parser;
@@ -1700,6 +2151,69 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       return this;
     }
 
+    /**
+     * Add into the main class methods {@code write(byte[], int)} and {@code write(ByteBuffer, int)} to write data
+     * into a provided byte array or byte buffer at an offset. Size of data is calculated by the generated
+     * {@code sizeOf()} method before writing, so that nothing is written if there is not enough space.
+     * Size methods are added too.
+     *
+     * @return the builder instance, must not be null
+     * @see #addSizeMethods()
+     * @since 3.0.3
+     */
+    public Builder addBufferWriteMethods() {
+      assertNonLocked();
+      this.addBufferWriteMethods = true;
+      this.addSizeMethods = true;
+      return this;
+    }
+
+    /**
+     * Add into the main class methods {@code bitLength()} and {@code sizeOf()} to calculate size of data written
+     * for the current field values. <b>Var and custom type fields are sized through their writers</b>, so that
+     * the writers are called during size calculation.
+     *
+     * @return the builder instance, must not be null
+     * @since 3.0.3
+     */
+    public Builder addSizeMethods() {
+      assertNonLocked();
+      this.addSizeMethods = true;
+      return this;
+    }
+
+    /**
+     * Generate read methods which reuse already allocated objects. Arrays with size known before reading
+     * are filled in place if their length is the same as the size to be read, instances of structure arrays
+     * read till the end of stream are reused in order, instances of structures and fixed size structure arrays
+     * are always reused. So that a generated object can be read many times without allocations in steady state.
+     *
+     * @return the builder instance, must not be null
+     * @since 3.0.3
+     */
+    public Builder reuseObjectsOnRead() {
+      assertNonLocked();
+      this.reuseObjectsOnRead = true;
+      return this;
+    }
+
+    /**
+     * Generate flyweight class instead of class with fields and read and write methods. The flyweight class
+     * wraps a byte array or a byte buffer with a base offset and its getters and setters decode and encode
+     * field values directly in the wrapped data at offsets calculated during conversion, structure arrays are
+     * accessible through indexed reusable views. Only scripts with fixed layout are supported and only main
+     * class name, package, head comment, super class, implemented interfaces and custom text are used in
+     * the mode.
+     *
+     * @return the builder instance, must not be null
+     * @since 3.0.3
+     */
+    public Builder generateFlyweight() {
+      assertNonLocked();
+      this.generateFlyweight = true;
+      return this;
+    }
+
     /**
      * Build converter with provided parameters. NB! It locks builder parameters,
      * and they can't be changed in future.
@@ -1726,13 +2240,18 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
     private final JavaSrcTextBuffer writeFunc = new JavaSrcTextBuffer();
     private final JavaSrcTextBuffer gettersSetters = new JavaSrcTextBuffer();
     private final JavaSrcTextBuffer misc = new JavaSrcTextBuffer();
+    private final JavaSrcTextBuffer sizeFunc = new JavaSrcTextBuffer();
     private final String path;
+    private final boolean sizeMethod;
+    private long pendingSizeBits;
 
-    private Struct(final Struct parent, final String className, final String classModifiers) {
+    private Struct(final Struct parent, final String className, final String classModifiers,
+                   final boolean sizeMethod) {
       this.path = parent == null ? "" : parent.path + (parent.path.isEmpty() ? "" : ".") +
           className.toLowerCase(Locale.ENGLISH);
       this.classModifiers = classModifiers;
       this.className = className;
+      this.sizeMethod = sizeMethod;
       this.parent = parent;
       if (this.parent != null) {
         this.parent.children.add(this);
@@ -1842,6 +2361,18 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       buffer.decIndent();
       buffer.indent().println("}");
 
+      if (this.sizeMethod) {
+        buffer.println();
+
+        buffer.indent().printf("protected long %s(long %s, final long[] %s) {%n", NAME_SIZE_METHOD,
+            NAME_SIZE_BITS, NAME_SIZE_ORIGIN);
+        buffer.incIndent();
+        buffer.printLinesWithIndent(this.sizeFunc.toString());
+        buffer.indent().printf("return %s;%n", NAME_SIZE_BITS);
+        buffer.decIndent();
+        buffer.indent().println("}");
+      }
+
       if (specialMethods != null) {
         buffer.println();
         buffer.printLinesWithIndent(specialMethods);
@@ -1875,6 +2406,19 @@ public class JBBPToJavaConverter extends CompiledBlockVisitor {
       return this.misc;
     }
 
+    void addSizeBits(final long bits) {
+      this.pendingSizeBits += bits;
+    }
+
+    JavaSrcTextBuffer flushSizeBits() {
+      if (this.pendingSizeBits != 0L) {
+        this.sizeFunc.indent()
+            .printf("%s += %dL;%n", NAME_SIZE_BITS, this.pendingSizeBits);
+        this.pendingSizeBits = 0L;
+      }
+      return this.sizeFunc;
+    }
+
     JavaSrcTextBuffer getWriteFunc() {
       return this.writeFunc;
     }
@@ -51,11 +51,7 @@ public abstract class AbstractMappedClassFieldObserver {
    */
   private static Object readFieldValue(final Object obj, final MappedFieldRecord record) {
     try {
-      if (record.getter == null) {
-        return record.mappingField.get(obj);
-      } else {
-        return record.getter.invoke(obj);
-      }
+      return record.getValue(obj);
     } catch (Exception ex) {
       throw new JBBPException("Can't get value from field [" + record + ']', ex);
     }
@@ -0,0 +1,662 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.exceptions.JBBPIllegalArgumentException;
+import com.igormaznitsa.jbbp.mapper.Bin;
+import com.igormaznitsa.jbbp.mapper.BinType;
+import com.igormaznitsa.jbbp.mapper.JBBPMappedClassCache;
+import com.igormaznitsa.jbbp.mapper.JBBPMapper;
+import com.igormaznitsa.jbbp.mapper.MappedFieldRecord;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldLong;
+import com.igormaznitsa.jbbp.model.JBBPFieldShort;
+import com.igormaznitsa.jbbp.model.JBBPFieldString;
+import com.igormaznitsa.jbbp.model.JBBPFieldUInt;
+import com.igormaznitsa.jbbp.utils.BinAnnotationWrapper;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.List;
+
+/**
+ * Write plan of a mapped class for {@link JBBPOut#Bin(Object)}. Fields of the class, their effective types, byte
+ * orders and bit modes are resolved once, so that writing of an object is a loop over prepared steps which write
+ * values directly into the bit stream. Plans are cached per class and per forced byte order together with
+ * mapped field records in the shared {@link JBBPMapper#getFieldCache()}.
+ *
+ * @since 3.0.3
+ */
+final class BinWritePlan {
+
+  private static final int CACHED_PLANS = JBBPByteOrder.values().length + 1;
+
+  /**
+   * Marker of classes which can't be written through plan.
+   */
+  private static final BinWritePlan UNSUPPORTED = new BinWritePlan(Object.class, null, new Step[0]);
+
+  private final Class<?> mappedClass;
+  private final JBBPByteOrder forcedByteOrder;
+  private final Step[] steps;
+
+  private BinWritePlan(final Class<?> mappedClass, final JBBPByteOrder forcedByteOrder,
+                       final Step[] steps) {
+    this.mappedClass = mappedClass;
+    this.forcedByteOrder = forcedByteOrder;
+    this.steps = steps;
+  }
+
+  /**
+   * Find or make plan for a class.
+   *
+   * @param mappedClass     mapped class, must not be null
+   * @param forcedByteOrder byte order to replace byte order of all fields, null if byte orders of annotations should be used
+   * @return plan for the class or null if the class can't be written through plan
+   */
+  static BinWritePlan find(final Class<?> mappedClass, final JBBPByteOrder forcedByteOrder) {
+    final int index = forcedByteOrder == null ? 0 : forcedByteOrder.ordinal() + 1;
+    final JBBPMappedClassCache cache = JBBPMapper.getFieldCache();
+    Object[] plans = cache.findWritePlans(mappedClass, CACHED_PLANS, JBBPInternalKey.INSTANCE);
+    BinWritePlan result = plans == null ? null : (BinWritePlan) plans[index];
+    if (result == null) {
+      result = make(mappedClass, forcedByteOrder);
+      if (plans == null) {
+        // records of the class have been cached during plan making
+        plans = cache.findWritePlans(mappedClass, CACHED_PLANS, JBBPInternalKey.INSTANCE);
+      }
+      if (plans != null) {
+        plans[index] = result;
+      }
+    }
+    return result == UNSUPPORTED ? null : result;
+  }
+
+  private static BinWritePlan make(final Class<?> mappedClass,
+                                   final JBBPByteOrder forcedByteOrder) {
+    final List<MappedFieldRecord> records = JBBPMapper.findAffectedFields(mappedClass, null);
+    final Step[] steps = new Step[records.size()];
+    for (int i = 0; i < steps.length; i++) {
+      final MappedFieldRecord record = records.get(i);
+      final Bin annotation = forcedByteOrder == null ? record.binAnnotation :
+          new BinAnnotationWrapper().setWrapped(record.binAnnotation).setByteOrder(forcedByteOrder);
+      final BinType type = annotation.type() == BinType.UNDEFINED ?
+          BinType.findCompatible(record.mappingField.getType()) : annotation.type();
+      if (type == null && !annotation.custom()) {
+        return UNSUPPORTED;
+      }
+      steps[i] = new Step(record, annotation, type);
+    }
+    return new BinWritePlan(mappedClass, forcedByteOrder, steps);
+  }
+
+  /**
+   * Get class of the plan.
+   *
+   * @return the mapped class, must not be null
+   */
+  Class<?> getMappedClass() {
+    return this.mappedClass;
+  }
+
+  /**
+   * Get byte order which replaces byte order of all fields.
+   *
+   * @return the forced byte order or null if byte orders of annotations are used
+   */
+  JBBPByteOrder getForcedByteOrder() {
+    return this.forcedByteOrder;
+  }
+
+  private BinWritePlan findNested(final Step step, final Object value) {
+    JBBPUtils.assertNotNull(value, "Object must not be null");
+    final BinWritePlan last = step.lastNestedPlan;
+    if (last != null && last.mappedClass == value.getClass()) {
+      return last;
+    }
+    final BinWritePlan result = find(value.getClass(), this.forcedByteOrder);
+    if (result != null) {
+      step.lastNestedPlan = result;
+    }
+    return result;
+  }
+
+  private void writeStruct(final JBBPOut context, final JBBPBitOutputStream out,
+                           final Step step, final Object value,
+                           final JBBPCustomFieldWriter customFieldWriter) throws IOException {
+    final BinWritePlan nested = this.findNested(step, value);
+    if (nested == null) {
+      context.writeObjectWithoutPlan(value, step.record.mappingField, this.forcedByteOrder,
+          customFieldWriter);
+    } else {
+      nested.write(context, out, value, customFieldWriter);
+    }
+  }
+
+  private static void assertFieldArray(final Step step) {
+    if (!step.record.mappingField.getType().isArray()) {
+      throw new IllegalArgumentException(
+          "Detected non-array field marked to be written as an array [" + step.record.mappingField +
+              ']');
+    }
+  }
+
+  /**
+   * Write an object of the plan class.
+   *
+   * @param context           session which writes the object, must not be null
+   * @param out               stream of the session, must not be null
+   * @param obj               object to be written, must not be null
+   * @param customFieldWriter writer of custom fields, can be null
+   * @throws IOException it will be thrown for transport errors
+   */
+  void write(final JBBPOut context, final JBBPBitOutputStream out, final Object obj,
+             final JBBPCustomFieldWriter customFieldWriter) throws IOException {
+    for (final Step step : this.steps) {
+      final MappedFieldRecord record = step.record;
+      if (step.custom) {
+        if (customFieldWriter == null) {
+          throw new JBBPIllegalArgumentException(
+              "Class '" + obj.getClass().getName() + "' contains field '" +
+                  record.mappingField.getName() +
+                  "' which is custom one, you must provide JBBPCustomFieldWriter instance to save it.");
+        }
+        customFieldWriter.writeCustomField(context, out, obj, record.mappingField,
+            step.annotation, record.getValue(obj));
+        continue;
+      }
+
+      final Class<?> fieldType = step.fieldType;
+      final JBBPByteOrder byteOrder = step.byteOrder;
+      final boolean reverseBits = step.reverseBits;
+
+      switch (step.type) {
+        case BIT: {
+          if (fieldType == boolean.class) {
+            out.writeBits((Boolean) record.getValue(obj) ? 0xFF : 0x00, step.bitNumber);
+          } else {
+            byte value = (byte) record.getValueAsLong(obj);
+            if (reverseBits) {
+              value = JBBPUtils.reverseBitsInByte(step.bitNumber, value);
+            }
+            out.writeBits(value, step.bitNumber);
+          }
+        }
+        break;
+        case BOOL: {
+          final boolean value = fieldType == boolean.class ? (Boolean) record.getValue(obj) :
+              record.getValueAsLong(obj) != 0;
+          out.write(value ? step.trueByte : 0);
+        }
+        break;
+        case BYTE:
+        case UBYTE: {
+          byte value = (byte) record.getValueAsLong(obj);
+          if (reverseBits) {
+            value = JBBPUtils.reverseBitsInByte(value);
+          }
+          out.write(value);
+        }
+        break;
+        case SHORT:
+        case USHORT: {
+          short value = (short) record.getValueAsLong(obj);
+          if (reverseBits) {
+            value = (short) JBBPFieldShort.reverseBits(value);
+          }
+          out.writeShort(value, byteOrder);
+        }
+        break;
+        case INT: {
+          int value = (int) record.getValueAsLong(obj);
+          if (reverseBits) {
+            value = (int) JBBPFieldInt.reverseBits(value);
+          }
+          out.writeInt(value, byteOrder);
+        }
+        break;
+        case UINT: {
+          long value = record.getValueAsLong(obj);
+          if (reverseBits) {
+            value = (int) JBBPFieldUInt.reverseBits(value);
+          }
+          out.writeInt((int) value, byteOrder);
+        }
+        break;
+        case FLOAT: {
+          float value = (float) record.getValueAsDouble(obj);
+          if (reverseBits) {
+            value =
+                Float.intBitsToFloat((int) JBBPFieldInt.reverseBits(Float.floatToIntBits(value)));
+          }
+          out.writeFloat(value, byteOrder);
+        }
+        break;
+        case STRING: {
+          final Object valueAsObject = record.getValue(obj);
+          String value = null;
+          if (valueAsObject != null) {
+            value = String.valueOf(valueAsObject);
+            if (reverseBits) {
+              value = JBBPFieldString.reverseBits(value);
+            }
+          }
+          out.writeString(value, byteOrder);
+        }
+        break;
+        case LONG: {
+          long value = record.getValueAsLong(obj);
+          if (reverseBits) {
+            value = JBBPFieldLong.reverseBits(value);
+          }
+          out.writeLong(value, byteOrder);
+        }
+        break;
+        case DOUBLE: {
+          double value = record.getValueAsDouble(obj);
+          if (reverseBits) {
+            value =
+                Double.longBitsToDouble(JBBPFieldLong.reverseBits(Double.doubleToLongBits(value)));
+          }
+          out.writeDouble(value, byteOrder);
+        }
+        break;
+        case STRUCT: {
+          this.writeStruct(context, out, step, record.getValue(obj), customFieldWriter);
+        }
+        break;
+        default: {
+          this.writeArray(context, out, step, obj, customFieldWriter);
+        }
+        break;
+      }
+    }
+  }
+
+  private void writeArray(final JBBPOut context, final JBBPBitOutputStream out, final Step step,
+                          final Object obj, final JBBPCustomFieldWriter customFieldWriter)
+      throws IOException {
+    final Object array = step.record.getValue(obj);
+    final JBBPByteOrder byteOrder = step.byteOrder;
+    final boolean reverseBits = step.reverseBits;
+    final Class<?> component = step.fieldType.getComponentType();
+
+    switch (step.type) {
+      case BIT_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        if (component == boolean.class) {
+          out.writeBitsArray((boolean[]) array, len, step.bitNumber);
+        } else if (component == byte.class && !reverseBits) {
+          out.writeBitsArray((byte[]) array, len, step.bitNumber);
+        } else {
+          for (int i = 0; i < len; i++) {
+            byte value = (byte) getLong(array, component, i);
+            if (reverseBits) {
+              value = JBBPUtils.reverseBitsInByte(step.bitNumber, value);
+            }
+            out.writeBits(value, step.bitNumber);
+          }
+        }
+      }
+      break;
+      case BOOL_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        for (int i = 0; i < len; i++) {
+          final boolean value = component == boolean.class ? ((boolean[]) array)[i] :
+              (Boolean) Array.get(array, i);
+          out.write(value ? step.trueByte : 0);
+        }
+      }
+      break;
+      case UBYTE_ARRAY:
+      case BYTE_ARRAY: {
+        if (step.fieldType == String.class) {
+          final String str = (String) array;
+          for (int i = 0; i < str.length(); i++) {
+            byte value = (byte) str.charAt(i);
+            if (reverseBits) {
+              value = JBBPUtils.reverseBitsInByte(value);
+            }
+            out.write(value);
+          }
+        } else {
+          assertFieldArray(step);
+          if (component == byte.class && !reverseBits) {
+            out.write((byte[]) array);
+          } else {
+            final int len = Array.getLength(array);
+            for (int i = 0; i < len; i++) {
+              byte value = (byte) getLong(array, component, i);
+              if (reverseBits) {
+                value = JBBPUtils.reverseBitsInByte(value);
+              }
+              out.write(value);
+            }
+          }
+        }
+      }
+      break;
+      case SHORT_ARRAY:
+      case USHORT_ARRAY: {
+        if (step.fieldType == String.class) {
+          final String str = (String) array;
+          for (int i = 0; i < str.length(); i++) {
+            short value = (short) str.charAt(i);
+            if (reverseBits) {
+              value = (short) JBBPFieldShort.reverseBits(value);
+            }
+            out.writeShort(value, byteOrder);
+          }
+        } else {
+          assertFieldArray(step);
+          if (component == short.class && !reverseBits) {
+            out.writeShortArray((short[]) array, -1, byteOrder);
+          } else {
+            final int len = Array.getLength(array);
+            for (int i = 0; i < len; i++) {
+              short value = (short) getLong(array, component, i);
+              if (reverseBits) {
+                value = (short) JBBPFieldShort.reverseBits(value);
+              }
+              out.writeShort(value, byteOrder);
+            }
+          }
+        }
+      }
+      break;
+      case FLOAT_ARRAY: {
+        assertFieldArray(step);
+        if (component == float.class && !reverseBits) {
+          out.writeFloatArray((float[]) array, -1, byteOrder);
+        } else {
+          final int len = Array.getLength(array);
+          for (int i = 0; i < len; i++) {
+            float value = Array.getFloat(array, i);
+            if (reverseBits) {
+              value = Float
+                  .intBitsToFloat((int) JBBPFieldInt.reverseBits(Float.floatToIntBits(value)));
+            }
+            out.writeFloat(value, byteOrder);
+          }
+        }
+      }
+      break;
+      case UINT_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        for (int i = 0; i < len; i++) {
+          long value = getLong(array, component, i);
+          if (reverseBits) {
+            value = JBBPFieldUInt.reverseBits(value);
+          }
+          out.writeInt((int) value, byteOrder);
+        }
+      }
+      break;
+      case INT_ARRAY: {
+        assertFieldArray(step);
+        if (component == int.class && !reverseBits) {
+          out.writeIntArray((int[]) array, -1, byteOrder);
+        } else {
+          final int len = Array.getLength(array);
+          for (int i = 0; i < len; i++) {
+            int value = (int) getLong(array, component, i);
+            if (reverseBits) {
+              value = (int) JBBPFieldInt.reverseBits(value);
+            }
+            out.writeInt(value, byteOrder);
+          }
+        }
+      }
+      break;
+      case LONG_ARRAY: {
+        assertFieldArray(step);
+        if (component == long.class && !reverseBits) {
+          out.writeLongArray((long[]) array, -1, byteOrder);
+        } else {
+          final int len = Array.getLength(array);
+          for (int i = 0; i < len; i++) {
+            long value = getLong(array, component, i);
+            if (reverseBits) {
+              value = JBBPFieldLong.reverseBits(value);
+            }
+            out.writeLong(value, byteOrder);
+          }
+        }
+      }
+      break;
+      case STRING_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        for (int i = 0; i < len; i++) {
+          final Object value = Array.get(array, i);
+          String nullableStrValue = value == null ? null : String.valueOf(value);
+          if (nullableStrValue != null && reverseBits) {
+            nullableStrValue = JBBPFieldString.reverseBits(nullableStrValue);
+          }
+          out.writeString(nullableStrValue, byteOrder);
+        }
+      }
+      break;
+      case DOUBLE_ARRAY: {
+        assertFieldArray(step);
+        if (component == double.class && !reverseBits) {
+          out.writeDoubleArray((double[]) array, -1, byteOrder);
+        } else {
+          final int len = Array.getLength(array);
+          for (int i = 0; i < len; i++) {
+            double value = component == float.class || component == double.class ?
+                Array.getDouble(array, i) : ((Number) Array.get(array, i)).doubleValue();
+            if (reverseBits) {
+              value = Double
+                  .longBitsToDouble(JBBPFieldLong.reverseBits(Double.doubleToLongBits(value)));
+            }
+            out.writeDouble(value, byteOrder);
+          }
+        }
+      }
+      break;
+      case STRUCT_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        for (int i = 0; i < len; i++) {
+          this.writeStruct(context, out, step, Array.get(array, i), customFieldWriter);
+        }
+      }
+      break;
+      default: {
+        throw new Error("Unexpected situation for field type, contact developer [" + step.type + ']');
+      }
+    }
+  }
+
+  /**
+   * Calculate number of bits written for an object of the plan class, without writing.
+   *
+   * @param obj      object to be processed, must not be null
+   * @param measurer measurer of custom fields and nested objects which can't be processed through plan, must not be null
+   * @return number of bits to be written for the object
+   */
+  long bitLength(final Object obj, final JBBPSizeCalculator.Measurer measurer) {
+    long result = 0L;
+    for (final Step step : this.steps) {
+      final MappedFieldRecord record = step.record;
+      if (step.custom) {
+        result += measurer.measureCustomField(obj, record.mappingField, step.annotation,
+            record.getValue(obj));
+        continue;
+      }
+      switch (step.type) {
+        case BIT: {
+          result += step.bitNumber.getBitNumber();
+        }
+        break;
+        case BOOL:
+        case BYTE:
+        case UBYTE: {
+          result += 8L;
+        }
+        break;
+        case SHORT:
+        case USHORT: {
+          result += 16L;
+        }
+        break;
+        case INT:
+        case UINT:
+        case FLOAT: {
+          result += 32L;
+        }
+        break;
+        case LONG:
+        case DOUBLE: {
+          result += 64L;
+        }
+        break;
+        case STRING: {
+          result += stringBitLength(step, record.getValue(obj));
+        }
+        break;
+        case STRUCT: {
+          result += this.structBitLength(step, record.getValue(obj), measurer);
+        }
+        break;
+        default: {
+          result += this.arrayBitLength(step, obj, measurer);
+        }
+        break;
+      }
+    }
+    return result;
+  }
+
+  private static long stringBitLength(final Step step, final Object value) {
+    String str = value == null ? null : String.valueOf(value);
+    if (str != null && step.reverseBits) {
+      str = JBBPFieldString.reverseBits(str);
+    }
+    return JBBPBitOutputStream.getStringBitLength(str);
+  }
+
+  private long structBitLength(final Step step, final Object value,
+                               final JBBPSizeCalculator.Measurer measurer) {
+    final BinWritePlan nested = this.findNested(step, value);
+    return nested == null ? measurer.measureObject(value, step.record.mappingField) :
+        nested.bitLength(value, measurer);
+  }
+
+  private long arrayBitLength(final Step step, final Object obj,
+                              final JBBPSizeCalculator.Measurer measurer) {
+    final Object array = step.record.getValue(obj);
+    switch (step.type) {
+      case BIT_ARRAY: {
+        assertFieldArray(step);
+        return (long) Array.getLength(array) * step.bitNumber.getBitNumber();
+      }
+      case BOOL_ARRAY: {
+        assertFieldArray(step);
+        return (long) Array.getLength(array) << 3;
+      }
+      case UBYTE_ARRAY:
+      case BYTE_ARRAY: {
+        if (step.fieldType == String.class) {
+          return (long) ((String) array).length() << 3;
+        }
+        assertFieldArray(step);
+        return (long) Array.getLength(array) << 3;
+      }
+      case SHORT_ARRAY:
+      case USHORT_ARRAY: {
+        if (step.fieldType == String.class) {
+          return (long) ((String) array).length() << 4;
+        }
+        assertFieldArray(step);
+        return (long) Array.getLength(array) << 4;
+      }
+      case FLOAT_ARRAY:
+      case UINT_ARRAY:
+      case INT_ARRAY: {
+        assertFieldArray(step);
+        return (long) Array.getLength(array) << 5;
+      }
+      case LONG_ARRAY:
+      case DOUBLE_ARRAY: {
+        assertFieldArray(step);
+        return (long) Array.getLength(array) << 6;
+      }
+      case STRING_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        long result = 0L;
+        for (int i = 0; i < len; i++) {
+          result += stringBitLength(step, Array.get(array, i));
+        }
+        return result;
+      }
+      case STRUCT_ARRAY: {
+        assertFieldArray(step);
+        final int len = Array.getLength(array);
+        long result = 0L;
+        for (int i = 0; i < len; i++) {
+          result += this.structBitLength(step, Array.get(array, i), measurer);
+        }
+        return result;
+      }
+      default: {
+        throw new Error("Unexpected situation for field type, contact developer [" + step.type + ']');
+      }
+    }
+  }
+
+  private static long getLong(final Object array, final Class<?> component, final int index) {
+    if (component == char.class) {
+      return ((char[]) array)[index];
+    }
+    if (component.isPrimitive()) {
+      return Array.getLong(array, index);
+    }
+    final Object value = Array.get(array, index);
+    return value instanceof Character ? (Character) value : ((Number) value).longValue();
+  }
+
+  private static final class Step {
+    private final MappedFieldRecord record;
+    private final Bin annotation;
+    private final BinType type;
+    private final Class<?> fieldType;
+    private final boolean custom;
+    private final JBBPByteOrder byteOrder;
+    private final JBBPBitNumber bitNumber;
+    private final boolean reverseBits;
+    private final int trueByte;
+    private volatile BinWritePlan lastNestedPlan;
+
+    private Step(final MappedFieldRecord record, final Bin annotation, final BinType type) {
+      this.record = record;
+      this.annotation = annotation;
+      this.type = type;
+      this.fieldType = record.mappingField.getType();
+      this.custom = annotation.custom();
+      this.byteOrder = annotation.byteOrder();
+      this.bitNumber = annotation.bitNumber();
+      this.reverseBits = annotation.bitOrder() == JBBPBitOrder.MSB0;
+      this.trueByte = this.reverseBits ? 0x80 : 1;
+    }
+  }
+}
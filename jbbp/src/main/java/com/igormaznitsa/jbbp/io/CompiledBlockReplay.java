@@ -0,0 +1,350 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.JBBPExternalValueProvider;
+import com.igormaznitsa.jbbp.JBBPNamedNumericFieldMap;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.compiler.varlen.JBBPIntegerValueEvaluator;
+import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.utils.JBBPIntCounter;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Replay of a compiled script over values of a structure, for instance a parsed one. It walks the compiled block
+ * with the same rules as the parser (positions in the compiled block, named fields, expression evaluators and
+ * repeated bodies of structure arrays) and passes met items to handlers. Lengths of arrays are defined by
+ * the array values, expressions of alignments, skips and bit numbers are evaluated against values of already met
+ * numeric fields and the current counter. Instance keeps the replay state so that it is not thread-safe
+ * but can be reused for number of structures.
+ *
+ * @since 3.0.3
+ */
+abstract class CompiledBlockReplay {
+
+  private final JBBPCompiledBlock block;
+  private final byte[] compiled;
+  private final JBBPNamedFieldInfo[] namedFields;
+  private final JBBPIntegerValueEvaluator[] evaluators;
+  private final JBBPFieldTypeParameterContainer[] customTypes;
+  private final JBBPNamedNumericFieldMap fieldMap;
+  private final JBBPBitInputStream counterView;
+  private final JBBPIntCounter position = new JBBPIntCounter();
+  private int namedFieldIndex;
+  private int evaluatorIndex;
+
+  /**
+   * Constructor.
+   *
+   * @param block                 compiled script, must not be null
+   * @param externalValueProvider provider of external values for expressions, can be null
+   */
+  CompiledBlockReplay(final JBBPCompiledBlock block,
+                      final JBBPExternalValueProvider externalValueProvider) {
+    JBBPUtils.assertNotNull(block, "Compiled block must not be null");
+    this.block = block;
+    this.compiled = block.getCompiledData();
+    this.namedFields = block.getNamedFields();
+    this.evaluators = block.getArraySizeEvaluators();
+    this.customTypes = block.getCustomTypeFields();
+    final boolean noExpressions = this.evaluators == null || this.evaluators.length == 0;
+    this.fieldMap = noExpressions ? null : new JBBPNamedNumericFieldMap(externalValueProvider);
+    this.counterView = noExpressions ? null :
+        new JBBPBitInputStream(new ByteArrayInputStream(new byte[0])) {
+          @Override
+          public long getCounter() {
+            return CompiledBlockReplay.this.getCounter();
+          }
+        };
+  }
+
+  /**
+   * Get the compiled block of the replay.
+   *
+   * @return the compiled block, must not be null
+   */
+  final JBBPCompiledBlock getBlock() {
+    return this.block;
+  }
+
+  /**
+   * Replay the script over a root structure, met field values are not kept after the replay.
+   *
+   * @param root root structure with values, must not be null
+   * @throws IOException              it will be thrown for transport errors of handlers
+   * @throws IllegalArgumentException if values don't match the script
+   */
+  final void replay(final JBBPFieldStruct root) throws IOException {
+    JBBPUtils.assertNotNull(root, "Values must not be null");
+    this.position.set(0);
+    this.namedFieldIndex = 0;
+    this.evaluatorIndex = 0;
+    try {
+      this.walk(root);
+    } finally {
+      if (this.fieldMap != null) {
+        this.fieldMap.clear();
+      }
+    }
+  }
+
+  /**
+   * Get the current byte counter value to be used by expressions.
+   *
+   * @return number of fully processed bytes since the last counter reset
+   */
+  abstract long getCounter();
+
+  /**
+   * Process counter reset, the incompletely processed byte must be completed.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  abstract void onResetCounter() throws IOException;
+
+  /**
+   * Process alignment, the incompletely processed byte must be completed.
+   *
+   * @param alignByteNumber alignment border, zero or negative one only completes the byte
+   * @throws IOException it will be thrown for transport errors
+   */
+  abstract void onAlign(int alignByteNumber) throws IOException;
+
+  /**
+   * Process skip of bytes.
+   *
+   * @param byteNumber number of bytes to be skipped, can be zero or negative one which should be ignored
+   * @throws IOException it will be thrown for transport errors
+   */
+  abstract void onSkip(int byteNumber) throws IOException;
+
+  /**
+   * Process a field value. Structures are processed by the replay and never passed.
+   *
+   * @param type          field type code, one of JBBPCompiler.CODE_* values
+   * @param fieldTypeDiff true if the field is alternative type for the code (uint, string, float, double, value field)
+   * @param array         true if the field is an array
+   * @param field         field value, must not be null
+   * @param byteOrder     byte order of the field
+   * @param extra         extra value of the field, bit number for bit fields
+   * @param customType    custom type of the field, null if the field is not custom type one
+   * @throws IOException it will be thrown for transport errors
+   */
+  abstract void onField(int type, boolean fieldTypeDiff, boolean array, JBBPAbstractField field,
+                        JBBPByteOrder byteOrder, int extra,
+                        JBBPFieldTypeParameterContainer customType) throws IOException;
+
+  private int unpackInt() {
+    return JBBPUtils.unpackInt(this.compiled, this.position);
+  }
+
+  private void walk(final JBBPFieldStruct struct) throws IOException {
+    final boolean skip = struct == null;
+    int fieldIndex = 0;
+
+    while (this.position.get() < this.compiled.length) {
+      final int c = this.compiled[this.position.getAndIncrement()] & 0xFF;
+      final boolean wideCode = (c & JBBPCompiler.FLAG_WIDE) != 0;
+      final int ec = wideCode ? this.compiled[this.position.getAndIncrement()] & 0xFF : 0;
+      final boolean extraFieldNumAsExpr = (ec & JBBPCompiler.EXT_FLAG_EXTRA_AS_EXPRESSION) != 0;
+      final int code = (ec << 8) | c;
+      final boolean fieldTypeDiff = (ec & JBBPCompiler.EXT_FLAG_EXTRA_DIFF_TYPE) != 0;
+
+      final JBBPNamedFieldInfo name = (code & JBBPCompiler.FLAG_NAMED) == 0 ? null :
+          this.namedFields[this.namedFieldIndex++];
+      final JBBPByteOrder byteOrder =
+          (code & JBBPCompiler.FLAG_LITTLE_ENDIAN) == 0 ? JBBPByteOrder.BIG_ENDIAN :
+              JBBPByteOrder.LITTLE_ENDIAN;
+
+      int extraExprResult = 0;
+      if (extraFieldNumAsExpr) {
+        final JBBPIntegerValueEvaluator evaluator = this.evaluators[this.evaluatorIndex++];
+        if (!skip) {
+          extraExprResult =
+              evaluator.eval(this.counterView, this.position.get(), this.block, this.fieldMap);
+        }
+      }
+
+      final boolean array;
+      switch (code &
+          (JBBPCompiler.FLAG_ARRAY | (JBBPCompiler.EXT_FLAG_EXPRESSION_OR_WHOLESTREAM << 8))) {
+        case JBBPCompiler.FLAG_ARRAY: {
+          this.unpackInt();
+          array = true;
+        }
+        break;
+        case (JBBPCompiler.EXT_FLAG_EXPRESSION_OR_WHOLESTREAM << 8): {
+          array = true;
+        }
+        break;
+        case JBBPCompiler.FLAG_ARRAY | (JBBPCompiler.EXT_FLAG_EXPRESSION_OR_WHOLESTREAM << 8): {
+          // array length is defined by the array value
+          this.evaluatorIndex++;
+          array = true;
+        }
+        break;
+        default: {
+          array = false;
+        }
+        break;
+      }
+
+      final int type = code & 0xF;
+      if (type == JBBPCompiler.CODE_STRUCT_END) {
+        return;
+      }
+
+      final int extra;
+      switch (type) {
+        case JBBPCompiler.CODE_ALIGN:
+        case JBBPCompiler.CODE_SKIP:
+        case JBBPCompiler.CODE_BIT:
+        case JBBPCompiler.CODE_VAR:
+        case JBBPCompiler.CODE_CUSTOMTYPE: {
+          extra = extraFieldNumAsExpr ? extraExprResult : this.unpackInt();
+        }
+        break;
+        default: {
+          extra = 0;
+        }
+        break;
+      }
+
+      if (type == JBBPCompiler.CODE_STRUCT_START) {
+        if (skip) {
+          this.walk(null);
+          this.unpackInt();
+        } else if (array) {
+          this.walkStructArray(expect(struct, fieldIndex++, name, JBBPFieldArrayStruct.class));
+        } else {
+          this.walk(expect(struct, fieldIndex++, name, JBBPFieldStruct.class));
+          this.unpackInt();
+        }
+        continue;
+      }
+
+      final JBBPFieldTypeParameterContainer customType =
+          type == JBBPCompiler.CODE_CUSTOMTYPE ? this.customTypes[this.unpackInt()] : null;
+
+      if (skip) {
+        continue;
+      }
+
+      switch (type) {
+        case JBBPCompiler.CODE_RESET_COUNTER: {
+          this.onResetCounter();
+        }
+        break;
+        case JBBPCompiler.CODE_ALIGN: {
+          this.onAlign(extra);
+        }
+        break;
+        default: {
+          if (type == JBBPCompiler.CODE_SKIP && !fieldTypeDiff) {
+            this.onSkip(extra);
+          } else {
+            final Class<? extends JBBPAbstractField> expectedType =
+                array ? JBBPAbstractArrayField.class : JBBPAbstractField.class;
+            final JBBPAbstractField field = expect(struct, fieldIndex++, name, expectedType);
+            this.onField(type, fieldTypeDiff, array, field, byteOrder, extra, customType);
+            if (this.fieldMap != null && !array && name != null
+                && field instanceof JBBPNumericField) {
+              this.fieldMap.putField((JBBPNumericField) field);
+            }
+          }
+        }
+        break;
+      }
+    }
+  }
+
+  private void walkStructArray(final JBBPFieldArrayStruct items) throws IOException {
+    final int size = items.size();
+    if (size == 0) {
+      this.walk(null);
+      this.unpackInt();
+      return;
+    }
+    final int bodyStart = this.position.get();
+    final int namedFieldStart = this.namedFieldIndex;
+    final int evaluatorStart = this.evaluatorIndex;
+    for (int i = 0; i < size; i++) {
+      this.position.set(bodyStart);
+      this.namedFieldIndex = namedFieldStart;
+      this.evaluatorIndex = evaluatorStart;
+      this.walk(items.getElementAt(i));
+      this.unpackInt();
+    }
+  }
+
+  private static <T> T expect(final JBBPFieldStruct struct, final int index,
+                              final JBBPNamedFieldInfo name, final Class<T> type) {
+    if (index >= struct.size()) {
+      throw new IllegalArgumentException(
+          "Structure doesn't contain value for field " +
+              (name == null ? "#" + index : name.getFieldPath()));
+    }
+    final JBBPAbstractField field = struct.getElementAt(index);
+    if (name != null && !name.equals(field.getNameInfo())) {
+      throw new IllegalArgumentException(
+          "Expected field '" + name.getFieldPath() + "' but detected " + field.getNameInfo());
+    }
+    return expect(field, type);
+  }
+
+  /**
+   * Check type of a field value.
+   *
+   * @param field field value, must not be null
+   * @param type  expected type, must not be null
+   * @param <T>   expected type
+   * @return the field value cast to the type
+   * @throws IllegalArgumentException if the field has other type
+   */
+  static <T> T expect(final JBBPAbstractField field, final Class<T> type) {
+    if (!type.isInstance(field)) {
+      final JBBPNamedFieldInfo name = field.getNameInfo();
+      throw new IllegalArgumentException(
+          "Expected " + type.getSimpleName() + " for field " +
+              (name == null ? "<anonymous>" : name.getFieldPath()) + " but detected " +
+              field.getClass().getSimpleName());
+    }
+    return type.cast(field);
+  }
+
+  /**
+   * Get values of an array field without copying, the array must not be changed.
+   *
+   * @param field field value, must not be null
+   * @param type  expected type of array field, must not be null
+   * @return the value array of the field, must not be null
+   * @throws IllegalArgumentException if the field has other type
+   */
+  static Object valuesOf(final JBBPAbstractField field,
+                         final Class<? extends JBBPAbstractArrayField<?>> type) {
+    return expect(field, type).getValueArray(JBBPInternalKey.INSTANCE);
+  }
+}
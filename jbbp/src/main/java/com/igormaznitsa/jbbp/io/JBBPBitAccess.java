@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.nio.ByteBuffer;
+
+/**
+ * Auxiliary methods to read and write bit fields and multi-byte values directly in byte arrays and byte buffers
+ * at absolute bit offsets. Bits and bytes are placed in the same way as bit streams do for the same bit order,
+ * so that a value read or written by the methods is the same as read by {@link JBBPBitInputStream} or written by
+ * {@link JBBPBitOutputStream} at the same position. Byte buffer positions and limits are not used and not changed.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPBitAccess {
+
+  private JBBPBitAccess() {
+  }
+
+  /**
+   * Read a bit field from a byte array.
+   *
+   * @param array     source array, must not be null
+   * @param bitOffset offset of the first field bit from the array start
+   * @param bits      number of bits in the field, 1..8
+   * @param bitOrder  bit order of data, must not be null
+   * @return the field value
+   */
+  public static int getBits(final byte[] array, final long bitOffset, final int bits,
+                            final JBBPBitOrder bitOrder) {
+    return getBits(array, null, bitOffset, bits, bitOrder);
+  }
+
+  /**
+   * Read a bit field from a byte buffer.
+   *
+   * @param buffer    source buffer, must not be null
+   * @param bitOffset offset of the first field bit from the buffer start (index 0)
+   * @param bits      number of bits in the field, 1..8
+   * @param bitOrder  bit order of data, must not be null
+   * @return the field value
+   */
+  public static int getBits(final ByteBuffer buffer, final long bitOffset, final int bits,
+                            final JBBPBitOrder bitOrder) {
+    return getBits(null, buffer, bitOffset, bits, bitOrder);
+  }
+
+  /**
+   * Write a bit field into a byte array, other bits of touched bytes are not changed.
+   *
+   * @param array     target array, must not be null
+   * @param bitOffset offset of the first field bit from the array start
+   * @param value     value to be written, only lowest bits are used
+   * @param bits      number of bits in the field, 1..8
+   * @param bitOrder  bit order of data, must not be null
+   */
+  public static void setBits(final byte[] array, final long bitOffset, final int value,
+                             final int bits, final JBBPBitOrder bitOrder) {
+    setBits(array, null, bitOffset, value, bits, bitOrder);
+  }
+
+  /**
+   * Write a bit field into a byte buffer, other bits of touched bytes are not changed.
+   *
+   * @param buffer    target buffer, must not be null
+   * @param bitOffset offset of the first field bit from the buffer start (index 0)
+   * @param value     value to be written, only lowest bits are used
+   * @param bits      number of bits in the field, 1..8
+   * @param bitOrder  bit order of data, must not be null
+   */
+  public static void setBits(final ByteBuffer buffer, final long bitOffset, final int value,
+                             final int bits, final JBBPBitOrder bitOrder) {
+    setBits(null, buffer, bitOffset, value, bits, bitOrder);
+  }
+
+  /**
+   * Read a multi-byte value from a byte array.
+   *
+   * @param array     source array, must not be null
+   * @param bitOffset offset of the first value bit from the array start, it can be not aligned to byte
+   * @param bytes     number of bytes in the value, 1..8
+   * @param byteOrder byte order of the value, must not be null
+   * @param bitOrder  bit order of data, must not be null
+   * @return the value as unsigned number in lowest bytes
+   */
+  public static long getValue(final byte[] array, final long bitOffset, final int bytes,
+                              final JBBPByteOrder byteOrder, final JBBPBitOrder bitOrder) {
+    return getValue(array, null, bitOffset, bytes, byteOrder, bitOrder);
+  }
+
+  /**
+   * Read a multi-byte value from a byte buffer.
+   *
+   * @param buffer    source buffer, must not be null
+   * @param bitOffset offset of the first value bit from the buffer start (index 0), it can be not aligned to byte
+   * @param bytes     number of bytes in the value, 1..8
+   * @param byteOrder byte order of the value, must not be null
+   * @param bitOrder  bit order of data, must not be null
+   * @return the value as unsigned number in lowest bytes
+   */
+  public static long getValue(final ByteBuffer buffer, final long bitOffset, final int bytes,
+                              final JBBPByteOrder byteOrder, final JBBPBitOrder bitOrder) {
+    return getValue(null, buffer, bitOffset, bytes, byteOrder, bitOrder);
+  }
+
+  /**
+   * Write a multi-byte value into a byte array.
+   *
+   * @param array     target array, must not be null
+   * @param bitOffset offset of the first value bit from the array start, it can be not aligned to byte
+   * @param value     value to be written, lowest bytes are used
+   * @param bytes     number of bytes in the value, 1..8
+   * @param byteOrder byte order of the value, must not be null
+   * @param bitOrder  bit order of data, must not be null
+   */
+  public static void setValue(final byte[] array, final long bitOffset, final long value,
+                              final int bytes, final JBBPByteOrder byteOrder,
+                              final JBBPBitOrder bitOrder) {
+    setValue(array, null, bitOffset, value, bytes, byteOrder, bitOrder);
+  }
+
+  /**
+   * Write a multi-byte value into a byte buffer.
+   *
+   * @param buffer    target buffer, must not be null
+   * @param bitOffset offset of the first value bit from the buffer start (index 0), it can be not aligned to byte
+   * @param value     value to be written, lowest bytes are used
+   * @param bytes     number of bytes in the value, 1..8
+   * @param byteOrder byte order of the value, must not be null
+   * @param bitOrder  bit order of data, must not be null
+   */
+  public static void setValue(final ByteBuffer buffer, final long bitOffset, final long value,
+                              final int bytes, final JBBPByteOrder byteOrder,
+                              final JBBPBitOrder bitOrder) {
+    setValue(null, buffer, bitOffset, value, bytes, byteOrder, bitOrder);
+  }
+
+  private static int get(final byte[] array, final ByteBuffer buffer, final long index) {
+    return (array == null ? buffer.get((int) index) : array[(int) index]) & 0xFF;
+  }
+
+  private static void put(final byte[] array, final ByteBuffer buffer, final long index,
+                          final int value) {
+    if (array == null) {
+      buffer.put((int) index, (byte) value);
+    } else {
+      array[(int) index] = (byte) value;
+    }
+  }
+
+  private static long getValue(final byte[] array, final ByteBuffer buffer, final long bitOffset,
+                               final int bytes, final JBBPByteOrder byteOrder,
+                               final JBBPBitOrder bitOrder) {
+    final boolean aligned = (bitOffset & 7) == 0;
+    final long index = bitOffset >>> 3;
+    long result = 0L;
+    for (int i = 0; i < bytes; i++) {
+      final int next;
+      if (aligned) {
+        final int raw = get(array, buffer, index + i);
+        next = bitOrder == JBBPBitOrder.MSB0 ? JBBPUtils.reverseBitsInByte((byte) raw) & 0xFF : raw;
+      } else {
+        next = getBits(array, buffer, bitOffset + ((long) i << 3), 8, bitOrder);
+      }
+      if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
+        result = (result << 8) | next;
+      } else {
+        result |= (long) next << (i << 3);
+      }
+    }
+    return result;
+  }
+
+  private static void setValue(final byte[] array, final ByteBuffer buffer, final long bitOffset,
+                               final long value, final int bytes, final JBBPByteOrder byteOrder,
+                               final JBBPBitOrder bitOrder) {
+    final boolean aligned = (bitOffset & 7) == 0;
+    final long index = bitOffset >>> 3;
+    for (int i = 0; i < bytes; i++) {
+      final int shift = (byteOrder == JBBPByteOrder.BIG_ENDIAN ? bytes - 1 - i : i) << 3;
+      final int next = (int) (value >>> shift) & 0xFF;
+      if (aligned) {
+        put(array, buffer, index + i,
+            bitOrder == JBBPBitOrder.MSB0 ? JBBPUtils.reverseBitsInByte((byte) next) : next);
+      } else {
+        setBits(array, buffer, bitOffset + ((long) i << 3), next, 8, bitOrder);
+      }
+    }
+  }
+
+  private static int getBits(final byte[] array, final ByteBuffer buffer, final long bitOffset,
+                             final int bits, final JBBPBitOrder bitOrder) {
+    long position = bitOffset;
+    int rest = bits;
+    int result = 0;
+    while (rest > 0) {
+      final int inBytePosition = (int) (position & 7);
+      final int portion = Math.min(8 - inBytePosition, rest);
+      final int portionMask = (1 << portion) - 1;
+      final int data = get(array, buffer, position >>> 3);
+      if (bitOrder == JBBPBitOrder.MSB0_DIRECT) {
+        // the most significant value bits go first from the highest bit of a byte
+        result = (result << portion) | ((data >>> (8 - inBytePosition - portion)) & portionMask);
+      } else {
+        // the least significant value bits go first, MSB0 just mirrors bits of every byte
+        final int logical =
+            bitOrder == JBBPBitOrder.MSB0 ? JBBPUtils.reverseBitsInByte((byte) data) & 0xFF : data;
+        result |= ((logical >>> inBytePosition) & portionMask) << (bits - rest);
+      }
+      position += portion;
+      rest -= portion;
+    }
+    return result;
+  }
+
+  private static void setBits(final byte[] array, final ByteBuffer buffer, final long bitOffset,
+                              final int value, final int bits, final JBBPBitOrder bitOrder) {
+    long position = bitOffset;
+    int rest = bits;
+    while (rest > 0) {
+      final int inBytePosition = (int) (position & 7);
+      final int portion = Math.min(8 - inBytePosition, rest);
+      final int portionMask = (1 << portion) - 1;
+      int mask;
+      int chunk;
+      if (bitOrder == JBBPBitOrder.MSB0_DIRECT) {
+        final int shift = 8 - inBytePosition - portion;
+        chunk = ((value >>> (rest - portion)) & portionMask) << shift;
+        mask = portionMask << shift;
+      } else {
+        chunk = ((value >>> (bits - rest)) & portionMask) << inBytePosition;
+        mask = portionMask << inBytePosition;
+        if (bitOrder == JBBPBitOrder.MSB0) {
+          chunk = JBBPUtils.reverseBitsInByte((byte) chunk) & 0xFF;
+          mask = JBBPUtils.reverseBitsInByte((byte) mask) & 0xFF;
+        }
+      }
+      final long index = position >>> 3;
+      put(array, buffer, index, (get(array, buffer, index) & ~mask) | chunk);
+      position += portion;
+      rest -= portion;
+    }
+  }
+}
@@ -25,6 +25,7 @@ import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * A Filter stream implementing a countable bit stream interface. It allows read
@@ -40,6 +41,14 @@ public class JBBPBitInputStream extends FilterInputStream implements JBBPCountab
    */
   protected static final int INITIAL_ARRAY_BUFFER_SIZE =
       JBBPSystemProperty.PROPERTY_INPUT_INITIAL_ARRAY_BUFFER_SIZE.getAsInteger(32);
+  /**
+   * Size of the first read-ahead chunk during marker search.
+   */
+  private static final int MIN_MARKER_SEARCH_CHUNK_SIZE = 256;
+  /**
+   * Max size of read-ahead chunk during marker search.
+   */
+  private static final int MAX_MARKER_SEARCH_CHUNK_SIZE = 64 * 1024;
   /**
    * Allow return accumulated read data if end of stream and not full required bit field read.
    *
@@ -89,6 +98,27 @@ public class JBBPBitInputStream extends FilterInputStream implements JBBPCountab
    */
   private boolean detectedPartlyReadBitField;
 
+  /**
+   * Lazily allocated read-ahead buffer for marker search.
+   *
+   * @since 3.0.3
+   */
+  private byte[] markerSearchBuffer;
+
+  /**
+   * Copy of the last searched marker.
+   *
+   * @since 3.0.3
+   */
+  private byte[] markerForShiftTable;
+
+  /**
+   * Search shift table made for the last searched marker.
+   *
+   * @since 3.0.3
+   */
+  private int[] markerShiftTable;
+
   /**
    * A Constructor.
    * <b>By default, if missing part of bit field in the end of stream then current accumulated data will be returned.</b>
@@ -140,6 +170,26 @@ public class JBBPBitInputStream extends FilterInputStream implements JBBPCountab
     this.enablePartialBitsOnEOF = enablePartialBitsOnEOF;
   }
 
+  /**
+   * Replace the wrapped stream and reset the bit stream state (bit buffer, byte counter, marked state and detection flags).
+   * It allows to reuse the bit stream object for a new data source without new allocation, bit order and partial bits mode are kept.
+   *
+   * @param in new stream to be wrapped, must not be null
+   * @since 3.0.3
+   */
+  public void rewrap(final InputStream in) {
+    JBBPUtils.assertNotNull(in, "Stream must not be null");
+    this.in = in;
+    this.bitBuffer = 0;
+    this.bitsInBuffer = 0;
+    this.byteCounter = 0L;
+    this.markedBitBuffer = 0;
+    this.markedBitsInBuffer = 0;
+    this.markedByteCounter = 0L;
+    this.detectedArrayLimit = false;
+    this.detectedPartlyReadBitField = false;
+  }
+
   /**
    * Shows that during last read some bit field was not fully read.
    *
@@ -429,6 +479,55 @@ public class JBBPBitInputStream extends FilterInputStream implements JBBPCountab
     return result;
   }
 
+  /**
+   * Read bytes into whole existing array. Invert their order if byte order is LITTLE_ENDIAN.
+   *
+   * @param array     array to be filled by read bytes, must not be null
+   * @param byteOrder desired order of bytes
+   * @return the same array
+   * @throws IOException  it will be thrown for any transport problem during the operation
+   * @throws EOFException if the stream doesn't contain enough data to fill the array
+   * @see JBBPByteOrder#LITTLE_ENDIAN
+   * @since 3.0.3
+   */
+  public byte[] readByteArray(final byte[] array, final JBBPByteOrder byteOrder)
+      throws IOException {
+    this.setDetectedArrayLimit(false);
+    final int read = this.read(array, 0, array.length);
+    if (read != array.length) {
+      throw new EOFException(
+          "Have read only " + Math.max(read, 0) + " byte(s) instead of " + array.length + " byte(s)");
+    }
+    if (byteOrder == JBBPByteOrder.LITTLE_ENDIAN) {
+      JBBPUtils.reverseArray(array);
+    }
+    return array;
+  }
+
+  /**
+   * Read bit fields into whole existing array.
+   *
+   * @param array     array to be filled by read bit fields, must not be null
+   * @param bitNumber number of bits in each field, must not be null
+   * @return the same array
+   * @throws IOException  it will be thrown for any transport problem during the operation
+   * @throws EOFException if the stream doesn't contain enough data to fill the array
+   * @since 3.0.3
+   */
+  public byte[] readBitsArray(final byte[] array, final JBBPBitNumber bitNumber)
+      throws IOException {
+    this.detectedPartlyReadBitField = false;
+    this.setDetectedArrayLimit(false);
+    for (int i = 0; i < array.length; i++) {
+      final int next = this.readBits(bitNumber, this.enablePartialBitsOnEOF);
+      if (next < 0) {
+        throw new EOFException("Have read only " + i + " bit portions instead of " + array.length);
+      }
+      array[i] = (byte) next;
+    }
+    return array;
+  }
+
   @Override
   public void mark(final int readLimit) {
     in.mark(readLimit);
@@ -1311,6 +1410,151 @@ public class JBBPBitInputStream extends FilterInputStream implements JBBPCountab
     }
   }
 
+  /**
+   * Skip stream data till the first occurrence of a marker byte sequence. The stream is positioned on the first byte of the found marker, so that the marker can be read by next operations.
+   * Search is made among raw stream bytes (without bit order processing) in growing read-ahead chunks with Boyer-Moore-Horspool algorithm, so the wrapped stream must support mark and reset.
+   * Incompletely read bits in the bit buffer are dropped before search.
+   *
+   * @param marker marker byte sequence, must not be null and must not be empty
+   * @return number of bytes skipped before the marker, -1 if the marker is not found and the stream rest is skipped
+   * @throws IOException it will be thrown for transport errors or if the wrapped stream doesn't support mark and reset
+   * @see #skipToMarker(byte[], long)
+   * @since 3.0.3
+   */
+  public long skipToMarker(final byte[] marker) throws IOException {
+    return this.skipToMarker(marker, Long.MAX_VALUE);
+  }
+
+  /**
+   * Skip stream data till the first occurrence of a marker byte sequence but no more than defined number of bytes.
+   * The stream is positioned on the first byte of the found marker, so that the marker can be read by next operations.
+   * Search is made among raw stream bytes (without bit order processing) in growing read-ahead chunks with Boyer-Moore-Horspool algorithm, so the wrapped stream must support mark and reset.
+   * Incompletely read bits in the bit buffer are dropped before search.
+   *
+   * @param marker         marker byte sequence, must not be null and must not be empty
+   * @param maxBytesToSkip max number of bytes which can be skipped before the marker start
+   * @return number of bytes skipped before the marker, -1 if the marker is not found, in the case either max allowed number of bytes or the stream rest is skipped
+   * @throws IOException it will be thrown for transport errors or if the wrapped stream doesn't support mark and reset
+   * @since 3.0.3
+   */
+  public long skipToMarker(final byte[] marker, final long maxBytesToSkip) throws IOException {
+    JBBPUtils.assertNotNull(marker, "Marker must not be null");
+    if (marker.length == 0) {
+      throw new IllegalArgumentException("Marker must not be empty");
+    }
+    if (maxBytesToSkip < 0L) {
+      throw new IllegalArgumentException("Max number of bytes to skip must not be negative");
+    }
+    if (!this.in.markSupported()) {
+      throw new IOException("Wrapped stream must support mark and reset for marker search");
+    }
+
+    this.detectedPartlyReadBitField = false;
+    if (this.bitsInBuffer < 8) {
+      this.alignByte();
+    }
+
+    if (this.markerShiftTable == null || !Arrays.equals(this.markerForShiftTable, marker)) {
+      this.markerShiftTable = JBBPUtils.makeSearchShiftTable(marker);
+      this.markerForShiftTable = marker.clone();
+    }
+
+    final int maxChunkSize = Math.max(MAX_MARKER_SEARCH_CHUNK_SIZE, marker.length << 1);
+    if (this.markerSearchBuffer == null || this.markerSearchBuffer.length < maxChunkSize) {
+      this.markerSearchBuffer = new byte[maxChunkSize];
+    }
+    final byte[] buffer = this.markerSearchBuffer;
+
+    int chunkSize = Math.max(MIN_MARKER_SEARCH_CHUNK_SIZE, marker.length << 1);
+    long skipped = 0L;
+
+    while (true) {
+      final int prefetched;
+      if (this.bitsInBuffer == 8) {
+        buffer[0] = (byte) (this.bitOrderMode == JBBPBitOrder.MSB0 ?
+            JBBPUtils.reverseBitsInByte((byte) this.bitBuffer) : this.bitBuffer);
+        prefetched = 1;
+      } else {
+        prefetched = 0;
+      }
+
+      final long allowedToSkip = maxBytesToSkip - skipped;
+      final boolean limitedWindow = allowedToSkip <= chunkSize - marker.length;
+      final int windowSize = limitedWindow ? (int) allowedToSkip + marker.length : chunkSize;
+      final int toRead = windowSize - prefetched;
+
+      this.in.mark(toRead);
+      int read = 0;
+      while (read < toRead) {
+        final int portion = this.in.read(buffer, prefetched + read, toRead - read);
+        if (portion < 0) {
+          break;
+        }
+        read += portion;
+      }
+      final int available = prefetched + read;
+      final int found =
+          JBBPUtils.indexOf(buffer, 0, available, marker, this.markerShiftTable);
+
+      if (found >= 0) {
+        this.in.reset();
+        this.skipScannedBytes(prefetched, found);
+        return skipped + found;
+      }
+
+      if (read < toRead) {
+        // end of stream, all read bytes are consumed
+        if (prefetched != 0) {
+          this.bitsInBuffer = 0;
+          this.bitBuffer = 0;
+        }
+        this.byteCounter += available;
+        return -1L;
+      }
+
+      if (limitedWindow) {
+        this.in.reset();
+        this.skipScannedBytes(prefetched, (int) allowedToSkip);
+        return -1L;
+      }
+
+      // keep tail which can contain start of the marker
+      final int processed = available - marker.length + 1;
+      this.in.reset();
+      this.skipScannedBytes(prefetched, processed);
+      skipped += processed;
+      chunkSize = Math.min(chunkSize << 1, maxChunkSize);
+    }
+  }
+
+  /**
+   * Skip bytes already scanned during marker search.
+   *
+   * @param prefetched 1 if the first scanned byte is in the bit buffer, 0 otherwise
+   * @param number     number of scanned bytes to be skipped
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void skipScannedBytes(final int prefetched, final int number) throws IOException {
+    int rest = number;
+    if (prefetched != 0 && rest > 0) {
+      this.bitsInBuffer = 0;
+      this.bitBuffer = 0;
+      this.byteCounter++;
+      rest--;
+    }
+    while (rest > 0) {
+      long skipped = this.in.skip(rest);
+      if (skipped <= 0L) {
+        if (this.in.read() < 0) {
+          throw new EOFException("Unexpected end of stream during skip of scanned bytes");
+        }
+        skipped = 1L;
+      }
+      rest -= (int) skipped;
+      this.byteCounter += skipped;
+    }
+  }
+
   /**
    * Internal method to read a byte from wrapped stream.
    *
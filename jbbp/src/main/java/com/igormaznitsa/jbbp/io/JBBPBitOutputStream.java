@@ -45,6 +45,43 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * The byte counter of written bytes.
    */
   private long byteCounter;
+  /**
+   * Internal buffer of encoded bytes to be written into the wrapped stream in large blocks.
+   */
+  private final byte[] buffer;
+  /**
+   * Number of bytes in the internal buffer.
+   */
+  private int bufferPosition;
+  /**
+   * Flag shows that bytes are kept in the internal buffer till flush or buffer overflow.
+   */
+  private final boolean buffered;
+
+  /**
+   * Default size of the internal buffer for buffered streams.
+   *
+   * @since 3.0.3
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /**
+   * Size of the internal buffer for streams which pass encoded values to the wrapped stream just after write.
+   */
+  private static final int UNBUFFERED_BLOCK_SIZE = 64;
+
+  /**
+   * Stream which drops all written data.
+   */
+  private static final OutputStream NULL_STREAM = new OutputStream() {
+    @Override
+    public void write(final int b) {
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+    }
+  };
 
   /**
    * A Constructor. The Default LSB0 bit mode will be used for a bit writing operations.
@@ -64,8 +101,83 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @see JBBPBitOrder#MSB0
    */
   public JBBPBitOutputStream(final OutputStream out, final JBBPBitOrder bitOrderMode) {
+    this(out, bitOrderMode, 0);
+  }
+
+  /**
+   * A Constructor of stream with internal buffer. Written values are encoded into the buffer and
+   * passed to the wrapped stream in large blocks during flush or buffer overflow, so
+   * <b>flush or close must be called</b> to write all data.
+   *
+   * @param out          an output stream to be filtered.
+   * @param bitOrderMode a bit writing mode to used for writing operations.
+   * @param bufferSize   size of internal buffer in bytes, if zero or negative then written data is passed to the wrapped stream after every write operation
+   * @see #DEFAULT_BUFFER_SIZE
+   * @since 3.0.3
+   */
+  public JBBPBitOutputStream(final OutputStream out, final JBBPBitOrder bitOrderMode,
+                             final int bufferSize) {
     super(out);
     this.bitOrderMode = requireNonNull(bitOrderMode, "Bit order mode must not be null");
+    this.buffered = bufferSize > 0;
+    this.buffer = new byte[Math.max(UNBUFFERED_BLOCK_SIZE, bufferSize)];
+  }
+
+  /**
+   * Make stream which drops written data but counts it, number of written bits can be calculated from the byte
+   * counter and the number of buffered bits. The stream starts from a bit position, so that writers which use
+   * the byte counter or depend on not completed byte get the same state as during real writing.
+   *
+   * @param bitPosition number of bits to be shown as already written ones, must not be negative
+   * @return new counting stream with LSB0 bit order, must not be null
+   * @see #getCounter()
+   * @see #getBufferedBitsNumber()
+   * @since 3.0.3
+   */
+  public static JBBPBitOutputStream makeCountingStream(final long bitPosition) {
+    if (bitPosition < 0L) {
+      throw new IllegalArgumentException("Bit position must not be negative: " + bitPosition);
+    }
+    final JBBPBitOutputStream result = new JBBPBitOutputStream(NULL_STREAM);
+    result.setBitPosition(bitPosition);
+    return result;
+  }
+
+  /**
+   * Get number of bits written for a string by {@link #writeString(String, JBBPByteOrder)}.
+   *
+   * @param value string value, can be null
+   * @return number of bits in encoded string
+   * @since 3.0.3
+   */
+  public static long getStringBitLength(final String value) {
+    if (value == null || value.isEmpty()) {
+      return 8L;
+    }
+    final int len = JBBPUtils.getUtf8Length(value);
+    final int prefix;
+    if (len < 0x80) {
+      prefix = 1;
+    } else if ((len & 0xFFFFFF00) == 0) {
+      prefix = 2;
+    } else if ((len & 0xFFFF0000) == 0) {
+      prefix = 3;
+    } else if ((len & 0xFF000000) == 0) {
+      prefix = 4;
+    } else {
+      prefix = 5;
+    }
+    return (prefix + (long) len) << 3;
+  }
+
+  /**
+   * Check that the stream keeps written data in internal buffer till flush.
+   *
+   * @return true if the stream is buffered one, false otherwise
+   * @since 3.0.3
+   */
+  public boolean isBuffered() {
+    return this.buffered;
   }
 
   /**
@@ -90,13 +202,8 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @see JBBPByteOrder#LITTLE_ENDIAN
    */
   public void writeShort(final int value, final JBBPByteOrder byteOrder) throws IOException {
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.write(value >>> 8);
-      this.write(value);
-    } else {
-      this.write(value);
-      this.write(value >>> 8);
-    }
+    this.writeEncoded(value, 2, byteOrder);
+    this.commit();
   }
 
   /**
@@ -109,13 +216,8 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @see JBBPByteOrder#LITTLE_ENDIAN
    */
   public void writeInt(final int value, final JBBPByteOrder byteOrder) throws IOException {
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.writeShort(value >>> 16, byteOrder);
-      this.writeShort(value, byteOrder);
-    } else {
-      this.writeShort(value, byteOrder);
-      this.writeShort(value >>> 16, byteOrder);
-    }
+    this.writeEncoded(value, 4, byteOrder);
+    this.commit();
   }
 
   /**
@@ -129,14 +231,8 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @since 2.0.4
    */
   public void writeUInt(final long value, final JBBPByteOrder byteOrder) throws IOException {
-    final int v = (int) value;
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.writeShort(v >>> 16, byteOrder);
-      this.writeShort(v, byteOrder);
-    } else {
-      this.writeShort(v, byteOrder);
-      this.writeShort(v >>> 16, byteOrder);
-    }
+    this.writeEncoded(value, 4, byteOrder);
+    this.commit();
   }
 
   /**
@@ -150,14 +246,8 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @since 1.4.0
    */
   public void writeFloat(final float value, final JBBPByteOrder byteOrder) throws IOException {
-    final int intValue = Float.floatToIntBits(value);
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.writeShort(intValue >>> 16, byteOrder);
-      this.writeShort(intValue, byteOrder);
-    } else {
-      this.writeShort(intValue, byteOrder);
-      this.writeShort(intValue >>> 16, byteOrder);
-    }
+    this.writeEncoded(Float.floatToIntBits(value), 4, byteOrder);
+    this.commit();
   }
 
   /**
@@ -170,13 +260,8 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @see JBBPByteOrder#LITTLE_ENDIAN
    */
   public void writeLong(final long value, final JBBPByteOrder byteOrder) throws IOException {
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.writeInt((int) (value >>> 32), byteOrder);
-      this.writeInt((int) value, byteOrder);
-    } else {
-      this.writeInt((int) value, byteOrder);
-      this.writeInt((int) (value >>> 32), byteOrder);
-    }
+    this.writeEncoded(value, 8, byteOrder);
+    this.commit();
   }
 
   /**
@@ -190,13 +275,168 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @since 1.4.0
    */
   public void writeDouble(final double value, final JBBPByteOrder byteOrder) throws IOException {
-    final long longValue = Double.doubleToLongBits(value);
-    if (byteOrder == JBBPByteOrder.BIG_ENDIAN) {
-      this.writeInt((int) (longValue >>> 32), byteOrder);
-      this.writeInt((int) longValue, byteOrder);
+    this.writeEncoded(Double.doubleToLongBits(value), 8, byteOrder);
+    this.commit();
+  }
+
+  /**
+   * Write items of a short array into the stream.
+   *
+   * @param array     array to be written, must not be null
+   * @param length    number of items to be written, if -1 then whole array
+   * @param byteOrder byte order of items, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeShortArray(final short[] array, final int length,
+                              final JBBPByteOrder byteOrder) throws IOException {
+    final int len = length < 0 ? array.length : length;
+    for (int i = 0; i < len; i++) {
+      this.writeEncoded(array[i], 2, byteOrder);
+    }
+    this.commit();
+  }
+
+  /**
+   * Write items of an integer array into the stream.
+   *
+   * @param array     array to be written, must not be null
+   * @param length    number of items to be written, if -1 then whole array
+   * @param byteOrder byte order of items, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeIntArray(final int[] array, final int length, final JBBPByteOrder byteOrder)
+      throws IOException {
+    final int len = length < 0 ? array.length : length;
+    for (int i = 0; i < len; i++) {
+      this.writeEncoded(array[i], 4, byteOrder);
+    }
+    this.commit();
+  }
+
+  /**
+   * Write items of a long array into the stream.
+   *
+   * @param array     array to be written, must not be null
+   * @param length    number of items to be written, if -1 then whole array
+   * @param byteOrder byte order of items, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeLongArray(final long[] array, final int length, final JBBPByteOrder byteOrder)
+      throws IOException {
+    final int len = length < 0 ? array.length : length;
+    for (int i = 0; i < len; i++) {
+      this.writeEncoded(array[i], 8, byteOrder);
+    }
+    this.commit();
+  }
+
+  /**
+   * Write items of a float array into the stream.
+   *
+   * @param array     array to be written, must not be null
+   * @param length    number of items to be written, if -1 then whole array
+   * @param byteOrder byte order of items, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeFloatArray(final float[] array, final int length,
+                              final JBBPByteOrder byteOrder) throws IOException {
+    final int len = length < 0 ? array.length : length;
+    for (int i = 0; i < len; i++) {
+      this.writeEncoded(Float.floatToIntBits(array[i]), 4, byteOrder);
+    }
+    this.commit();
+  }
+
+  /**
+   * Write items of a double array into the stream.
+   *
+   * @param array     array to be written, must not be null
+   * @param length    number of items to be written, if -1 then whole array
+   * @param byteOrder byte order of items, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeDoubleArray(final double[] array, final int length,
+                               final JBBPByteOrder byteOrder) throws IOException {
+    final int len = length < 0 ? array.length : length;
+    for (int i = 0; i < len; i++) {
+      this.writeEncoded(Double.doubleToLongBits(array[i]), 8, byteOrder);
+    }
+    this.commit();
+  }
+
+  /**
+   * Encode lower bytes of a value into the internal buffer. If the bit buffer is not empty then bytes are
+   * written through the bit buffer.
+   *
+   * @param value     value to be written
+   * @param bytes     number of lower bytes of the value to be written, 1..8
+   * @param byteOrder byte order, must not be null
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void writeEncoded(final long value, final int bytes, final JBBPByteOrder byteOrder)
+      throws IOException {
+    final boolean bigEndian = byteOrder == JBBPByteOrder.BIG_ENDIAN;
+    if (this.bitBufferCount == 0) {
+      if (this.buffer.length - this.bufferPosition < bytes) {
+        this.drainBuffer();
+      }
+      final byte[] buf = this.buffer;
+      int pos = this.bufferPosition;
+      if (bigEndian) {
+        for (int shift = (bytes - 1) << 3; shift >= 0; shift -= 8) {
+          buf[pos++] = (byte) (value >>> shift);
+        }
+      } else {
+        for (int shift = 0; shift < bytes << 3; shift += 8) {
+          buf[pos++] = (byte) (value >>> shift);
+        }
+      }
+      if (this.bitOrderMode == JBBPBitOrder.MSB0) {
+        for (int i = this.bufferPosition; i < pos; i++) {
+          buf[i] = JBBPUtils.reverseBitsInByte(buf[i]);
+        }
+      }
+      this.bufferPosition = pos;
+      this.byteCounter += bytes;
     } else {
-      this.writeInt((int) longValue, byteOrder);
-      this.writeInt((int) (longValue >>> 32), byteOrder);
+      if (bigEndian) {
+        for (int shift = (bytes - 1) << 3; shift >= 0; shift -= 8) {
+          this.putBits((int) (value >>> shift), JBBPBitNumber.BITS_8);
+        }
+      } else {
+        for (int shift = 0; shift < bytes << 3; shift += 8) {
+          this.putBits((int) (value >>> shift), JBBPBitNumber.BITS_8);
+        }
+      }
+    }
+  }
+
+  /**
+   * Write content of the internal buffer into the wrapped stream.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void drainBuffer() throws IOException {
+    if (this.bufferPosition > 0) {
+      final int len = this.bufferPosition;
+      this.bufferPosition = 0;
+      this.out.write(this.buffer, 0, len);
+    }
+  }
+
+  /**
+   * Pass written bytes to the wrapped stream if the stream is not buffered one.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void commit() throws IOException {
+    if (!this.buffered) {
+      this.drainBuffer();
     }
   }
 
@@ -230,6 +470,16 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
     return this.bitBufferCount;
   }
 
+  /**
+   * Get number of bytes kept in the internal buffer and not passed to the wrapped stream yet.
+   *
+   * @return number of bytes in the internal buffer
+   * @since 3.0.3
+   */
+  public int getBufferedBytesNumber() {
+    return this.bufferPosition;
+  }
+
   /**
    * Flush the bit buffer into the output stream
    *
@@ -245,20 +495,45 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
   @Override
   public void flush() throws IOException {
     flushBitBuffer();
+    this.drainBuffer();
     this.out.flush();
   }
 
   @Override
   public void write(final byte[] b, final int off, final int len) throws IOException {
-    if (this.bitOrderMode == JBBPBitOrder.MSB0 || this.bitBufferCount != 0) {
+    if (this.bitBufferCount != 0) {
       int i = off;
       int cnt = len;
       while (cnt > 0) {
-        this.write(b[i++]);
+        this.putBits(b[i++], JBBPBitNumber.BITS_8);
         cnt--;
       }
+      this.commit();
+    } else if (this.bitOrderMode == JBBPBitOrder.MSB0) {
+      int i = off;
+      int cnt = len;
+      while (cnt > 0) {
+        if (this.bufferPosition == this.buffer.length) {
+          this.drainBuffer();
+        }
+        final int chunk = Math.min(cnt, this.buffer.length - this.bufferPosition);
+        for (int j = 0; j < chunk; j++) {
+          this.buffer[this.bufferPosition++] = JBBPUtils.reverseBitsInByte(b[i++]);
+        }
+        cnt -= chunk;
+      }
+      this.byteCounter += len;
+      this.commit();
+    } else if (!this.buffered || len >= this.buffer.length) {
+      this.drainBuffer();
+      this.out.write(b, off, len);
+      this.byteCounter += len;
     } else {
-      out.write(b, off, len);
+      if (this.buffer.length - this.bufferPosition < len) {
+        this.drainBuffer();
+      }
+      System.arraycopy(b, off, this.buffer, this.bufferPosition, len);
+      this.bufferPosition += len;
       this.byteCounter += len;
     }
   }
@@ -277,8 +552,181 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
    * @throws IllegalArgumentException it will be thrown for wrong bit number
    */
   public void writeBits(final int value, final JBBPBitNumber bitNumber) throws IOException {
+    this.putBits(value, bitNumber);
+    this.commit();
+  }
+
+  /**
+   * Write bit fields from elements of a byte array. Bits are packed into a 64-bit accumulator and encoded
+   * into the internal buffer by whole bytes, the result is the same as for
+   * {@link #writeBits(int, JBBPBitNumber)} called for each element.
+   *
+   * @param array     array which elements are sources of bits, must not be null
+   * @param length    number of elements to be written, if -1 then whole array
+   * @param bitNumber number of lowest bits of each element to be written, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @since 3.0.3
+   */
+  public void writeBitsArray(final byte[] array, final int length, final JBBPBitNumber bitNumber)
+      throws IOException {
+    final int len = length < 0 ? array.length : length;
+    final int bits = bitNumber.getBitNumber();
+    final int mask = bitNumber.getMask();
+    final boolean direct = this.bitOrderMode == JBBPBitOrder.MSB0_DIRECT;
+
+    long accumulator = this.startBitAccumulator();
+    int accumulated = this.bitBufferCount;
+    for (int i = 0; i < len; i++) {
+      int value = array[i] & mask;
+      if (direct) {
+        value = (JBBPUtils.reverseBitsInByte((byte) value) & 0xFF) >>> (8 - bits);
+      }
+      accumulator |= (long) value << accumulated;
+      accumulated += bits;
+      if (accumulated >= 56) {
+        this.putAccumulatedBytes(accumulator, accumulated);
+        accumulator >>>= accumulated & ~7;
+        accumulated &= 7;
+      }
+    }
+    this.endBitAccumulator(accumulator, accumulated);
+  }
+
+  /**
+   * Write bit fields from elements of an integer array.
+   *
+   * @param array     array which elements are sources of bits, must not be null
+   * @param length    number of elements to be written, if -1 then whole array
+   * @param bitNumber number of lowest bits of each element to be written, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @see #writeBitsArray(byte[], int, JBBPBitNumber)
+   * @since 3.0.3
+   */
+  public void writeBitsArray(final int[] array, final int length, final JBBPBitNumber bitNumber)
+      throws IOException {
+    final int len = length < 0 ? array.length : length;
+    final int bits = bitNumber.getBitNumber();
+    final int mask = bitNumber.getMask();
+    final boolean direct = this.bitOrderMode == JBBPBitOrder.MSB0_DIRECT;
+
+    long accumulator = this.startBitAccumulator();
+    int accumulated = this.bitBufferCount;
+    for (int i = 0; i < len; i++) {
+      int value = array[i] & mask;
+      if (direct) {
+        value = (JBBPUtils.reverseBitsInByte((byte) value) & 0xFF) >>> (8 - bits);
+      }
+      accumulator |= (long) value << accumulated;
+      accumulated += bits;
+      if (accumulated >= 56) {
+        this.putAccumulatedBytes(accumulator, accumulated);
+        accumulator >>>= accumulated & ~7;
+        accumulated &= 7;
+      }
+    }
+    this.endBitAccumulator(accumulator, accumulated);
+  }
+
+  /**
+   * Write bit fields from elements of a boolean array, true is written as field with all bits set
+   * and false as zero field.
+   *
+   * @param array     array which elements are sources of bits, must not be null
+   * @param length    number of elements to be written, if -1 then whole array
+   * @param bitNumber number of bits of each field, must not be null
+   * @throws IOException it will be thrown for transport errors
+   * @see #writeBitsArray(byte[], int, JBBPBitNumber)
+   * @since 3.0.3
+   */
+  public void writeBitsArray(final boolean[] array, final int length,
+                             final JBBPBitNumber bitNumber) throws IOException {
+    final int len = length < 0 ? array.length : length;
+    final int bits = bitNumber.getBitNumber();
+    final long ones = bitNumber.getMask();
+
+    long accumulator = this.startBitAccumulator();
+    int accumulated = this.bitBufferCount;
+    for (int i = 0; i < len; i++) {
+      if (array[i]) {
+        accumulator |= ones << accumulated;
+      }
+      accumulated += bits;
+      if (accumulated >= 56) {
+        this.putAccumulatedBytes(accumulator, accumulated);
+        accumulator >>>= accumulated & ~7;
+        accumulated &= 7;
+      }
+    }
+    this.endBitAccumulator(accumulator, accumulated);
+  }
+
+  /**
+   * Get content of the bit buffer as the first bits of a bit accumulator. The Accumulator keeps bits in the write
+   * order since its lowest bit, for MSB0_DIRECT values are placed into it with reversed bits and written bytes are
+   * reversed back, so that the same packing is used for all bit orders.
+   *
+   * @return the accumulator with bits of the bit buffer
+   */
+  private long startBitAccumulator() {
+    return this.bitOrderMode == JBBPBitOrder.MSB0_DIRECT ?
+        JBBPUtils.reverseBitsInByte((byte) this.bitBuffer) & 0xFF : this.bitBuffer;
+  }
+
+  /**
+   * Encode all whole bytes of a bit accumulator into the internal buffer.
+   *
+   * @param accumulator the bit accumulator
+   * @param accumulated number of bits in the accumulator
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void putAccumulatedBytes(final long accumulator, final int accumulated)
+      throws IOException {
+    final int bytes = accumulated >>> 3;
+    if (this.buffer.length - this.bufferPosition < bytes) {
+      this.drainBuffer();
+    }
+    final byte[] buf = this.buffer;
+    int pos = this.bufferPosition;
+    if (this.bitOrderMode == JBBPBitOrder.LSB0) {
+      for (int i = 0; i < bytes; i++) {
+        buf[pos++] = (byte) (accumulator >>> (i << 3));
+      }
+    } else {
+      for (int i = 0; i < bytes; i++) {
+        buf[pos++] = JBBPUtils.reverseBitsInByte((byte) (accumulator >>> (i << 3)));
+      }
+    }
+    this.bufferPosition = pos;
+    this.byteCounter += bytes;
+  }
+
+  /**
+   * Encode whole bytes of a bit accumulator and move the rest bits into the bit buffer.
+   *
+   * @param accumulator the bit accumulator
+   * @param accumulated number of bits in the accumulator, less than 64
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void endBitAccumulator(final long accumulator, final int accumulated)
+      throws IOException {
+    this.putAccumulatedBytes(accumulator, accumulated);
+    final int rest = (int) (accumulator >>> (accumulated & ~7)) & 0xFF;
+    this.bitBufferCount = accumulated & 7;
+    this.bitBuffer = this.bitOrderMode == JBBPBitOrder.MSB0_DIRECT ?
+        JBBPUtils.reverseBitsInByte((byte) rest) & 0xFF : rest;
+    this.commit();
+  }
+
+  /**
+   * Put bits through the bit buffer into the internal buffer without passing them to the wrapped stream.
+   *
+   * @param value     the value which bits will be written
+   * @param bitNumber number of bits from the value to be written
+   * @throws IOException it will be thrown for transport errors
+   */
+  private void putBits(final int value, final JBBPBitNumber bitNumber) throws IOException {
     if (this.bitBufferCount == 0 && bitNumber == JBBPBitNumber.BITS_8) {
-      this.write(value);
+      this.writeByte(value);
     } else {
       int mask;
       int accumulator = value;
@@ -338,10 +786,14 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
     if (alignByteNumber > 0) {
       long padding = (alignByteNumber - (this.byteCounter % alignByteNumber)) % alignByteNumber;
       while (padding > 0) {
-        this.out.write(0);
+        if (this.bufferPosition == this.buffer.length) {
+          this.drainBuffer();
+        }
+        this.buffer[this.bufferPosition++] = 0;
         this.byteCounter++;
         padding--;
       }
+      this.commit();
     }
   }
 
@@ -355,7 +807,10 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
     if (this.bitOrderMode == JBBPBitOrder.MSB0) {
       value = JBBPUtils.reverseBitsInByte((byte) value) & 0xFF;
     }
-    this.out.write(value);
+    if (this.bufferPosition == this.buffer.length) {
+      this.drainBuffer();
+    }
+    this.buffer[this.bufferPosition++] = (byte) value;
     this.byteCounter++;
   }
 
@@ -367,11 +822,7 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
 
   @Override
   public void write(final int value) throws IOException {
-    if (this.bitBufferCount == 0) {
-      this.writeByte(value);
-    } else {
-      this.writeBits(value, JBBPBitNumber.BITS_8);
-    }
+    this.writeBits(value, JBBPBitNumber.BITS_8);
   }
 
   /**
@@ -389,8 +840,9 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
     if (byteOrder == JBBPByteOrder.LITTLE_ENDIAN) {
       int i = length < 0 ? array.length - 1 : length - 1;
       while (i >= 0) {
-        this.write(array[i--]);
+        this.putBits(array[i--], JBBPBitNumber.BITS_8);
       }
+      this.commit();
     } else {
       this.write(array, 0, length < 0 ? array.length : length);
     }
@@ -406,6 +858,44 @@ public class JBBPBitOutputStream extends FilterOutputStream implements JBBPCount
     this.byteCounter = 0L;
   }
 
+  /**
+   * Move the stream to a bit position without writing, the byte counter and the number of buffered bits are
+   * set from the position, buffered bits are zero ones. It is used to make counting streams.
+   *
+   * @param bitPosition number of bits to be shown as written ones, must not be negative
+   */
+  void setBitPosition(final long bitPosition) {
+    this.bitBuffer = 0;
+    this.bitBufferCount = (int) (bitPosition & 7L);
+    this.bufferPosition = 0;
+    this.byteCounter = bitPosition >>> 3;
+  }
+
+  /**
+   * Drop all written data which has not been passed to the wrapped stream yet (both bit buffer and internal buffer)
+   * and reset the byte counter, so that the stream is in the same state as just created one.
+   *
+   * @since 3.0.3
+   */
+  public void reset() {
+    this.bitBuffer = 0;
+    this.bitBufferCount = 0;
+    this.bufferPosition = 0;
+    this.byteCounter = 0L;
+  }
+
+  /**
+   * Reset the stream and continue writing into another output stream, the internal buffer is reused.
+   *
+   * @param out new output stream to be filtered, must not be null
+   * @see #reset()
+   * @since 3.0.3
+   */
+  public void reset(final OutputStream out) {
+    this.out = requireNonNull(out, "Output stream must not be null");
+    this.reset();
+  }
+
   /**
    * Write string in UTF8 format into stream.
    * <b>the byte order in saved char data will be BIG_ENDIAN</b>
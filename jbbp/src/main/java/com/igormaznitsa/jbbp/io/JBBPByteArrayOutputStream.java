@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte array output stream which provides access to its internal array, so that written data can be used
+ * without copying. The Stream can be cleared by {@link #reset()} and reused, the grown internal array is kept.
+ * It is used as inside stream of {@link JBBPOut} sessions.
+ *
+ * @since 3.0.3
+ */
+public class JBBPByteArrayOutputStream extends ByteArrayOutputStream {
+
+  /**
+   * Constructor with default initial size of internal array.
+   */
+  public JBBPByteArrayOutputStream() {
+    super();
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param initialSize initial size of internal array, must not be negative
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public JBBPByteArrayOutputStream(final int initialSize) {
+    super(initialSize);
+  }
+
+  /**
+   * Get the internal array of the stream. Written data occupies bytes from zero till {@link #size()}, the array
+   * is changed by next write operations and can be replaced by bigger one during write.
+   *
+   * @return the internal array, must not be null
+   */
+  public synchronized byte[] getBuffer() {
+    return this.buf;
+  }
+
+  /**
+   * Wrap written data into byte buffer without copying, the buffer position is zero and the limit is the
+   * size of written data. Content of the buffer is changed by next write operations.
+   *
+   * @return byte buffer wrapping the internal array, must not be null
+   */
+  public synchronized ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(this.buf, 0, this.count);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream writing data directly into a heap or direct byte buffer starting from its current position.
+ * It allows to encode data into pooled buffers without intermediate byte arrays. The Class is not a thread-safe one.
+ *
+ * @since 3.0.3
+ */
+public class JBBPByteBufferOutputStream extends OutputStream {
+
+  /**
+   * Strategy to process writing of data which can't be placed into the rest of the buffer.
+   */
+  public enum OverflowStrategy {
+    /**
+     * Throw IOException, the buffer is not changed.
+     */
+    FAIL,
+    /**
+     * Allocate new buffer of the same kind (heap or direct) with bigger capacity and copy written data into it,
+     * position and limit of the replaced buffer are not changed.
+     */
+    GROW
+  }
+
+  private final OverflowStrategy overflowStrategy;
+  private ByteBuffer buffer;
+
+  /**
+   * Constructor of stream which throws exception for buffer overflow.
+   *
+   * @param buffer target buffer, must not be null
+   */
+  public JBBPByteBufferOutputStream(final ByteBuffer buffer) {
+    this(buffer, OverflowStrategy.FAIL);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param buffer           target buffer, must not be null and must not be read-only one
+   * @param overflowStrategy strategy for overflow, must not be null
+   * @throws IllegalArgumentException if the buffer is read-only one
+   */
+  public JBBPByteBufferOutputStream(final ByteBuffer buffer,
+                                    final OverflowStrategy overflowStrategy) {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    JBBPUtils.assertNotNull(overflowStrategy, "Overflow strategy must not be null");
+    if (buffer.isReadOnly()) {
+      throw new IllegalArgumentException("Buffer must not be read-only one");
+    }
+    this.buffer = buffer;
+    this.overflowStrategy = overflowStrategy;
+  }
+
+  /**
+   * Get the current target buffer, its position is placed after the last written byte.
+   * It can be another buffer than provided one if it has been grown.
+   *
+   * @return the current buffer, must not be null
+   */
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Change the target buffer, next data will be written from its current position.
+   * It allows to write data into sequence of pooled buffers through the same stream.
+   *
+   * @param buffer new target buffer, must not be null and must not be read-only one
+   * @throws IllegalArgumentException if the buffer is read-only one
+   */
+  public void setBuffer(final ByteBuffer buffer) {
+    JBBPUtils.assertNotNull(buffer, "Buffer must not be null");
+    if (buffer.isReadOnly()) {
+      throw new IllegalArgumentException("Buffer must not be read-only one");
+    }
+    this.buffer = buffer;
+  }
+
+  /**
+   * Get the overflow strategy of the stream.
+   *
+   * @return the overflow strategy, must not be null
+   */
+  public OverflowStrategy getOverflowStrategy() {
+    return this.overflowStrategy;
+  }
+
+  private void ensureRemaining(final int length) throws IOException {
+    final ByteBuffer current = this.buffer;
+    if (current.remaining() < length) {
+      if (this.overflowStrategy == OverflowStrategy.FAIL) {
+        throw new IOException(
+            "Buffer overflow, can't write " + length + " byte(s), remaining " + current.remaining());
+      }
+      final int required = current.position() + length;
+      if (required < 0) {
+        throw new IOException("Too big buffer required");
+      }
+      final int capacity = Math.max(required, current.capacity() < (Integer.MAX_VALUE >> 1) ?
+          current.capacity() << 1 : Integer.MAX_VALUE);
+      final ByteBuffer grown =
+          current.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      grown.order(current.order());
+      final ByteBuffer written = current.duplicate();
+      ((Buffer) written).flip();
+      grown.put(written);
+      this.buffer = grown;
+    }
+  }
+
+  @Override
+  public void write(final int value) throws IOException {
+    this.ensureRemaining(1);
+    this.buffer.put((byte) value);
+  }
+
+  @Override
+  public void write(final byte[] array, final int offset, final int length) throws IOException {
+    if (offset < 0 || length < 0 || offset + length > array.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    this.ensureRemaining(length);
+    this.buffer.put(array, offset, length);
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream collecting written data in a direct byte buffer and writing it into a channel.
+ * Big byte arrays are not copied but written into the channel together with collected data through gathering write
+ * if the channel supports it (for instance {@link java.nio.channels.FileChannel} and {@link java.nio.channels.SocketChannel}).
+ * The channel must be in blocking mode. The Class is not a thread-safe one.
+ *
+ * @since 3.0.3
+ */
+public class JBBPChannelOutputStream extends OutputStream {
+
+  /**
+   * Default size of the internal buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 16384;
+
+  private final WritableByteChannel channel;
+  private final ByteBuffer buffer;
+  private final ByteBuffer[] gatheringPair = new ByteBuffer[2];
+
+  /**
+   * Constructor with default size of internal buffer.
+   *
+   * @param channel target channel, must not be null
+   */
+  public JBBPChannelOutputStream(final WritableByteChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param channel    target channel, must not be null
+   * @param bufferSize size of internal direct buffer, must be positive
+   * @throws IllegalArgumentException if buffer size is not positive
+   */
+  public JBBPChannelOutputStream(final WritableByteChannel channel, final int bufferSize) {
+    JBBPUtils.assertNotNull(channel, "Channel must not be null");
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Get the target channel.
+   *
+   * @return the channel, must not be null
+   */
+  public WritableByteChannel getChannel() {
+    return this.channel;
+  }
+
+  @Override
+  public void write(final int value) throws IOException {
+    if (!this.buffer.hasRemaining()) {
+      this.drain();
+    }
+    this.buffer.put((byte) value);
+  }
+
+  @Override
+  public void write(final byte[] array, final int offset, final int length) throws IOException {
+    if (offset < 0 || length < 0 || offset + length > array.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (length <= this.buffer.remaining()) {
+      this.buffer.put(array, offset, length);
+    } else if (length < this.buffer.capacity()) {
+      this.drain();
+      this.buffer.put(array, offset, length);
+    } else {
+      final ByteBuffer wrapped = ByteBuffer.wrap(array, offset, length);
+      if (this.buffer.position() > 0 && this.channel instanceof GatheringByteChannel) {
+        ((Buffer) this.buffer).flip();
+        this.gatheringPair[0] = this.buffer;
+        this.gatheringPair[1] = wrapped;
+        try {
+          final GatheringByteChannel gathering = (GatheringByteChannel) this.channel;
+          while (wrapped.hasRemaining()) {
+            gathering.write(this.gatheringPair);
+          }
+        } finally {
+          this.gatheringPair[0] = null;
+          this.gatheringPair[1] = null;
+          ((Buffer) this.buffer).clear();
+        }
+      } else {
+        this.drain();
+        while (wrapped.hasRemaining()) {
+          this.channel.write(wrapped);
+        }
+      }
+    }
+  }
+
+  private void drain() throws IOException {
+    if (this.buffer.position() > 0) {
+      ((Buffer) this.buffer).flip();
+      try {
+        while (this.buffer.hasRemaining()) {
+          this.channel.write(this.buffer);
+        }
+      } finally {
+        ((Buffer) this.buffer).clear();
+      }
+    }
+  }
+
+  /**
+   * Write collected data into the channel.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  @Override
+  public void flush() throws IOException {
+    this.drain();
+  }
+
+  /**
+   * Write collected data and close the channel.
+   *
+   * @throws IOException it will be thrown for transport errors
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.drain();
+    } finally {
+      this.channel.close();
+    }
+  }
+}
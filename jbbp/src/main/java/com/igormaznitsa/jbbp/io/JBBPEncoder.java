@@ -0,0 +1,333 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.JBBPExternalValueProvider;
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayBit;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayBoolean;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayByte;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayDouble;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayFloat;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayLong;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayShort;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayString;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayUByte;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayUInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayUShort;
+import com.igormaznitsa.jbbp.model.JBBPFieldString;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Encoder writes a structure back into a bit stream through the compiled script of the structure, so that a parsed
+ * structure can be written again without mapped classes. The script is interpreted with the same rules as the parser
+ * uses: bit fields, byte orders, structure arrays, alignments, skips (written as zero bytes) and counter resets are
+ * processed, lengths of arrays are defined by array values, var and custom type fields are written through
+ * {@link FieldWriter}. Value fields are not written.
+ * <p>
+ * Encoding doesn't make any allocation except made by the output stream, values of array fields are written
+ * without copying. An encoder instance keeps state of the current encoding so that it is not thread-safe, instance
+ * should be used by one thread.
+ *
+ * @see JBBPSizeCalculator
+ * @since 3.0.3
+ */
+public final class JBBPEncoder {
+
+  private final JBBPBitOrder bitOrder;
+  private final Replay replay;
+
+  private JBBPEncoder(final JBBPCompiledBlock block, final JBBPBitOrder bitOrder,
+                      final JBBPExternalValueProvider externalValueProvider,
+                      final FieldWriter fieldWriter) {
+    JBBPUtils.assertNotNull(bitOrder, "Bit order must not be null");
+    this.bitOrder = bitOrder;
+    this.replay = new Replay(block, externalValueProvider, fieldWriter);
+  }
+
+  /**
+   * Prepare encoder for structures of a parser, the bit order of the parser is used.
+   *
+   * @param parser parser which structures will be encoded, must not be null
+   * @return prepared encoder, must not be null
+   */
+  public static JBBPEncoder prepare(final JBBPParser parser) {
+    JBBPUtils.assertNotNull(parser, "Parser must not be null");
+    return new JBBPEncoder(parser.getCompiledBlock(), parser.getBitOrder(), null, null);
+  }
+
+  /**
+   * Prepare encoder for structures of a compiled block.
+   *
+   * @param block compiled block, must not be null
+   * @return prepared encoder with LSB0 bit order, must not be null
+   */
+  public static JBBPEncoder prepare(final JBBPCompiledBlock block) {
+    return new JBBPEncoder(block, JBBPBitOrder.LSB0, null, null);
+  }
+
+  /**
+   * Prepare encoder for structures of a compiled block.
+   *
+   * @param block                 compiled block, must not be null
+   * @param bitOrder              bit order of streams made by the encoder, must not be null
+   * @param externalValueProvider provider of external values used by expressions, can be null
+   * @param fieldWriter           writer of var and custom type fields, can be null if the script doesn't contain such fields
+   * @return prepared encoder, must not be null
+   */
+  public static JBBPEncoder prepare(final JBBPCompiledBlock block, final JBBPBitOrder bitOrder,
+                                    final JBBPExternalValueProvider externalValueProvider,
+                                    final FieldWriter fieldWriter) {
+    return new JBBPEncoder(block, bitOrder, externalValueProvider, fieldWriter);
+  }
+
+  /**
+   * Get the compiled block of the encoder.
+   *
+   * @return the compiled block, must not be null
+   */
+  public JBBPCompiledBlock getCompiledBlock() {
+    return this.replay.getBlock();
+  }
+
+  /**
+   * Get bit order used for streams made by the encoder.
+   *
+   * @return the bit order, must not be null
+   */
+  public JBBPBitOrder getBitOrder() {
+    return this.bitOrder;
+  }
+
+  /**
+   * Write a structure into a bit stream. The stream is not flushed, incompletely written byte stays in the stream bit
+   * buffer and will be written by flush of the stream.
+   *
+   * @param root structure to be written, its fields must be in the order of the script, must not be null
+   * @param out  stream to write data, its bit order should be the same as the parser bit order, must not be null
+   * @throws IOException              it will be thrown for transport errors
+   * @throws IllegalArgumentException if the structure doesn't match the script
+   */
+  public void encode(final JBBPFieldStruct root, final JBBPBitOutputStream out) throws IOException {
+    JBBPUtils.assertNotNull(out, "Stream must not be null");
+    this.replay.out = out;
+    try {
+      this.replay.replay(root);
+    } finally {
+      this.replay.out = null;
+    }
+  }
+
+  /**
+   * Write a structure into a byte array.
+   *
+   * @param root structure to be written, its fields must be in the order of the script, must not be null
+   * @return written data as byte array, must not be null
+   * @throws IOException              it will be thrown for transport errors
+   * @throws IllegalArgumentException if the structure doesn't match the script
+   */
+  public byte[] encode(final JBBPFieldStruct root) throws IOException {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final JBBPBitOutputStream out = new JBBPBitOutputStream(buffer, this.bitOrder);
+    this.encode(root, out);
+    out.close();
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Writer of fields which format is not defined by the script, var fields and custom type fields.
+   */
+  public interface FieldWriter {
+    /**
+     * Write a field value.
+     *
+     * @param out        stream to write the value, must not be null
+     * @param field      field value, it can be an array field, must not be null
+     * @param customType custom type of the field, null for var fields
+     * @param extraData  extra data defined for the field in the script
+     * @param byteOrder  byte order defined for the field in the script
+     * @throws IOException it will be thrown for transport errors
+     */
+    void writeField(JBBPBitOutputStream out, JBBPAbstractField field,
+                    JBBPFieldTypeParameterContainer customType, int extraData,
+                    JBBPByteOrder byteOrder) throws IOException;
+  }
+
+  private static final class Replay extends CompiledBlockReplay {
+    private final FieldWriter fieldWriter;
+    private JBBPBitOutputStream out;
+
+    private Replay(final JBBPCompiledBlock block,
+                   final JBBPExternalValueProvider externalValueProvider,
+                   final FieldWriter fieldWriter) {
+      super(block, externalValueProvider);
+      this.fieldWriter = fieldWriter;
+    }
+
+    @Override
+    long getCounter() {
+      return this.out.getCounter();
+    }
+
+    @Override
+    void onResetCounter() throws IOException {
+      this.out.align(0L);
+      this.out.resetCounter();
+    }
+
+    @Override
+    void onAlign(final int alignByteNumber) throws IOException {
+      this.out.align(alignByteNumber);
+    }
+
+    @Override
+    void onSkip(final int byteNumber) throws IOException {
+      for (int i = 0; i < byteNumber; i++) {
+        this.out.write(0);
+      }
+    }
+
+    @Override
+    void onField(final int type, final boolean fieldTypeDiff, final boolean array,
+                 final JBBPAbstractField field, final JBBPByteOrder byteOrder, final int extra,
+                 final JBBPFieldTypeParameterContainer customType) throws IOException {
+      final JBBPBitOutputStream out = this.out;
+      switch (type) {
+        case JBBPCompiler.CODE_SKIP: {
+          // value field, it is not written
+        }
+        break;
+        case JBBPCompiler.CODE_BIT: {
+          final JBBPBitNumber bitNumber = JBBPBitNumber.decode(extra);
+          if (array) {
+            out.writeBitsArray((byte[]) valuesOf(field, JBBPFieldArrayBit.class), -1, bitNumber);
+          } else {
+            out.writeBits(expect(field, JBBPNumericField.class).getAsInt(), bitNumber);
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_VAR:
+        case JBBPCompiler.CODE_CUSTOMTYPE: {
+          if (this.fieldWriter == null) {
+            throw new IllegalArgumentException(
+                "Detected var or custom type field, writer must be provided [" +
+                    field.getNameInfo() + ']');
+          }
+          this.fieldWriter.writeField(out, field, customType, extra, byteOrder);
+        }
+        break;
+        case JBBPCompiler.CODE_BYTE: {
+          if (fieldTypeDiff) {
+            if (array) {
+              out.writeIntArray(expect(field, JBBPFieldArrayUInt.class).getInternalArray(), -1,
+                  byteOrder);
+            } else {
+              out.writeInt((int) expect(field, JBBPNumericField.class).getAsLong(), byteOrder);
+            }
+          } else if (array) {
+            out.writeBytes((byte[]) valuesOf(field, JBBPFieldArrayByte.class), -1, byteOrder);
+          } else {
+            out.write(expect(field, JBBPNumericField.class).getAsInt());
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_UBYTE: {
+          if (array) {
+            out.writeBytes((byte[]) valuesOf(field, JBBPFieldArrayUByte.class), -1, byteOrder);
+          } else {
+            out.write(expect(field, JBBPNumericField.class).getAsInt());
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_BOOL: {
+          if (fieldTypeDiff) {
+            if (array) {
+              out.writeStringArray(
+                  (String[]) valuesOf(field, JBBPFieldArrayString.class), byteOrder);
+            } else {
+              out.writeString(expect(field, JBBPFieldString.class).getAsString(), byteOrder);
+            }
+          } else if (array) {
+            for (final boolean v : (boolean[]) valuesOf(field, JBBPFieldArrayBoolean.class)) {
+              out.write(v ? 1 : 0);
+            }
+          } else {
+            out.write(expect(field, JBBPNumericField.class).getAsBool() ? 1 : 0);
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_INT: {
+          if (fieldTypeDiff) {
+            if (array) {
+              out.writeFloatArray(
+                  (float[]) valuesOf(field, JBBPFieldArrayFloat.class), -1, byteOrder);
+            } else {
+              out.writeFloat(expect(field, JBBPNumericField.class).getAsFloat(), byteOrder);
+            }
+          } else if (array) {
+            out.writeIntArray((int[]) valuesOf(field, JBBPFieldArrayInt.class), -1, byteOrder);
+          } else {
+            out.writeInt(expect(field, JBBPNumericField.class).getAsInt(), byteOrder);
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_LONG: {
+          if (fieldTypeDiff) {
+            if (array) {
+              out.writeDoubleArray(
+                  (double[]) valuesOf(field, JBBPFieldArrayDouble.class), -1, byteOrder);
+            } else {
+              out.writeDouble(expect(field, JBBPNumericField.class).getAsDouble(), byteOrder);
+            }
+          } else if (array) {
+            out.writeLongArray((long[]) valuesOf(field, JBBPFieldArrayLong.class), -1, byteOrder);
+          } else {
+            out.writeLong(expect(field, JBBPNumericField.class).getAsLong(), byteOrder);
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_SHORT: {
+          if (array) {
+            out.writeShortArray((short[]) valuesOf(field, JBBPFieldArrayShort.class), -1, byteOrder);
+          } else {
+            out.writeShort(expect(field, JBBPNumericField.class).getAsInt(), byteOrder);
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_USHORT: {
+          if (array) {
+            out.writeShortArray((short[]) valuesOf(field, JBBPFieldArrayUShort.class), -1, byteOrder);
+          } else {
+            out.writeShort(expect(field, JBBPNumericField.class).getAsInt(), byteOrder);
+          }
+        }
+        break;
+        default:
+          throw new Error("Detected unexpected field type! Contact developer! [" + type + ']');
+      }
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+/**
+ * Key to call internal methods of the library from its io package. Instance of the key is available only inside
+ * the package, so that methods which require the key can't be called by applications.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPInternalKey {
+
+  /**
+   * The only instance of the key.
+   */
+  static final JBBPInternalKey INSTANCE = new JBBPInternalKey();
+
+  private JBBPInternalKey() {
+  }
+
+  /**
+   * Check that a key is the key of the library.
+   *
+   * @param key key to be checked
+   * @throws IllegalArgumentException if the key is not the library one
+   */
+  public static void assertKey(final JBBPInternalKey key) {
+    if (key != INSTANCE) {
+      throw new IllegalArgumentException("Internal key of the library is expected");
+    }
+  }
+}
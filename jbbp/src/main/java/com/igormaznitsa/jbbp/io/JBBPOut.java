@@ -29,6 +29,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * The Class implements some kind of DSL to form binary blocks. The Class is not
@@ -46,6 +48,10 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * The Default bit outOrder.
    */
   public static final JBBPBitOrder DEFAULT_BIT_ORDER = JBBPBitOrder.LSB0;
+  /**
+   * Size of the write buffer for sessions with inside byte array stream, the stream is not visible till the end of session.
+   */
+  private static final int INTERNAL_BUFFER_SIZE = 1024;
   /**
    * The Bit outOrder for operations.
    */
@@ -53,12 +59,25 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
   /**
    * The Bit stream for operations.
    */
-  private final JBBPBitOutputStream outStream;
+  private JBBPBitOutputStream outStream;
+  /**
+   * Flag shows that the bit stream has been provided by caller, such stream can't be retargeted by the session.
+   */
+  private final boolean externalBitStream;
   /**
    * If the DSL session was started for an external byte array output stream
    * then it will be saved into the variable.
    */
-  private final ByteArrayOutputStream originalByteArrayOutStream;
+  private ByteArrayOutputStream originalByteArrayOutStream;
+  /**
+   * Byte buffer stream if the session writes data into a byte buffer, it allows to change the buffer without
+   * new stream.
+   */
+  private JBBPByteBufferOutputStream byteBufferOutStream;
+  /**
+   * The Byte order defined for the session start, it is restored during reset.
+   */
+  private final JBBPByteOrder initialByteOrder;
   /**
    * Flag shows that all commands must be skipped till the End.
    */
@@ -71,6 +90,10 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * The Flags show that the processing has been ended.
    */
   private boolean ended;
+  /**
+   * Write plan used for the last written object, allows to avoid search of plan for sequence of objects of the same class.
+   */
+  private BinWritePlan lastWritePlan;
 
   /**
    * The Constructor.
@@ -83,12 +106,28 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    */
   private JBBPOut(final OutputStream outStream, final JBBPByteOrder byteOrder,
                   final JBBPBitOrder bitOrder) {
+    this(outStream, byteOrder, bitOrder, 0);
+  }
+
+  /**
+   * The Constructor.
+   *
+   * @param outStream  the output stream for the session, it must not be null.
+   * @param byteOrder  the byte outOrder for the session, it must not be null.
+   * @param bitOrder   the bit outOrder for the session, it must not be null
+   * @param bufferSize size of internal buffer of created bit stream, zero if data must be passed to the stream just after write
+   * @throws IllegalArgumentException if defined a bit stream which parameters
+   *                                  incompatible with defined ones
+   */
+  private JBBPOut(final OutputStream outStream, final JBBPByteOrder byteOrder,
+                  final JBBPBitOrder bitOrder, final int bufferSize) {
     assertNotNull(outStream, "Out stream must not be null");
     assertNotNull(byteOrder, "Byte order must not be null");
     assertNotNull(bitOrder, "Bit order must not be null");
 
-    this.outStream = outStream instanceof JBBPBitOutputStream ? (JBBPBitOutputStream) outStream :
-            new JBBPBitOutputStream(outStream, bitOrder);
+    this.externalBitStream = outStream instanceof JBBPBitOutputStream;
+    this.outStream = this.externalBitStream ? (JBBPBitOutputStream) outStream :
+            new JBBPBitOutputStream(outStream, bitOrder, bufferSize);
     this.bitOrder = this.outStream.getBitOrder();
     if (this.bitOrder != bitOrder) {
       throw new IllegalArgumentException(
@@ -96,12 +135,15 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
                       this.bitOrder + ']');
     }
     this.byteOrder = byteOrder;
+    this.initialByteOrder = byteOrder;
+    this.setTarget(outStream);
+  }
 
-    if (outStream instanceof ByteArrayOutputStream) {
-      this.originalByteArrayOutStream = (ByteArrayOutputStream) outStream;
-    } else {
-      this.originalByteArrayOutStream = null;
-    }
+  private void setTarget(final OutputStream outStream) {
+    this.originalByteArrayOutStream = outStream instanceof ByteArrayOutputStream ?
+        (ByteArrayOutputStream) outStream : null;
+    this.byteBufferOutStream = outStream instanceof JBBPByteBufferOutputStream ?
+        (JBBPByteBufferOutputStream) outStream : null;
   }
 
   /**
@@ -113,7 +155,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * array stream.
    */
   public static JBBPOut BeginBin(final JBBPByteOrder byteOrder, final JBBPBitOrder bitOrder) {
-    return new JBBPOut(new ByteArrayOutputStream(), byteOrder, bitOrder);
+    return new JBBPOut(new JBBPByteArrayOutputStream(), byteOrder, bitOrder, INTERNAL_BUFFER_SIZE);
   }
 
   /**
@@ -129,6 +171,39 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     return new JBBPOut(out, byteOrder, bitOrder);
   }
 
+  /**
+   * Start a DSL session writing data directly into a byte buffer from its current position, the position is
+   * moved after written data. Remaining space of the buffer must be enough for written data else IOException
+   * will be thrown. Use {@link JBBPByteBufferOutputStream} with grow strategy to get growing buffer.
+   *
+   * @param buffer    target buffer, must not be null
+   * @param byteOrder the byte outOrder for the session
+   * @param bitOrder  the bit outOrder for the session
+   * @return the new DSL session generated for the buffer with parameters
+   * @see JBBPByteBufferOutputStream
+   * @since 3.0.3
+   */
+  public static JBBPOut BeginBin(final ByteBuffer buffer, final JBBPByteOrder byteOrder,
+                                 final JBBPBitOrder bitOrder) {
+    return new JBBPOut(new JBBPByteBufferOutputStream(buffer), byteOrder, bitOrder);
+  }
+
+  /**
+   * Start a DSL session writing data into a channel. Data is collected in a direct buffer and written into the
+   * channel by blocks, the rest of data is written during flush and end of session, the channel is not closed.
+   *
+   * @param channel   target channel in blocking mode, must not be null
+   * @param byteOrder the byte outOrder for the session
+   * @param bitOrder  the bit outOrder for the session
+   * @return the new DSL session generated for the channel with parameters
+   * @see JBBPChannelOutputStream
+   * @since 3.0.3
+   */
+  public static JBBPOut BeginBin(final WritableByteChannel channel, final JBBPByteOrder byteOrder,
+                                 final JBBPBitOrder bitOrder) {
+    return new JBBPOut(new JBBPChannelOutputStream(channel), byteOrder, bitOrder);
+  }
+
   /**
    * Start a DSL session for default parameters and inside byte array stream.
    *
@@ -136,7 +211,8 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * inside byte array stream.
    */
   public static JBBPOut BeginBin() {
-    return new JBBPOut(new ByteArrayOutputStream(), DEFAULT_BYTE_ORDER, DEFAULT_BIT_ORDER);
+    return new JBBPOut(new JBBPByteArrayOutputStream(), DEFAULT_BYTE_ORDER, DEFAULT_BIT_ORDER,
+        INTERNAL_BUFFER_SIZE);
   }
 
   /**
@@ -149,8 +225,8 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * inside byte array stream.
    */
   public static JBBPOut BeginBin(final int initialSize) {
-    return new JBBPOut(new ByteArrayOutputStream(initialSize), DEFAULT_BYTE_ORDER,
-            DEFAULT_BIT_ORDER);
+    return new JBBPOut(new JBBPByteArrayOutputStream(initialSize), DEFAULT_BYTE_ORDER,
+            DEFAULT_BIT_ORDER, INTERNAL_BUFFER_SIZE);
   }
 
   /**
@@ -172,7 +248,8 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * @return the new DSL session
    */
   public static JBBPOut BeginBin(final JBBPByteOrder byteOrder) {
-    return new JBBPOut(new ByteArrayOutputStream(), byteOrder, DEFAULT_BIT_ORDER);
+    return new JBBPOut(new JBBPByteArrayOutputStream(), byteOrder, DEFAULT_BIT_ORDER,
+        INTERNAL_BUFFER_SIZE);
   }
 
   /**
@@ -183,7 +260,8 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * @return the new DSL session
    */
   public static JBBPOut BeginBin(final JBBPBitOrder bitOrder) {
-    return new JBBPOut(new ByteArrayOutputStream(), DEFAULT_BYTE_ORDER, bitOrder);
+    return new JBBPOut(new JBBPByteArrayOutputStream(), DEFAULT_BYTE_ORDER, bitOrder,
+        INTERNAL_BUFFER_SIZE);
   }
 
   /**
@@ -321,9 +399,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final byte b : value) {
-        this._writeBits(JBBPBitNumber.BITS_1, b);
-      }
+      this.outStream.writeBitsArray(value, -1, JBBPBitNumber.BITS_1);
     }
     return this;
   }
@@ -340,9 +416,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final int b : value) {
-        this._writeBits(JBBPBitNumber.BITS_1, b);
-      }
+      this.outStream.writeBitsArray(value, -1, JBBPBitNumber.BITS_1);
     }
     return this;
   }
@@ -359,9 +433,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final boolean b : value) {
-        this._writeBits(JBBPBitNumber.BITS_1, b ? 1 : 0);
-      }
+      this.outStream.writeBitsArray(value, -1, JBBPBitNumber.BITS_1);
     }
     return this;
   }
@@ -408,9 +480,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertNotNull(value, "Array must not be null");
     if (this.processCommands) {
-      for (final int v : value) {
-        _writeBits(numberOfBits, v);
-      }
+      this.outStream.writeBitsArray(value, -1, numberOfBits);
     }
     return this;
   }
@@ -428,9 +498,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertNotNull(value, "Array must not be null");
     if (this.processCommands) {
-      for (final byte b : value) {
-        _writeBits(numberOfBits, b);
-      }
+      this.outStream.writeBitsArray(value, -1, numberOfBits);
     }
     return this;
   }
@@ -719,9 +787,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final short v : value) {
-        this._writeShort(v);
-      }
+      this.outStream.writeShortArray(value, -1, this.byteOrder);
     }
     return this;
   }
@@ -802,9 +868,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final int v : value) {
-        _writeInt(v);
-      }
+      this.outStream.writeIntArray(value, -1, this.byteOrder);
     }
     return this;
   }
@@ -836,9 +900,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final float f : value) {
-        _writeFloat(f);
-      }
+      this.outStream.writeFloatArray(value, -1, this.byteOrder);
     }
     return this;
   }
@@ -854,30 +916,6 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     this.outStream.writeLong(value, this.byteOrder);
   }
 
-  /**
-   * Inside auxiliary method to write a double value into the session stream
-   * without checking.
-   *
-   * @param value a double value to be written into
-   * @throws IOException it will be thrown for transport errors
-   * @since 1.4.0
-   */
-  private void _writeDouble(final double value) throws IOException {
-    this.outStream.writeDouble(value, this.byteOrder);
-  }
-
-  /**
-   * Inside auxiliary method to write a float value into the session stream
-   * without checking.
-   *
-   * @param value a float value to be written into
-   * @throws IOException it will be thrown for transport errors
-   * @since 1.4.0
-   */
-  private void _writeFloat(final float value) throws IOException {
-    this.outStream.writeFloat(value, this.byteOrder);
-  }
-
   /**
    * Write a long value into the session stream.
    *
@@ -906,9 +944,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final double d : value) {
-        _writeDouble(d);
-      }
+      this.outStream.writeDoubleArray(value, -1, this.byteOrder);
     }
     return this;
   }
@@ -941,9 +977,7 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     assertNotEnded();
     assertArrayNotNull(value);
     if (this.processCommands) {
-      for (final long l : value) {
-        _writeLong(l);
-      }
+      this.outStream.writeLongArray(value, -1, this.byteOrder);
     }
     return this;
   }
@@ -986,7 +1020,8 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    * Flush the stream and end the session.
    *
    * @return if the session output stream is based on a byte array output stream
-   * then the stream will be returned, null otherwise
+   * then the stream will be returned, null otherwise. Sessions with inside stream return
+   * {@link JBBPByteArrayOutputStream}
    * @throws IOException it will be thrown for transport errors.
    */
   public ByteArrayOutputStream End() throws IOException {
@@ -996,6 +1031,83 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
     return this.originalByteArrayOutStream;
   }
 
+  /**
+   * Reset the session to start writing of new data, it is allowed also for ended session. All data not passed
+   * into the output stream is dropped, the byte counter is reset and the byte order is restored to the session
+   * start one. If the session writes into a byte array output stream then the stream is cleared with keeping
+   * its grown array, so that sessions can be reused for sequence of messages without new allocations.
+   *
+   * @return the DSL session
+   * @see JBBPByteArrayOutputStream
+   * @since 3.0.3
+   */
+  public JBBPOut Reset() {
+    this.outStream.reset();
+    if (this.originalByteArrayOutStream != null) {
+      this.originalByteArrayOutStream.reset();
+    }
+    this.byteOrder = this.initialByteOrder;
+    this.processCommands = true;
+    this.ended = false;
+    return this;
+  }
+
+  /**
+   * Reset the session and continue writing into another output stream, the bit stream of the session is reused
+   * if it is not buffered one. Data is passed to the new stream just after write, so if the session was started
+   * with inside buffered stream then new not buffered bit stream is created. A byte array output stream is not
+   * cleared.
+   *
+   * @param out output stream for next data, must not be null and must not be a bit output stream
+   * @return the DSL session
+   * @throws IllegalArgumentException if the stream is a bit output stream
+   * @throws IllegalStateException    if the session was started for a bit output stream provided by caller
+   * @see #Reset()
+   * @since 3.0.3
+   */
+  public JBBPOut Reset(final OutputStream out) {
+    assertNotNull(out, "Out stream must not be null");
+    if (out instanceof JBBPBitOutputStream) {
+      throw new IllegalArgumentException("Bit output stream can't be used as target of session");
+    }
+    if (this.externalBitStream) {
+      throw new IllegalStateException("Session started for external bit output stream can't be retargeted");
+    }
+    if (this.outStream.isBuffered()) {
+      this.outStream = new JBBPBitOutputStream(out, this.bitOrder);
+    } else {
+      this.outStream.reset(out);
+    }
+    this.setTarget(out);
+    this.byteOrder = this.initialByteOrder;
+    this.processCommands = true;
+    this.ended = false;
+    return this;
+  }
+
+  /**
+   * Reset the session and continue writing into a byte buffer from its current position.
+   * If the session already writes into a byte buffer then the same buffer stream is reused.
+   *
+   * @param buffer target buffer for next data, must not be null
+   * @return the DSL session
+   * @throws IllegalStateException if the session was started for a bit output stream provided by caller
+   * @see #Reset(OutputStream)
+   * @see #BeginBin(ByteBuffer, JBBPByteOrder, JBBPBitOrder)
+   * @since 3.0.3
+   */
+  public JBBPOut Reset(final ByteBuffer buffer) {
+    if (this.byteBufferOutStream == null) {
+      return this.Reset(new JBBPByteBufferOutputStream(buffer));
+    }
+    this.byteBufferOutStream.setBuffer(buffer);
+    this.outStream.reset();
+    this.byteOrder = this.initialByteOrder;
+    this.processCommands = true;
+    this.ended = false;
+    return this;
+  }
+
   /**
    * get the current byte counter value for the underlying stream. it has
    * appropriate value only if it was not reset.
@@ -1129,11 +1241,58 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
                      final JBBPCustomFieldWriter customFieldWriter,
                      final BinFieldFilter binFieldFilter) {
     if (this.processCommands) {
-      this.processObject(object, null, binAnnotationWrapper, binFieldFilter, customFieldWriter);
+      if (binAnnotationWrapper == null && binFieldFilter == null) {
+        this.writeObject(object, null, customFieldWriter);
+      } else {
+        this.processObject(object, null, binAnnotationWrapper, binFieldFilter, customFieldWriter);
+      }
     }
     return this;
   }
 
+  /**
+   * Write an object through write plan of its class.
+   *
+   * @param object            object to be written, must not be null
+   * @param forcedByteOrder   byte order to replace byte order of annotations, can be null
+   * @param customFieldWriter writer of custom fields, can be null
+   */
+  private void writeObject(final Object object, final JBBPByteOrder forcedByteOrder,
+                           final JBBPCustomFieldWriter customFieldWriter) {
+    assertNotNull(object, "Object must not be null");
+    BinWritePlan plan = this.lastWritePlan;
+    if (plan == null || plan.getMappedClass() != object.getClass()
+        || plan.getForcedByteOrder() != forcedByteOrder) {
+      plan = BinWritePlan.find(object.getClass(), forcedByteOrder);
+      if (plan == null) {
+        this.writeObjectWithoutPlan(object, null, forcedByteOrder, customFieldWriter);
+        return;
+      }
+      this.lastWritePlan = plan;
+    }
+    try {
+      plan.write(this, this.outStream, object, customFieldWriter);
+    } catch (IOException ex) {
+      throw new JBBPIOException("Can't write object", ex);
+    }
+  }
+
+  /**
+   * Write an object through processing of its fields by the observer.
+   *
+   * @param object            object to be written, must not be null
+   * @param field             field contains the object, can be null
+   * @param forcedByteOrder   byte order to replace byte order of annotations, can be null
+   * @param customFieldWriter writer of custom fields, can be null
+   */
+  void writeObjectWithoutPlan(final Object object, final Field field,
+                              final JBBPByteOrder forcedByteOrder,
+                              final JBBPCustomFieldWriter customFieldWriter) {
+    this.processObject(object, field,
+        forcedByteOrder == null ? null : new BinAnnotationWrapper().setByteOrder(forcedByteOrder),
+        null, customFieldWriter);
+  }
+
   /**
    * Works like {@link #Bin(Object)} but forcing override of all annotation byte order values by the JBBPOut byte order.
    *
@@ -1162,8 +1321,10 @@ public class JBBPOut extends AbstractMappedClassFieldObserver {
    */
   public JBBPOut BinForceByteOrder(final Object object,
                                    final JBBPCustomFieldWriter customFieldWriter) {
-    return this
-            .Bin(object, new BinAnnotationWrapper().setByteOrder(this.byteOrder), customFieldWriter);
+    if (this.processCommands) {
+      this.writeObject(object, this.byteOrder, customFieldWriter);
+    }
+    return this;
   }
 
   @Override
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import com.igormaznitsa.jbbp.JBBPExternalValueProvider;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiler;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.exceptions.JBBPIOException;
+import com.igormaznitsa.jbbp.exceptions.JBBPIllegalArgumentException;
+import com.igormaznitsa.jbbp.mapper.Bin;
+import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayString;
+import com.igormaznitsa.jbbp.model.JBBPFieldString;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+/**
+ * Calculator of exact size of encoded data. It allows to allocate a buffer of exact size or to write a length prefix
+ * before encoding without encoding of data twice.
+ * <ul>
+ * <li>Size of a {@link Bin} annotated object is calculated through the same cached write plan which is used by
+ * {@link JBBPOut#Bin(Object)}, so that it doesn't touch any byte of output but walks prepared steps.</li>
+ * <li>Size of a structure for a compiled script is calculated through replay of the script over the structure values
+ * with the same rules as the parser uses, so that bit fields, alignments, skips and counter resets are taken
+ * into account.</li>
+ * </ul>
+ * Encoded data of bit fields is packed, so that bit length is the exact value and byte length is the bit length
+ * rounded up to the whole byte.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPSizeCalculator {
+
+  private JBBPSizeCalculator() {
+  }
+
+  /**
+   * Calculate number of bits written by {@link JBBPOut#Bin(Object)} for an object.
+   *
+   * @param obj object to be processed, must not be null
+   * @return number of bits in encoded object
+   * @throws JBBPIllegalArgumentException if the object contains custom fields
+   */
+  public static long bitLengthOf(final Object obj) {
+    return bitLengthOf(obj, null);
+  }
+
+  /**
+   * Calculate number of bits written by {@link JBBPOut#Bin(Object, JBBPCustomFieldWriter)} for an object.
+   * Custom fields are measured through the custom field writer, its output is dropped.
+   *
+   * @param obj               object to be processed, must not be null
+   * @param customFieldWriter writer of custom fields, can be null if there is no custom fields
+   * @return number of bits in encoded object
+   * @throws JBBPIllegalArgumentException if the object contains custom fields but writer is not provided
+   */
+  public static long bitLengthOf(final Object obj, final JBBPCustomFieldWriter customFieldWriter) {
+    JBBPUtils.assertNotNull(obj, "Object must not be null");
+    final Measurer measurer = new Measurer(customFieldWriter);
+    final BinWritePlan plan = BinWritePlan.find(obj.getClass(), null);
+    return plan == null ? measurer.measureObject(obj, null) : plan.bitLength(obj, measurer);
+  }
+
+  /**
+   * Calculate number of bytes written by {@link JBBPOut#Bin(Object)} for an object.
+   *
+   * @param obj object to be processed, must not be null
+   * @return number of bytes in encoded object
+   * @throws JBBPIllegalArgumentException if the object contains custom fields
+   */
+  public static long byteLengthOf(final Object obj) {
+    return toBytes(bitLengthOf(obj, null));
+  }
+
+  /**
+   * Calculate number of bytes written by {@link JBBPOut#Bin(Object, JBBPCustomFieldWriter)} for an object.
+   *
+   * @param obj               object to be processed, must not be null
+   * @param customFieldWriter writer of custom fields, can be null if there is no custom fields
+   * @return number of bytes in encoded object
+   * @throws JBBPIllegalArgumentException if the object contains custom fields but writer is not provided
+   */
+  public static long byteLengthOf(final Object obj,
+                                  final JBBPCustomFieldWriter customFieldWriter) {
+    return toBytes(bitLengthOf(obj, customFieldWriter));
+  }
+
+  /**
+   * Calculate number of bits needed to encode a structure with a compiled script.
+   *
+   * @param block  compiled script, must not be null
+   * @param values structure with values of fields in the order of the script, for instance a parsed one, must not be null
+   * @return number of bits in encoded structure
+   * @throws IllegalArgumentException if the structure doesn't match the script or the script contains var or custom fields
+   */
+  public static long bitLengthOf(final JBBPCompiledBlock block, final JBBPFieldStruct values) {
+    return bitLengthOf(block, values, null, null);
+  }
+
+  /**
+   * Calculate number of bits needed to encode a structure with a compiled script.
+   *
+   * @param block                 compiled script, must not be null
+   * @param values                structure with values of fields in the order of the script, for instance a parsed one, must not be null
+   * @param externalValueProvider provider of external values used by script expressions, can be null
+   * @param fieldSizer            sizer of var and custom type fields, can be null if the script doesn't contain such fields
+   * @return number of bits in encoded structure
+   * @throws IllegalArgumentException if the structure doesn't match the script or there is no sizer for var or custom fields
+   */
+  public static long bitLengthOf(final JBBPCompiledBlock block, final JBBPFieldStruct values,
+                                 final JBBPExternalValueProvider externalValueProvider,
+                                 final FieldSizer fieldSizer) {
+    JBBPUtils.assertNotNull(block, "Compiled block must not be null");
+    JBBPUtils.assertNotNull(values, "Values must not be null");
+    final ScriptSizer sizer = new ScriptSizer(block, externalValueProvider, fieldSizer);
+    try {
+      sizer.replay(values);
+    } catch (IOException ex) {
+      throw new JBBPIOException("Unexpected IO exception during size calculation", ex);
+    }
+    return sizer.bits;
+  }
+
+  /**
+   * Calculate number of bytes needed to encode a structure with a compiled script.
+   *
+   * @param block  compiled script, must not be null
+   * @param values structure with values of fields in the order of the script, for instance a parsed one, must not be null
+   * @return number of bytes in encoded structure
+   * @throws IllegalArgumentException if the structure doesn't match the script or the script contains var or custom fields
+   */
+  public static long byteLengthOf(final JBBPCompiledBlock block, final JBBPFieldStruct values) {
+    return toBytes(bitLengthOf(block, values, null, null));
+  }
+
+  /**
+   * Calculate number of bytes needed to encode a structure with a compiled script.
+   *
+   * @param block                 compiled script, must not be null
+   * @param values                structure with values of fields in the order of the script, for instance a parsed one, must not be null
+   * @param externalValueProvider provider of external values used by script expressions, can be null
+   * @param fieldSizer            sizer of var and custom type fields, can be null if the script doesn't contain such fields
+   * @return number of bytes in encoded structure
+   * @throws IllegalArgumentException if the structure doesn't match the script or there is no sizer for var or custom fields
+   */
+  public static long byteLengthOf(final JBBPCompiledBlock block, final JBBPFieldStruct values,
+                                  final JBBPExternalValueProvider externalValueProvider,
+                                  final FieldSizer fieldSizer) {
+    return toBytes(bitLengthOf(block, values, externalValueProvider, fieldSizer));
+  }
+
+  private static long toBytes(final long bits) {
+    return (bits + 7L) >>> 3;
+  }
+
+  /**
+   * Sizer of fields which size can't be calculated from the script, var fields and custom type fields.
+   */
+  public interface FieldSizer {
+    /**
+     * Get number of bits needed to encode a field.
+     *
+     * @param field      field value, it can be an array field, must not be null
+     * @param customType custom type of the field, null for var fields
+     * @param extraData  extra data defined for the field in the script
+     * @return number of bits needed to encode the field
+     */
+    long getBitLength(JBBPAbstractField field, JBBPFieldTypeParameterContainer customType,
+                      int extraData);
+  }
+
+  /**
+   * Measurer of parts of objects which can't be calculated through write plan, they are written into a session which drops data.
+   */
+  static final class Measurer {
+    private final JBBPCustomFieldWriter customFieldWriter;
+    private JBBPBitOutputStream stream;
+    private JBBPOut session;
+
+    private Measurer(final JBBPCustomFieldWriter customFieldWriter) {
+      this.customFieldWriter = customFieldWriter;
+    }
+
+    private void prepare() {
+      if (this.session == null) {
+        this.stream = JBBPBitOutputStream.makeCountingStream(0L);
+        this.session = JBBPOut.BeginBin(this.stream);
+      }
+    }
+
+    private long position() {
+      return (this.stream.getCounter() << 3) + this.stream.getBufferedBitsNumber();
+    }
+
+    /**
+     * Measure a custom field through the custom field writer.
+     *
+     * @param obj        object contains the field, must not be null
+     * @param field      the field, must not be null
+     * @param annotation annotation of the field, must not be null
+     * @param value      value of the field, can be null
+     * @return number of written bits
+     */
+    long measureCustomField(final Object obj, final Field field, final Bin annotation,
+                            final Object value) {
+      if (this.customFieldWriter == null) {
+        throw new JBBPIllegalArgumentException(
+            "Class '" + obj.getClass().getName() + "' contains field '" + field.getName() +
+                "' which is custom one, you must provide JBBPCustomFieldWriter instance to calculate its size.");
+      }
+      this.prepare();
+      final long start = this.position();
+      try {
+        this.customFieldWriter
+            .writeCustomField(this.session, this.stream, obj, field, annotation, value);
+      } catch (IOException ex) {
+        throw new JBBPIOException("Can't measure custom field", ex);
+      }
+      return this.position() - start;
+    }
+
+    /**
+     * Measure an object which class can't be processed through write plan.
+     *
+     * @param obj   object to be measured, must not be null
+     * @param field field contains the object, can be null
+     * @return number of written bits
+     */
+    long measureObject(final Object obj, final Field field) {
+      this.prepare();
+      final long start = this.position();
+      this.session.writeObjectWithoutPlan(obj, field, null, this.customFieldWriter);
+      return this.position() - start;
+    }
+  }
+
+  /**
+   * Replay of compiled script over structure values with counting of bits.
+   */
+  private static final class ScriptSizer extends CompiledBlockReplay {
+    private final FieldSizer fieldSizer;
+    private long bits;
+    private long counterOrigin;
+
+    private ScriptSizer(final JBBPCompiledBlock block,
+                        final JBBPExternalValueProvider externalValueProvider,
+                        final FieldSizer fieldSizer) {
+      super(block, externalValueProvider);
+      this.fieldSizer = fieldSizer;
+    }
+
+    private void alignByte() {
+      this.bits = (this.bits + 7L) & ~7L;
+    }
+
+    @Override
+    long getCounter() {
+      return (this.bits >>> 3) - this.counterOrigin;
+    }
+
+    @Override
+    void onResetCounter() {
+      this.alignByte();
+      this.counterOrigin = this.bits >>> 3;
+    }
+
+    @Override
+    void onAlign(final int alignByteNumber) {
+      this.alignByte();
+      if (alignByteNumber > 0) {
+        this.bits += ((alignByteNumber - this.getCounter() % alignByteNumber) % alignByteNumber) << 3;
+      }
+    }
+
+    @Override
+    void onSkip(final int byteNumber) {
+      if (byteNumber > 0) {
+        this.bits += (long) byteNumber << 3;
+      }
+    }
+
+    @Override
+    void onField(final int type, final boolean fieldTypeDiff, final boolean array,
+                 final JBBPAbstractField field, final JBBPByteOrder byteOrder, final int extra,
+                 final JBBPFieldTypeParameterContainer customType) {
+      final long items = array ? ((JBBPAbstractArrayField<?>) field).size() : 1L;
+      switch (type) {
+        case JBBPCompiler.CODE_SKIP: {
+          // value field, it is not written
+        }
+        break;
+        case JBBPCompiler.CODE_BIT: {
+          this.bits += items * JBBPBitNumber.decode(extra).getBitNumber();
+        }
+        break;
+        case JBBPCompiler.CODE_VAR:
+        case JBBPCompiler.CODE_CUSTOMTYPE: {
+          if (this.fieldSizer == null) {
+            throw new IllegalArgumentException(
+                "Detected var or custom type field, sizer must be provided [" +
+                    field.getNameInfo() + ']');
+          }
+          this.bits += this.fieldSizer.getBitLength(field, customType, extra);
+        }
+        break;
+        case JBBPCompiler.CODE_BYTE: {
+          this.bits += items * (fieldTypeDiff ? 32 : 8);
+        }
+        break;
+        case JBBPCompiler.CODE_UBYTE: {
+          this.bits += items << 3;
+        }
+        break;
+        case JBBPCompiler.CODE_BOOL: {
+          if (!fieldTypeDiff) {
+            this.bits += items << 3;
+          } else if (array) {
+            final String[] values =
+                (String[]) CompiledBlockReplay.valuesOf(field, JBBPFieldArrayString.class);
+            for (final String s : values) {
+              this.bits += JBBPBitOutputStream.getStringBitLength(s);
+            }
+          } else {
+            this.bits += JBBPBitOutputStream.getStringBitLength(
+                CompiledBlockReplay.expect(field, JBBPFieldString.class).getAsString());
+          }
+        }
+        break;
+        case JBBPCompiler.CODE_INT: {
+          this.bits += items << 5;
+        }
+        break;
+        case JBBPCompiler.CODE_LONG: {
+          this.bits += items << 6;
+        }
+        break;
+        case JBBPCompiler.CODE_SHORT:
+        case JBBPCompiler.CODE_USHORT: {
+          this.bits += items << 4;
+        }
+        break;
+        default:
+          throw new Error("Detected unexpected field type! Contact developer! [" + type + ']');
+      }
+    }
+  }
+}
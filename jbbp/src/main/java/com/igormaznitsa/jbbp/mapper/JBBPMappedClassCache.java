@@ -0,0 +1,272 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.mapper;
+
+import com.igormaznitsa.jbbp.io.JBBPInternalKey;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of mapped field records of mapping classes. Classes are weakly referenced keys and their records are softly
+ * referenced values. Records strongly refer their class (through fields and method handles), so that a cached class
+ * and its class loader stay reachable till the records are collected by GC under memory pressure or the class is
+ * removed from the cache; after that the class can be unloaded. The cache can be bounded by number of classes,
+ * if the bound is reached then the earliest cached classes are evicted first. The cache is thread safe and collects
+ * hit and miss counters. Write plans made for cached classes by {@link com.igormaznitsa.jbbp.io.JBBPOut} are kept
+ * together with records of classes.
+ *
+ * @see JBBPMapper#getFieldCache()
+ * @since 3.0.3
+ */
+public final class JBBPMappedClassCache {
+
+  private final Map<ClassKey, SoftReference<Entry>> records =
+      new ConcurrentHashMap<>();
+  private final Queue<ClassKey> cachingOrder = new ConcurrentLinkedQueue<>();
+  private final ReferenceQueue<Class<?>> collectedClasses = new ReferenceQueue<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private volatile int maxSize;
+
+  JBBPMappedClassCache(final int maxSize) {
+    this.setMaxSize(maxSize);
+  }
+
+  /**
+   * Get records cached for a class.
+   *
+   * @param mappingClass mapping class, must not be null
+   * @return cached records or null if not found
+   */
+  List<MappedFieldRecord> get(final Class<?> mappingClass) {
+    final Entry entry = this.findEntry(mappingClass);
+    if (entry == null) {
+      this.misses.increment();
+      return null;
+    } else {
+      this.hits.increment();
+      return entry.records;
+    }
+  }
+
+  /**
+   * Get array to keep write plans of a cached class for internal use of the library, the array is created if
+   * the class doesn't have it yet. Hit and miss counters are not changed.
+   *
+   * @param mappingClass mapping class, must not be null
+   * @param length       length of array to be created
+   * @param key          internal key of the library, must not be null
+   * @return array of write plans of the class, null if the class is not cached
+   * @throws IllegalArgumentException if the key is not the library one
+   */
+  public Object[] findWritePlans(final Class<?> mappingClass, final int length,
+                                 final JBBPInternalKey key) {
+    JBBPInternalKey.assertKey(key);
+    return this.findWritePlans(mappingClass, length);
+  }
+
+  /**
+   * Get array to keep write plans of a cached class, the array is created if the class doesn't have it yet.
+   * Hit and miss counters are not changed.
+   *
+   * @param mappingClass mapping class, must not be null
+   * @param length       length of array to be created
+   * @return array of write plans of the class, null if the class is not cached
+   */
+  Object[] findWritePlans(final Class<?> mappingClass, final int length) {
+    final Entry entry = this.findEntry(mappingClass);
+    if (entry == null) {
+      return null;
+    }
+    Object[] result = entry.writePlans;
+    if (result == null) {
+      synchronized (entry) {
+        result = entry.writePlans;
+        if (result == null) {
+          result = new Object[length];
+          entry.writePlans = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Entry findEntry(final Class<?> mappingClass) {
+    final SoftReference<Entry> reference = this.records.get(new ClassKey(mappingClass, null));
+    return reference == null ? null : reference.get();
+  }
+
+  /**
+   * Put records of a class into the cache.
+   *
+   * @param mappingClass mapping class, must not be null
+   * @param fieldRecords records of the class, must not be null
+   */
+  void put(final Class<?> mappingClass, final List<MappedFieldRecord> fieldRecords) {
+    this.expungeCollected();
+    final int max = this.maxSize;
+    if (max > 0) {
+      while (this.records.size() >= max) {
+        final ClassKey eldest = this.cachingOrder.poll();
+        if (eldest == null) {
+          break;
+        }
+        this.records.remove(eldest);
+      }
+    }
+    final ClassKey key = new ClassKey(mappingClass, this.collectedClasses);
+    if (this.records.put(key, new SoftReference<>(new Entry(fieldRecords))) == null) {
+      this.cachingOrder.add(key);
+    }
+  }
+
+  private void expungeCollected() {
+    Reference<? extends Class<?>> collected;
+    while ((collected = this.collectedClasses.poll()) != null) {
+      this.records.remove(collected);
+      this.cachingOrder.remove(collected);
+    }
+  }
+
+  /**
+   * Get number of cached classes, it can include classes which records have been already collected.
+   *
+   * @return number of cached classes
+   */
+  public int size() {
+    this.expungeCollected();
+    return this.records.size();
+  }
+
+  /**
+   * Remove all cached classes.
+   */
+  public void clear() {
+    this.records.clear();
+    this.cachingOrder.clear();
+    this.expungeCollected();
+  }
+
+  /**
+   * Remove cached records of a class.
+   *
+   * @param mappingClass class to be removed, must not be null
+   * @return true if the class was cached
+   */
+  public boolean remove(final Class<?> mappingClass) {
+    final ClassKey key = new ClassKey(mappingClass, null);
+    this.cachingOrder.remove(key);
+    return this.records.remove(key) != null;
+  }
+
+  /**
+   * Get max number of cached classes.
+   *
+   * @return max number of classes, 0 if not bounded
+   */
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Set max number of cached classes.
+   *
+   * @param maxSize max number of classes, 0 if not bounded
+   * @throws IllegalArgumentException if the value is negative
+   */
+  public void setMaxSize(final int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Max size must not be negative: " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get number of requests found records in the cache.
+   *
+   * @return number of hits
+   */
+  public long getHitCount() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Get number of requests not found records in the cache.
+   *
+   * @return number of misses
+   */
+  public long getMissCount() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Reset hit and miss counters.
+   */
+  public void resetCounters() {
+    this.hits.reset();
+    this.misses.reset();
+  }
+
+  /**
+   * Cached data of a class.
+   */
+  private static final class Entry {
+    private final List<MappedFieldRecord> records;
+    private volatile Object[] writePlans;
+
+    private Entry(final List<MappedFieldRecord> records) {
+      this.records = records;
+    }
+  }
+
+  /**
+   * Weak key of a class, keys are equal if they refer the same class.
+   */
+  private static final class ClassKey extends WeakReference<Class<?>> {
+    private final int hash;
+
+    private ClassKey(final Class<?> klazz, final ReferenceQueue<Class<?>> queue) {
+      super(klazz, queue);
+      this.hash = System.identityHashCode(klazz);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj instanceof ClassKey) {
+        final Class<?> klazz = this.get();
+        return klazz != null && klazz == ((ClassKey) obj).get();
+      }
+      return false;
+    }
+  }
+}
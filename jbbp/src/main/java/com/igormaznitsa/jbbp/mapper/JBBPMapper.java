@@ -22,6 +22,7 @@ import com.igormaznitsa.jbbp.model.BitEntity;
 import com.igormaznitsa.jbbp.model.JBBPAbstractField;
 import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
 import com.igormaznitsa.jbbp.utils.Function;
+import com.igormaznitsa.jbbp.utils.JBBPSystemProperty;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
 import com.igormaznitsa.jbbp.utils.NullableTriple;
 import com.igormaznitsa.jbbp.utils.ReflectUtils;
@@ -32,8 +33,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * The Class processes mapping of a parsed binary data to class fields.
@@ -49,8 +49,23 @@ public final class JBBPMapper {
    * @since 1.1
    */
   public static final int FLAG_IGNORE_MISSING_VALUES = 1;
-  private static final Map<Class<?>, List<MappedFieldRecord>> CACHED_FIELDS =
-          new ConcurrentHashMap<>();
+  /**
+   * Flag to reuse existing values of mapping fields, primitive arrays and structure arrays are overwritten in place
+   * if they have the same length and structure arrays with different length are reallocated with reuse of existing elements.
+   * Nested structures are mapped with the flag too. It allows to decode same shaped data into long-living objects without allocations
+   * but arrays kept by callers from previous mapping are changed.
+   *
+   * @since 3.0.3
+   */
+  public static final int FLAG_REUSE_EXISTING_VALUES = 2;
+  /**
+   * Default min number of elements in a structure array to be mapped in parallel.
+   *
+   * @since 3.0.3
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 10_000;
+  private static final JBBPMappedClassCache CACHED_FIELDS = new JBBPMappedClassCache(
+      JBBPSystemProperty.PROPERTY_MAPPER_FIELD_CACHE_MAX_SIZE.getAsInteger(0));
 
   /**
    * Create a class instance, map binary data of a structure for its path to its
@@ -234,42 +249,85 @@ public final class JBBPMapper {
           final Function<Class<?>, Object>... instantiators
   ) {
     if (record.binAnnotation.custom()) {
-      JBBPUtils.assertNotNull(customFieldProcessor,
-          "There is a custom mapping field, in the case you must provide a custom mapping field processor");
-      final Object value = customFieldProcessor
-          .prepareObjectForMapping(rootStructure, record.binAnnotation, record.mappingField);
-      MappedFieldRecord.setFieldValue(instance, record.setter, record.mappingField, null, value);
+      mapCustomField(record, rootStructure, instance, customFieldProcessor);
     } else {
-      final JBBPAbstractField binField;
-
-      if (record.fieldPath.isEmpty()) {
-        binField = record.fieldName.isEmpty() ?
-            rootStructure.findFieldForType(record.fieldType.getFieldClass()) : rootStructure
-            .findFieldForNameAndType(record.fieldName, record.fieldType.getFieldClass());
-      } else {
-        binField = rootStructure
-            .findFieldForPathAndType(record.fieldPath, record.fieldType.getFieldClass());
+      final JBBPAbstractField binField = findBinField(record, rootStructure);
+      if (isBinFieldToBeMapped(record, binField, flags)) {
+        record.proc.apply(record, rootStructure, instance, customFieldProcessor, binField, flags,
+            binFieldFilter, instantiators);
       }
+    }
+  }
 
-      if (binField == null) {
-        if ((flags & FLAG_IGNORE_MISSING_VALUES) != 0) {
-          return;
-        }
-        throw new JBBPMapperException(
-            "Can't find value for mapping field [" + record.mappingField + ']', null,
-            record.mappingClass, record.mappingField, null);
-      }
+  /**
+   * Map value provided by custom field processor.
+   *
+   * @param record               record of custom mapping field, must not be null
+   * @param rootStructure        structure to be mapped, must not be null
+   * @param instance             mapping class instance, must not be null
+   * @param customFieldProcessor custom field processor, must not be null
+   */
+  static void mapCustomField(final MappedFieldRecord record,
+                             final JBBPFieldStruct rootStructure,
+                             final Object instance,
+                             final JBBPMapperCustomFieldProcessor customFieldProcessor) {
+    JBBPUtils.assertNotNull(customFieldProcessor,
+        "There is a custom mapping field, in the case you must provide a custom mapping field processor");
+    final Object value = customFieldProcessor
+        .prepareObjectForMapping(rootStructure, record.binAnnotation, record.mappingField);
+    record.setValue(instance, null, value);
+  }
 
-      if (record.bitWideField && record.mappedBitNumber != JBBPBitNumber.BITS_8 &&
-          ((BitEntity) binField).getBitWidth() != record.mappedBitNumber) {
-        throw new JBBPMapperException(
-            "Can't map mapping field because wrong field bitness [" + record.mappedBitNumber +
-                "!=" + ((BitEntity) binField).getBitWidth().getBitNumber() + ']', null,
-            record.mappingClass, record.mappingField, null);
+  /**
+   * Find parsed field for mapping field in a structure.
+   *
+   * @param record        record of mapping field, must not be null
+   * @param rootStructure structure to be mapped, must not be null
+   * @return found field or null
+   */
+  static JBBPAbstractField findBinField(final MappedFieldRecord record,
+                                        final JBBPFieldStruct rootStructure) {
+    final JBBPAbstractField binField;
+    if (record.fieldPath.isEmpty()) {
+      binField = record.fieldName.isEmpty() ?
+          rootStructure.findFieldForType(record.fieldType.getFieldClass()) : rootStructure
+          .findFieldForNameAndType(record.fieldName, record.fieldType.getFieldClass());
+    } else {
+      binField = rootStructure
+          .findFieldForPathAndType(record.fieldPath, record.fieldType.getFieldClass());
+    }
+    return binField;
+  }
+
+  /**
+   * Check found parsed field for mapping field.
+   *
+   * @param record   record of mapping field, must not be null
+   * @param binField found parsed field, can be null
+   * @param flags    mapping flags
+   * @return true if the field should be mapped, false if it is missing but allowed to be ignored
+   * @throws JBBPMapperException if the field is missing or has wrong bitness
+   */
+  static boolean isBinFieldToBeMapped(final MappedFieldRecord record,
+                                      final JBBPAbstractField binField,
+                                      final int flags) {
+    if (binField == null) {
+      if ((flags & FLAG_IGNORE_MISSING_VALUES) != 0) {
+        return false;
       }
-      record.proc.apply(record, rootStructure, instance, customFieldProcessor, binField, flags,
-              binFieldFilter, instantiators);
+      throw new JBBPMapperException(
+          "Can't find value for mapping field [" + record.mappingField + ']', null,
+          record.mappingClass, record.mappingField, null);
     }
+
+    if (record.bitWideField && record.mappedBitNumber != JBBPBitNumber.BITS_8 &&
+        ((BitEntity) binField).getBitWidth() != record.mappedBitNumber) {
+      throw new JBBPMapperException(
+          "Can't map mapping field because wrong field bitness [" + record.mappedBitNumber +
+              "!=" + ((BitEntity) binField).getBitWidth().getBitNumber() + ']', null,
+          record.mappingClass, record.mappingField, null);
+    }
+    return true;
   }
 
   /**
@@ -345,6 +403,51 @@ public final class JBBPMapper {
     return instance;
   }
 
+  /**
+   * Map a structure to a class instance, structure arrays with number of elements not less than threshold are mapped
+   * by tasks of an executor. Element instances are created in the calling thread and placed in arrays in the same order
+   * as structures, so that result doesn't depend on parallel processing, but instantiators and custom field processor
+   * must be thread safe. Arrays inside mapped elements are mapped sequentially.
+   *
+   * @param <T>                  the mapping class type
+   * @param rootStructure        a structure to be mapped, must not be null
+   * @param instance             a class instance to be destination for map
+   *                             operations, must not be null
+   * @param customFieldProcessor a custom field processor to provide custom
+   *                             values, it can be null if there is not any mapping field desires the
+   *                             processor
+   * @param flags                special flags for mapping process
+   * @param binFieldFilter       filter allows to exclude some fields from process, can be null
+   * @param executor             executor to map elements of large structure arrays, must not be null
+   * @param parallelThreshold    min number of elements in a structure array to map it in parallel
+   * @param instantiators        functions to produce class instance by request, must
+   *                             not be null
+   * @return the processed class instance, the same which was the argument for
+   * the method.
+   * @throws JBBPMapperException for any error
+   * @see #DEFAULT_PARALLEL_THRESHOLD
+   * @since 3.0.3
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public static <T> T map(final JBBPFieldStruct rootStructure, final T instance,
+                          final JBBPMapperCustomFieldProcessor customFieldProcessor,
+                          final int flags,
+                          final BinFieldFilter binFieldFilter,
+                          final Executor executor,
+                          final int parallelThreshold,
+                          final Function<Class<?>, Object>... instantiators) {
+    JBBPUtils.assertNotNull(executor, "Executor must not be null");
+    final ParallelMapping previous =
+        ParallelMapping.bind(new ParallelMapping(executor, parallelThreshold));
+    try {
+      return map(rootStructure, instance, customFieldProcessor, flags, binFieldFilter,
+          instantiators);
+    } finally {
+      ParallelMapping.bind(previous);
+    }
+  }
+
   /**
    * Get current number of classes which fields are cached in internal field cache.
    *
@@ -364,8 +467,32 @@ public final class JBBPMapper {
     CACHED_FIELDS.clear();
   }
 
+  /**
+   * Get internal class field cache shared by mapping and serialization of mapped objects.
+   * It allows to remove single classes, to bound the cache size and to get hit and miss counters.
+   *
+   * @return the cache, must not be null
+   * @see JBBPSystemProperty#PROPERTY_MAPPER_FIELD_CACHE_MAX_SIZE
+   * @since 3.0.3
+   */
+  public static JBBPMappedClassCache getFieldCache() {
+    return CACHED_FIELDS;
+  }
+
   public static List<MappedFieldRecord> findAffectedFields(final Object instance, final BinFieldFilter binFieldFilter) {
-    final Class<?> mappingClass = instance.getClass();
+    return findAffectedFields(instance.getClass(), binFieldFilter);
+  }
+
+  /**
+   * Find mapped field records of a class.
+   *
+   * @param mappingClass   mapping class, must not be null
+   * @param binFieldFilter filter of fields, can be null
+   * @return list of sorted mapped field records, must not be null
+   * @since 3.0.3
+   */
+  public static List<MappedFieldRecord> findAffectedFields(final Class<?> mappingClass,
+                                                           final BinFieldFilter binFieldFilter) {
 
     List<MappedFieldRecord> result = CACHED_FIELDS.get(mappingClass);
     if (result == null) {
@@ -375,7 +502,7 @@ public final class JBBPMapper {
 
       // make chain of ancestors till java.lang.Object
       final List<Class<?>> listOfClassHierarchy = new ArrayList<>();
-      Class<?> current = instance.getClass();
+      Class<?> current = mappingClass;
       while (current != null) {
         final String packageName = current.getPackage().getName();
         if (packageName.startsWith("java.")
@@ -0,0 +1,732 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.mapper;
+
+import com.igormaznitsa.jbbp.JBBPFieldSink;
+import com.igormaznitsa.jbbp.JBBPFieldStructBuilder;
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.conversion.CompiledBlockVisitor;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.compiler.varlen.JBBPIntegerValueEvaluator;
+import com.igormaznitsa.jbbp.exceptions.JBBPMapperException;
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.utils.Function;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapping plan prepared once for a compiled block and a mapping class. Every mapping field is bound to named fields
+ * of the compiled block and their indexes in parsed structures, so that mapping of parsed data
+ * doesn't need search of fields by names. Indexes are calculated from the compiled block during plan making and
+ * verified for every mapping, if a parsed structure has different layout then fields are searched among children.
+ * The plan is immutable, thread safe and can be shared. The plan also can be used by parser to write read values
+ * directly into class instances without building of structure tree. Parser caches plans made for its compiled block.
+ *
+ * @see com.igormaznitsa.jbbp.JBBPParser#getMappingPlan(Class)
+ * @see com.igormaznitsa.jbbp.JBBPParser#parseInto(java.io.InputStream, JBBPMappingPlan, Object, com.igormaznitsa.jbbp.JBBPVarFieldProcessor, com.igormaznitsa.jbbp.JBBPExternalValueProvider, JBBPMapperCustomFieldProcessor, int, Function[])
+ * @see JBBPMapper#map(JBBPFieldStruct, Object, JBBPMapperCustomFieldProcessor, int, BinFieldFilter, Function[])
+ * @since 3.0.3
+ */
+public final class JBBPMappingPlan {
+
+  private static final JBBPFieldSink IGNORING_SINK = new IgnoringSink();
+  private static final JBBPNamedFieldInfo COLLECTED_STRUCT_NAME =
+      new JBBPNamedFieldInfo("", "", -1);
+
+  private final JBBPCompiledBlock compiledBlock;
+  private final String structPath;
+  private final Class<?> mappingClass;
+  private final BinFieldFilter binFieldFilter;
+  private final Step[] steps;
+  /**
+   * Indexes of steps for named fields of the mapped structure, null if some mapping fields can't be bound
+   * to fields of the structure directly.
+   */
+  private final Map<JBBPNamedFieldInfo, Integer> directStepIndexes;
+
+  private JBBPMappingPlan(final JBBPCompiledBlock compiledBlock,
+                          final Map<JBBPNamedFieldInfo, Integer> childIndexes,
+                          final String structPath,
+                          final Class<?> mappingClass,
+                          final BinFieldFilter binFieldFilter) {
+    this.compiledBlock = compiledBlock;
+    this.structPath = structPath;
+    this.mappingClass = mappingClass;
+    this.binFieldFilter = binFieldFilter;
+
+    final List<MappedFieldRecord> records =
+        JBBPMapper.findAffectedFields(mappingClass, binFieldFilter);
+    this.steps = new Step[records.size()];
+    Map<JBBPNamedFieldInfo, Integer> direct = new HashMap<>();
+    for (int i = 0; i < this.steps.length; i++) {
+      final Step step =
+          new Step(compiledBlock, childIndexes, structPath, records.get(i), binFieldFilter);
+      this.steps[i] = step;
+      if (direct != null) {
+        if (step.pathFields == null || step.pathFields.length != 1
+            || direct.put(step.pathFields[0], i) != null) {
+          direct = null;
+        }
+      }
+    }
+    this.directStepIndexes = direct;
+  }
+
+  /**
+   * Make mapping plan for root structure of a compiled block.
+   *
+   * @param compiledBlock compiled block which parsed structures will be mapped, must not be null
+   * @param mappingClass  mapping class, must not be null
+   * @return mapping plan, must not be null
+   */
+  public static JBBPMappingPlan make(final JBBPCompiledBlock compiledBlock,
+                                     final Class<?> mappingClass) {
+    return make(compiledBlock, null, mappingClass, null);
+  }
+
+  /**
+   * Make mapping plan for a structure of a compiled block.
+   *
+   * @param compiledBlock  compiled block which parsed structures will be mapped, must not be null
+   * @param structPath     path of mapped structure in the compiled block, null or empty for root structure
+   * @param mappingClass   mapping class, must not be null
+   * @param binFieldFilter filter of mapping fields, can be null
+   * @return mapping plan, must not be null
+   */
+  public static JBBPMappingPlan make(final JBBPCompiledBlock compiledBlock,
+                                     final String structPath,
+                                     final Class<?> mappingClass,
+                                     final BinFieldFilter binFieldFilter) {
+    JBBPUtils.assertNotNull(compiledBlock, "Compiled block must not be null");
+    JBBPUtils.assertNotNull(mappingClass, "Mapping class must not be null");
+    final ChildIndexDetector detector = new ChildIndexDetector(compiledBlock);
+    detector.visit();
+    return new JBBPMappingPlan(compiledBlock, detector.childIndexes,
+        structPath == null ? "" : JBBPUtils.normalizeFieldNameOrPath(structPath), mappingClass,
+        binFieldFilter);
+  }
+
+  private static String makePath(final String structPath, final String relativePath) {
+    final String normalized = JBBPUtils.normalizeFieldNameOrPath(relativePath);
+    return structPath.isEmpty() ? normalized : structPath + '.' + normalized;
+  }
+
+  /**
+   * Get compiled block of the plan.
+   *
+   * @return the compiled block, must not be null
+   */
+  public JBBPCompiledBlock getCompiledBlock() {
+    return this.compiledBlock;
+  }
+
+  /**
+   * Get path of the mapped structure in the compiled block.
+   *
+   * @return the normalized path, empty for root structure
+   */
+  public String getStructPath() {
+    return this.structPath;
+  }
+
+  /**
+   * Get mapping class of the plan.
+   *
+   * @return the mapping class, must not be null
+   */
+  public Class<?> getMappingClass() {
+    return this.mappingClass;
+  }
+
+  /**
+   * Map parsed structure to an instance of the mapping class.
+   *
+   * @param <T>           type of instance
+   * @param structure     parsed structure, must not be null
+   * @param instance      instance to be filled, must not be null and must be instance of the mapping class
+   * @param instantiators functions to produce class instances, must not be null
+   * @return the mapped instance
+   * @throws JBBPMapperException for any mapping error
+   */
+  @SafeVarargs
+  public final <T> T map(final JBBPFieldStruct structure, final T instance,
+                         final Function<Class<?>, Object>... instantiators) {
+    return this.map(structure, instance, null, 0, instantiators);
+  }
+
+  /**
+   * Map parsed structure to an instance of the mapping class.
+   *
+   * @param <T>                  type of instance
+   * @param structure            parsed structure, must not be null
+   * @param instance             instance to be filled, must not be null and must be instance of the mapping class
+   * @param customFieldProcessor custom field processor, can be null if there is no custom mapping fields
+   * @param flags                mapping flags
+   * @param instantiators        functions to produce class instances, must not be null
+   * @return the mapped instance
+   * @throws JBBPMapperException for any mapping error
+   * @see JBBPMapper#FLAG_IGNORE_MISSING_VALUES
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public final <T> T map(final JBBPFieldStruct structure, final T instance,
+                         final JBBPMapperCustomFieldProcessor customFieldProcessor,
+                         final int flags,
+                         final Function<Class<?>, Object>... instantiators) {
+    JBBPUtils.assertNotNull(structure, "Structure must not be null");
+    JBBPUtils.assertNotNull(instance, "Instance must not be null");
+    if (instance.getClass() != this.mappingClass) {
+      throw new IllegalArgumentException(
+          "Plan is prepared for " + this.mappingClass + " but provided " + instance.getClass());
+    }
+
+    for (final Step step : this.steps) {
+      final MappedFieldRecord record = step.record;
+      if (record.binAnnotation.custom()) {
+        JBBPMapper.mapCustomField(record, structure, instance, customFieldProcessor);
+        continue;
+      }
+
+      final JBBPAbstractField binField = step.findBinField(structure);
+      if (!JBBPMapper.isBinFieldToBeMapped(record, binField, flags)) {
+        continue;
+      }
+
+      final JBBPMappingPlan nested = step.findNestedPlan(binField);
+      if (nested == null) {
+        record.proc.apply(record, structure, instance, customFieldProcessor, binField, flags,
+            this.binFieldFilter, instantiators);
+      } else {
+        final int nestedFlags = flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES;
+        final MappedFieldRecord.StructMapper structMapper =
+            (struct, structInstance) -> structInstance.getClass() == nested.mappingClass ?
+                nested.map(struct, structInstance, customFieldProcessor, nestedFlags,
+                    instantiators) :
+                JBBPMapper.map(struct, structInstance, customFieldProcessor, nestedFlags,
+                    this.binFieldFilter, instantiators);
+        if (binField instanceof JBBPFieldArrayStruct) {
+          record.mapStructArray(instance, (JBBPFieldArrayStruct) binField, structMapper, flags,
+              instantiators);
+        } else {
+          record.mapStruct(instance, (JBBPFieldStruct) binField, structMapper, instantiators);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Make sink to fill an instance of the mapping class directly by fields read by a parser.
+   *
+   * @param <T>                  type of instance
+   * @param instance             instance to be filled, must not be null and must be instance of the mapping class
+   * @param customFieldProcessor custom field processor, can be null if there is no custom mapping fields
+   * @param flags                mapping flags
+   * @param instantiators        functions to produce class instances, must not be null
+   * @return sink to be provided to parser, {@link MappingSink#complete()} must be called after parsing
+   * @see com.igormaznitsa.jbbp.JBBPParser#parse(java.io.InputStream, JBBPFieldSink, com.igormaznitsa.jbbp.JBBPVarFieldProcessor, com.igormaznitsa.jbbp.JBBPExternalValueProvider, com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter)
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public final <T> MappingSink<T> makeFieldSink(final T instance,
+                                                final JBBPMapperCustomFieldProcessor customFieldProcessor,
+                                                final int flags,
+                                                final Function<Class<?>, Object>... instantiators) {
+    JBBPUtils.assertNotNull(instance, "Instance must not be null");
+    if (instance.getClass() != this.mappingClass) {
+      throw new IllegalArgumentException(
+          "Plan is prepared for " + this.mappingClass + " but provided " + instance.getClass());
+    }
+    return new MappingSink<>(this, instance, customFieldProcessor, flags, this.binFieldFilter,
+        instantiators);
+  }
+
+  private int findDirectStep(final JBBPNamedFieldInfo name) {
+    if (name == null) {
+      return -1;
+    }
+    final Integer index = this.directStepIndexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Sink writes fields read by a parser directly into an instance of mapping class, its nested structure instances
+   * and arrays. If mapping fields of a class can't be bound to structure fields directly (custom fields, fields
+   * mapped by path or by type) then the structure is collected and mapped after reading.
+   *
+   * @param <T> type of filled instance
+   */
+  public static final class MappingSink<T> implements JBBPFieldSink {
+    private final JBBPMappingPlan plan;
+    private final T instance;
+    private final JBBPMapperCustomFieldProcessor customFieldProcessor;
+    private final int flags;
+    private final BinFieldFilter binFieldFilter;
+    private final Function<Class<?>, Object>[] instantiators;
+    private final JBBPFieldStructBuilder collector;
+    private final boolean[] mappedSteps;
+
+    private int currentStepIndex = -1;
+    private JBBPFieldStructBuilder currentHolder;
+    private Object currentValue;
+    private boolean currentMadeByInstanceMaker;
+    private List<Object> currentElements;
+
+    private MappingSink(final JBBPMappingPlan plan, final T instance,
+                        final JBBPMapperCustomFieldProcessor customFieldProcessor,
+                        final int flags,
+                        final BinFieldFilter binFieldFilter,
+                        final Function<Class<?>, Object>[] instantiators) {
+      this.plan = plan;
+      this.instance = instance;
+      this.customFieldProcessor = customFieldProcessor;
+      this.flags = flags;
+      this.binFieldFilter = binFieldFilter;
+      this.instantiators = instantiators;
+      if (plan == null || plan.directStepIndexes == null) {
+        this.collector = new JBBPFieldStructBuilder();
+        this.mappedSteps = null;
+      } else {
+        this.collector = null;
+        this.mappedSteps = new boolean[plan.steps.length];
+      }
+    }
+
+    /**
+     * Complete mapping, must be called after parsing.
+     *
+     * @return the filled instance
+     * @throws JBBPMapperException for any mapping error or if a mapping field is not found
+     */
+    public T complete() {
+      if (this.collector == null) {
+        for (int i = 0; i < this.mappedSteps.length; i++) {
+          if (!this.mappedSteps[i]) {
+            JBBPMapper.isBinFieldToBeMapped(this.plan.steps[i].record, null, this.flags);
+          }
+        }
+      } else {
+        final JBBPFieldStruct struct = this.collector.build(COLLECTED_STRUCT_NAME);
+        if (this.plan == null) {
+          JBBPMapper.map(struct, this.instance, this.customFieldProcessor, this.flags,
+              this.binFieldFilter, this.instantiators);
+        } else {
+          this.plan.map(struct, this.instance, this.customFieldProcessor, this.flags,
+              this.instantiators);
+        }
+      }
+      return this.instance;
+    }
+
+    private void mapField(final int stepIndex, final JBBPAbstractField field) {
+      final MappedFieldRecord record = this.plan.steps[stepIndex].record;
+      if (record.fieldType.getFieldClass().isInstance(field)
+          && JBBPMapper.isBinFieldToBeMapped(record, field, this.flags)) {
+        record.proc.apply(record, null, this.instance, this.customFieldProcessor, field,
+            this.flags, this.binFieldFilter, this.instantiators);
+        this.mappedSteps[stepIndex] = true;
+      }
+    }
+
+    private JBBPFieldSink makeStructSink(final JBBPMappingPlan nestedPlan,
+                                         final Object structInstance) {
+      return new MappingSink<>(structInstance.getClass() == nestedPlan.mappingClass ? nestedPlan :
+          null, structInstance, this.customFieldProcessor,
+          this.flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES, this.binFieldFilter,
+          this.instantiators);
+    }
+
+    private void resetCurrent() {
+      this.currentStepIndex = -1;
+      this.currentHolder = null;
+      this.currentValue = null;
+      this.currentMadeByInstanceMaker = false;
+      this.currentElements = null;
+    }
+
+    @Override
+    public void onField(final JBBPAbstractField field) {
+      if (this.collector == null) {
+        final int stepIndex = this.plan.findDirectStep(field.getNameInfo());
+        if (stepIndex >= 0) {
+          this.mapField(stepIndex, field);
+        }
+      } else {
+        this.collector.onField(field);
+      }
+    }
+
+    @Override
+    public JBBPFieldSink onStructStart(final JBBPNamedFieldInfo name, final int index) {
+      if (this.collector != null) {
+        return this.collector.onStructStart(name, index);
+      }
+      if (index >= 0) {
+        // element of the current structure array
+        if (this.currentHolder != null) {
+          return this.currentHolder.onStructStart(name, index);
+        }
+        if (this.currentStepIndex < 0) {
+          return IGNORING_SINK;
+        }
+        final Step step = this.plan.steps[this.currentStepIndex];
+        Object element;
+        if (this.currentElements == null) {
+          element = Array.get(this.currentValue, index);
+        } else {
+          element = this.currentValue != null && index < Array.getLength(this.currentValue) ?
+              Array.get(this.currentValue, index) : null;
+        }
+        if (element == null) {
+          element = step.record.makeStructArrayElement(this.instance, this.instantiators);
+        }
+        if (this.currentElements == null) {
+          Array.set(this.currentValue, index, element);
+        } else {
+          this.currentElements.add(element);
+        }
+        return this.makeStructSink(step.nestedPlan, element);
+      }
+
+      final int stepIndex = this.plan.findDirectStep(name);
+      if (stepIndex < 0) {
+        return IGNORING_SINK;
+      }
+      this.currentStepIndex = stepIndex;
+      final Step step = this.plan.steps[stepIndex];
+      final MappedFieldRecord record = step.record;
+      if (step.nestedPlan != null && record.fieldType == BinType.STRUCT
+          && !record.mappingField.getType().isArray()) {
+        Object value = record.getValue(this.instance);
+        if (value == null) {
+          this.currentMadeByInstanceMaker = record.instanceMaker != null;
+          value = record.makeStructInstance(this.instance, this.instantiators);
+        }
+        this.currentValue = value;
+        return this.makeStructSink(step.nestedPlan, value);
+      } else {
+        this.currentHolder = new JBBPFieldStructBuilder();
+        return this.currentHolder.onStructStart(name, index);
+      }
+    }
+
+    @Override
+    public void onStructEnd(final JBBPNamedFieldInfo name, final int index,
+                            final JBBPFieldSink structSink) {
+      if (this.collector != null) {
+        this.collector.onStructEnd(name, index, structSink);
+      } else if (index >= 0) {
+        if (this.currentHolder != null) {
+          this.currentHolder.onStructEnd(name, index, structSink);
+        } else if (structSink instanceof MappingSink) {
+          ((MappingSink<?>) structSink).complete();
+        }
+      } else {
+        if (this.currentHolder != null) {
+          this.currentHolder.onStructEnd(name, index, structSink);
+          this.mapField(this.currentStepIndex, this.currentHolder.getLastField());
+        } else if (this.currentStepIndex >= 0) {
+          ((MappingSink<?>) structSink).complete();
+          if (!this.currentMadeByInstanceMaker) {
+            this.plan.steps[this.currentStepIndex].record
+                .setValue(this.instance, null, this.currentValue);
+          }
+          this.mappedSteps[this.currentStepIndex] = true;
+        }
+        this.resetCurrent();
+      }
+    }
+
+    @Override
+    public void onStructArrayStart(final JBBPNamedFieldInfo name, final int length) {
+      if (this.collector != null) {
+        this.collector.onStructArrayStart(name, length);
+        return;
+      }
+      final int stepIndex = this.plan.findDirectStep(name);
+      if (stepIndex < 0) {
+        return;
+      }
+      this.currentStepIndex = stepIndex;
+      final Step step = this.plan.steps[stepIndex];
+      final MappedFieldRecord record = step.record;
+      if (step.nestedPlan != null && record.fieldType == BinType.STRUCT_ARRAY
+          && record.mappingField.getType().isArray()) {
+        final Object value = record.getValue(this.instance);
+        if (length < 0) {
+          this.currentValue = value;
+          this.currentElements = new ArrayList<>();
+        } else {
+          this.currentValue = record.prepareStructArray(value, length, this.flags, null);
+        }
+      } else {
+        this.currentHolder = new JBBPFieldStructBuilder();
+        this.currentHolder.onStructArrayStart(name, length);
+      }
+    }
+
+    @Override
+    public void onStructArrayEnd(final JBBPNamedFieldInfo name, final int length) {
+      if (this.collector != null) {
+        this.collector.onStructArrayEnd(name, length);
+        return;
+      }
+      if (this.currentHolder != null) {
+        this.currentHolder.onStructArrayEnd(name, length);
+        this.mapField(this.currentStepIndex, this.currentHolder.getLastField());
+      } else if (this.currentStepIndex >= 0) {
+        final MappedFieldRecord record = this.plan.steps[this.currentStepIndex].record;
+        Object array = this.currentValue;
+        if (this.currentElements != null) {
+          final int size = this.currentElements.size();
+          array = record.prepareStructArray(array, size, this.flags, null);
+          for (int i = 0; i < size; i++) {
+            Array.set(array, i, this.currentElements.get(i));
+          }
+        }
+        record.setValue(this.instance, null, array);
+        this.mappedSteps[this.currentStepIndex] = true;
+      }
+      this.resetCurrent();
+    }
+  }
+
+  /**
+   * Sink ignores all fields, used for structures which are not mapped.
+   */
+  private static final class IgnoringSink implements JBBPFieldSink {
+    @Override
+    public void onField(final JBBPAbstractField field) {
+    }
+
+    @Override
+    public JBBPFieldSink onStructStart(final JBBPNamedFieldInfo name, final int index) {
+      return this;
+    }
+
+    @Override
+    public void onStructEnd(final JBBPNamedFieldInfo name, final int index,
+                            final JBBPFieldSink structSink) {
+    }
+
+    @Override
+    public void onStructArrayStart(final JBBPNamedFieldInfo name, final int length) {
+    }
+
+    @Override
+    public void onStructArrayEnd(final JBBPNamedFieldInfo name, final int length) {
+    }
+  }
+
+  private static final class Step {
+    private final MappedFieldRecord record;
+    /**
+     * Named fields for every path level, null if the field can't be resolved statically.
+     */
+    private final JBBPNamedFieldInfo[] pathFields;
+    /**
+     * Indexes of fields among children of their structures for every path level.
+     */
+    private final int[] pathIndexes;
+    private final JBBPMappingPlan nestedPlan;
+
+    private Step(final JBBPCompiledBlock compiledBlock,
+                 final Map<JBBPNamedFieldInfo, Integer> childIndexes,
+                 final String structPath,
+                 final MappedFieldRecord record, final BinFieldFilter binFieldFilter) {
+      this.record = record;
+
+      JBBPNamedFieldInfo[] resolved = null;
+      if (!record.binAnnotation.custom()) {
+        final String[] relativePath;
+        if (record.fieldPath.isEmpty()) {
+          relativePath = record.fieldName.isEmpty() ? null : new String[] {record.fieldName};
+        } else {
+          relativePath =
+              JBBPUtils.splitString(JBBPUtils.normalizeFieldNameOrPath(record.fieldPath), '.');
+        }
+        if (relativePath != null) {
+          resolved = new JBBPNamedFieldInfo[relativePath.length];
+          String currentPath = structPath;
+          for (int i = 0; i < relativePath.length && resolved != null; i++) {
+            currentPath = makePath(currentPath, relativePath[i]);
+            resolved[i] = compiledBlock.findFieldForPath(currentPath);
+            if (resolved[i] == null) {
+              resolved = null;
+            }
+          }
+        }
+      }
+      this.pathFields = resolved;
+      if (resolved == null) {
+        this.pathIndexes = null;
+      } else {
+        this.pathIndexes = new int[resolved.length];
+        for (int i = 0; i < resolved.length; i++) {
+          final Integer index = childIndexes.get(resolved[i]);
+          this.pathIndexes[i] = index == null ? 0 : index;
+        }
+      }
+
+      final boolean structField =
+          record.fieldType == BinType.STRUCT || record.fieldType == BinType.STRUCT_ARRAY;
+      if (structField && resolved != null && !record.mappingField.getType().isPrimitive()) {
+        final Class<?> type = record.mappingField.getType();
+        final Class<?> structClass = type.isArray() ? type.getComponentType() : type;
+        this.nestedPlan = new JBBPMappingPlan(compiledBlock, childIndexes,
+            resolved[resolved.length - 1].getFieldPath(), structClass, binFieldFilter);
+      } else {
+        this.nestedPlan = null;
+      }
+    }
+
+    private JBBPMappingPlan findNestedPlan(final JBBPAbstractField binField) {
+      if (this.nestedPlan == null) {
+        return null;
+      }
+      final boolean arrayField = this.record.mappingField.getType().isArray();
+      if (arrayField ? binField instanceof JBBPFieldArrayStruct :
+          binField instanceof JBBPFieldStruct) {
+        return this.nestedPlan;
+      }
+      return null;
+    }
+
+    private JBBPAbstractField findBinField(final JBBPFieldStruct structure) {
+      if (this.pathFields == null) {
+        return JBBPMapper.findBinField(this.record, structure);
+      }
+      JBBPAbstractField result = null;
+      JBBPFieldStruct current = structure;
+      for (int level = 0; level < this.pathFields.length; level++) {
+        if (current == null) {
+          return null;
+        }
+        final JBBPNamedFieldInfo expected = this.pathFields[level];
+        final int size = current.size();
+        final int index = this.pathIndexes[level];
+        if (index < size && current.getElementAt(index).getNameInfo() == expected) {
+          result = current.getElementAt(index);
+        } else {
+          result = null;
+          for (int i = 0; i < size; i++) {
+            final JBBPAbstractField field = current.getElementAt(i);
+            if (field.getNameInfo() == expected) {
+              result = field;
+              break;
+            }
+          }
+          if (result == null) {
+            // structure is not produced by the compiled block
+            return JBBPMapper.findBinField(this.record, structure);
+          }
+        }
+        current = result instanceof JBBPFieldStruct ? (JBBPFieldStruct) result : null;
+      }
+      return this.record.fieldType.getFieldClass().isInstance(result) ? result : null;
+    }
+  }
+
+  /**
+   * Detector of indexes of named fields among children of their structures in parsed data.
+   */
+  private static final class ChildIndexDetector extends CompiledBlockVisitor {
+    private final Map<JBBPNamedFieldInfo, Integer> childIndexes = new HashMap<>();
+    private final List<int[]> counters = new ArrayList<>();
+
+    private ChildIndexDetector(final JBBPCompiledBlock compiledBlock) {
+      super(0, compiledBlock);
+      this.counters.add(new int[1]);
+    }
+
+    private void registerField(final JBBPNamedFieldInfo field) {
+      final int index = this.counters.get(this.counters.size() - 1)[0]++;
+      if (field != null) {
+        this.childIndexes.put(field, index);
+      }
+    }
+
+    @Override
+    public void visitValField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                              final JBBPNamedFieldInfo nameFieldInfo,
+                              final JBBPIntegerValueEvaluator expression) {
+      this.registerField(nameFieldInfo);
+    }
+
+    @Override
+    public void visitPrimitiveField(final int offsetInCompiledBlock, final int primitiveType,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStreamAsArray,
+                                    final boolean altFieldType,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitVarField(final int offsetInCompiledBlock,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                              final JBBPIntegerValueEvaluator nullableArraySize,
+                              final JBBPIntegerValueEvaluator extraDataValue) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitCustomField(final int offsetInCompiledBlock,
+                                 final JBBPFieldTypeParameterContainer notNullFieldType,
+                                 final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                 final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                                 final JBBPIntegerValueEvaluator nullableArraySize,
+                                 final JBBPIntegerValueEvaluator extraDataValue) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitBitField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final boolean readWholeStream,
+                              final JBBPIntegerValueEvaluator notNullFieldSize,
+                              final JBBPIntegerValueEvaluator nullableArraySize) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitStructureStart(final int offsetInCompiledBlock,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStream,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      this.registerField(nullableNameFieldInfo);
+      this.counters.add(new int[1]);
+    }
+
+    @Override
+    public void visitStructureEnd(final int offsetInCompiledBlock,
+                                  final JBBPNamedFieldInfo nullableNameFieldInfo) {
+      this.counters.remove(this.counters.size() - 1);
+    }
+  }
+}
@@ -22,6 +22,9 @@ import com.igormaznitsa.jbbp.model.JBBPFieldString;
 import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
 import com.igormaznitsa.jbbp.model.JBBPNumericField;
 import com.igormaznitsa.jbbp.utils.Function;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -29,6 +32,12 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
 public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
+  private static final MethodType TYPE_GETTER = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType TYPE_LONG_GETTER =
+      MethodType.methodType(long.class, Object.class);
+  private static final MethodType TYPE_DOUBLE_GETTER =
+      MethodType.methodType(double.class, Object.class);
+  private static final MethodType TYPE_DEFAULT_CONSTRUCTOR = MethodType.methodType(Object.class);
   private static final Function<Class<?>, Object> STATIC_MAKE_CLASS_INSTANCE_INSTANTIATOR =
       (Class<?> klazz) -> {
         Class<?> currentClass = klazz;
@@ -91,38 +100,15 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
             if (binField instanceof JBBPAbstractArrayField) {
               if (binField instanceof JBBPFieldArrayStruct) {
                 // structure
-                final JBBPFieldArrayStruct structArray = (JBBPFieldArrayStruct) binField;
-                final Class<?> componentType = record.mappingField.getType().getComponentType();
-
-                Object valueArray = getFieldValue(instance, record.getter, record.mappingField);
-
-                valueArray = valueArray == null ? Array.newInstance(componentType, structArray.size()) :
-                valueArray;
-
-            if (Array.getLength(valueArray) != structArray.size()) {
-              throw new JBBPMapperException(
-                  "Can't map an array field for different expected size [" +
-                      Array.getLength(valueArray) + "!=" + structArray.size() + ']', binField,
-                  record.mappingClass, record.mappingField, null);
-            }
-
-            for (int i = 0; i < structArray.size(); i++) {
-              final Object curInstance = Array.get(valueArray, i);
-              if (curInstance == null) {
-                Array.set(valueArray, i, JBBPMapper.map(structArray.getElementAt(i),
-                        tryMakeInstance(componentType, binField, instance, record.mappingField,
-                                instantiators), customFieldProcessor, 0, binFieldFilter, instantiators));
-              } else {
-                Array.set(valueArray, i,
-                        JBBPMapper.map(structArray.getElementAt(i), curInstance, customFieldProcessor, 0, binFieldFilter));
-              }
-            }
-            setFieldValue(instance, record.setter, record.mappingField, binField, valueArray);
+                record.mapStructArray(instance, (JBBPFieldArrayStruct) binField,
+                    (struct, structInstance) -> JBBPMapper.map(struct, structInstance,
+                        customFieldProcessor, flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES,
+                        binFieldFilter, instantiators), flags, instantiators);
           } else {
             // primitive
-            mapArrayField(instance, record.setter, record.mappingField,
-                (JBBPAbstractArrayField<?>) binField,
-                record.binAnnotation.bitOrder() == JBBPBitOrder.MSB0);
+            mapArrayField(record, instance, (JBBPAbstractArrayField<?>) binField,
+                record.binAnnotation.bitOrder() == JBBPBitOrder.MSB0,
+                (flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES) != 0);
           }
         } else {
           throw new JBBPMapperException("Can't map a non-array value to an array mapping field",
@@ -132,41 +118,24 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
   private static final FieldProcessor PROC_NUM =
           (record, rootStructure, instance, customFieldProcessor, binField, flags, binFieldFilter, instantiators) -> {
             if (binField instanceof JBBPNumericField) {
-              mapNumericField(instance, record.setter, record.mappingField, (JBBPNumericField) binField,
+              mapNumericField(record, instance, (JBBPNumericField) binField,
                       record.binAnnotation.bitOrder() == JBBPBitOrder.MSB0);
             } else if (binField instanceof JBBPFieldString) {
               if (record.mappingField.getType().isPrimitive()) {
                 throw new JBBPMapperException("Can't map string to a primitive mapping field", binField,
                         record.mappingClass, record.mappingField, null);
               } else {
-                setFieldValue(instance, record.setter, record.mappingField, binField,
-                        ((JBBPFieldString) binField).getAsString());
+                record.setValue(instance, binField, ((JBBPFieldString) binField).getAsString());
           }
         } else if (binField instanceof JBBPFieldStruct) {
           if (record.mappingField.getType().isPrimitive()) {
             throw new JBBPMapperException("Can't map structure to a primitive mapping field",
                 binField, record.mappingClass, record.mappingField, null);
           } else {
-            final Object curValue = getFieldValue(instance, record.getter, record.mappingField);
-            if (curValue == null) {
-              if (record.instanceMaker == null) {
-                setFieldValue(instance, record.setter, record.mappingField, binField, JBBPMapper
-                        .map((JBBPFieldStruct) binField,
-                                tryMakeInstance(record.mappingField.getType(), binField, instance,
-                                        record.mappingField, instantiators), customFieldProcessor, 0, binFieldFilter));
-              } else {
-                try {
-                  JBBPMapper.map((JBBPFieldStruct) binField, record.instanceMaker.invoke(instance));
-                } catch (Exception ex) {
-                  throw new JBBPMapperException(
-                      "Can't map field which member generated by instance", binField,
-                      record.mappingClass, record.mappingField, ex);
-                }
-              }
-            } else {
-              setFieldValue(instance, record.setter, record.mappingField, binField,
-                  JBBPMapper.map((JBBPFieldStruct) binField, curValue, customFieldProcessor));
-            }
+            record.mapStruct(instance, (JBBPFieldStruct) binField,
+                (struct, structInstance) -> JBBPMapper.map(struct, structInstance,
+                    customFieldProcessor, flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES,
+                    binFieldFilter, instantiators), instantiators);
           }
         } else {
           boolean processed = false;
@@ -175,7 +144,7 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
             final String convertedValue =
                 convertFieldValueToString((JBBPAbstractArrayField<?>) binField);
             if (convertedValue != null) {
-              setFieldValue(instance, record.setter, record.mappingField, binField, convertedValue);
+              record.setValue(instance, binField, convertedValue);
               processed = true;
             }
           }
@@ -198,6 +167,30 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
   public final JBBPBitNumber mappedBitNumber;
   public final BinType fieldType;
   public final FieldProcessor proc;
+  /**
+   * Method handle to set field value, type is (Object, field type)void, null if reflection should be used.
+   */
+  private final MethodHandle valueSetter;
+  /**
+   * Method handle to get field value, type is (Object)Object, null if reflection should be used.
+   */
+  private final MethodHandle valueGetter;
+  /**
+   * Method handle to get value of integral primitive or char field, type is (Object)long, null if not available.
+   */
+  private final MethodHandle valueLongGetter;
+  /**
+   * Method handle to get value of float or double field, type is (Object)double, null if not available.
+   */
+  private final MethodHandle valueDoubleGetter;
+  /**
+   * Method handle of non-static newInstance(Class) method of mapping class, type is (Object,Class)Object, can be null.
+   */
+  private final MethodHandle mappingClassInstanceMaker;
+  /**
+   * Method handle of default constructor for structure field type, type is ()Object, can be null.
+   */
+  private final MethodHandle structDefaultConstructor;
 
   MappedFieldRecord(final Field mappingField,
                     final Method instanceMaker,
@@ -238,91 +231,192 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
     } else {
       this.proc = PROC_NUM;
     }
+
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    this.valueSetter = makeSetterHandle(lookup, mappingField, setter);
+    final MethodHandle rawGetter = makeRawGetterHandle(lookup, mappingField, getter);
+    this.valueGetter = rawGetter == null ? null : rawGetter.asType(TYPE_GETTER);
+    final Class<?> valueType = rawGetter == null ? null : rawGetter.type().returnType();
+    if (valueType == float.class || valueType == double.class) {
+      this.valueLongGetter = null;
+      this.valueDoubleGetter = rawGetter.asType(TYPE_DOUBLE_GETTER);
+    } else if (valueType != null && valueType.isPrimitive() && valueType != boolean.class
+        && valueType != void.class) {
+      this.valueLongGetter = rawGetter.asType(TYPE_LONG_GETTER);
+      this.valueDoubleGetter = null;
+    } else {
+      this.valueLongGetter = null;
+      this.valueDoubleGetter = null;
+    }
+
+    if (this.fieldType == BinType.STRUCT || this.fieldType == BinType.STRUCT_ARRAY) {
+      final Class<?> structType = mappingField.getType().isArray() ?
+          mappingField.getType().getComponentType() : mappingField.getType();
+      this.mappingClassInstanceMaker = makeInstanceMakerHandle(lookup, mappingClass);
+      this.structDefaultConstructor = makeDefaultConstructorHandle(lookup, structType);
+    } else {
+      this.mappingClassInstanceMaker = null;
+      this.structDefaultConstructor = null;
+    }
+  }
+
+  private static MethodHandle unreflectQuietly(final MethodHandles.Lookup lookup,
+                                               final Method method) {
+    try {
+      return lookup.unreflect(method);
+    } catch (IllegalAccessException ex) {
+      try {
+        method.setAccessible(true);
+        return lookup.unreflect(method);
+      } catch (IllegalAccessException exx) {
+        return null;
+      } catch (RuntimeException exx) {
+        return null;
+      }
+    }
+  }
+
+  private static MethodHandle makeSetterHandle(final MethodHandles.Lookup lookup,
+                                               final Field field, final Method setter) {
+    MethodHandle result;
+    try {
+      result = setter == null ? lookup.unreflectSetter(field) : unreflectQuietly(lookup, setter);
+    } catch (IllegalAccessException ex) {
+      result = null;
+    }
+    return result == null ? null :
+        result.asType(MethodType.methodType(void.class, Object.class,
+            field.getType().isPrimitive() ? field.getType() : Object.class));
+  }
+
+  private static MethodHandle makeRawGetterHandle(final MethodHandles.Lookup lookup,
+                                                  final Field field, final Method getter) {
+    MethodHandle result;
+    try {
+      result = getter == null ? lookup.unreflectGetter(field) : unreflectQuietly(lookup, getter);
+    } catch (IllegalAccessException ex) {
+      result = null;
+    }
+    return result;
+  }
+
+  private static MethodHandle makeInstanceMakerHandle(final MethodHandles.Lookup lookup,
+                                                      final Class<?> mappingClass) {
+    try {
+      final Method method = mappingClass.getMethod(MAKE_CLASS_INSTANCE_METHOD_NAME, Class.class);
+      if (Modifier.isStatic(method.getModifiers())) {
+        return null;
+      }
+      final MethodHandle handle = unreflectQuietly(lookup, method);
+      return handle == null ? null :
+          handle.asType(MethodType.methodType(Object.class, Object.class, Class.class));
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private static MethodHandle makeDefaultConstructorHandle(final MethodHandles.Lookup lookup,
+                                                           final Class<?> type) {
+    if ((type.isLocalClass() && !Modifier.isStatic(type.getModifiers()))
+        || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+      return null;
+    }
+    try {
+      return lookup.unreflectConstructor(type.getConstructor()).asType(TYPE_DEFAULT_CONSTRUCTOR);
+    } catch (NoSuchMethodException ex) {
+      return null;
+    } catch (IllegalAccessException ex) {
+      // WARNING! Don't replace by multi-catch for Android compatibility!
+      return null;
+    }
   }
 
   /**
    * Map a parsed array to an array field in mapping class.
    *
+   * @param record               record of the field in the mapping class, must not be null
    * @param mappingClassInstance a mapping class instance, must not be null
-   * @param setter               detected setter for the field, can be null
-   * @param mappingField         a field in the mapping class to be set, must not be
-   *                             null
    * @param arrayField           a binary parsed array field, must not be null
    * @param invertBitOrder       flag shows that values of an array must be bit
    *                             reversed before set
+   * @param reuseExisting        flag shows that existing array of the same type and length
+   *                             must be overwritten instead of allocation of new one
    */
-  private static void mapArrayField(final Object mappingClassInstance, final Method setter,
-                                    final Field mappingField,
+  private static void mapArrayField(final MappedFieldRecord record,
+                                    final Object mappingClassInstance,
                                     final JBBPAbstractArrayField<?> arrayField,
-                                    final boolean invertBitOrder) {
-    try {
-      final Object value;
-      if (arrayField instanceof JBBPFieldArrayLong &&
-          mappingField.getType().getComponentType() == double.class) {
-        final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final double[] doubleArray = new double[longArray.length];
-        for (int i = 0; i < longArray.length; i++) {
-          doubleArray[i] = Double.longBitsToDouble(longArray[i]);
-        }
-        value = doubleArray;
-      } else if (arrayField instanceof JBBPFieldArrayUInt &&
-          mappingField.getType().getComponentType() == double.class) {
-        final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final double[] doubleArray = new double[longArray.length];
-        for (int i = 0; i < longArray.length; i++) {
-          doubleArray[i] = Double.longBitsToDouble(longArray[i]);
-        }
-        value = doubleArray;
-      } else if (arrayField instanceof JBBPFieldArrayInt &&
-          mappingField.getType().getComponentType() == float.class) {
-        final int[] intArray = (int[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final float[] floatArray = new float[intArray.length];
-        for (int i = 0; i < intArray.length; i++) {
-          floatArray[i] = Float.intBitsToFloat(intArray[i]);
-        }
-        value = floatArray;
-      } else if (arrayField instanceof JBBPFieldArrayUInt &&
-          mappingField.getType().getComponentType() == float.class) {
-        final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final float[] floatArray = new float[longArray.length];
-        for (int i = 0; i < longArray.length; i++) {
-          floatArray[i] = Float.intBitsToFloat((int) longArray[i]);
-        }
-        value = floatArray;
-      } else if (arrayField instanceof JBBPFieldArrayUInt &&
-          mappingField.getType().getComponentType() == int.class) {
-        final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final int[] intArray = new int[longArray.length];
-        for (int i = 0; i < longArray.length; i++) {
-          intArray[i] = (int) longArray[i];
-        }
-        value = intArray;
-      } else if (arrayField instanceof JBBPFieldArrayUShort &&
-          mappingField.getType().getComponentType() == char.class) {
-        final short[] shortArray = (short[]) arrayField.getValueArrayAsObject(invertBitOrder);
-        final char[] charArray = new char[shortArray.length];
-        for (int i = 0; i < shortArray.length; i++) {
-          charArray[i] = (char) shortArray[i];
-        }
-        value = charArray;
-      } else {
-        value = arrayField.getValueArrayAsObject(invertBitOrder);
+                                    final boolean invertBitOrder,
+                                    final boolean reuseExisting) {
+    final Field mappingField = record.mappingField;
+    final Object existing = reuseExisting ? record.getValue(mappingClassInstance) : null;
+    final Object value;
+    if (arrayField instanceof JBBPFieldArrayLong &&
+        mappingField.getType().getComponentType() == double.class) {
+      final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final double[] doubleArray = makeDoubleArray(existing, longArray.length);
+      for (int i = 0; i < longArray.length; i++) {
+        doubleArray[i] = Double.longBitsToDouble(longArray[i]);
       }
-      if (setter == null) {
-        mappingField.set(mappingClassInstance, value);
-      } else {
-        setter.invoke(mappingClassInstance, value);
+      value = doubleArray;
+    } else if (arrayField instanceof JBBPFieldArrayUInt &&
+        mappingField.getType().getComponentType() == double.class) {
+      final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final double[] doubleArray = makeDoubleArray(existing, longArray.length);
+      for (int i = 0; i < longArray.length; i++) {
+        doubleArray[i] = Double.longBitsToDouble(longArray[i]);
       }
-    } catch (IllegalAccessException ex) {
-      throw new JBBPMapperException("Can't get access to a mapping field", arrayField,
-              mappingClassInstance.getClass(), mappingField, ex);
-    } catch (IllegalArgumentException ex) {
-      throw new JBBPMapperException("Can't set argument to a mapping field", arrayField,
-              mappingClassInstance.getClass(), mappingField, ex);
-    } catch (InvocationTargetException ex) {
-      throw new JBBPMapperException("Can't set argument to field through setter", arrayField,
-              mappingClassInstance.getClass(), mappingField, ex);
+      value = doubleArray;
+    } else if (arrayField instanceof JBBPFieldArrayInt &&
+        mappingField.getType().getComponentType() == float.class) {
+      final int[] intArray = (int[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final float[] floatArray = makeFloatArray(existing, intArray.length);
+      for (int i = 0; i < intArray.length; i++) {
+        floatArray[i] = Float.intBitsToFloat(intArray[i]);
+      }
+      value = floatArray;
+    } else if (arrayField instanceof JBBPFieldArrayUInt &&
+        mappingField.getType().getComponentType() == float.class) {
+      final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final float[] floatArray = makeFloatArray(existing, longArray.length);
+      for (int i = 0; i < longArray.length; i++) {
+        floatArray[i] = Float.intBitsToFloat((int) longArray[i]);
+      }
+      value = floatArray;
+    } else if (arrayField instanceof JBBPFieldArrayUInt &&
+        mappingField.getType().getComponentType() == int.class) {
+      final long[] longArray = (long[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final int[] intArray = existing instanceof int[] && ((int[]) existing).length == longArray.length ?
+          (int[]) existing : new int[longArray.length];
+      for (int i = 0; i < longArray.length; i++) {
+        intArray[i] = (int) longArray[i];
+      }
+      value = intArray;
+    } else if (arrayField instanceof JBBPFieldArrayUShort &&
+        mappingField.getType().getComponentType() == char.class) {
+      final short[] shortArray = (short[]) arrayField.getValueArrayAsObject(invertBitOrder);
+      final char[] charArray =
+          existing instanceof char[] && ((char[]) existing).length == shortArray.length ?
+              (char[]) existing : new char[shortArray.length];
+      for (int i = 0; i < shortArray.length; i++) {
+        charArray[i] = (char) shortArray[i];
+      }
+      value = charArray;
+    } else if (existing != null && arrayField.copyValueArrayTo(existing, invertBitOrder)) {
+      value = existing;
+    } else {
+      value = arrayField.getValueArrayAsObject(invertBitOrder);
     }
+    record.setValue(mappingClassInstance, arrayField, value);
+  }
+
+  private static double[] makeDoubleArray(final Object existing, final int length) {
+    return existing instanceof double[] && ((double[]) existing).length == length ?
+        (double[]) existing : new double[length];
+  }
+
+  private static float[] makeFloatArray(final Object existing, final int length) {
+    return existing instanceof float[] && ((float[]) existing).length == length ?
+        (float[]) existing : new float[length];
   }
 
   /**
@@ -374,64 +468,67 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
    * Map a parsed primitive numeric field to a primitive field in a mapping
    * class.
    *
+   * @param record               record of the field in the mapping class, must not be null
    * @param mappingClassInstance the mapping class instance, must not be null
-   * @param setter               detected setter for field, can be null
-   * @param mappingField         a mapping field to set the value, must not be null
    * @param numericField         a parsed numeric field which value should be used, must
    *                             not be null
    * @param invertBitOrder       flag shows that the parsed numeric field value must
    *                             be reversed in its bit before setting
    */
-  private static void mapNumericField(final Object mappingClassInstance, final Method setter,
-                                      final Field mappingField, final JBBPNumericField numericField,
+  private static void mapNumericField(final MappedFieldRecord record,
+                                      final Object mappingClassInstance,
+                                      final JBBPNumericField numericField,
                                       final boolean invertBitOrder) {
-    final Class<?> fieldClass = mappingField.getType();
+    final Class<?> fieldClass = record.mappingField.getType();
+    final JBBPAbstractField binField = (JBBPAbstractField) numericField;
+    final MethodHandle handle = record.valueSetter;
     try {
       if (fieldClass == byte.class) {
         final byte value = (byte) (invertBitOrder ? numericField.getAsInvertedBitOrder() :
                 numericField.getAsInt());
-        if (setter == null) {
-          mappingField.setByte(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == boolean.class) {
-        if (setter == null) {
-          mappingField.setBoolean(mappingClassInstance, numericField.getAsBool());
+        final boolean value = numericField.getAsBool();
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, numericField.getAsBool());
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == char.class) {
         final char value = (char) (invertBitOrder ? numericField.getAsInvertedBitOrder() :
                 numericField.getAsInt());
-        if (setter == null) {
-          mappingField.setChar(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == short.class) {
         final short value = (short) (invertBitOrder ? numericField.getAsInvertedBitOrder() :
                 numericField.getAsInt());
-        if (setter == null) {
-          mappingField.setShort(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == int.class) {
         final int value =
                 (int) (invertBitOrder ? numericField.getAsInvertedBitOrder() : numericField.getAsInt());
-        if (setter == null) {
-          mappingField.setInt(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == long.class) {
         final long value =
                 (invertBitOrder ? numericField.getAsInvertedBitOrder() : numericField.getAsLong());
-        if (setter == null) {
-          mappingField.setLong(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == float.class) {
         final float value;
@@ -444,10 +541,10 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
                   invertBitOrder ? Float.intBitsToFloat((int) numericField.getAsInvertedBitOrder()) :
                           numericField.getAsFloat();
         }
-        if (setter == null) {
-          mappingField.setFloat(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else if (fieldClass == double.class) {
         final double value;
@@ -458,93 +555,310 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
           value = invertBitOrder ? Double.longBitsToDouble(numericField.getAsInvertedBitOrder()) :
                   numericField.getAsDouble();
         }
-        if (setter == null) {
-          mappingField.setDouble(mappingClassInstance, value);
+        if (handle == null) {
+          record.setValueReflectively(mappingClassInstance, binField, value);
         } else {
-          setter.invoke(mappingClassInstance, value);
+          handle.invokeExact(mappingClassInstance, value);
         }
       } else {
         throw new JBBPMapperException(
                 "Unsupported mapping class field type to be mapped for binary parsed data",
-                (JBBPAbstractField) numericField, mappingClassInstance.getClass(), mappingField, null);
+                binField, mappingClassInstance.getClass(), record.mappingField, null);
       }
-    } catch (IllegalAccessException ex) {
-      throw new JBBPMapperException("Can't get access to a mapping field",
-              (JBBPAbstractField) numericField, mappingClassInstance.getClass(), mappingField, ex);
-    } catch (IllegalArgumentException ex) {
-      throw new JBBPMapperException("Can't set argument to a mapping field",
-              (JBBPAbstractField) numericField, mappingClassInstance.getClass(), mappingField, ex);
-    } catch (InvocationTargetException ex) {
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
       throw new JBBPMapperException("Can't set argument to a mapping field through setter",
-              (JBBPAbstractField) numericField, mappingClassInstance.getClass(), mappingField, ex);
+              binField, mappingClassInstance.getClass(), record.mappingField, ex);
     }
   }
 
   /**
-   * Get a value of a field from a class instance.
+   * Map a parsed structure array to the structure array field of a class instance,
+   * existing array and its elements are reused.
    *
-   * @param classInstance a class instance object
-   * @param getter        method to get field value, can be null
-   * @param classField    a class field which value must be returned, must not be
-   *                      null
+   * @param instance      a class instance, must not be null
+   * @param structArray   a parsed structure array, must not be null
+   * @param mapper        mapper to map structures to elements, must not be null
+   * @param flags         mapping flags, if {@link JBBPMapper#FLAG_REUSE_EXISTING_VALUES} is set then existing array with different length
+   *                      is reallocated instead of error
+   * @param instantiators functions to produce class instances, must not be null
+   * @since 3.0.3
+   */
+  void mapStructArray(final Object instance, final JBBPFieldArrayStruct structArray,
+                      final StructMapper mapper,
+                      final int flags,
+                      final Function<Class<?>, Object>[] instantiators) {
+    final Class<?> componentType = this.mappingField.getType().getComponentType();
+    final Object valueArray = this.prepareStructArray(this.getValue(instance), structArray.size(),
+        flags, structArray);
+
+    final ParallelMapping parallel = ParallelMapping.current();
+    if (parallel != null && parallel.isParallel(structArray.size())) {
+      for (int i = 0; i < structArray.size(); i++) {
+        if (Array.get(valueArray, i) == null) {
+          Array.set(valueArray, i,
+              this.tryMakeInstance(componentType, structArray, instance, instantiators));
+        }
+      }
+      parallel.forEach(structArray.size(), i -> Array.set(valueArray, i,
+          mapper.map(structArray.getElementAt(i), Array.get(valueArray, i))));
+    } else {
+      for (int i = 0; i < structArray.size(); i++) {
+        final Object curInstance = Array.get(valueArray, i);
+        Array.set(valueArray, i, mapper.map(structArray.getElementAt(i), curInstance == null ?
+            this.tryMakeInstance(componentType, structArray, instance, instantiators) :
+            curInstance));
+      }
+    }
+    this.setValue(instance, structArray, valueArray);
+  }
+
+  /**
+   * Prepare array for the structure array field.
+   *
+   * @param existing current value of the field, can be null
+   * @param length   required length of the array
+   * @param flags    mapping flags
+   * @param binField parsed field for error messages, can be null
+   * @return the existing array if it has the required length, new array otherwise
+   * @throws JBBPMapperException if existing array has different length and reuse of existing values is not allowed
+   * @since 3.0.3
+   */
+  Object prepareStructArray(final Object existing, final int length, final int flags,
+                            final JBBPAbstractField binField) {
+    if (existing == null) {
+      return Array.newInstance(this.mappingField.getType().getComponentType(), length);
+    }
+    final int existingLength = Array.getLength(existing);
+    if (existingLength == length) {
+      return existing;
+    }
+    if ((flags & JBBPMapper.FLAG_REUSE_EXISTING_VALUES) == 0) {
+      throw new JBBPMapperException(
+          "Can't map an array field for different expected size [" +
+              existingLength + "!=" + length + ']', binField,
+          this.mappingClass, this.mappingField, null);
+    }
+    final Object result =
+        Array.newInstance(this.mappingField.getType().getComponentType(), length);
+    System.arraycopy(existing, 0, result, 0, Math.min(existingLength, length));
+    return result;
+  }
+
+  /**
+   * Map a parsed structure to the structure field of a class instance, existing field value is reused.
+   *
+   * @param instance      a class instance, must not be null
+   * @param struct        a parsed structure, must not be null
+   * @param mapper        mapper to map the structure, must not be null
+   * @param instantiators functions to produce class instances, must not be null
+   * @since 3.0.3
+   */
+  void mapStruct(final Object instance, final JBBPFieldStruct struct, final StructMapper mapper,
+                 final Function<Class<?>, Object>[] instantiators) {
+    final Object curValue = this.getValue(instance);
+    if (curValue == null) {
+      if (this.instanceMaker == null) {
+        this.setValue(instance, struct, mapper.map(struct,
+            this.tryMakeInstance(this.mappingField.getType(), struct, instance, instantiators)));
+      } else {
+        try {
+          mapper.map(struct, this.instanceMaker.invoke(instance));
+        } catch (Exception ex) {
+          throw new JBBPMapperException(
+              "Can't map field which member generated by instance", struct,
+              this.mappingClass, this.mappingField, ex);
+        }
+      }
+    } else {
+      this.setValue(instance, struct, mapper.map(struct, curValue));
+    }
+  }
+
+  /**
+   * Make new instance for the structure field of a class instance, the field instance maker is used if presented.
+   *
+   * @param instance      a class instance, must not be null
+   * @param instantiators functions to produce class instances, must not be null
+   * @return created instance, must not be null
+   * @since 3.0.3
+   */
+  Object makeStructInstance(final Object instance,
+                            final Function<Class<?>, Object>[] instantiators) {
+    if (this.instanceMaker == null) {
+      return this.tryMakeInstance(this.mappingField.getType(), null, instance, instantiators);
+    } else {
+      try {
+        return this.instanceMaker.invoke(instance);
+      } catch (Exception ex) {
+        throw new JBBPMapperException(
+            "Can't map field which member generated by instance", null,
+            this.mappingClass, this.mappingField, ex);
+      }
+    }
+  }
+
+  /**
+   * Make new element for the structure array field of a class instance.
+   *
+   * @param instance      a class instance, must not be null
+   * @param instantiators functions to produce class instances, must not be null
+   * @return created element, must not be null
+   * @since 3.0.3
+   */
+  Object makeStructArrayElement(final Object instance,
+                                final Function<Class<?>, Object>[] instantiators) {
+    return this.tryMakeInstance(this.mappingField.getType().getComponentType(), null, instance,
+        instantiators);
+  }
+
+  /**
+   * Get value of the field from a class instance.
+   *
+   * @param classInstance a class instance object, must not be null
    * @return the field value for the class instance
+   * @throws JBBPMapperException if the value can't be read
+   * @since 3.0.3
    */
-  private static Object getFieldValue(final Object classInstance, final Method getter,
-                                      final Field classField) {
+  public Object getValue(final Object classInstance) {
     try {
-      if (getter == null) {
-        return classField.get(classInstance);
+      if (this.valueGetter == null) {
+        if (this.getter == null) {
+          return this.mappingField.get(classInstance);
+        } else {
+          return this.getter.invoke(classInstance);
+        }
       } else {
-        return getter.invoke(classInstance);
+        return (Object) this.valueGetter.invokeExact(classInstance);
       }
     } catch (IllegalArgumentException ex) {
       throw new JBBPMapperException("Can't set get value from a mapping field", null,
-              classInstance.getClass(), classField, ex);
+              classInstance.getClass(), this.mappingField, ex);
+    } catch (ClassCastException ex) {
+      throw new JBBPMapperException("Can't set get value from a mapping field", null,
+              classInstance.getClass(), this.mappingField, ex);
     } catch (IllegalAccessException ex) {
       throw new JBBPMapperException("Can't get access to a mapping field", null,
-              classInstance.getClass(), classField, ex);
-    } catch (InvocationTargetException ex) {
+              classInstance.getClass(), this.mappingField, ex);
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
       throw new JBBPMapperException("Can't get field value through getter", null,
-              classInstance.getClass(), classField, ex);
+              classInstance.getClass(), this.mappingField, ex);
     }
   }
 
   /**
-   * Set a value to a field of a class instance. Can't be used for static
-   * fields!
+   * Get value of integral primitive, char or their wrapper field as long without boxing for primitive fields.
    *
-   * @param classInstance a class instance
-   * @param setter        setter for the field, can be null
-   * @param classField    a mapping class field which should be set by the value,
-   *                      must not be null
+   * @param classInstance a class instance object, must not be null
+   * @return the field value as long
+   * @throws JBBPMapperException if the value can't be read
+   * @since 3.0.3
+   */
+  public long getValueAsLong(final Object classInstance) {
+    if (this.valueLongGetter == null) {
+      final Object value = this.getValue(classInstance);
+      return value instanceof Character ? (Character) value : ((Number) value).longValue();
+    }
+    try {
+      return (long) this.valueLongGetter.invokeExact(classInstance);
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new JBBPMapperException("Can't get field value through getter", null,
+          classInstance.getClass(), this.mappingField, ex);
+    }
+  }
+
+  /**
+   * Get value of numeric field as double without boxing for float and double fields.
+   *
+   * @param classInstance a class instance object, must not be null
+   * @return the field value as double
+   * @throws JBBPMapperException if the value can't be read
+   * @since 3.0.3
+   */
+  public double getValueAsDouble(final Object classInstance) {
+    if (this.valueDoubleGetter == null) {
+      if (this.valueLongGetter != null) {
+        return this.getValueAsLong(classInstance);
+      }
+      return ((Number) this.getValue(classInstance)).doubleValue();
+    }
+    try {
+      return (double) this.valueDoubleGetter.invokeExact(classInstance);
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new JBBPMapperException("Can't get field value through getter", null,
+          classInstance.getClass(), this.mappingField, ex);
+    }
+  }
+
+  /**
+   * Set a value to the field of a class instance.
+   *
+   * @param classInstance a class instance, must not be null
    * @param binField      a parsed bin field which value will be set, can be null
    * @param value         a value to be set to the class field
+   * @throws JBBPMapperException if the value can't be set
+   * @since 3.0.3
    */
-  static void setFieldValue(final Object classInstance, final Method setter, final Field classField,
-                            final JBBPAbstractField binField, final Object value) {
+  public void setValue(final Object classInstance, final JBBPAbstractField binField,
+                       final Object value) {
+    if (this.valueSetter == null || this.mappingField.getType().isPrimitive()) {
+      this.setValueReflectively(classInstance, binField, value);
+    } else {
+      try {
+        this.valueSetter.invokeExact(classInstance, value);
+      } catch (ClassCastException ex) {
+        throw new JBBPMapperException("Can't set value to a mapping field", binField,
+                classInstance.getClass(), this.mappingField, ex);
+      } catch (RuntimeException ex) {
+        throw ex;
+      } catch (Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new JBBPMapperException("Can't set field value through setter", binField,
+                classInstance.getClass(), this.mappingField, ex);
+      }
+    }
+  }
+
+  private void setValueReflectively(final Object classInstance, final JBBPAbstractField binField,
+                                    final Object value) {
     try {
-      if (setter == null) {
-        classField.set(classInstance, value);
+      if (this.setter == null) {
+        this.mappingField.set(classInstance, value);
       } else {
-        setter.invoke(classInstance, value);
+        this.setter.invoke(classInstance, value);
       }
     } catch (IllegalArgumentException ex) {
       throw new JBBPMapperException("Can't set value to a mapping field", binField,
-              classInstance.getClass(), classField, ex);
+              classInstance.getClass(), this.mappingField, ex);
     } catch (IllegalAccessException ex) {
       throw new JBBPMapperException("Can't get access to a mapping field", binField,
-              classInstance.getClass(), classField, ex);
+              classInstance.getClass(), this.mappingField, ex);
     } catch (InvocationTargetException ex) {
       throw new JBBPMapperException("Can't set field value through setter", binField,
-              classInstance.getClass(), classField, ex);
+              classInstance.getClass(), this.mappingField, ex);
     }
   }
 
-  private static <T> T tryMakeInstance(
+  private <T> T tryMakeInstance(
           final Class<T> type,
           final JBBPAbstractField binField,
           final Object mappingObject,
-          final Field mappingField,
           final Function<Class<?>, Object>[] instantiators
   ) {
     T result = null;
@@ -556,45 +870,77 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
     }
 
     if (result == null) {
-      Exception detectedException = null;
-      try {
-        final Method method =
-                mappingObject.getClass().getMethod(MAKE_CLASS_INSTANCE_METHOD_NAME, Class.class);
-        if (!Modifier.isStatic(method.getModifiers())) {
+      if (this.mappingClassInstanceMaker != null
+          && mappingObject.getClass() == this.mappingClass) {
+        try {
           result = type.cast(
-                  mappingObject.getClass().getMethod(MAKE_CLASS_INSTANCE_METHOD_NAME, Class.class)
-                          .invoke(mappingObject, type));
+              (Object) this.mappingClassInstanceMaker.invokeExact(mappingObject, (Class<?>) type));
+        } catch (RuntimeException ex) {
+          throw ex;
+        } catch (Error ex) {
+          throw ex;
+        } catch (Throwable ex) {
+          throw new RuntimeException(String
+                  .format("Error during %s(%s) call", MAKE_CLASS_INSTANCE_METHOD_NAME,
+                          mappingObject.getClass()), ex);
+        }
+      } else {
+        Exception detectedException = null;
+        try {
+          final Method method =
+                  mappingObject.getClass().getMethod(MAKE_CLASS_INSTANCE_METHOD_NAME, Class.class);
+          if (!Modifier.isStatic(method.getModifiers())) {
+            result = type.cast(method.invoke(mappingObject, type));
+          }
+        } catch (NoSuchMethodException ex) {
+          // do nothing
+        } catch (IllegalAccessException ex) {
+          // WARNING! Don't replace by multi-catch for Android compatibility!
+          detectedException = ex;
+        } catch (InvocationTargetException ex) {
+          detectedException = ex;
         }
-      } catch (NoSuchMethodException ex) {
-        // do nothing
-      } catch (IllegalAccessException ex) {
-        // WARNING! Don't replace by multi-catch for Android compatibility!
-        detectedException = ex;
-      } catch (InvocationTargetException ex) {
-        detectedException = ex;
-      }
 
-      if (detectedException != null) {
-        throw new RuntimeException(String
-                .format("Error during %s(%s) call", MAKE_CLASS_INSTANCE_METHOD_NAME,
-                        mappingObject.getClass()), detectedException);
+        if (detectedException != null) {
+          throw new RuntimeException(String
+                  .format("Error during %s(%s) call", MAKE_CLASS_INSTANCE_METHOD_NAME,
+                          mappingObject.getClass()), detectedException);
+        }
       }
 
       if (result == null) {
         result = type.cast(STATIC_MAKE_CLASS_INSTANCE_INSTANTIATOR.apply(type));
         if (result == null) {
-          result = type.cast(DEFAULT_CONSTRUCTOR_INSTANTIATOR.apply(type));
+          if (this.structDefaultConstructor != null && isStructType(type)) {
+            try {
+              result = type.cast((Object) this.structDefaultConstructor.invokeExact());
+            } catch (RuntimeException ex) {
+              throw ex;
+            } catch (Error ex) {
+              throw ex;
+            } catch (Throwable ex) {
+              throw new RuntimeException(
+                  String.format("Error during default constructor call, class %s", type), ex);
+            }
+          } else {
+            result = type.cast(DEFAULT_CONSTRUCTOR_INSTANTIATOR.apply(type));
+          }
         }
       }
 
       if (result == null) {
         throw new JBBPMapperException(String.format("Can't create instance of %s", type), binField,
-                mappingObject.getClass(), mappingField, null);
+                mappingObject.getClass(), this.mappingField, null);
       }
     }
     return result;
   }
 
+  private boolean isStructType(final Class<?> type) {
+    final Class<?> fieldType = this.mappingField.getType();
+    return fieldType == type || fieldType.getComponentType() == type;
+  }
+
   @Override
   public int compareTo(final MappedFieldRecord o) {
     final int thisOrder = this.binAnnotation.order();
@@ -609,6 +955,23 @@ public final class MappedFieldRecord implements Comparable<MappedFieldRecord> {
     return result;
   }
 
+  /**
+   * Mapper of a parsed structure to an object.
+   *
+   * @since 3.0.3
+   */
+  @FunctionalInterface
+  interface StructMapper {
+    /**
+     * Map structure to an object.
+     *
+     * @param struct   parsed structure, must not be null
+     * @param instance object to be filled, must not be null
+     * @return the mapped object
+     */
+    Object map(JBBPFieldStruct struct, Object instance);
+  }
+
   public interface FieldProcessor {
     @SuppressWarnings("unchecked")
     void apply(
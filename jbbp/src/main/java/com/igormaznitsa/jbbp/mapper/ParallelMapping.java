@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.mapper;
+
+import com.igormaznitsa.jbbp.exceptions.JBBPMapperException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Settings of parallel mapping of structure arrays, active settings are bound to the thread called mapping.
+ * Elements are split into chunks which are processed by executor tasks and by the calling thread, so that
+ * the calling thread never waits for a not started chunk. Nested arrays are mapped sequentially.
+ *
+ * @since 3.0.3
+ */
+final class ParallelMapping {
+  private static final ThreadLocal<ParallelMapping> CURRENT = new ThreadLocal<>();
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final Executor executor;
+  private final int threshold;
+  private final int parallelism;
+
+  ParallelMapping(final Executor executor, final int threshold) {
+    this.executor = executor;
+    this.threshold = Math.max(1, threshold);
+    this.parallelism = executor instanceof ForkJoinPool ?
+        ((ForkJoinPool) executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Get parallel mapping settings active for the current thread.
+   *
+   * @return the settings or null if mapping is sequential
+   */
+  static ParallelMapping current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Bind settings to the current thread.
+   *
+   * @param settings settings to be bound, can be null
+   * @return previously bound settings, can be null
+   */
+  static ParallelMapping bind(final ParallelMapping settings) {
+    final ParallelMapping previous = CURRENT.get();
+    if (settings == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(settings);
+    }
+    return previous;
+  }
+
+  /**
+   * Check that number of elements is enough for parallel processing.
+   *
+   * @param size number of elements
+   * @return true if elements should be processed in parallel
+   */
+  boolean isParallel(final int size) {
+    return size >= this.threshold && this.parallelism > 1;
+  }
+
+  /**
+   * Process elements in parallel, every element index is processed exactly once.
+   *
+   * @param size   number of elements
+   * @param action action to process element for its index, must be safe for concurrent calls with different indexes
+   * @throws JBBPMapperException if processing has been interrupted
+   */
+  void forEach(final int size, final IntConsumer action) {
+    final int chunks = Math.min(size, this.parallelism * CHUNKS_PER_THREAD);
+    final int chunkSize = (size + chunks - 1) / chunks;
+    final AtomicInteger nextChunk = new AtomicInteger();
+    final CountDownLatch completed = new CountDownLatch(chunks);
+    final Throwable[] errors = new Throwable[chunks];
+
+    final Runnable worker = () -> {
+      int chunk;
+      while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+        try {
+          final int end = Math.min(size, (chunk + 1) * chunkSize);
+          for (int i = chunk * chunkSize; i < end; i++) {
+            action.accept(i);
+          }
+        } catch (Throwable ex) {
+          errors[chunk] = ex;
+        } finally {
+          completed.countDown();
+        }
+      }
+    };
+
+    for (int i = Math.min(chunks, this.parallelism) - 1; i > 0; i--) {
+      try {
+        this.executor.execute(worker);
+      } catch (RejectedExecutionException ex) {
+        break;
+      }
+    }
+
+    final ParallelMapping current = bind(null);
+    try {
+      worker.run();
+      completed.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new JBBPMapperException("Parallel mapping has been interrupted", null, null, null, ex);
+    } finally {
+      bind(current);
+    }
+
+    for (final Throwable error : errors) {
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      } else if (error instanceof Error) {
+        throw (Error) error;
+      } else if (error != null) {
+        throw new JBBPMapperException("Error during parallel mapping", null, null, null, error);
+      }
+    }
+  }
+}
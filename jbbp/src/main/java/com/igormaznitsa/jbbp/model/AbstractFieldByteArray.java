@@ -37,6 +37,11 @@ abstract class AbstractFieldByteArray<T extends JBBPAbstractField> extends JBBPA
     this.array = array;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public boolean getAsBool(final int index) {
     return this.array[index] != 0;
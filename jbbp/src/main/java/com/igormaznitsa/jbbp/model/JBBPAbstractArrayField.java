@@ -17,6 +17,8 @@
 package com.igormaznitsa.jbbp.model;
 
 import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.io.JBBPInternalKey;
+import java.lang.reflect.Array;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -62,6 +64,51 @@ public abstract class JBBPAbstractArrayField<T extends JBBPAbstractField> extend
    */
   public abstract Object getValueArrayAsObject(boolean reverseBits);
 
+  /**
+   * Copy values into an existing array of the same type and length, it allows to fill long-living objects
+   * without allocation of new value arrays.
+   *
+   * @param target      target array, must not be null
+   * @param reverseBits reverse bit order in values
+   * @return true if values have been copied, false if the target array has different type or length
+   * @since 3.0.3
+   */
+  public boolean copyValueArrayTo(final Object target, final boolean reverseBits) {
+    final Object values = reverseBits ? this.getValueArrayAsObject(true) : this.getValueArray();
+    if (target.getClass() != values.getClass()) {
+      return false;
+    }
+    final int length = Array.getLength(values);
+    if (Array.getLength(target) != length) {
+      return false;
+    }
+    System.arraycopy(values, 0, target, 0, length);
+    return true;
+  }
+
+  /**
+   * Get array of values without copying, the array must not be changed.
+   *
+   * @return the value array, by default it is a copy made by {@link #getValueArrayAsObject(boolean)}
+   * @since 3.0.3
+   */
+  protected Object getValueArray() {
+    return this.getValueArrayAsObject(false);
+  }
+
+  /**
+   * Get array of values without copying for internal use of the library, the array must not be changed.
+   *
+   * @param key internal key of the library, must not be null
+   * @return the value array, by default it is a copy made by {@link #getValueArrayAsObject(boolean)}
+   * @throws IllegalArgumentException if the key is not the library one
+   * @since 3.0.3
+   */
+  public final Object getValueArray(final JBBPInternalKey key) {
+    JBBPInternalKey.assertKey(key);
+    return this.getValueArray();
+  }
+
   /**
    * Generates an iterator to allow the array processing in loops.
    *
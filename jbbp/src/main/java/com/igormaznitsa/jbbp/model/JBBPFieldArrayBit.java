@@ -117,6 +117,11 @@ public final class JBBPFieldArrayBit extends JBBPAbstractArrayField<JBBPFieldBit
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "bit:" + this.bitNumber.getBitNumber() + " [" + this.array.length + ']';
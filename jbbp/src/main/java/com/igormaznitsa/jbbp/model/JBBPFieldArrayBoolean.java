@@ -85,6 +85,11 @@ public final class JBBPFieldArrayBoolean extends JBBPAbstractArrayField<JBBPFiel
     return this.array.clone();
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "bool " + '[' + this.array.length + ']';
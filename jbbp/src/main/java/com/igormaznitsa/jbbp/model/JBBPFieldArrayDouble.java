@@ -99,6 +99,11 @@ public final class JBBPFieldArrayDouble extends JBBPAbstractArrayField<JBBPField
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return JBBPFieldDouble.TYPE_NAME + " [" + this.array.length + ']';
@@ -99,6 +99,11 @@ public final class JBBPFieldArrayFloat extends JBBPAbstractArrayField<JBBPFieldF
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return JBBPFieldFloat.TYPE_NAME + " [" + this.array.length + ']';
@@ -94,6 +94,11 @@ public final class JBBPFieldArrayInt extends JBBPAbstractArrayField<JBBPFieldInt
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "int " + '[' + this.array.length + ']';
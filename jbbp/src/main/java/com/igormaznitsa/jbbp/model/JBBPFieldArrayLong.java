@@ -94,6 +94,11 @@ public final class JBBPFieldArrayLong extends JBBPAbstractArrayField<JBBPFieldLo
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "long " + '[' + this.array.length + ']';
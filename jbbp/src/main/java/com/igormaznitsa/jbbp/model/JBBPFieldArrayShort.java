@@ -94,6 +94,11 @@ public final class JBBPFieldArrayShort extends JBBPAbstractArrayField<JBBPFieldS
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "short " + '[' + this.array.length + ']';
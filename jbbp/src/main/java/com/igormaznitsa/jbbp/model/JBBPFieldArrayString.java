@@ -75,6 +75,11 @@ public final class JBBPFieldArrayString extends JBBPAbstractArrayField<JBBPField
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return JBBPFieldString.TYPE_NAME + " [" + this.array.length + ']';
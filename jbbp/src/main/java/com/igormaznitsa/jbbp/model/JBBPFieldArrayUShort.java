@@ -94,6 +94,11 @@ public final class JBBPFieldArrayUShort extends JBBPAbstractArrayField<JBBPField
     return result;
   }
 
+  @Override
+  protected Object getValueArray() {
+    return this.array;
+  }
+
   @Override
   public String getTypeAsString() {
     return "ushort " + '[' + this.array.length + ']';
@@ -28,6 +28,7 @@ import com.igormaznitsa.jbbp.model.finder.JBBPFieldFinder;
 import com.igormaznitsa.jbbp.utils.Function;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Describes a structure.
@@ -43,6 +44,29 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
    */
   private final JBBPAbstractField[] fields;
 
+  /**
+   * Minimal number of children to build hash index for names.
+   *
+   * @since 3.0.3
+   */
+  public static final int NAME_INDEX_THRESHOLD = 16;
+
+  /**
+   * Number of slots in path lookup cache, must be power of two.
+   */
+  private static final int PATH_CACHE_SIZE = 8;
+
+  /**
+   * Shared lookup state shows that only one path lookup has been made for the structure.
+   */
+  private static final Lookup FIRST_PATH_LOOKUP_MADE = new Lookup(null, null, true);
+
+  /**
+   * Lookup helpers of the structure, null until the first search so that not searched structures keep only one
+   * reference for them.
+   */
+  private transient volatile Lookup lookup;
+
   /**
    * A Constructor.
    *
@@ -74,8 +98,46 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
     return this.fields.clone();
   }
 
+  /**
+   * Get number of fields in the structure.
+   *
+   * @return number of fields
+   * @since 3.0.3
+   */
+  public int size() {
+    return this.fields.length;
+  }
+
+  /**
+   * Get a structure field for its index, the array of fields is not copied.
+   *
+   * @param index index of the field
+   * @return the field, must not be null
+   * @since 3.0.3
+   */
+  public JBBPAbstractField getElementAt(final int index) {
+    return this.fields[index];
+  }
+
   @Override
   public JBBPAbstractField findFieldForPath(final String fieldPath) {
+    final Lookup currentLookup = this.lookup;
+    PathCacheEntry[] cache = currentLookup == null ? null : currentLookup.pathCache;
+    final int slot = fieldPath.hashCode() & (PATH_CACHE_SIZE - 1);
+    if (cache != null) {
+      final PathCacheEntry entry = cache[slot];
+      if (entry != null && entry.path.equals(fieldPath)) {
+        return entry.field;
+      }
+    } else if (currentLookup == null) {
+      this.lookup = FIRST_PATH_LOOKUP_MADE;
+    } else if (currentLookup.pathLookupMade) {
+      cache = new PathCacheEntry[PATH_CACHE_SIZE];
+      this.lookup = new Lookup(currentLookup.nameIndex, cache, true);
+    } else {
+      this.lookup = new Lookup(currentLookup.nameIndex, null, true);
+    }
+
     final String[] parsedName =
             JBBPUtils.splitString(JBBPUtils.normalizeFieldNameOrPath(fieldPath), '.');
 
@@ -92,7 +154,7 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
 
     for (int i = firstIndex; found != null && i < parsedName.length; i++) {
       if (found instanceof JBBPFieldStruct) {
-        found = ((JBBPFieldStruct) found).findFieldForName(parsedName[i]);
+        found = ((JBBPFieldStruct) found).findFieldForNormalizedName(parsedName[i]);
       } else {
         throw new JBBPFinderException(
                 "Detected a field instead of a structure as one of nodes in the path '" + fieldPath +
@@ -100,19 +162,80 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
       }
     }
 
+    if (cache != null) {
+      cache[slot] = new PathCacheEntry(fieldPath, found);
+    }
     return found;
   }
 
   @Override
   public JBBPAbstractField findFieldForName(final String name) {
-    final String normalizedName = JBBPUtils.normalizeFieldNameOrPath(name);
+    return this.findFieldForNormalizedName(JBBPUtils.normalizeFieldNameOrPath(name));
+  }
 
-    JBBPAbstractField result = null;
+  private JBBPAbstractField findFieldForNormalizedName(final String normalizedName) {
+    final int index = this.findIndexForNormalizedName(normalizedName);
+    return index < 0 ? null : this.fields[index];
+  }
 
-    for (final JBBPAbstractField f : this.fields) {
-      if (normalizedName.equals(f.getFieldName())) {
-        result = f;
-        break;
+  /**
+   * Find index of the first field with the normalized name. Wide structures use lazily built hash index, small ones are scanned.
+   *
+   * @param normalizedName normalized field name, must not be null
+   * @return index of the first field with the name or -1 if not found
+   */
+  private int findIndexForNormalizedName(final String normalizedName) {
+    final JBBPAbstractField[] array = this.fields;
+    if (array.length < NAME_INDEX_THRESHOLD) {
+      for (int i = 0; i < array.length; i++) {
+        if (normalizedName.equals(array[i].getFieldName())) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    final Lookup currentLookup = this.lookup;
+    int[] index = currentLookup == null ? null : currentLookup.nameIndex;
+    if (index == null) {
+      index = makeNameIndex(array);
+      this.lookup = currentLookup == null ? new Lookup(index, null, false) :
+          new Lookup(index, currentLookup.pathCache, currentLookup.pathLookupMade);
+    }
+
+    final int mask = index.length - 1;
+    int slot = mix(normalizedName.hashCode()) & mask;
+    while (true) {
+      final int value = index[slot];
+      if (value == 0) {
+        return -1;
+      }
+      if (normalizedName.equals(array[value - 1].getFieldName())) {
+        return value - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private static int mix(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int[] makeNameIndex(final JBBPAbstractField[] array) {
+    int capacity = Integer.highestOneBit(array.length) << 2;
+    final int[] result = new int[capacity];
+    final int mask = capacity - 1;
+    for (int i = 0; i < array.length; i++) {
+      final String name = array[i].getFieldName();
+      if (name == null) {
+        continue;
+      }
+      int slot = mix(name.hashCode()) & mask;
+      while (result[slot] != 0 && !name.equals(array[result[slot] - 1].getFieldName())) {
+        slot = (slot + 1) & mask;
+      }
+      if (result[slot] == 0) {
+        result[slot] = i + 1;
       }
     }
     return result;
@@ -173,10 +296,14 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
 
     T result = null;
 
-    for (final JBBPAbstractField f : this.fields) {
-      if (fieldType.isAssignableFrom(f.getClass()) && normalizedName.equals(f.getFieldName())) {
-        result = fieldType.cast(f);
-        break;
+    final int firstIndex = this.findIndexForNormalizedName(normalizedName);
+    if (firstIndex >= 0) {
+      for (int i = firstIndex; i < this.fields.length; i++) {
+        final JBBPAbstractField f = this.fields[i];
+        if (fieldType.isAssignableFrom(f.getClass()) && normalizedName.equals(f.getFieldName())) {
+          result = fieldType.cast(f);
+          break;
+        }
       }
     }
     return result;
@@ -184,17 +311,7 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
 
   @Override
   public boolean nameExists(final String fieldName) {
-    final String normalizedName = JBBPUtils.normalizeFieldNameOrPath(fieldName);
-
-    boolean result = false;
-
-    for (final JBBPAbstractField f : this.fields) {
-      if (normalizedName.equals(f.getFieldName())) {
-        result = true;
-        break;
-      }
-    }
-    return result;
+    return this.findIndexForNormalizedName(JBBPUtils.normalizeFieldNameOrPath(fieldName)) >= 0;
   }
 
   @Override
@@ -462,8 +579,67 @@ public final class JBBPFieldStruct extends JBBPAbstractField implements JBBPFiel
     return JBBPMapper.map(this, objectToMap, customFieldProcessor, flags, binFieldFilter, instantiators);
   }
 
+  /**
+   * Map the structure fields to object fields, large structure arrays are mapped in parallel.
+   *
+   * @param <T>               expected result type
+   * @param objectToMap       an object to map fields of the structure, must not be null
+   * @param flags             special flags to tune mapping process
+   * @param executor          executor to map elements of large structure arrays, must not be null
+   * @param parallelThreshold min number of elements in a structure array to map it in parallel
+   * @param instantiators     array of functions which can instantiate object of required class, must not be null
+   * @return the same object from the arguments but with filled fields by values
+   * of the structure
+   * @see JBBPMapper#map(JBBPFieldStruct, Object, JBBPMapperCustomFieldProcessor, int, BinFieldFilter, Executor, int, Function[])
+   * @see JBBPMapper#DEFAULT_PARALLEL_THRESHOLD
+   * @since 3.0.3
+   */
+  @SafeVarargs
+  public final <T> T mapTo(final T objectToMap, final int flags, final Executor executor,
+                           final int parallelThreshold,
+                           final Function<Class<?>, Object>... instantiators) {
+    return JBBPMapper.map(this, objectToMap, null, flags, null, executor, parallelThreshold,
+        instantiators);
+  }
+
   @Override
   public String getTypeAsString() {
     return "{}";
   }
+
+  /**
+   * Immutable holder of lookup helpers, replaced as a whole when a helper is made.
+   */
+  private static final class Lookup {
+    /**
+     * Open addressing hash table contains field index plus one for field names, built only for wide structures.
+     */
+    private final int[] nameIndex;
+    /**
+     * Cache of found fields for paths, allocated only on the second path lookup so that structures searched once
+     * don't pay for it.
+     */
+    private final PathCacheEntry[] pathCache;
+    /**
+     * Flag shows that a path lookup has been already made for the structure.
+     */
+    private final boolean pathLookupMade;
+
+    private Lookup(final int[] nameIndex, final PathCacheEntry[] pathCache,
+                   final boolean pathLookupMade) {
+      this.nameIndex = nameIndex;
+      this.pathCache = pathCache;
+      this.pathLookupMade = pathLookupMade;
+    }
+  }
+
+  private static final class PathCacheEntry {
+    private final String path;
+    private final JBBPAbstractField field;
+
+    private PathCacheEntry(final String path, final JBBPAbstractField field) {
+      this.path = path;
+      this.field = field;
+    }
+  }
 }
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.model.finder;
+
+import com.igormaznitsa.jbbp.compiler.JBBPCompiledBlock;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.compiler.conversion.CompiledBlockVisitor;
+import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
+import com.igormaznitsa.jbbp.compiler.varlen.JBBPIntegerValueEvaluator;
+import com.igormaznitsa.jbbp.exceptions.JBBPFinderException;
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Field path compiled once against a compiled block. It keeps chain of child indexes from the root structure
+ * to the field, so that search of the field in any structure produced by a parser of the compiled block needs
+ * only one index check per path level and doesn't make any string operations.
+ * The object is immutable and thread safe.
+ *
+ * @since 3.0.3
+ */
+public final class JBBPPath {
+
+  private final String path;
+  private final JBBPNamedFieldInfo[] levelFields;
+  private final int[] levelIndexes;
+
+  private JBBPPath(final String path, final JBBPNamedFieldInfo[] levelFields,
+                   final int[] levelIndexes) {
+    this.path = path;
+    this.levelFields = levelFields;
+    this.levelIndexes = levelIndexes;
+  }
+
+  /**
+   * Compile a field path against a compiled block.
+   *
+   * @param compiledBlock compiled block of a parser, must not be null
+   * @param fieldPath     path to a field, must not be null
+   * @return compiled path, must not be null
+   * @throws IllegalArgumentException if the path can't be found in the compiled block or it goes through structure array
+   */
+  public static JBBPPath compile(final JBBPCompiledBlock compiledBlock, final String fieldPath) {
+    JBBPUtils.assertNotNull(compiledBlock, "Compiled block must not be null");
+    final String normalizedPath = JBBPUtils.normalizeFieldNameOrPath(fieldPath);
+    final JBBPNamedFieldInfo target = compiledBlock.findFieldForPath(normalizedPath);
+    if (target == null) {
+      throw new IllegalArgumentException("Can't find field for path '" + fieldPath + '\'');
+    }
+
+    final ChainDetector detector = new ChainDetector(compiledBlock, target);
+    detector.visit();
+    if (detector.chain == null) {
+      throw new IllegalArgumentException(
+          "Path '" + fieldPath + "' goes through structure array or can't be reached");
+    }
+
+    final int depth = detector.chain.size();
+    final JBBPNamedFieldInfo[] fields = new JBBPNamedFieldInfo[depth];
+    final int[] indexes = new int[depth];
+    for (int i = 0; i < depth; i++) {
+      final Level level = detector.chain.get(i);
+      fields[i] = level.field;
+      indexes[i] = level.index;
+    }
+    return new JBBPPath(normalizedPath, fields, indexes);
+  }
+
+  /**
+   * Get normalized path of the field.
+   *
+   * @return the path, must not be null
+   */
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Get depth of the path, number of structure levels to be passed plus one.
+   *
+   * @return depth of the path
+   */
+  public int getDepth() {
+    return this.levelIndexes.length;
+  }
+
+  /**
+   * Find field in a root structure produced by a parser of the compiled block.
+   * If layout of the structure doesn't correspond to the compiled one (for instance some fields are
+   * skipped because of the end of stream) then fields are searched among structure children.
+   *
+   * @param root root structure produced by parser, must not be null
+   * @return found field or null if not found
+   */
+  public JBBPAbstractField find(final JBBPFieldStruct root) {
+    JBBPAbstractField result = root;
+    for (int level = 0; level < this.levelIndexes.length; level++) {
+      if (!(result instanceof JBBPFieldStruct)) {
+        return null;
+      }
+      final JBBPFieldStruct current = (JBBPFieldStruct) result;
+      final JBBPNamedFieldInfo expected = this.levelFields[level];
+      final int index = this.levelIndexes[level];
+      if (index < current.size() && current.getElementAt(index).getNameInfo() == expected) {
+        result = current.getElementAt(index);
+      } else {
+        result = null;
+        for (int i = 0; i < current.size(); i++) {
+          final JBBPAbstractField field = current.getElementAt(i);
+          if (field.getNameInfo() == expected) {
+            result = field;
+            break;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find field of expected type in a root structure produced by a parser of the compiled block.
+   *
+   * @param <T>       type of the field
+   * @param root      root structure produced by parser, must not be null
+   * @param fieldType expected field class, must not be null
+   * @return found field or null if not found or it has another type
+   */
+  public <T extends JBBPAbstractField> T find(final JBBPFieldStruct root, final Class<T> fieldType) {
+    final JBBPAbstractField field = this.find(root);
+    return fieldType.isInstance(field) ? fieldType.cast(field) : null;
+  }
+
+  /**
+   * Get field value as integer.
+   *
+   * @param root root structure produced by parser, must not be null
+   * @return integer value of the field
+   * @throws JBBPFinderException if the field is not found or it is not numeric one
+   */
+  public int getInt(final JBBPFieldStruct root) {
+    return this.findNumeric(root).getAsInt();
+  }
+
+  /**
+   * Get field value as long.
+   *
+   * @param root root structure produced by parser, must not be null
+   * @return long value of the field
+   * @throws JBBPFinderException if the field is not found or it is not numeric one
+   */
+  public long getLong(final JBBPFieldStruct root) {
+    return this.findNumeric(root).getAsLong();
+  }
+
+  private JBBPNumericField findNumeric(final JBBPFieldStruct root) {
+    final JBBPAbstractField field = this.find(root);
+    if (field == null) {
+      throw new JBBPFinderException("Can't find field for path '" + this.path + '\'', this.path,
+          null);
+    }
+    if (!(field instanceof JBBPNumericField)) {
+      throw new JBBPFinderException("Field for path '" + this.path + "' is not numeric one",
+          this.path, null);
+    }
+    return (JBBPNumericField) field;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + '(' + this.path + ')';
+  }
+
+  private static final class Level {
+    private final JBBPNamedFieldInfo field;
+    private final boolean array;
+    private final int index;
+    private int children;
+
+    private Level(final JBBPNamedFieldInfo field, final boolean array, final int index) {
+      this.field = field;
+      this.array = array;
+      this.index = index;
+    }
+  }
+
+  private static final class ChainDetector extends CompiledBlockVisitor {
+    private final JBBPNamedFieldInfo target;
+    private final List<Level> stack = new ArrayList<>();
+    private List<Level> chain;
+
+    private ChainDetector(final JBBPCompiledBlock compiledBlock,
+                          final JBBPNamedFieldInfo target) {
+      super(0, compiledBlock);
+      this.target = target;
+      this.stack.add(new Level(null, false, -1));
+    }
+
+    private int registerField(final JBBPNamedFieldInfo field) {
+      final Level parent = this.stack.get(this.stack.size() - 1);
+      final int index = parent.children++;
+      if (field != null && field == this.target && this.chain == null) {
+        boolean throughArray = false;
+        final List<Level> result = new ArrayList<>();
+        for (int i = 1; i < this.stack.size(); i++) {
+          final Level level = this.stack.get(i);
+          throughArray |= level.array;
+          result.add(level);
+        }
+        result.add(new Level(field, false, index));
+        if (!throughArray) {
+          this.chain = result;
+        }
+      }
+      return index;
+    }
+
+    @Override
+    public void visitValField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                              final JBBPNamedFieldInfo nameFieldInfo,
+                              final JBBPIntegerValueEvaluator expression) {
+      this.registerField(nameFieldInfo);
+    }
+
+    @Override
+    public void visitPrimitiveField(final int offsetInCompiledBlock, final int primitiveType,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStreamAsArray,
+                                    final boolean altFieldType,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitVarField(final int offsetInCompiledBlock,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                              final JBBPIntegerValueEvaluator nullableArraySize,
+                              final JBBPIntegerValueEvaluator extraDataValue) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitCustomField(final int offsetInCompiledBlock,
+                                 final JBBPFieldTypeParameterContainer notNullFieldType,
+                                 final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                 final JBBPByteOrder byteOrder, final boolean readWholeStream,
+                                 final JBBPIntegerValueEvaluator nullableArraySize,
+                                 final JBBPIntegerValueEvaluator extraDataValue) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitBitField(final int offsetInCompiledBlock, final JBBPByteOrder byteOrder,
+                              final JBBPNamedFieldInfo nullableNameFieldInfo,
+                              final boolean readWholeStream,
+                              final JBBPIntegerValueEvaluator notNullFieldSize,
+                              final JBBPIntegerValueEvaluator nullableArraySize) {
+      this.registerField(nullableNameFieldInfo);
+    }
+
+    @Override
+    public void visitStructureStart(final int offsetInCompiledBlock,
+                                    final JBBPByteOrder byteOrder,
+                                    final boolean readWholeStream,
+                                    final JBBPNamedFieldInfo nullableNameFieldInfo,
+                                    final JBBPIntegerValueEvaluator nullableArraySize) {
+      final int index = this.registerField(nullableNameFieldInfo);
+      this.stack.add(new Level(nullableNameFieldInfo, readWholeStream || nullableArraySize != null,
+          index));
+    }
+
+    @Override
+    public void visitStructureEnd(final int offsetInCompiledBlock,
+                                  final JBBPNamedFieldInfo nullableNameFieldInfo) {
+      this.stack.remove(this.stack.size() - 1);
+    }
+  }
+}
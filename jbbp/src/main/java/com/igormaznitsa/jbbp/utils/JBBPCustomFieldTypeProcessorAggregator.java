@@ -62,6 +62,17 @@ public class JBBPCustomFieldTypeProcessorAggregator implements JBBPCustomFieldTy
     return this.types;
   }
 
+  /**
+   * Find joined processor for a custom field type.
+   *
+   * @param type custom field type, must not be null
+   * @return found processor or null if not found
+   * @since 3.0.3
+   */
+  public JBBPCustomFieldTypeProcessor findProcessor(final String type) {
+    return this.customTypeMap.get(type);
+  }
+
   @Override
   public boolean isAllowed(final JBBPFieldTypeParameterContainer fieldType, final String fieldName,
                            final int extraData, final boolean isArray) {
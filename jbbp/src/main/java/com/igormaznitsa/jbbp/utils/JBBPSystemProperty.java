@@ -30,7 +30,14 @@ public enum JBBPSystemProperty {
   /**
    * The Property allows to define the initial size for array buffer to read whole stream.
    */
-  PROPERTY_INPUT_INITIAL_ARRAY_BUFFER_SIZE("jbbp.input.initial.array.buffer");
+  PROPERTY_INPUT_INITIAL_ARRAY_BUFFER_SIZE("jbbp.input.initial.array.buffer"),
+
+  /**
+   * The Property allows to define max number of classes in the mapper field cache, 0 means not bounded cache.
+   *
+   * @since 3.0.3
+   */
+  PROPERTY_MAPPER_FIELD_CACHE_MAX_SIZE("jbbp.mapper.field.cache.max.size");
 
   /**
    * The name of the property.
@@ -74,6 +74,37 @@ public final class JBBPUtils {
     return bytesArray;
   }
 
+  /**
+   * Calculate length of UTF8 representation of a string without its encoding.
+   * The result is the same as length of array returned by {@link #strToUtf8(String)},
+   * unpaired surrogates are counted as one byte replacement.
+   *
+   * @param str string to be processed, must not be null
+   * @return number of bytes in UTF8 representation of the string
+   * @since 3.0.3
+   */
+  public static int getUtf8Length(final String str) {
+    final int length = str.length();
+    int result = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = str.charAt(i);
+      if (c < 0x80) {
+        result++;
+      } else if (c < 0x800) {
+        result += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(str.charAt(i + 1))) {
+        result += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        result++;
+      } else {
+        result += 3;
+      }
+    }
+    return result;
+  }
+
   /**
    * Convert UTF8 byte array into string.
    *
@@ -979,6 +1010,72 @@ public final class JBBPUtils {
     return result;
   }
 
+  /**
+   * Make bad character shift table for Boyer-Moore-Horspool search of a byte sequence.
+   *
+   * @param pattern pattern to be searched, must not be null and must not be empty
+   * @return shift table for all 256 byte values, must not be null
+   * @throws IllegalArgumentException if pattern is empty
+   * @see #indexOf(byte[], int, int, byte[], int[])
+   * @since 3.0.3
+   */
+  public static int[] makeSearchShiftTable(final byte[] pattern) {
+    if (pattern.length == 0) {
+      throw new IllegalArgumentException("Pattern must not be empty");
+    }
+    final int[] result = new int[256];
+    final int last = pattern.length - 1;
+    for (int i = 0; i < result.length; i++) {
+      result[i] = pattern.length;
+    }
+    for (int i = 0; i < last; i++) {
+      result[pattern[i] & 0xFF] = last - i;
+    }
+    return result;
+  }
+
+  /**
+   * Find the first occurrence of a byte sequence in an array area with Boyer-Moore-Horspool algorithm.
+   *
+   * @param array      array to be scanned, must not be null
+   * @param offset     start offset of the area in the array
+   * @param length     length of the area in the array
+   * @param pattern    pattern to be searched, must not be null and must not be empty
+   * @param shiftTable shift table made for the pattern, must not be null
+   * @return index of the first found pattern byte in the array, -1 if not found
+   * @see #makeSearchShiftTable(byte[])
+   * @since 3.0.3
+   */
+  public static int indexOf(final byte[] array, final int offset, final int length,
+                            final byte[] pattern, final int[] shiftTable) {
+    final int last = pattern.length - 1;
+    final byte lastPatternByte = pattern[last];
+    final int end = offset + length - last;
+    if (last == 0) {
+      for (int i = offset; i < end; i++) {
+        if (array[i] == lastPatternByte) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int position = offset;
+    while (position < end) {
+      final byte nextByte = array[position + last];
+      if (nextByte == lastPatternByte) {
+        int i = last - 1;
+        while (i >= 0 && array[position + i] == pattern[i]) {
+          i--;
+        }
+        if (i < 0) {
+          return position;
+        }
+      }
+      position += shiftTable[nextByte & 0xFF];
+    }
+    return -1;
+  }
+
   /**
    * Make mask for value.
    *
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.jbbp.exceptions.JBBPParsingException;
+import com.igormaznitsa.jbbp.io.JBBPBitNumber;
+import com.igormaznitsa.jbbp.io.JBBPBitOrder;
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.io.JBBPOut;
+import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldDouble;
+import com.igormaznitsa.jbbp.model.JBBPFieldFloat;
+import com.igormaznitsa.jbbp.model.JBBPFieldString;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class JBBPFieldPatcherTest {
+
+  private static final String FIELDS =
+      "bit:3 a; <int b; bit:5 c; hdr { ushort d; bit:2 [3] e; bit:6 f; } arr [2] { byte g; bit:4 h; }"
+          + " skip:1; align:4; reset$$; <doublej x; floatj y; bool z; uint u; <long l; bit:7 m;"
+          + " byte [4] tail;";
+
+  private static final String[] PATCHED =
+      new String[] {"a", "b", "c", "hdr.d", "hdr.f", "x", "y", "z", "u", "l", "m"};
+
+  private static void dump(final String prefix, final JBBPAbstractField field,
+                           final List<String> result) {
+    final String path = prefix + (field.getNameInfo() == null ? "_" : field.getFieldName());
+    if (field instanceof JBBPFieldStruct) {
+      for (final JBBPAbstractField f : ((JBBPFieldStruct) field).getArray()) {
+        dump(path + '.', f, result);
+      }
+    } else if (field instanceof JBBPAbstractArrayField) {
+      final JBBPAbstractArrayField<?> array = (JBBPAbstractArrayField<?>) field;
+      for (int i = 0; i < array.size(); i++) {
+        dump(path + '[' + i + "].", array.getElementAt(i), result);
+      }
+    } else if (field instanceof JBBPFieldFloat || field instanceof JBBPFieldDouble) {
+      result.add(path + '=' + ((JBBPNumericField) field).getAsDouble());
+    } else if (field instanceof JBBPFieldString) {
+      result.add(path + '=' + ((JBBPFieldString) field).getAsString());
+    } else {
+      result.add(path + '=' + ((JBBPNumericField) field).getAsLong());
+    }
+  }
+
+  private static List<String> dump(final JBBPParser parser, final byte[] data) throws Exception {
+    final List<String> result = new ArrayList<>();
+    dump("", parser.parse(data), result);
+    return result;
+  }
+
+  private static void assertPatched(final JBBPParser parser, final JBBPFieldPatcher patcher,
+                                    final byte[] original, final byte[] patched,
+                                    final String expectedValue) throws Exception {
+    final List<String> before = dump(parser, original);
+    final List<String> after = dump(parser, patched);
+    assertEquals(before.size(), after.size());
+    final String line = '.' + patcher.getFieldInfo().getFieldPath() + '=';
+    for (int i = 0; i < before.size(); i++) {
+      if (before.get(i).startsWith(line)) {
+        assertEquals(line + expectedValue, after.get(i));
+      } else {
+        assertEquals(before.get(i), after.get(i));
+      }
+    }
+
+    final long offset = patcher.getBitOffset(original);
+    for (int i = 0; i < original.length; i++) {
+      if (i < offset / 8 || i > (offset + patcher.getBitWidth() - 1) / 8) {
+        assertEquals(original[i], patched[i], "Byte " + i);
+      }
+    }
+  }
+
+  @Test
+  public void testStaticOffset_AllBitOrders() throws Exception {
+    final Random rnd = new Random(12345L);
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      final JBBPParser parser = JBBPParser.prepare(FIELDS, bitOrder);
+      final byte[] data = new byte[64];
+      rnd.nextBytes(data);
+      for (final String path : PATCHED) {
+        final JBBPFieldPatcher patcher = JBBPFieldPatcher.prepare(parser, path);
+        assertTrue(patcher.isStaticOffset(), path);
+        final byte[] patched = data.clone();
+        if (path.equals("x") || path.equals("y")) {
+          patcher.setDouble(patched, -3.25d);
+          assertPatched(parser, patcher, data, patched, "-3.25");
+        } else {
+          final long value = rnd.nextLong();
+          patcher.setLong(patched, value);
+          final String expected;
+          switch (patcher.getBitWidth()) {
+            case 8:
+              expected = path.equals("z") ? Long.toString(value == 0L ? 0 : 1)
+                  : Long.toString((long) (byte) value);
+              break;
+            case 16:
+              expected = Long.toString(value & 0xFFFFL);
+              break;
+            case 32:
+              expected = Long.toString(path.equals("u") ? value & 0xFFFFFFFFL : (int) value);
+              break;
+            case 64:
+              expected = Long.toString(value);
+              break;
+            default:
+              expected = Long.toString(value & ((1L << patcher.getBitWidth()) - 1));
+              break;
+          }
+          assertPatched(parser, patcher, data, patched, expected);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDynamicOffset_SameAsStatic() throws Exception {
+    final Random rnd = new Random(777L);
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      final JBBPParser staticParser = JBBPParser.prepare("ubyte n; bit:3 [2] pad;" + FIELDS, bitOrder);
+      final JBBPParser dynamicParser =
+          JBBPParser.prepare("ubyte n; bit:3 [n] pad;" + FIELDS, bitOrder);
+      final byte[] data = new byte[64];
+      rnd.nextBytes(data);
+      data[0] = bitOrder == JBBPBitOrder.MSB0 ? JBBPUtils.reverseBitsInByte((byte) 2) : 2;
+      for (final String path : PATCHED) {
+        final JBBPFieldPatcher staticPatcher = JBBPFieldPatcher.prepare(staticParser, path);
+        final JBBPFieldPatcher dynamicPatcher = JBBPFieldPatcher.prepare(dynamicParser, path);
+        assertTrue(staticPatcher.isStaticOffset());
+        assertFalse(dynamicPatcher.isStaticOffset());
+        assertEquals(staticPatcher.getBitOffset(data), dynamicPatcher.getBitOffset(data), path);
+
+        final long value = rnd.nextLong();
+        final byte[] staticPatched = data.clone();
+        final byte[] dynamicPatched = data.clone();
+        staticPatcher.setLong(staticPatched, value);
+        dynamicPatcher.setLong(dynamicPatched, value);
+        assertArrayEquals(staticPatched, dynamicPatched, path);
+      }
+    }
+  }
+
+  @Test
+  public void testDynamicOffset_ByteBuffer() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(
+        "ubyte len; stringj name; items [len] { bit:3 k; <ushort v; } align:4; bit:1 flag; "
+            + "bit:7 ttl; <ushort checksum;", JBBPBitOrder.MSB0);
+    final byte[] packet = JBBPOut.BeginBin(JBBPBitOrder.MSB0)
+        .Byte(2).String("abc").Bits(JBBPBitNumber.BITS_3, 1).ByteOrder(JBBPByteOrder.LITTLE_ENDIAN)
+        .Short(2).Bits(JBBPBitNumber.BITS_3, 3).Short(4).Align(4).Bit(1)
+        .Bits(JBBPBitNumber.BITS_7, 10).Short(0x1234).End().toByteArray();
+    final byte[] expected = JBBPOut.BeginBin(JBBPBitOrder.MSB0)
+        .Byte(2).String("abc").Bits(JBBPBitNumber.BITS_3, 1).ByteOrder(JBBPByteOrder.LITTLE_ENDIAN)
+        .Short(2).Bits(JBBPBitNumber.BITS_3, 3).Short(4).Align(4).Bit(1)
+        .Bits(JBBPBitNumber.BITS_7, 99).Short(0xABCD).End().toByteArray();
+
+    final byte[] frame = new byte[packet.length + 5];
+    System.arraycopy(packet, 0, frame, 3, packet.length);
+    final ByteBuffer buffer = ByteBuffer.wrap(frame);
+    buffer.position(3);
+    buffer.limit(3 + packet.length);
+
+    final JBBPFieldPatcher ttl = JBBPFieldPatcher.prepare(parser, "ttl");
+    final JBBPFieldPatcher checksum = JBBPFieldPatcher.prepare(parser, "checksum");
+    assertFalse(ttl.isStaticOffset());
+    assertEquals(97L, ttl.getBitOffset(buffer));
+    ttl.setLong(buffer, 99);
+    checksum.setLong(buffer, 0xABCD);
+
+    assertEquals(3, buffer.position());
+    final byte[] result = new byte[packet.length];
+    System.arraycopy(frame, 3, result, 0, result.length);
+    assertArrayEquals(expected, result);
+    assertEquals(0, frame[0]);
+    assertEquals(0, frame[frame.length - 1]);
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(
+        "ubyte len; byte [len] data; stringj s; items [2] { int v; } st { int w; } int last;");
+    assertThrows(IllegalArgumentException.class, () -> JBBPFieldPatcher.prepare(parser, "unknown"));
+    assertThrows(IllegalArgumentException.class, () -> JBBPFieldPatcher.prepare(parser, "data"));
+    assertThrows(IllegalArgumentException.class, () -> JBBPFieldPatcher.prepare(parser, "s"));
+    assertThrows(IllegalArgumentException.class, () -> JBBPFieldPatcher.prepare(parser, "items.v"));
+    assertThrows(IllegalArgumentException.class, () -> JBBPFieldPatcher.prepare(parser, "st"));
+    assertThrows(NullPointerException.class, () -> JBBPFieldPatcher.prepare(null, "len"));
+
+    final JBBPFieldPatcher last = JBBPFieldPatcher.prepare(parser, "last");
+    final JBBPFieldPatcher width = JBBPFieldPatcher.prepare(parser, "st.w");
+    final byte[] data = new byte[] {1, 5, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+    assertEquals(8L * 11, width.getBitOffset(data));
+    assertThrows(JBBPParsingException.class, () -> last.setLong(data, 1));
+    assertThrows(JBBPParsingException.class, () -> width.setLong(new byte[] {1, 5, 0}, 1));
+
+    final JBBPFieldPatcher staticField =
+        JBBPFieldPatcher.prepare(JBBPParser.prepare("int a; int b;"), "b");
+    assertTrue(staticField.isStaticOffset());
+    assertThrows(EOFException.class, () -> staticField.setLong(new byte[7], 1));
+    assertArrayEquals(new byte[] {1, 5, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, data);
+  }
+}
@@ -68,7 +68,13 @@ import com.igormaznitsa.jbbp.utils.TargetSources;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 
 public class JBBPParserTest {
@@ -2613,4 +2619,302 @@ public class JBBPParserTest {
         });
   }
 
+  @Test
+  public void testParseWithResync() throws Exception {
+    final byte[] marker = new byte[] {(byte) 0xCA, (byte) 0xFE};
+    final byte[] data = new byte[] {
+        1, 2, 3,
+        (byte) 0xCA, (byte) 0xFE, 2, 0x11, 0x22,
+        (byte) 0xCA, (byte) 0xFE, 0x7F, 0x33,
+        (byte) 0xCA, (byte) 0xFE, 1, 0x44,
+        (byte) 0xCA
+    };
+
+    final JBBPParser parser = JBBPParser.prepare("ushort magic; ubyte len; byte [len] data;");
+    parser.setExpressionArraySizeController((p, evaluator, field, size) -> {
+      if (size > 16) {
+        throw new JBBPParsingException("Too long array: " + size);
+      }
+      return size;
+    });
+
+    final List<String> events = new ArrayList<>();
+    final long records = parser.parseWithResync(new ByteArrayInputStream(data), marker,
+        new JBBPResyncListener() {
+          @Override
+          public boolean onRecord(final JBBPParser parser, final JBBPFieldStruct record,
+                                  final long recordOffset, final long recordLength) {
+            events.add("R" + recordOffset + ':' + recordLength + ':' +
+                record.findFieldForType(JBBPFieldArrayByte.class).getArray().length);
+            return true;
+          }
+
+          @Override
+          public boolean onSkippedBytes(final JBBPParser parser, final long offset,
+                                        final long length, final Exception cause) {
+            events.add("S" + offset + ':' + length + ':' + (cause == null ? "" :
+                cause.getClass().getSimpleName()));
+            return true;
+          }
+        });
+
+    assertEquals(2L, records);
+    assertEquals(Arrays.asList("S0:3:", "R3:5:2", "S8:4:JBBPParsingException", "R12:4:1",
+        "S16:1:"), events);
+  }
+
+  @Test
+  public void testParseWithResync_TruncatedLastRecordAndStop() throws Exception {
+    final byte[] marker = new byte[] {0x55, (byte) 0xAA};
+    final byte[] data = new byte[] {
+        0x55, (byte) 0xAA, 0x01, 0x02, 0x03, 0x04,
+        0x55, (byte) 0xAA, 0x05, 0x06, 0x07, 0x08,
+        0x55, (byte) 0xAA, 0x09, 0x0A
+    };
+
+    final JBBPParser parser = JBBPParser.prepare("ushort magic; int value;");
+    final List<String> events = new ArrayList<>();
+    final JBBPResyncListener listener = new JBBPResyncListener() {
+      @Override
+      public boolean onRecord(final JBBPParser parser, final JBBPFieldStruct record,
+                              final long recordOffset, final long recordLength) {
+        events.add("R" + recordOffset + ':' + Integer.toHexString(
+            record.findFieldForNameAndType("value", JBBPFieldInt.class).getAsInt()));
+        return true;
+      }
+
+      @Override
+      public boolean onSkippedBytes(final JBBPParser parser, final long offset,
+                                    final long length, final Exception cause) {
+        events.add("S" + offset + ':' + length + ':' + cause.getClass().getSimpleName());
+        return true;
+      }
+    };
+
+    assertEquals(2L, parser.parseWithResync(new ByteArrayInputStream(data), marker, listener));
+    assertEquals(Arrays.asList("R0:1020304", "R6:5060708", "S12:4:JBBPParsingException"),
+        events);
+
+    events.clear();
+    assertEquals(1L, parser.parseWithResync(new ByteArrayInputStream(data), marker,
+        new JBBPResyncListener() {
+          @Override
+          public boolean onRecord(final JBBPParser parser, final JBBPFieldStruct record,
+                                  final long recordOffset, final long recordLength) {
+            listener.onRecord(parser, record, recordOffset, recordLength);
+            return false;
+          }
+
+          @Override
+          public boolean onSkippedBytes(final JBBPParser parser, final long offset,
+                                        final long length, final Exception cause) {
+            return listener.onSkippedBytes(parser, offset, length, cause);
+          }
+        }));
+    assertEquals(Collections.singletonList("R0:1020304"), events);
+  }
+
+  @Test
+  public void testParseWithResync_TransportErrorIsThrown() {
+    final byte[] data = new byte[] {
+        0x55, (byte) 0xAA, 0x01,
+        0x55, (byte) 0xAA, 0x02,
+        0x55, (byte) 0xAA, 0x03
+    };
+    final JBBPVarFieldProcessor varFieldProcessor = new JBBPVarFieldProcessor() {
+      @Override
+      public JBBPAbstractArrayField<? extends JBBPAbstractField> readVarArray(
+          final JBBPBitInputStream inStream, final int arraySize,
+          final JBBPNamedFieldInfo fieldName, final int extraValue,
+          final JBBPByteOrder byteOrder, final JBBPNamedNumericFieldMap numericFieldMap,
+          final JBBPArraySizeLimiter arraySizeLimiter) {
+        fail("Must not be called");
+        return null;
+      }
+
+      @Override
+      public JBBPAbstractField readVarField(final JBBPBitInputStream inStream,
+                                            final JBBPNamedFieldInfo fieldName,
+                                            final int extraValue, final JBBPByteOrder byteOrder,
+                                            final JBBPNamedNumericFieldMap numericFieldMap)
+          throws IOException {
+        final int value = inStream.readByte();
+        if (value == 2) {
+          throw new IOException("Transport failure");
+        }
+        return new JBBPFieldByte(fieldName, (byte) value);
+      }
+    };
+
+    final JBBPParser parser = JBBPParser.prepare("ushort magic; var value;");
+    final List<String> events = new ArrayList<>();
+    final IOException thrown = assertThrows(IOException.class,
+        () -> parser.parseWithResync(new ByteArrayInputStream(data), new byte[] {0x55, (byte) 0xAA},
+            JBBPParser.DEFAULT_RESYNC_MAX_RECORD_LENGTH, varFieldProcessor, null,
+            new JBBPResyncListener() {
+              @Override
+              public boolean onRecord(final JBBPParser parser, final JBBPFieldStruct record,
+                                      final long recordOffset, final long recordLength) {
+                events.add("R" + recordOffset);
+                return true;
+              }
+
+              @Override
+              public boolean onSkippedBytes(final JBBPParser parser, final long offset,
+                                            final long length, final Exception cause) {
+                events.add("S" + offset);
+                return true;
+              }
+            }));
+    assertEquals("Transport failure", thrown.getMessage());
+    assertEquals(Collections.singletonList("R0"), events);
+  }
+
+  @Test
+  public void testParseBatch_ByteArrays() {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; byte [len] data; short tail;");
+    final byte[][] messages = new byte[][] {
+        {1, 0x11, 0x12, 0x13},
+        {2, 0x21, 0x22},
+        {0, 0x31, 0x32},
+        null
+    };
+    final JBBPFieldStruct[] results = new JBBPFieldStruct[messages.length];
+    final Exception[] errors = new Exception[messages.length];
+
+    assertEquals(2, parser.parseBatch(messages, results, errors));
+
+    assertNull(errors[0]);
+    assertArrayEquals(new byte[] {0x11},
+        results[0].findFieldForNameAndType("data", JBBPFieldArrayByte.class).getArray());
+    assertEquals(0x1213, results[0].findFieldForNameAndType("tail", JBBPFieldShort.class).getAsInt());
+
+    assertNull(results[1]);
+    assertTrue(errors[1] instanceof JBBPParsingException);
+
+    assertNull(errors[2]);
+    assertEquals(0, results[2].findFieldForNameAndType("data", JBBPFieldArrayByte.class).size());
+    assertEquals(0x3132, results[2].findFieldForNameAndType("tail", JBBPFieldShort.class).getAsInt());
+
+    assertNull(results[3]);
+    assertTrue(errors[3] instanceof NullPointerException);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> parser.parseBatch(messages, new JBBPFieldStruct[3], null));
+  }
+
+  @Test
+  public void testParseBatch_DirectByteBufferWithOffsets() {
+    final JBBPParser parser = JBBPParser.prepare("bit:4 [2] nibbles; <int value;");
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+    buffer.put(new byte[] {0x21, 1, 0, 0, 0, 0x43, 2, 0, 0, 0, 0x65, 3, 0});
+    buffer.flip();
+
+    final JBBPFieldStruct[] results = new JBBPFieldStruct[3];
+    final Exception[] errors = new Exception[3];
+    assertEquals(2, parser.parseBatch(buffer, new int[] {0, 5, 10, 13}, results, errors));
+
+    assertArrayEquals(new byte[] {1, 2},
+        results[0].findFieldForNameAndType("nibbles", JBBPFieldArrayBit.class).getArray());
+    assertEquals(1, results[0].findFieldForNameAndType("value", JBBPFieldInt.class).getAsInt());
+    assertArrayEquals(new byte[] {3, 4},
+        results[1].findFieldForNameAndType("nibbles", JBBPFieldArrayBit.class).getArray());
+    assertEquals(2, results[1].findFieldForNameAndType("value", JBBPFieldInt.class).getAsInt());
+    assertNull(results[2]);
+    assertTrue(errors[2] instanceof JBBPParsingException);
+    assertEquals(0, buffer.position());
+    assertEquals(13, buffer.limit());
+  }
+
+  @Test
+  public void testParseBatch_Executor() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("int index; ubyte len; byte [len] data;");
+    final int number = 10_000;
+    final byte[][] messages = new byte[number][];
+    for (int i = 0; i < number; i++) {
+      final int len = i % 7;
+      final byte[] message = new byte[5 + (i % 1000 == 0 && len > 0 ? len - 1 : len)];
+      message[0] = (byte) (i >>> 24);
+      message[1] = (byte) (i >>> 16);
+      message[2] = (byte) (i >>> 8);
+      message[3] = (byte) i;
+      message[4] = (byte) len;
+      messages[i] = message;
+    }
+
+    final JBBPFieldStruct[] results = new JBBPFieldStruct[number];
+    final Exception[] errors = new Exception[number];
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertEquals(number - 8,
+          parser.parseBatch(messages, results, errors, null, null, executor));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < number; i++) {
+      if (i % 1000 == 0 && i % 7 != 0) {
+        assertNull(results[i]);
+        assertNotNull(errors[i]);
+      } else {
+        assertNull(errors[i], "Index " + i);
+        assertEquals(i, results[i].findFieldForNameAndType("index", JBBPFieldInt.class).getAsInt());
+        assertEquals(i % 7,
+            results[i].findFieldForNameAndType("data", JBBPFieldArrayByte.class).size());
+      }
+    }
+  }
+
+  @Test
+  public void testParse_FieldSink() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("ubyte len; a [len] { byte b; } c [len-2] { int d; } e { bit:4 f; bit:4; } g [_] { byte h; }");
+    final byte[] data = new byte[] {2, 1, 2, 0x35, 7, 8};
+    final List<String> events = new ArrayList<>();
+    final JBBPFieldStructBuilder builder = new JBBPFieldStructBuilder();
+    parser.parse(new ByteArrayInputStream(data), new JBBPFieldSink() {
+      @Override
+      public void onField(final JBBPAbstractField field) {
+        events.add(field.getFieldName());
+        builder.onField(field);
+      }
+
+      @Override
+      public JBBPFieldSink onStructStart(final JBBPNamedFieldInfo name, final int index) {
+        events.add('<' + name.getFieldName() + index);
+        return builder.onStructStart(name, index);
+      }
+
+      @Override
+      public void onStructEnd(final JBBPNamedFieldInfo name, final int index,
+                              final JBBPFieldSink structSink) {
+        events.add('>' + name.getFieldName() + index);
+        builder.onStructEnd(name, index, structSink);
+      }
+
+      @Override
+      public void onStructArrayStart(final JBBPNamedFieldInfo name, final int length) {
+        events.add('[' + name.getFieldName() + length);
+        builder.onStructArrayStart(name, length);
+      }
+
+      @Override
+      public void onStructArrayEnd(final JBBPNamedFieldInfo name, final int length) {
+        events.add(']' + name.getFieldName() + length);
+        builder.onStructArrayEnd(name, length);
+      }
+    }, null, null, JBBPArraySizeLimiter.NO_LIMIT_FOR_ARRAY_SIZE);
+
+    assertEquals(Arrays.asList("len", "[a2", "<a0", ">a0", "<a1", ">a1", "]a2", "[c0", "]c0",
+        "<e-1", ">e-1", "[g-1", "<g0", ">g0", "<g1", ">g1", "]g2"), events);
+
+    final JBBPFieldStruct built = builder.build(new JBBPNamedFieldInfo("", "", -1));
+    final JBBPFieldStruct parsed = parser.parse(data);
+    assertEquals(parsed.getArray().length, built.getArray().length);
+    assertEquals(2, built.findFieldForNameAndType("a", JBBPFieldArrayStruct.class).size());
+    assertEquals(0, built.findFieldForNameAndType("c", JBBPFieldArrayStruct.class).size());
+    assertEquals(5, built.findFieldForPathAndType("e.f", JBBPFieldBit.class).getAsInt());
+    assertEquals(8, built.findFieldForNameAndType("g", JBBPFieldArrayStruct.class).getElementAt(1)
+        .findFieldForType(JBBPFieldByte.class).getAsInt());
+  }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.jbbp.io.JBBPByteOrder;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayByte;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class JBBPParsingPipelineTest {
+
+  private static byte[] makeLengthPrefixedStream(final int records) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    for (int i = 0; i < records; i++) {
+      final int dataLength = 4 + i % 17;
+      buffer.write(0);
+      buffer.write(dataLength);
+      buffer.write(i >>> 24);
+      buffer.write(i >>> 16);
+      buffer.write(i >>> 8);
+      buffer.write(i);
+      for (int j = 4; j < dataLength; j++) {
+        buffer.write(j);
+      }
+    }
+    return buffer.toByteArray();
+  }
+
+  @Test
+  public void testLengthPrefixed_OrderKeptForManyRecords() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("int id; byte [_] tail;");
+    final int records = 10000;
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(2, JBBPByteOrder.BIG_ENDIAN, false))
+        .setWorkers(4)
+        .setCapacity(16)
+        .start(new ByteArrayInputStream(makeLengthPrefixedStream(records)))) {
+      int counter = 0;
+      JBBPParsingPipeline.Result result;
+      while ((result = pipeline.take()) != null) {
+        assertNull(result.getError());
+        assertEquals(counter, result.getIndex());
+        assertEquals(counter, result.getRecord().findFieldForNameAndType("id", JBBPFieldInt.class)
+            .getAsInt());
+        assertEquals(counter % 17, result.getRecord()
+            .findFieldForNameAndType("tail", JBBPFieldArrayByte.class).size());
+        counter++;
+      }
+      assertEquals(records, counter);
+    }
+  }
+
+  @Test
+  public void testLengthPrefixed_KeepPrefixAndLittleEndian() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("<ushort len; byte [len] data;");
+    final byte[] stream = new byte[] {2, 0, 11, 12, 1, 0, 13};
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(
+            JBBPParsingPipeline.makeLengthPrefixedFramer(2, JBBPByteOrder.LITTLE_ENDIAN, true))
+        .setWorkers(1)
+        .start(Channels.newChannel(new ByteArrayInputStream(stream)))) {
+      final JBBPParsingPipeline.Result first = pipeline.take();
+      assertEquals(4, first.getLength());
+      assertEquals(12, first.getRecord().findFieldForType(JBBPFieldArrayByte.class).getArray()[1]);
+      final JBBPParsingPipeline.Result second = pipeline.take();
+      assertEquals(3, second.getLength());
+      assertEquals(13, second.getRecord().findFieldForType(JBBPFieldArrayByte.class).getArray()[0]);
+      assertNull(pipeline.take());
+    }
+  }
+
+  @Test
+  public void testDelimited_SmallReadsAndEmptyRecords() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("byte [_] data;");
+    final byte[] stream = new byte[] {1, 2, 0x0D, 0x0A, 0x0D, 0x0A, 3, 0x0D, 4, 5, 0x0D, 0x0A, 6};
+    final InputStream slowStream = new ByteArrayInputStream(stream) {
+      @Override
+      public synchronized int read(final byte[] b, final int off, final int len) {
+        return super.read(b, off, Math.min(len, 1));
+      }
+    };
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeDelimitedFramer(new byte[] {0x0D, 0x0A}))
+        .setWorkers(2)
+        .setCapacity(2)
+        .start(new BufferedInputStream(slowStream, 1))) {
+      final byte[][] expected = new byte[][] {{1, 2}, {3, 0x0D, 4, 5}, {6}};
+      for (final byte[] e : expected) {
+        final JBBPParsingPipeline.Result result = pipeline.take();
+        assertNotNull(result);
+        assertEquals(e.length, result.getLength());
+        final byte[] data = result.getRecord().findFieldForType(JBBPFieldArrayByte.class).getArray();
+        assertEquals(Arrays.toString(e), Arrays.toString(data));
+      }
+      assertNull(pipeline.take());
+    }
+  }
+
+  @Test
+  public void testParsingErrorReportedInResult() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("int value;");
+    final byte[] stream = new byte[] {4, 1, 2, 3, 4, 2, 1, 2, 4, 0, 0, 0, 7};
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(1, JBBPByteOrder.BIG_ENDIAN, false))
+        .setWorkers(3)
+        .start(new ByteArrayInputStream(stream))) {
+      assertEquals(0x01020304, pipeline.take().getRecord()
+          .findFieldForType(JBBPFieldInt.class).getAsInt());
+      final JBBPParsingPipeline.Result failed = pipeline.take();
+      assertNull(failed.getRecord());
+      assertNotNull(failed.getError());
+      assertEquals(7, pipeline.take().getRecord().findFieldForType(JBBPFieldInt.class).getAsInt());
+      assertNull(pipeline.take());
+    }
+  }
+
+  @Test
+  public void testFramingErrorThrownAfterReadRecords() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("byte [_] data;");
+    final byte[] stream = new byte[] {1, 1, 5, 1, 2};
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(1, JBBPByteOrder.BIG_ENDIAN, false))
+        .start(new ByteArrayInputStream(stream))) {
+      assertNotNull(pipeline.take());
+      assertThrows(EOFException.class, pipeline::take);
+      assertNull(pipeline.take());
+    }
+  }
+
+  @Test
+  public void testTooLongRecord() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("byte [_] data;");
+    try (JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(1, JBBPByteOrder.BIG_ENDIAN, false))
+        .setMaxRecordLength(4)
+        .start(new ByteArrayInputStream(new byte[] {5, 1, 2, 3, 4, 5}))) {
+      assertThrows(IOException.class, pipeline::take);
+    }
+  }
+
+  @Test
+  public void testCustomThreadFactoryAndClose() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("int value;");
+    final AtomicInteger createdThreads = new AtomicInteger();
+    final JBBPParsingPipeline pipeline = JBBPParsingPipeline.makeBuilder(parser)
+        .setFramer(JBBPParsingPipeline.makeLengthPrefixedFramer(1, JBBPByteOrder.BIG_ENDIAN, false))
+        .setWorkers(2)
+        .setCapacity(2)
+        .setThreadFactory(r -> {
+          createdThreads.incrementAndGet();
+          final Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          return thread;
+        })
+        .start(new ByteArrayInputStream(makeLengthPrefixedStream(1000)));
+    assertEquals(3, createdThreads.get());
+    assertNotNull(pipeline.take());
+    pipeline.close();
+    assertTrue(pipeline.isClosed());
+    assertNull(pipeline.take());
+  }
+
+  @Test
+  public void testBuilderArguments() {
+    final JBBPParser parser = JBBPParser.prepare("byte a;");
+    assertThrows(NullPointerException.class, () -> JBBPParsingPipeline.makeBuilder(null));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPParsingPipeline.makeBuilder(parser).setWorkers(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPParsingPipeline.makeBuilder(parser).setCapacity(0));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPParsingPipeline.makeLengthPrefixedFramer(5, JBBPByteOrder.BIG_ENDIAN, false));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPParsingPipeline.makeDelimitedFramer(new byte[0]));
+    assertThrows(NullPointerException.class,
+        () -> JBBPParsingPipeline.makeBuilder(parser).start(new ByteArrayInputStream(new byte[0])));
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.jbbp.mapper.Bin;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldUShort;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class JBBPRecordPublisherTest {
+
+  private static byte[] makeRecords(final int number) {
+    final byte[] result = new byte[number * 2];
+    for (int i = 0; i < number; i++) {
+      result[i * 2] = (byte) (i >> 8);
+      result[i * 2 + 1] = (byte) i;
+    }
+    return result;
+  }
+
+  @Test
+  public void testRecordsProvidedOnlyOnDemand() {
+    final AtomicInteger readBytes = new AtomicInteger();
+    final ByteArrayInputStream source = new ByteArrayInputStream(makeRecords(100)) {
+      @Override
+      public synchronized int read() {
+        readBytes.incrementAndGet();
+        return super.read();
+      }
+    };
+    final JBBPRecordPublisher<JBBPFieldStruct> publisher = JBBPRecordPublisher
+        .makeRecordPublisher(JBBPParser.prepare("ushort value;"), source, Runnable::run);
+
+    final List<Integer> received = new ArrayList<>();
+    final Flow.Subscription[] subscription = new Flow.Subscription[1];
+    final boolean[] completed = new boolean[1];
+    publisher.subscribe(new Flow.Subscriber<JBBPFieldStruct>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s) {
+        subscription[0] = s;
+      }
+
+      @Override
+      public void onNext(final JBBPFieldStruct item) {
+        received.add(item.findFieldForType(JBBPFieldUShort.class).getAsInt());
+      }
+
+      @Override
+      public void onError(final Throwable throwable) {
+        throw new Error("Unexpected", throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        completed[0] = true;
+      }
+    });
+
+    assertTrue(received.isEmpty());
+    assertEquals(0, readBytes.get());
+    subscription[0].request(3);
+    assertEquals(3, received.size());
+    assertEquals(6, readBytes.get());
+    subscription[0].request(96);
+    assertEquals(99, received.size());
+    assertFalse(completed[0]);
+    subscription[0].request(10);
+    assertEquals(100, received.size());
+    assertTrue(completed[0]);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, received.get(i));
+    }
+  }
+
+  @Test
+  public void testRequestFromOnNextAndCancel() {
+    final JBBPRecordPublisher<JBBPFieldStruct> publisher = JBBPRecordPublisher
+        .makeRecordPublisher(JBBPParser.prepare("ushort value;"),
+            new ByteArrayInputStream(makeRecords(1000)), Runnable::run);
+    final AtomicInteger counter = new AtomicInteger();
+    final boolean[] terminated = new boolean[1];
+    publisher.subscribe(new Flow.Subscriber<JBBPFieldStruct>() {
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(final Flow.Subscription s) {
+        this.subscription = s;
+        s.request(1);
+      }
+
+      @Override
+      public void onNext(final JBBPFieldStruct item) {
+        if (counter.incrementAndGet() == 500) {
+          this.subscription.cancel();
+        } else {
+          this.subscription.request(1);
+        }
+      }
+
+      @Override
+      public void onError(final Throwable throwable) {
+        terminated[0] = true;
+      }
+
+      @Override
+      public void onComplete() {
+        terminated[0] = true;
+      }
+    });
+    assertEquals(500, counter.get());
+    assertFalse(terminated[0]);
+  }
+
+  @Test
+  public void testErrorForBrokenRecordAndWrongRequest() {
+    final List<Throwable> errors = new ArrayList<>();
+    final Flow.Subscriber<JBBPFieldStruct> subscriber = new Flow.Subscriber<JBBPFieldStruct>() {
+      @Override
+      public void onSubscribe(final Flow.Subscription s) {
+        s.request(Long.MAX_VALUE);
+      }
+
+      @Override
+      public void onNext(final JBBPFieldStruct item) {
+      }
+
+      @Override
+      public void onError(final Throwable throwable) {
+        errors.add(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        throw new Error("Unexpected");
+      }
+    };
+
+    final JBBPRecordPublisher<JBBPFieldStruct> publisher = JBBPRecordPublisher
+        .makeRecordPublisher(JBBPParser.prepare("int value;"),
+            new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6}), Runnable::run);
+    publisher.subscribe(subscriber);
+    assertEquals(1, errors.size());
+    assertFalse(errors.get(0) instanceof IllegalStateException);
+
+    publisher.subscribe(subscriber);
+    assertEquals(2, errors.size());
+    assertTrue(errors.get(1) instanceof IllegalStateException);
+
+    JBBPRecordPublisher.makeRecordPublisher(JBBPParser.prepare("int value;"),
+        new ByteArrayInputStream(new byte[0]), Runnable::run).subscribe(
+        new Flow.Subscriber<JBBPFieldStruct>() {
+          @Override
+          public void onSubscribe(final Flow.Subscription s) {
+            s.request(0);
+          }
+
+          @Override
+          public void onNext(final JBBPFieldStruct item) {
+          }
+
+          @Override
+          public void onError(final Throwable throwable) {
+            errors.add(throwable);
+          }
+
+          @Override
+          public void onComplete() {
+          }
+        });
+    assertEquals(3, errors.size());
+    assertTrue(errors.get(2) instanceof IllegalArgumentException);
+  }
+
+  @Test
+  public void testMappedPublisherOnExecutor() throws Exception {
+    class Mapped {
+      @Bin
+      char value;
+    }
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final JBBPRecordPublisher<Mapped> publisher = JBBPRecordPublisher.makeMappedPublisher(
+          JBBPParser.prepare("ushort value;"), new ByteArrayInputStream(makeRecords(300)),
+          record -> new Mapped(), executor);
+
+      final List<Mapped> received = new ArrayList<>();
+      final Throwable[] error = new Throwable[1];
+      final Object lock = new Object();
+      final boolean[] completed = new boolean[1];
+      publisher.subscribe(new Flow.Subscriber<Mapped>() {
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription s) {
+          this.subscription = s;
+          s.request(7);
+        }
+
+        @Override
+        public void onNext(final Mapped item) {
+          received.add(item);
+          if (received.size() % 7 == 0) {
+            this.subscription.request(7);
+          }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+          synchronized (lock) {
+            error[0] = throwable;
+            lock.notifyAll();
+          }
+        }
+
+        @Override
+        public void onComplete() {
+          synchronized (lock) {
+            completed[0] = true;
+            lock.notifyAll();
+          }
+        }
+      });
+
+      synchronized (lock) {
+        final long deadline = System.currentTimeMillis() + 10000L;
+        while (!completed[0] && error[0] == null && System.currentTimeMillis() < deadline) {
+          lock.wait(100L);
+        }
+      }
+      assertNull(error[0]);
+      assertTrue(completed[0]);
+      assertEquals(300, received.size());
+      for (int i = 0; i < received.size(); i++) {
+        assertEquals(i, received.get(i).value);
+      }
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -91,6 +91,23 @@ public class JBBPToJBBPToJavaConverterExpressionTest extends AbstractJBBPToJavaC
     assertExpression(3 * 9 / 2, "(3*9)/2");
   }
 
+  @Test
+  public void testConstantFolding() throws Exception {
+    final String text = JBBPToJavaConverter.makeBuilder(
+            JBBPParser.prepare("ubyte a; byte [2*(3+1)] b; byte [(a+0)*1] c; byte [a*(4-2)] d;"))
+        .setMainClassName(CLASS_NAME).build().convert();
+    assertTrue(text.contains("In.readByteArray(8,"), text);
+    assertTrue(text.contains("In.readByteArray(assrtExprNotNeg((int)this.a),"), text);
+    assertTrue(text.contains("In.readByteArray(assrtExprNotNeg(((int)this.a*2)),"), text);
+
+    final Object obj =
+        compileAndMakeInstance("ubyte a; byte [2*(3+1)] b; byte [(a+0)*1] c; byte [a*(4-2)] d;");
+    callRead(obj, new byte[] {3, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+    assertEquals(8, getField(obj, "b", byte[].class).length);
+    assertEquals(3, getField(obj, "c", byte[].class).length);
+    assertEquals(6, getField(obj, "d", byte[].class).length);
+  }
+
   @Test
   public void testComplex() throws Exception {
     assertExpression(3 * 2 + 8 << 4 - 3, "3*2+8<<4-3");
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.compiler.conversion;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.io.JBBPBitOrder;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericArray;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
+import com.igormaznitsa.jbbp.testaux.AbstractJBBPToJavaConverterTest;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test flyweight classes generated by converter.
+ */
+public class JBBPToJavaConverterFlyweightTest extends AbstractJBBPToJavaConverterTest {
+
+  private static final String SCRIPT = "bit:3 a; int b; ubyte [3] c; skip:1; <floatj f;"
+      + "header { short s; bit:5 [2] bb; }"
+      + "items [2] { ushort u; <long l; bool flag; }"
+      + "align:4; uint ui; doublej d; byte last; val:(b) v;";
+
+  private static Object call(final Object instance, final String name, final Object... args)
+      throws Exception {
+    for (final Method method : instance.getClass().getMethods()) {
+      if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+        return method.invoke(instance, args);
+      }
+    }
+    throw new NoSuchMethodException(name);
+  }
+
+  private static long num(final Object value) {
+    return value instanceof Character ? (Character) value : ((Number) value).longValue();
+  }
+
+  private static JBBPNumericField field(final JBBPFieldStruct struct, final String path) {
+    return (JBBPNumericField) struct.findFieldForPath(path);
+  }
+
+  private static JBBPNumericField item(final JBBPFieldStruct struct, final String name) {
+    return (JBBPNumericField) struct.findFieldForName(name);
+  }
+
+  private static JBBPNumericArray array(final JBBPFieldStruct struct, final String path) {
+    return (JBBPNumericArray) struct.findFieldForPath(path);
+  }
+
+  private Object makeFlyweight(final JBBPParser parser, final String className) throws Exception {
+    final String text = JBBPToJavaConverter.makeBuilder(parser)
+        .setMainClassName(className)
+        .setMainClassPackage(PACKAGE_NAME)
+        .generateFlyweight()
+        .build()
+        .convert();
+    final ClassLoader classLoader =
+        saveAndCompile(new JavaClassContent(PACKAGE_NAME + '.' + className, text));
+    return classLoader.loadClass(PACKAGE_NAME + '.' + className).getConstructor().newInstance();
+  }
+
+  private void assertSameAsParsed(final Object flyweight, final JBBPFieldStruct parsed)
+      throws Exception {
+    assertEquals(field(parsed, "a").getAsInt(), num(call(flyweight, "getA")));
+    assertEquals(field(parsed, "b").getAsInt(), num(call(flyweight, "getB")));
+    assertEquals(3, call(flyweight, "getCLength"));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(array(parsed, "c").getAsInt(i), num(call(flyweight, "getC", i)));
+    }
+    assertEquals(field(parsed, "f").getAsFloat(), call(flyweight, "getF"));
+    final Object header = call(flyweight, "getHEADER");
+    assertEquals(field(parsed, "header.s").getAsInt(), num(call(header, "getS")));
+    for (int i = 0; i < 2; i++) {
+      assertEquals(array(parsed, "header.bb").getAsInt(i), num(call(header, "getBB", i)));
+    }
+    final JBBPFieldArrayStruct items = (JBBPFieldArrayStruct) parsed.findFieldForPath("items");
+    for (int i = 0; i < 2; i++) {
+      final Object item = call(flyweight, "getITEMS", i);
+      final JBBPFieldStruct parsedItem = items.getElementAt(i);
+      assertEquals(item(parsedItem, "u").getAsInt(), num(call(item, "getU")));
+      assertEquals(item(parsedItem, "l").getAsLong(), num(call(item, "getL")));
+      assertEquals(item(parsedItem, "flag").getAsBool(), call(item, "getFLAG"));
+    }
+    assertEquals(field(parsed, "ui").getAsLong(), num(call(flyweight, "getUI")));
+    assertEquals(field(parsed, "d").getAsDouble(), call(flyweight, "getD"));
+    assertEquals(field(parsed, "last").getAsInt(), num(call(flyweight, "getLAST")));
+  }
+
+  @Test
+  public void testFlyweight_GettersAndSettersSameAsParser() throws Exception {
+    final Random rnd = new Random(8765L);
+    for (final JBBPBitOrder order : JBBPBitOrder.values()) {
+      final JBBPParser parser = JBBPParser.prepare(SCRIPT, order);
+      final Object flyweight = this.makeFlyweight(parser, CLASS_NAME + order.name());
+
+      final int size = flyweight.getClass().getField("SIZE").getInt(null);
+      assertEquals(53, size);
+      assertEquals(424L, flyweight.getClass().getField("SIZE_IN_BITS").getLong(null));
+
+      final byte[] data = new byte[size + 3];
+      rnd.nextBytes(data);
+      final byte[] prefix = Arrays.copyOf(data, 3);
+
+      final Method wrapArray = flyweight.getClass().getMethod("wrap", byte[].class, int.class);
+      assertSame(flyweight, wrapArray.invoke(flyweight, data, 3));
+      assertSameAsParsed(flyweight,
+          parser.parse(new ByteArrayInputStream(data, 3, data.length - 3)));
+
+      call(flyweight, "setA", (byte) 5);
+      call(flyweight, "setB", 0x12345678);
+      call(flyweight, "setC", 1, 'A');
+      call(flyweight, "setF", 1.5f);
+      call(call(flyweight, "getHEADER"), "setS", (short) -2);
+      call(call(flyweight, "getHEADER"), "setBB", 1, (byte) 0x15);
+      call(call(flyweight, "getITEMS", 0), "setFLAG", true);
+      call(call(flyweight, "getITEMS", 1), "setL", -5L);
+      call(call(flyweight, "getITEMS", 1), "setU", (char) 0xFFFE);
+      call(flyweight, "setUI", 0xFFFFFFF0L);
+      call(flyweight, "setD", -2.25d);
+      call(flyweight, "setLAST", (byte) -1);
+
+      final JBBPFieldStruct parsed =
+          parser.parse(new ByteArrayInputStream(data, 3, data.length - 3));
+      assertSameAsParsed(flyweight, parsed);
+      assertArrayEquals(prefix, Arrays.copyOf(data, 3));
+      assertEquals(5, field(parsed, "a").getAsInt());
+      assertEquals(0x12345678, field(parsed, "b").getAsInt());
+      assertEquals('A', array(parsed, "c").getAsInt(1));
+      assertEquals(1.5f, field(parsed, "f").getAsFloat());
+      assertEquals(-2, field(parsed, "header.s").getAsInt());
+      assertEquals(0x15, array(parsed, "header.bb").getAsInt(1));
+      final JBBPFieldArrayStruct items = (JBBPFieldArrayStruct) parsed.findFieldForPath("items");
+      assertEquals(true, item(items.getElementAt(0), "flag").getAsBool());
+      assertEquals(-5L, item(items.getElementAt(1), "l").getAsLong());
+      assertEquals(0xFFFE, item(items.getElementAt(1), "u").getAsInt());
+      assertEquals(0xFFFFFFF0L, field(parsed, "ui").getAsLong());
+      assertEquals(-2.25d, field(parsed, "d").getAsDouble());
+      assertEquals(-1, field(parsed, "last").getAsInt());
+
+      final ByteBuffer buffer = ByteBuffer.allocate(size + 10);
+      buffer.position(10);
+      buffer.put(data, 3, size);
+      final Method wrapBuffer = flyweight.getClass().getMethod("wrap", ByteBuffer.class, int.class);
+      wrapBuffer.invoke(flyweight, buffer, 10);
+      assertSameAsParsed(flyweight, parsed);
+
+      assertInstanceOf(IndexOutOfBoundsException.class,
+          assertThrows(InvocationTargetException.class,
+              () -> wrapBuffer.invoke(flyweight, buffer, 11)).getCause());
+      assertInstanceOf(IndexOutOfBoundsException.class,
+          assertThrows(InvocationTargetException.class,
+              () -> call(flyweight, "getC", 3)).getCause());
+    }
+  }
+
+  @Test
+  public void testFlyweight_NotFixedLayout() {
+    for (final String script : new String[] {"ubyte len; byte [len] a;", "byte [_] a;",
+        "var v;", "stringj s;", "s [2] { byte a; align:4; }", "bit:3 a; s [_] { byte b; }"}) {
+      assertThrows(IllegalArgumentException.class,
+          () -> JBBPToJavaConverter.makeBuilder(JBBPParser.prepare(script))
+              .setMainClassName(CLASS_NAME).generateFlyweight().build().convert(), script);
+    }
+  }
+}
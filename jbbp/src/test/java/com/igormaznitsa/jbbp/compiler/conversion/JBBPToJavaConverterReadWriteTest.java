@@ -25,8 +25,11 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.igormaznitsa.jbbp.JBBPCustomFieldTypeProcessor;
@@ -35,6 +38,7 @@ import com.igormaznitsa.jbbp.TestUtils;
 import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
 import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
 import com.igormaznitsa.jbbp.io.JBBPArraySizeLimiter;
+import com.igormaznitsa.jbbp.io.JBBPBitNumber;
 import com.igormaznitsa.jbbp.io.JBBPBitInputStream;
 import com.igormaznitsa.jbbp.io.JBBPBitOrder;
 import com.igormaznitsa.jbbp.io.JBBPBitOutputStream;
@@ -42,6 +46,8 @@ import com.igormaznitsa.jbbp.io.JBBPOut;
 import com.igormaznitsa.jbbp.model.JBBPAbstractField;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPNumericField;
 import com.igormaznitsa.jbbp.testaux.AbstractJBBPToJavaConverterTest;
 import com.igormaznitsa.jbbp.utils.ReflectUtils;
 import java.io.ByteArrayInputStream;
@@ -49,6 +55,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 
@@ -151,6 +158,151 @@ public class JBBPToJavaConverterReadWriteTest extends AbstractJBBPToJavaConverte
     assertArrayEquals(etalon, callWrite(instance));
   }
 
+  private static byte[] makeReuseTestData(final int base, final int tailItems) throws Exception {
+    final JBBPOut out = JBBPOut.BeginBin()
+        .Byte(2)
+        .Byte(base, base + 1, base + 2)
+        .Byte(base + 3, base + 4)
+        .Short(base, base + 1)
+        .Short(base + 2, base + 3)
+        .Int(base, base + 1)
+        .Long(base)
+        .Bool(true, false)
+        .Float(1.5f + base, 2.5f)
+        .UInt(base)
+        .Bits(JBBPBitNumber.BITS_4, base & 0xF, 3)
+        .Strings("a" + base, "b")
+        .Byte(base, base + 1)
+        .Int(base, base + 1);
+    for (int i = 0; i < tailItems; i++) {
+      out.Short(base + i);
+    }
+    return out.End().toByteArray();
+  }
+
+  @Test
+  public void testReadWrite_ReuseObjectsOnRead() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; <byte [3] b; ubyte [2] ub;"
+        + "short [len] s; <ushort [2] us; int [2] i; long [1] l; bool [2] f; floatj [2] fl;"
+        + "uint [1] ui; bit:4 [2] bits; stringj [2] str; in { byte [2] q; } arr [2] { int v; }"
+        + "tail [_] { ushort w; }");
+    final String text = JBBPToJavaConverter.makeBuilder(parser).setMainClassName(CLASS_NAME)
+        .setMainClassPackage(PACKAGE_NAME).reuseObjectsOnRead().build().convert();
+    assertFalse(text.contains("new ArrayList"));
+    final String fullClassName = PACKAGE_NAME + '.' + CLASS_NAME;
+    final ClassLoader classLoader = saveAndCompile(new JavaClassContent(fullClassName, text));
+    final Object instance = ReflectUtils.newInstance(classLoader.loadClass(fullClassName));
+
+    final String[] fields = {"b", "ub", "s", "us", "i", "l", "f", "fl", "ui", "bits", "str",
+        "in", "in.q", "arr", "tail"};
+
+    final byte[] first = makeReuseTestData(1, 3);
+    callRead(instance, first);
+    assertArrayEquals(first, callWrite(instance));
+    final Object[] firstValues = new Object[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      firstValues[i] = getField(instance, fields[i], Object.class);
+    }
+    final Object[] firstItems = getField(instance, "arr", Object[].class).clone();
+    final Object[] firstTail = getField(instance, "tail", Object[].class).clone();
+
+    final byte[] second = makeReuseTestData(20, 3);
+    callRead(instance, second);
+    assertArrayEquals(second, callWrite(instance));
+    for (int i = 0; i < fields.length; i++) {
+      assertSame(firstValues[i], getField(instance, fields[i], Object.class), fields[i]);
+    }
+    assertArrayEquals(firstItems, getField(instance, "arr", Object[].class));
+    assertArrayEquals(firstTail, getField(instance, "tail", Object[].class));
+
+    final byte[] third = makeReuseTestData(30, 4);
+    callRead(instance, third);
+    assertArrayEquals(third, callWrite(instance));
+    final Object[] thirdTail = getField(instance, "tail", Object[].class);
+    assertNotSame(firstValues[fields.length - 1], thirdTail);
+    for (int i = 0; i < firstTail.length; i++) {
+      assertSame(firstTail[i], thirdTail[i]);
+    }
+
+    final byte[] fourth = makeReuseTestData(40, 0);
+    callRead(instance, fourth);
+    assertArrayEquals(fourth, callWrite(instance));
+    assertEquals(0, getField(instance, "tail", Object[].class).length);
+  }
+
+  @Test
+  public void testReadWrite_SizeOfAndBufferWrite() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; bit:3 a; byte [len] b; align:2; skip:1;"
+        + "stringj s; ubyte [len*2] c; in { bit:5 [2] q; int x; } arr [len] { short v; bit:2 w; }"
+        + "align:4; reset$$; skip:(len); byte [$$] z; stringj [2] ss; ushort end; bit:3 t;");
+    final String text = JBBPToJavaConverter.makeBuilder(parser).setMainClassName(CLASS_NAME)
+        .setMainClassPackage(PACKAGE_NAME).addBufferWriteMethods().build().convert();
+    assertTrue(text.contains("((java.nio.Buffer) target).position(offset);"));
+    final String fullClassName = PACKAGE_NAME + '.' + CLASS_NAME;
+    final ClassLoader classLoader = saveAndCompile(new JavaClassContent(fullClassName, text));
+    final Object instance = ReflectUtils.newInstance(classLoader.loadClass(fullClassName));
+
+    final byte[] etalon = JBBPOut.BeginBin().Byte(2).Bits(JBBPBitNumber.BITS_3, 5).Byte(1, 2)
+        .Align(2).Skip(1).String("hello").Byte(3, 4, 5, 6)
+        .Bits(JBBPBitNumber.BITS_5, 1, 2).Int(7)
+        .Short(1).Bits(JBBPBitNumber.BITS_2, 1).Short(2).Bits(JBBPBitNumber.BITS_2, 3)
+        .Align(4).ResetCounter().Skip(2).Byte(9, 8).Strings("a", "bc").Short(0x1234)
+        .Bits(JBBPBitNumber.BITS_3, 2).End().toByteArray();
+
+    callRead(instance, etalon.clone());
+    assertArrayEquals(etalon, callWrite(instance));
+    assertEquals(etalon.length * 8L - 5L,
+        instance.getClass().getMethod("bitLength").invoke(instance));
+    assertEquals(etalon.length, instance.getClass().getMethod("sizeOf").invoke(instance));
+
+    final byte[] array = new byte[etalon.length + 3];
+    assertEquals(etalon.length, instance.getClass().getMethod("write", byte[].class, int.class)
+        .invoke(instance, array, 3));
+    final byte[] written = new byte[etalon.length];
+    System.arraycopy(array, 3, written, 0, written.length);
+    assertArrayEquals(etalon, written);
+
+    final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(etalon.length + 1);
+    assertInstanceOf(IndexOutOfBoundsException.class, assertThrows(
+        java.lang.reflect.InvocationTargetException.class,
+        () -> instance.getClass().getMethod("write", java.nio.ByteBuffer.class, int.class)
+            .invoke(instance, buffer, 2)).getCause());
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void testReadWrite_GroupedBitFields() throws Exception {
+    final String script = "bit:3 a; bit:2 b; bit:3 c; bit:4 d; bit:4 e; bit:5 f; byte g; bit:1 h;"
+        + "bit:7 i; bit:2 j; bit:3 k; bit:2 l; bit:2 [2] m; bit:1 n;"
+        + "bit:7 o; bit:8 p; bit:8 q;";
+    final byte[] data = new byte[9];
+    new Random(1234L).nextBytes(data);
+    for (final JBBPBitOrder order : JBBPBitOrder.values()) {
+      final JBBPParser parser = JBBPParser.prepare(script, order);
+      final String className = CLASS_NAME + order.name();
+      final String text = JBBPToJavaConverter.makeBuilder(parser).setMainClassName(className)
+          .setMainClassPackage(PACKAGE_NAME).build().convert();
+      assertTrue(text.contains("_BitGroup_"));
+      final String fullClassName = PACKAGE_NAME + '.' + className;
+      final ClassLoader classLoader = saveAndCompile(new JavaClassContent(fullClassName, text));
+      final Object instance = ReflectUtils.newInstance(classLoader.loadClass(fullClassName));
+
+      callRead(instance, new JBBPBitInputStream(new ByteArrayInputStream(data), order));
+      final JBBPFieldStruct parsed = parser.parse(new ByteArrayInputStream(data));
+      for (final String name : new String[] {"a", "b", "c", "d", "e", "f", "h", "i", "j", "k",
+          "l", "n", "o", "p", "q"}) {
+        assertEquals(((JBBPNumericField) parsed.findFieldForName(name)).getAsInt(),
+            getField(instance, name, Byte.class) & 0xFF, order + ":" + name);
+      }
+
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      final JBBPBitOutputStream out = new JBBPBitOutputStream(bos, order);
+      callWrite(instance, out);
+      out.close();
+      assertArrayEquals(data, bos.toByteArray(), order.name());
+    }
+  }
+
   @Test
   public void testReaWrite_StructMappedToInterface_Array_GettersSettersOn() throws Exception {
     final JBBPParser parser = JBBPParser.prepare("z { x { y [_] { byte a;}}}");
@@ -917,6 +1069,49 @@ public class JBBPToJavaConverterReadWriteTest extends AbstractJBBPToJavaConverte
     assertArrayEquals(etalonArray, callWrite(klazz));
   }
 
+  @Test
+  public void testReadWrite_VarFieldAfterCounterReset_BitLength() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("ubyte a; reset$$; byte [3] b; bit:2 c; var:($$) v; ubyte end;");
+    assertFalse(JBBPToJavaConverter.makeBuilder(parser).setMainClassName(CLASS_NAME)
+        .setMainClassPackage(PACKAGE_NAME).build().convert().contains("bitLength"));
+    final String text = JBBPToJavaConverter.makeBuilder(parser).setMainClassName(CLASS_NAME)
+        .setMainClassPackage(PACKAGE_NAME).addSizeMethods().build().convert();
+    final ClassLoader classLoader = saveAndCompile(
+        new JavaClassContent(PACKAGE_NAME + '.' + CLASS_NAME, text),
+        new JavaClassContent("com.igormaznitsa.jbbp.test.VarCounterParser",
+            "package com.igormaznitsa.jbbp.test;\n"
+                + "import com.igormaznitsa.jbbp.model.*;\n"
+                + "import com.igormaznitsa.jbbp.io.*;\n"
+                + "import com.igormaznitsa.jbbp.compiler.*;\n"
+                + "import java.io.IOException;\n"
+                + "public class VarCounterParser extends " + PACKAGE_NAME + '.' + CLASS_NAME + "{"
+                + "public JBBPAbstractField readVarField(Object sourceStruct, JBBPBitInputStream inStream, JBBPByteOrder byteOrder, JBBPNamedFieldInfo nullableNamedFieldInfo, int extraValue) throws IOException{"
+                + "   inStream.alignByte();"
+                + "   final byte[] data = inStream.readByteArray(extraValue);"
+                + "   return new JBBPFieldInt(nullableNamedFieldInfo, data[0]);"
+                + "}"
+                + "public JBBPAbstractArrayField<? extends JBBPAbstractField> readVarArray(Object sourceStruct, JBBPBitInputStream inStream, JBBPByteOrder byteOrder, JBBPNamedFieldInfo nullableNamedFieldInfo, int extraValue, boolean readWholeStream, int arraySize) throws IOException {"
+                + "   throw new Error(\"Unexpected\");"
+                + "}"
+                + "public void writeVarField(Object sourceStruct, JBBPAbstractField value, JBBPBitOutputStream outStream, JBBPByteOrder byteOrder, JBBPNamedFieldInfo nullableNamedFieldInfo, int extraValue) throws IOException{"
+                + "   outStream.align(0);"
+                + "   for (int i = 0; i < extraValue; i++) { outStream.write(((JBBPFieldInt) value).getAsInt()); }"
+                + "}"
+                + "public void writeVarArray(Object sourceStruct, JBBPAbstractArrayField<? extends JBBPAbstractField> array, JBBPBitOutputStream outStream, JBBPByteOrder byteOrder, JBBPNamedFieldInfo nullableNamedFieldInfo, int extraValue, int arraySizeToWrite) throws IOException{"
+                + "   throw new Error(\"Unexpected\");"
+                + "}"
+                + "}"));
+    final Object klazz = ReflectUtils.newInstance(
+        classLoader.loadClass("com.igormaznitsa.jbbp.test.VarCounterParser"));
+
+    final byte[] etalon = new byte[] {1, 2, 3, 4, 3, 7, 7, 7, 9};
+    callRead(klazz, etalon.clone());
+    assertEquals(7, getField(klazz, "v", JBBPFieldInt.class).getAsInt());
+    assertArrayEquals(etalon, callWrite(klazz));
+    assertEquals(etalon.length * 8L, klazz.getClass().getMethod("bitLength").invoke(klazz));
+  }
+
   @Test
   public void testReadWrite_NamedExternalFieldInExpression() throws Exception {
     final Object klazz = compileAndMakeInstance("com.igormaznitsa.jbbp.test.ExtraFieldParser",
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class JBBPBitAccessTest {
+
+  private static final int[] VALUE_SIZES = new int[] {1, 2, 4, 8};
+
+  @Test
+  public void testSameAsStreams_AllBitOrders() throws Exception {
+    final Random rnd = new Random(1234L);
+    for (final JBBPBitOrder order : JBBPBitOrder.values()) {
+      for (int pass = 0; pass < 50; pass++) {
+        final int items = 1 + rnd.nextInt(20);
+        final int[] sizes = new int[items];
+        final boolean[] bitFields = new boolean[items];
+        final JBBPByteOrder[] byteOrders = new JBBPByteOrder[items];
+        final long[] values = new long[items];
+        long totalBits = 0L;
+        for (int i = 0; i < items; i++) {
+          bitFields[i] = rnd.nextBoolean();
+          sizes[i] = bitFields[i] ? 1 + rnd.nextInt(8) : VALUE_SIZES[rnd.nextInt(VALUE_SIZES.length)];
+          byteOrders[i] = rnd.nextBoolean() ? JBBPByteOrder.BIG_ENDIAN : JBBPByteOrder.LITTLE_ENDIAN;
+          totalBits += bitFields[i] ? sizes[i] : sizes[i] * 8L;
+        }
+
+        final byte[] data = new byte[(int) ((totalBits + 7L) >>> 3)];
+        rnd.nextBytes(data);
+        final ByteBuffer buffer = ByteBuffer.wrap(data.clone());
+
+        final JBBPBitInputStream in = new JBBPBitInputStream(new ByteArrayInputStream(data), order);
+        long position = 0L;
+        for (int i = 0; i < items; i++) {
+          final long expected;
+          final long fromArray;
+          final long fromBuffer;
+          if (bitFields[i]) {
+            expected = in.readBits(JBBPBitNumber.decode(sizes[i]));
+            fromArray = JBBPBitAccess.getBits(data, position, sizes[i], order);
+            fromBuffer = JBBPBitAccess.getBits(buffer, position, sizes[i], order);
+            position += sizes[i];
+          } else {
+            switch (sizes[i]) {
+              case 1:
+                expected = in.readByte();
+                break;
+              case 2:
+                expected = in.readUnsignedShort(byteOrders[i]);
+                break;
+              case 4:
+                expected = in.readInt(byteOrders[i]) & 0xFFFFFFFFL;
+                break;
+              default:
+                expected = in.readLong(byteOrders[i]);
+                break;
+            }
+            fromArray = JBBPBitAccess.getValue(data, position, sizes[i], byteOrders[i], order);
+            fromBuffer = JBBPBitAccess.getValue(buffer, position, sizes[i], byteOrders[i], order);
+            position += sizes[i] * 8L;
+          }
+          values[i] = expected;
+          assertEquals(expected, fromArray, order + " item " + i);
+          assertEquals(expected, fromBuffer, order + " item " + i);
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final JBBPBitOutputStream out = new JBBPBitOutputStream(bos, order);
+        final byte[] array = new byte[data.length];
+        final ByteBuffer target = ByteBuffer.allocate(data.length);
+        position = 0L;
+        for (int i = 0; i < items; i++) {
+          if (bitFields[i]) {
+            out.writeBits((int) values[i], JBBPBitNumber.decode(sizes[i]));
+            JBBPBitAccess.setBits(array, position, (int) values[i], sizes[i], order);
+            JBBPBitAccess.setBits(target, position, (int) values[i], sizes[i], order);
+            position += sizes[i];
+          } else {
+            switch (sizes[i]) {
+              case 1:
+                out.write((int) values[i]);
+                break;
+              case 2:
+                out.writeShort((int) values[i], byteOrders[i]);
+                break;
+              case 4:
+                out.writeInt((int) values[i], byteOrders[i]);
+                break;
+              default:
+                out.writeLong(values[i], byteOrders[i]);
+                break;
+            }
+            JBBPBitAccess.setValue(array, position, values[i], sizes[i], byteOrders[i], order);
+            JBBPBitAccess.setValue(target, position, values[i], sizes[i], byteOrders[i], order);
+            position += sizes[i] * 8L;
+          }
+        }
+        out.close();
+
+        assertArrayEquals(bos.toByteArray(), array, order.name());
+        assertArrayEquals(bos.toByteArray(), target.array(), order.name());
+      }
+    }
+  }
+
+  @Test
+  public void testSetBits_KeepsNeighbourBits() {
+    for (final JBBPBitOrder order : JBBPBitOrder.values()) {
+      final byte[] array = new byte[] {(byte) 0xFF, (byte) 0xFF};
+      JBBPBitAccess.setBits(array, 5, 0, 6, order);
+      assertEquals(0, JBBPBitAccess.getBits(array, 5, 6, order), order.name());
+      assertEquals(0x1F, JBBPBitAccess.getBits(array, 0, 5, order), order.name());
+      assertEquals(0x1F, JBBPBitAccess.getBits(array, 11, 5, order), order.name());
+    }
+  }
+}
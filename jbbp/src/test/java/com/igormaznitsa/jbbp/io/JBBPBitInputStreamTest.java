@@ -24,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -33,6 +34,7 @@ import com.igormaznitsa.jbbp.exceptions.JBBPReachedArraySizeLimitException;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.util.Random;
 import java.util.function.Supplier;
@@ -1858,9 +1860,125 @@ public class JBBPBitInputStreamTest {
     assertEquals(2, in.getCounter());
   }
 
+  @Test
+  public void testSkipToMarker_Found() throws Exception {
+    final JBBPBitInputStream in = asInputStream(1, 2, 3, 0xCA, 0xFE, 0xBA, 0xBE, 9);
+    assertEquals(3L, in.skipToMarker(new byte[] {(byte) 0xCA, (byte) 0xFE}));
+    assertEquals(3L, in.getCounter());
+    assertEquals(0xCA, in.read());
+    assertEquals(0xFE, in.read());
+    assertEquals(0L, in.skipToMarker(new byte[] {(byte) 0xBA}));
+    assertEquals(0xBA, in.read());
+  }
+
+  @Test
+  public void testSkipToMarker_NotFound() throws Exception {
+    final JBBPBitInputStream in = asInputStream(1, 2, 3, 0xCA, 4, 5);
+    assertEquals(-1L, in.skipToMarker(new byte[] {(byte) 0xCA, (byte) 0xFE}));
+    assertEquals(6L, in.getCounter());
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void testSkipToMarker_MaxBytesToSkip() throws Exception {
+    final JBBPBitInputStream in = asInputStream(1, 2, 3, 4, 5, 0xCA, 0xFE);
+    assertEquals(-1L, in.skipToMarker(new byte[] {(byte) 0xCA, (byte) 0xFE}, 4L));
+    assertEquals(4L, in.getCounter());
+    assertEquals(1L, in.skipToMarker(new byte[] {(byte) 0xCA, (byte) 0xFE}, 1L));
+    assertEquals(0xCA, in.read());
+  }
+
+  @Test
+  public void testSkipToMarker_PrefetchedByte() throws Exception {
+    final JBBPBitInputStream in = asInputStream(0xCA, 0xFE, 1, 0xCA, 0xFE);
+    final byte[] marker = new byte[] {(byte) 0xCA, (byte) 0xFE};
+    assertTrue(in.hasAvailableData());
+    assertEquals(0L, in.skipToMarker(marker));
+    assertEquals(0L, in.getCounter());
+    assertEquals(0xCA, in.read());
+    assertEquals(0xFE, in.read());
+    assertTrue(in.hasAvailableData());
+    assertEquals(1L, in.skipToMarker(marker));
+    assertEquals(3L, in.getCounter());
+    assertEquals(0xCAFE, in.readUnsignedShort(BIG_ENDIAN));
+  }
+
+  @Test
+  public void testSkipToMarker_MSB0() throws Exception {
+    final JBBPBitInputStream in =
+        new JBBPBitInputStream(new ByteArrayInputStream(new byte[] {1, 2, 0x01, 0x02}),
+            JBBPBitOrder.MSB0);
+    assertEquals(0x80, in.read());
+    assertTrue(in.hasAvailableData());
+    assertEquals(1L, in.skipToMarker(new byte[] {1, 2}));
+    assertEquals(0x80, in.read());
+    assertEquals(0x40, in.read());
+  }
+
+  @Test
+  public void testSkipToMarker_PartialBitsDropped() throws Exception {
+    final JBBPBitInputStream in = asInputStream(0xFF, 0xCA, 0xFE);
+    assertEquals(1, in.readBits(BITS_1));
+    assertEquals(0L, in.skipToMarker(new byte[] {(byte) 0xCA}));
+    assertEquals(1L, in.getCounter());
+    assertEquals(0xCA, in.read());
+  }
+
+  @Test
+  public void testSkipToMarker_LongStream() throws Exception {
+    final Random rnd = new Random(12345);
+    final byte[] data = new byte[1024 * 1024];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (rnd.nextInt(0x7F));
+    }
+    final byte[] marker = new byte[] {(byte) 0x81, (byte) 0x82, (byte) 0x83, (byte) 0x84};
+    final int markerPosition = data.length - 100_000;
+    System.arraycopy(marker, 0, data, markerPosition, marker.length);
+
+    final JBBPBitInputStream in = new JBBPBitInputStream(new ByteArrayInputStream(data));
+    assertEquals(markerPosition, in.skipToMarker(marker));
+    assertEquals(markerPosition, in.getCounter());
+    assertEquals(0x84838281, in.readInt(JBBPByteOrder.LITTLE_ENDIAN));
+    assertEquals(-1L, in.skipToMarker(marker));
+    assertEquals(data.length, in.getCounter());
+  }
+
+  @Test
+  public void testSkipToMarker_ErrorForNonMarkableStream() {
+    final JBBPBitInputStream in = new JBBPBitInputStream(new FilterInputStream(
+        new ByteArrayInputStream(new byte[] {1, 2, 3})) {
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    });
+    assertThrows(IOException.class, () -> in.skipToMarker(new byte[] {1}));
+    assertThrows(IllegalArgumentException.class, () -> asInputStream(1).skipToMarker(new byte[0]));
+  }
+
   @FunctionalInterface
   private interface StreamAndIntSupplier {
     Pair<JBBPBitInputStream, Integer> getData() throws Exception;
   }
 
+
+  @Test
+  public void testReadIntoExistingArrays() throws Exception {
+    final byte[] data = new byte[] {1, 2, 3, 4, 5, 6, 7, 8};
+    for (final JBBPBitOrder order : JBBPBitOrder.values()) {
+      final JBBPBitInputStream etalon = new JBBPBitInputStream(new ByteArrayInputStream(data), order);
+      final JBBPBitInputStream in = new JBBPBitInputStream(new ByteArrayInputStream(data), order);
+
+      final byte[] bits = new byte[3];
+      assertSame(bits, in.readBitsArray(bits, BITS_3));
+      assertArrayEquals(etalon.readBitsArray(3, BITS_3), bits);
+
+      final byte[] bytes = new byte[4];
+      assertSame(bytes, in.readByteArray(bytes, JBBPByteOrder.LITTLE_ENDIAN));
+      assertArrayEquals(etalon.readByteArray(4, JBBPByteOrder.LITTLE_ENDIAN), bytes);
+
+      assertThrows(EOFException.class, () -> in.readByteArray(new byte[4], BIG_ENDIAN));
+      assertThrows(EOFException.class, () -> in.readBitsArray(new byte[16], BITS_8));
+    }
+  }
 }
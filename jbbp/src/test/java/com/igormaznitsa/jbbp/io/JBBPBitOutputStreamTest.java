@@ -658,4 +658,173 @@ public class JBBPBitOutputStreamTest {
     }
   }
 
+  private static byte[] writeMixed(final JBBPBitOrder bitOrder, final int bufferSize)
+      throws IOException {
+    final ByteArrayOutputStream buff = new ByteArrayOutputStream();
+    final JBBPBitOutputStream out = new JBBPBitOutputStream(buff, bitOrder, bufferSize);
+    final byte[] big = new byte[300];
+    for (int i = 0; i < big.length; i++) {
+      big[i] = (byte) (i * 7);
+    }
+    for (final JBBPByteOrder order : JBBPByteOrder.values()) {
+      out.writeBits(5, BITS_3);
+      out.writeShort(0x1234, order);
+      out.writeInt(0xCAFEBABE, order);
+      out.align(4);
+      out.writeLong(0x0102030405060708L, order);
+      out.writeUInt(0xFFFFFFF0L, order);
+      out.writeFloat(1.5f, order);
+      out.writeDouble(-2.25d, order);
+      out.writeBits(1, JBBPBitNumber.BITS_1);
+      out.writeShortArray(new short[] {1, -2, 3}, -1, order);
+      out.writeIntArray(new int[] {4, -5, 6}, 2, order);
+      out.writeLongArray(new long[] {7L, -8L}, -1, order);
+      out.writeFloatArray(new float[] {0.5f}, -1, order);
+      out.writeDoubleArray(new double[] {9.75d}, -1, order);
+      out.write(big, 3, 290);
+      out.writeBytes(big, 17, order);
+      out.align(8);
+      out.writeIntArray(new int[] {4, -5, 6}, -1, order);
+      out.write(big);
+      out.writeString("hello", order);
+    }
+    out.writeBits(3, BITS_2);
+    assertEquals(out.getCounter(), buff.size() + out.getBufferedBytesNumber());
+    out.close();
+    return buff.toByteArray();
+  }
+
+  @Test
+  public void testBufferedStream_SameDataAsUnbuffered() throws Exception {
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      final byte[] etalon = writeMixed(bitOrder, 0);
+      assertArrayEquals(etalon, writeMixed(bitOrder, 1), bitOrder.name());
+      assertArrayEquals(etalon, writeMixed(bitOrder, 100), bitOrder.name());
+      assertArrayEquals(etalon, writeMixed(bitOrder, JBBPBitOutputStream.DEFAULT_BUFFER_SIZE),
+          bitOrder.name());
+    }
+  }
+
+  @Test
+  public void testBufferedStream_WritesOnFlush() throws Exception {
+    final ByteArrayOutputStream buff = new ByteArrayOutputStream();
+    final JBBPBitOutputStream out = new JBBPBitOutputStream(buff, JBBPBitOrder.LSB0, 1024);
+    assertTrue(out.isBuffered());
+    out.writeIntArray(new int[] {1, 2, 3}, -1, JBBPByteOrder.BIG_ENDIAN);
+    out.writeBits(1, BITS_4);
+    assertEquals(0, buff.size());
+    assertEquals(12, out.getCounter());
+    assertEquals(12, out.getBufferedBytesNumber());
+    out.flush();
+    assertEquals(0, out.getBufferedBytesNumber());
+    assertArrayEquals(new byte[] {0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 3, 1}, buff.toByteArray());
+
+    final ByteArrayOutputStream direct = new ByteArrayOutputStream();
+    final JBBPBitOutputStream unbuffered = new JBBPBitOutputStream(direct);
+    unbuffered.writeLong(-1L, JBBPByteOrder.LITTLE_ENDIAN);
+    assertEquals(8, direct.size());
+  }
+
+  @Test
+  public void testReset_DropsBufferedDataAndRetargets() throws Exception {
+    final ByteArrayOutputStream first = new ByteArrayOutputStream();
+    final JBBPBitOutputStream out =
+        new JBBPBitOutputStream(first, JBBPBitOrder.LSB0, JBBPBitOutputStream.DEFAULT_BUFFER_SIZE);
+    out.writeInt(0x01020304, JBBPByteOrder.BIG_ENDIAN);
+    out.writeBits(3, BITS_2);
+    out.reset();
+    assertEquals(0L, out.getCounter());
+    assertEquals(0, out.getBufferedBitsNumber());
+    assertEquals(0, out.getBufferedBytesNumber());
+    out.write(7);
+    out.flush();
+    assertArrayEquals(new byte[] {7}, first.toByteArray());
+
+    final ByteArrayOutputStream second = new ByteArrayOutputStream();
+    out.writeBits(1, BITS_3);
+    out.reset(second);
+    out.writeShort(0x0102, JBBPByteOrder.LITTLE_ENDIAN);
+    out.flush();
+    assertArrayEquals(new byte[] {7}, first.toByteArray());
+    assertArrayEquals(new byte[] {2, 1}, second.toByteArray());
+    assertEquals(2L, out.getCounter());
+    assertThrows(NullPointerException.class, () -> out.reset(null));
+  }
+
+  @Test
+  public void testWriteBitsArray_SameAsSingleWrites() throws Exception {
+    final Random rnd = new Random(3141L);
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      for (final JBBPBitNumber bitNumber : JBBPBitNumber.values()) {
+        for (int prefix = 0; prefix < 8; prefix++) {
+          final byte[] bytes = new byte[rnd.nextInt(300)];
+          rnd.nextBytes(bytes);
+          final int[] ints = new int[rnd.nextInt(300)];
+          final boolean[] flags = new boolean[rnd.nextInt(300)];
+          for (int i = 0; i < ints.length; i++) {
+            ints[i] = rnd.nextInt();
+          }
+          for (int i = 0; i < flags.length; i++) {
+            flags[i] = rnd.nextBoolean();
+          }
+
+          final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+          final JBBPBitOutputStream single = new JBBPBitOutputStream(expected, bitOrder);
+          final ByteArrayOutputStream bulk = new ByteArrayOutputStream();
+          final JBBPBitOutputStream bulkOut = new JBBPBitOutputStream(bulk, bitOrder, 16);
+
+          if (prefix > 0) {
+            single.writeBits(0x55, JBBPBitNumber.decode(prefix));
+            bulkOut.writeBits(0x55, JBBPBitNumber.decode(prefix));
+          }
+          for (final byte b : bytes) {
+            single.writeBits(b, bitNumber);
+          }
+          for (final int v : ints) {
+            single.writeBits(v, bitNumber);
+          }
+          for (int i = 0; i < flags.length - 1; i++) {
+            single.writeBits(flags[i] ? 0xFF : 0, bitNumber);
+          }
+          bulkOut.writeBitsArray(bytes, -1, bitNumber);
+          bulkOut.writeBitsArray(ints, ints.length, bitNumber);
+          bulkOut.writeBitsArray(flags, Math.max(0, flags.length - 1), bitNumber);
+
+          assertEquals(single.getCounter(), bulkOut.getCounter());
+          assertEquals(single.getBufferedBitsNumber(), bulkOut.getBufferedBitsNumber());
+          single.writeBits(0x3, BITS_2);
+          bulkOut.writeBits(0x3, BITS_2);
+          single.flush();
+          bulkOut.flush();
+          assertArrayEquals(expected.toByteArray(), bulk.toByteArray(),
+              bitOrder + " " + bitNumber + " " + prefix);
+        }
+      }
+    }
+  }
+
+
+  @Test
+  public void testMakeCountingStream() throws Exception {
+    assertThrows(IllegalArgumentException.class, () -> JBBPBitOutputStream.makeCountingStream(-1L));
+    final JBBPBitOutputStream out = JBBPBitOutputStream.makeCountingStream(19L);
+    assertEquals(2L, out.getCounter());
+    assertEquals(3, out.getBufferedBitsNumber());
+    out.writeBits(1, BITS_5);
+    out.writeInt(1, JBBPByteOrder.BIG_ENDIAN);
+    out.writeBits(1, BITS_2);
+    assertEquals(7L, out.getCounter());
+    assertEquals(2, out.getBufferedBitsNumber());
+  }
+
+  @Test
+  public void testGetStringBitLength() throws Exception {
+    for (final String s : new String[] {null, "", "a", "\u0436\u0436", new String(new char[300])}) {
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final JBBPBitOutputStream out = new JBBPBitOutputStream(buffer);
+      out.writeString(s, JBBPByteOrder.BIG_ENDIAN);
+      out.flush();
+      assertEquals(buffer.size() * 8L, JBBPBitOutputStream.getStringBitLength(s));
+    }
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+public class JBBPByteBufferOutputStreamTest {
+
+  private static byte[] content(final ByteBuffer buffer, final int from) {
+    final byte[] result = new byte[buffer.position() - from];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = buffer.get(from + i);
+    }
+    return result;
+  }
+
+  @Test
+  public void testWriteIntoDirectBuffer() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+    buffer.put((byte) 0x77);
+    JBBPOut.BeginBin(buffer, JBBPByteOrder.LITTLE_ENDIAN, JBBPBitOrder.LSB0)
+        .Int(0x01020304).Bits(JBBPBitNumber.BITS_4, 0xF).Align().Short(0x0506).End();
+    assertEquals(8, buffer.position());
+    assertArrayEquals(new byte[] {0x77, 4, 3, 2, 1, 0x0F, 6, 5}, content(buffer, 0));
+  }
+
+  @Test
+  public void testOverflow_Fail() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(3);
+    final JBBPByteBufferOutputStream out = new JBBPByteBufferOutputStream(buffer);
+    out.write(new byte[] {1, 2});
+    assertThrows(IOException.class, () -> out.write(new byte[] {3, 4}));
+    assertEquals(2, buffer.position());
+    assertSame(buffer, out.getBuffer());
+    assertThrows(IOException.class,
+        () -> JBBPOut.BeginBin(ByteBuffer.allocate(3), JBBPByteOrder.BIG_ENDIAN,
+            JBBPBitOrder.LSB0).Int(1).End());
+    assertThrows(IllegalArgumentException.class,
+        () -> new JBBPByteBufferOutputStream(ByteBuffer.allocate(3).asReadOnlyBuffer()));
+  }
+
+  @Test
+  public void testOverflow_Grow() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(2);
+    buffer.put((byte) 9);
+    final JBBPByteBufferOutputStream out =
+        new JBBPByteBufferOutputStream(buffer, JBBPByteBufferOutputStream.OverflowStrategy.GROW);
+    JBBPOut.BeginBin(out, JBBPByteOrder.BIG_ENDIAN, JBBPBitOrder.MSB0)
+        .Byte(1).Int(0x10203040).Byte(new byte[100]).End();
+    final ByteBuffer result = out.getBuffer();
+    assertNotSame(buffer, result);
+    assertTrue(result.isDirect());
+    assertEquals(106, result.position());
+    final byte[] data = content(result, 0);
+    assertEquals(9, data[0]);
+    assertEquals((byte) 0x80, data[1]);
+    assertEquals((byte) 0x08, data[2]);
+  }
+
+  @Test
+  public void testOverflow_GrowKeepsStateOfReplacedBuffer() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(4);
+    buffer.put(new byte[] {1, 2, 3});
+    final JBBPByteBufferOutputStream out =
+        new JBBPByteBufferOutputStream(buffer, JBBPByteBufferOutputStream.OverflowStrategy.GROW);
+    out.write(new byte[] {4, 5});
+    assertEquals(3, buffer.position());
+    assertEquals(4, buffer.limit());
+    final ByteBuffer result = out.getBuffer();
+    assertNotSame(buffer, result);
+    assertEquals(5, result.position());
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, content(result, 0));
+  }
+}
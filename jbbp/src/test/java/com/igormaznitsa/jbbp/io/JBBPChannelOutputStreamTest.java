@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JBBPChannelOutputStreamTest {
+
+  private static byte[] makeData(final int length) {
+    final byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (byte) (i * 31);
+    }
+    return result;
+  }
+
+  private static byte[] writeSession(final WritableByteChannel channel) throws Exception {
+    final byte[] big = makeData(40000);
+    final ByteArrayOutputStream etalon = new ByteArrayOutputStream();
+    for (final OutputStream out : new OutputStream[] {etalon,
+        new JBBPChannelOutputStream(channel, 1024)}) {
+      final JBBPOut session = JBBPOut.BeginBin(out, JBBPByteOrder.LITTLE_ENDIAN, JBBPBitOrder.LSB0);
+      for (int i = 0; i < 300; i++) {
+        session.Int(i).Short(i);
+      }
+      session.Byte(big).Byte(makeData(700)).Byte(big).Long(-1L).End();
+    }
+    return etalon.toByteArray();
+  }
+
+  @Test
+  public void testWriteIntoNotGatheringChannel() throws Exception {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    final byte[] etalon = writeSession(Channels.newChannel(result));
+    assertArrayEquals(etalon, result.toByteArray());
+  }
+
+  @Test
+  public void testWriteIntoFileChannel(@TempDir final Path folder) throws Exception {
+    final Path file = folder.resolve("data.bin");
+    final byte[] etalon;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      etalon = writeSession(channel);
+    }
+    assertArrayEquals(etalon, Files.readAllBytes(file));
+
+    final Path file2 = folder.resolve("data2.bin");
+    final FileChannel channel =
+        FileChannel.open(file2, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    JBBPOut.BeginBin(channel, JBBPByteOrder.BIG_ENDIAN, JBBPBitOrder.LSB0).Int(0x01020304).End();
+    assertEquals(4, channel.size());
+    final JBBPChannelOutputStream out = new JBBPChannelOutputStream(channel);
+    out.write(5);
+    out.close();
+    assertFalse(channel.isOpen());
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, Files.readAllBytes(file2));
+  }
+
+  @Test
+  public void testErrors() {
+    assertThrows(NullPointerException.class, () -> new JBBPChannelOutputStream(null));
+    assertThrows(IllegalArgumentException.class,
+        () -> new JBBPChannelOutputStream(Channels.newChannel(new ByteArrayOutputStream()), 0));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.jbbp.JBBPNamedNumericFieldMap;
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.JBBPVarFieldProcessor;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayUShort;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import org.junit.jupiter.api.Test;
+
+public class JBBPEncoderTest {
+
+  private static final String SCRIPT =
+      "bit:3 a; bit:7 b; align:4; ubyte len; byte [len] data; <byte [2] rdata; skip:(len-1); stringj s; "
+          + "stringj [2] ss; items [len] { <int x; bit:4 [2] q; } empty [len-3] { long z; } reset$$;"
+          + "bit:1; align:(len); val:(len*2) v; bit:(len) [1] w; bit:5; <uint u; floatj f; <doublej d;"
+          + "bool flag; bool [2] flags; <long [2] longs; ushort [_] rest;";
+
+  private static byte[] makeData(final JBBPBitOrder bitOrder) throws Exception {
+    return JBBPOut.BeginBin(JBBPByteOrder.BIG_ENDIAN, bitOrder)
+        .Bits(JBBPBitNumber.BITS_3, 1).Bits(JBBPBitNumber.BITS_7, 2).Align(4)
+        .Byte(3).Byte(1, 2, 3).Byte(5, 4).Skip(2).String("\u00e9\u00e9").Strings("", "zz")
+        .ByteOrder(JBBPByteOrder.LITTLE_ENDIAN).Int(1).Bits(JBBPBitNumber.BITS_4, 1, 2)
+        .Int(2).Bits(JBBPBitNumber.BITS_4, 3, 4).Int(3).Bits(JBBPBitNumber.BITS_4, 5, 6)
+        .ResetCounter().Bit(1).Align(3).Bits(JBBPBitNumber.BITS_3, 5).Bits(JBBPBitNumber.BITS_5, 0)
+        .UInt(0xFFFFFFF0L).ByteOrder(JBBPByteOrder.BIG_ENDIAN).Float(1.5f)
+        .ByteOrder(JBBPByteOrder.LITTLE_ENDIAN).Double(2.5d).Bool(true).Bool(false, true)
+        .Long(7L, -8L).ByteOrder(JBBPByteOrder.BIG_ENDIAN).Short(1, 2, 3)
+        .End().toByteArray();
+  }
+
+  @Test
+  public void testEncode_SameAsParsedData() throws Exception {
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      final byte[] data = makeData(bitOrder);
+      final JBBPParser parser = JBBPParser.prepare(SCRIPT, bitOrder);
+      final JBBPFieldStruct parsed = parser.parse(data);
+      final JBBPEncoder encoder = JBBPEncoder.prepare(parser);
+      assertEquals(bitOrder, encoder.getBitOrder());
+      assertArrayEquals(data, encoder.encode(parsed), bitOrder.name());
+    }
+  }
+
+  @Test
+  public void testEncode_RewrittenFields() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(SCRIPT);
+    final JBBPEncoder encoder = JBBPEncoder.prepare(parser.getCompiledBlock());
+    final JBBPFieldStruct parsed = parser.parse(makeData(JBBPBitOrder.LSB0));
+
+    final JBBPAbstractField[] rootFields = parsed.getArray();
+    for (int i = 0; i < rootFields.length; i++) {
+      final JBBPNamedFieldInfo name = rootFields[i].getNameInfo();
+      if (name == null) {
+        continue;
+      }
+      if ("items".equals(name.getFieldName())) {
+        final JBBPFieldStruct[] items = ((JBBPFieldArrayStruct) rootFields[i]).getArray();
+        final JBBPAbstractField[] itemFields = items[1].getArray();
+        itemFields[0] = new JBBPFieldInt(itemFields[0].getNameInfo(), 0x12345678);
+        items[1] = new JBBPFieldStruct(items[1].getNameInfo(), itemFields);
+        rootFields[i] = new JBBPFieldArrayStruct(name, items);
+      } else if ("rest".equals(name.getFieldName())) {
+        rootFields[i] = new JBBPFieldArrayUShort(name, new short[] {9});
+      }
+    }
+    final JBBPFieldStruct changed = new JBBPFieldStruct(parsed.getNameInfo(), rootFields);
+
+    final byte[] encoded = encoder.encode(changed);
+    final JBBPFieldStruct reparsed = parser.parse(encoded);
+    assertEquals(0x12345678, reparsed.findFieldForPathAndType("items", JBBPFieldArrayStruct.class)
+        .getElementAt(1).findFieldForNameAndType("x", JBBPFieldInt.class).getAsInt());
+    assertEquals(1, reparsed.findFieldForNameAndType("rest",
+        JBBPFieldArrayUShort.class).size());
+    assertEquals(encoded.length,
+        JBBPSizeCalculator.byteLengthOf(parser.getCompiledBlock(), changed));
+    assertArrayEquals(encoded, encoder.encode(reparsed));
+  }
+
+  @Test
+  public void testEncode_VarFieldsThroughWriter() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte n; var:2 v; ushort u;");
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {1, 2, 3, 4, 5}, new JBBPVarFieldReader(), null);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPEncoder.prepare(parser.getCompiledBlock()).encode(parsed));
+
+    final JBBPEncoder encoder = JBBPEncoder.prepare(parser.getCompiledBlock(), JBBPBitOrder.LSB0,
+        null, (out, field, customType, extraData, byteOrder) -> out
+            .writeShort(((JBBPFieldInt) field).getAsInt(), byteOrder));
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final JBBPBitOutputStream out = new JBBPBitOutputStream(buffer);
+    encoder.encode(parsed, out);
+    encoder.encode(parsed, out);
+    out.flush();
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 1, 2, 3, 4, 5}, buffer.toByteArray());
+  }
+
+  @Test
+  public void testEncode_WrongStructure() throws Exception {
+    final JBBPEncoder encoder = JBBPEncoder.prepare(JBBPParser.prepare("int a; short b;").getCompiledBlock());
+    assertThrows(IllegalArgumentException.class,
+        () -> encoder.encode(JBBPParser.prepare("int a;").parse(new byte[4])));
+    assertThrows(IllegalArgumentException.class,
+        () -> encoder.encode(JBBPParser.prepare("int a; short [1] b;").parse(new byte[6])));
+    assertArrayEquals(new byte[] {0, 0, 0, 1, 0, 2},
+        encoder.encode(JBBPParser.prepare("int a; short b;").parse(new byte[] {0, 0, 0, 1, 0, 2})));
+  }
+
+  @Test
+  public void testEncode_ArrayValuesNotCopiedAndFieldsNotKept() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte n; int [n] a; skip:(n); byte [_] b;");
+    final JBBPEncoder encoder = JBBPEncoder.prepare(parser);
+    final byte[] first = new byte[] {1, 0, 0, 0, 7, 0, 5, 6};
+    final byte[] second = new byte[] {2, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 9};
+    assertArrayEquals(first, encoder.encode(parser.parse(first)));
+    assertArrayEquals(second, encoder.encode(parser.parse(second)));
+
+    final Field fieldMapField = CompiledBlockReplay.class.getDeclaredField("fieldMap");
+    fieldMapField.setAccessible(true);
+    final Field replayField = JBBPEncoder.class.getDeclaredField("replay");
+    replayField.setAccessible(true);
+    assertTrue(((JBBPNamedNumericFieldMap) fieldMapField.get(replayField.get(encoder))).isEmpty());
+
+    final JBBPFieldArrayInt array = parser.parse(second).findFieldForType(JBBPFieldArrayInt.class);
+    assertSame(array.getValueArray(JBBPInternalKey.INSTANCE),
+        array.getValueArray(JBBPInternalKey.INSTANCE));
+    assertThrows(IllegalArgumentException.class, () -> array.getValueArray(null));
+  }
+
+  private static final class JBBPVarFieldReader implements JBBPVarFieldProcessor {
+    @Override
+    public JBBPAbstractArrayField<? extends JBBPAbstractField> readVarArray(
+        final JBBPBitInputStream inStream, final int arraySize,
+        final JBBPNamedFieldInfo fieldName, final int extraValue,
+        final JBBPByteOrder byteOrder, final JBBPNamedNumericFieldMap numericFieldMap,
+        final JBBPArraySizeLimiter arraySizeLimiter) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JBBPAbstractField readVarField(final JBBPBitInputStream inStream,
+                                          final JBBPNamedFieldInfo fieldName,
+                                          final int extraValue, final JBBPByteOrder byteOrder,
+                                          final JBBPNamedNumericFieldMap numericFieldMap)
+        throws IOException {
+      return new JBBPFieldInt(fieldName, inStream.readUnsignedShort(byteOrder));
+    }
+  }
+}
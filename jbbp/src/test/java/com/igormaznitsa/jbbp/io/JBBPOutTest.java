@@ -34,6 +34,9 @@ import com.igormaznitsa.jbbp.utils.BinAnnotationWrapper;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 
 public class JBBPOutTest {
@@ -836,6 +839,102 @@ public class JBBPOutTest {
     assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, array);
   }
 
+  @Test
+  public void testBin_WritePlanGivesSameResultAsFieldObserver() throws Exception {
+    final PlanItem item1 = new PlanItem();
+    item1.id = 0x1234;
+    item1.values = new int[] {1, -1, 0x7F00FF00};
+    final PlanItem item2 = new PlanItem();
+    item2.id = -77;
+    item2.values = new int[0];
+    final PlanRoot root = new PlanRoot();
+    root.items = new PlanItem[] {item1, item2, item1};
+    root.single = item2;
+
+    final JBBPCustomFieldWriter customWriter =
+        (context, out, instance, field, annotation, value) -> out.write((Integer) value);
+
+    for (final JBBPBitOrder bitOrder : JBBPBitOrder.values()) {
+      final byte[] etalon = BeginBin(JBBPByteOrder.BIG_ENDIAN, bitOrder)
+          .Bin(root, customWriter, (annotation, field) -> true)
+          .Bin(item1, customWriter, (annotation, field) -> true).End().toByteArray();
+      final JBBPOut out = BeginBin(JBBPByteOrder.BIG_ENDIAN, bitOrder);
+      for (int i = 0; i < 3; i++) {
+        out.Bin(root, customWriter).Bin(item1, customWriter);
+      }
+      final byte[] planned = out.End().toByteArray();
+      assertEquals(etalon.length * 3, planned.length);
+      for (int i = 0; i < 3; i++) {
+        assertArrayEquals(etalon,
+            Arrays.copyOfRange(planned, i * etalon.length, (i + 1) * etalon.length));
+      }
+
+      final byte[] forced = BeginBin(JBBPByteOrder.LITTLE_ENDIAN, bitOrder)
+          .BinForceByteOrder(root, customWriter).End().toByteArray();
+      final byte[] forcedEtalon = BeginBin(JBBPByteOrder.LITTLE_ENDIAN, bitOrder)
+          .Bin(root, new BinAnnotationWrapper().setByteOrder(JBBPByteOrder.LITTLE_ENDIAN),
+              customWriter, (annotation, field) -> true).End().toByteArray();
+      assertArrayEquals(forcedEtalon, forced);
+    }
+
+    assertThrows(JBBPIllegalArgumentException.class, () -> BeginBin().Bin(item1));
+    assertThrows(NullPointerException.class, () -> BeginBin().Bin(new PlanRoot(), customWriter));
+  }
+
+  public static class PlanItem {
+    @Bin(order = 1, type = BinType.USHORT, bitOrder = JBBPBitOrder.MSB0)
+    public int id;
+    @Bin(order = 2, byteOrder = JBBPByteOrder.LITTLE_ENDIAN)
+    public int[] values;
+    @Bin(order = 3, custom = true)
+    public int custom = 0x55;
+  }
+
+  public static class PlanRoot {
+    @Bin(order = 1, type = BinType.BIT, bitNumber = JBBPBitNumber.BITS_3)
+    public byte bits = 5;
+    @Bin(order = 2, type = BinType.BIT, bitNumber = JBBPBitNumber.BITS_5, bitOrder = JBBPBitOrder.MSB0)
+    public byte msbBits = 3;
+    @Bin(order = 3)
+    public boolean flag = true;
+    @Bin(order = 4, bitOrder = JBBPBitOrder.MSB0)
+    public boolean[] flags = {true, false, true};
+    @Bin(order = 5)
+    public char chr = 'Z';
+    @Bin(order = 6, type = BinType.UINT)
+    public long uint = 0xFFFFFFF0L;
+    @Bin(order = 7)
+    public float flt = 1.25f;
+    @Bin(order = 8, byteOrder = JBBPByteOrder.LITTLE_ENDIAN)
+    public double dbl = -3.5d;
+    @Bin(order = 9, bitOrder = JBBPBitOrder.MSB0)
+    public long lng = 0x0102030405060708L;
+    @Bin(order = 10)
+    public String str = "hello";
+    @Bin(order = 11)
+    public String[] strs = {"a", null, "bc"};
+    @Bin(order = 12)
+    public byte[] bytes = {1, 2, 3};
+    @Bin(order = 13, type = BinType.BYTE_ARRAY, bitOrder = JBBPBitOrder.MSB0)
+    public String chars = "xyz";
+    @Bin(order = 14)
+    public short[] shorts = {1, -2};
+    @Bin(order = 15)
+    public char[] charArray = {'a', 'b'};
+    @Bin(order = 16)
+    public long[] longs = {-1L, 2L};
+    @Bin(order = 17, bitOrder = JBBPBitOrder.MSB0)
+    public float[] floats = {0.5f};
+    @Bin(order = 18)
+    public double[] doubles = {1.5d, 2.5d};
+    @Bin(order = 19, type = BinType.UINT_ARRAY)
+    public long[] uints = {1L, 0xFFFFFFFFL};
+    @Bin(order = 20)
+    public PlanItem[] items;
+    @Bin(order = 21)
+    public PlanItem single;
+  }
+
   @Test
   public void testBin_UndefinedType_Byte() throws Exception {
     class Test {
@@ -1617,6 +1716,96 @@ public class JBBPOutTest {
     }
   }
 
+  @Test
+  public void testReset_InsideStreamReusedWithoutCopy() throws Exception {
+    final JBBPOut out = BeginBin(JBBPByteOrder.LITTLE_ENDIAN, JBBPBitOrder.MSB0);
+    final JBBPByteArrayOutputStream first = (JBBPByteArrayOutputStream) out
+        .Bit(1).ByteOrder(JBBPByteOrder.BIG_ENDIAN).Int(0x01020304).Skip(100).End();
+    assertEquals(105, first.size());
+    final byte[] grownArray = first.getBuffer();
+    assertThrows(IllegalStateException.class, () -> out.Byte(1));
+
+    final JBBPByteArrayOutputStream second =
+        (JBBPByteArrayOutputStream) out.Reset().Bits(JBBPBitNumber.BITS_3, 1).Short(0x0102).End();
+    assertSame(first, second);
+    assertSame(grownArray, second.getBuffer());
+
+    final byte[] expected = BeginBin(JBBPByteOrder.LITTLE_ENDIAN, JBBPBitOrder.MSB0)
+        .Bits(JBBPBitNumber.BITS_3, 1).Short(0x0102).End().toByteArray();
+    assertArrayEquals(expected, Arrays.copyOf(second.getBuffer(), second.size()));
+    final ByteBuffer wrapped = second.asByteBuffer();
+    assertEquals(expected.length, wrapped.remaining());
+    assertSame(grownArray, wrapped.array());
+
+    assertEquals(3L, out.getByteCounter());
+    assertEquals(0L, out.Reset().getByteCounter());
+    assertEquals(0, second.size());
+  }
+
+  @Test
+  public void testReset_DropsNotWrittenData() throws Exception {
+    final JBBPByteArrayOutputStream buffer = new JBBPByteArrayOutputStream();
+    final JBBPOut out = BeginBin(buffer, JBBPByteOrder.BIG_ENDIAN, JBBPBitOrder.LSB0);
+    out.Bits(JBBPBitNumber.BITS_4, 0xF);
+    out.Reset().Bits(JBBPBitNumber.BITS_4, 1).Byte(2).End();
+    assertArrayEquals(new byte[] {0x21, 0}, buffer.toByteArray());
+  }
+
+  @Test
+  public void testReset_Retarget() throws Exception {
+    final JBBPOut out = BeginBin(JBBPByteOrder.LITTLE_ENDIAN, JBBPBitOrder.LSB0);
+    out.Short(1);
+
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    assertSame(stream, out.Reset(stream).Short(0x0102).End());
+    assertArrayEquals(new byte[] {2, 1}, stream.toByteArray());
+
+    final ByteBuffer first = ByteBuffer.allocate(8);
+    assertNull(out.Reset(first).Int(0x01020304).End());
+    final ByteBuffer second = ByteBuffer.allocateDirect(8);
+    second.put((byte) 0x77);
+    out.Reset(second).ByteOrder(JBBPByteOrder.BIG_ENDIAN).Short(0x0506).End();
+
+    assertEquals(4, first.position());
+    assertEquals(3, second.position());
+    assertEquals(0x04030201, first.getInt(0));
+    assertEquals(0x0506, second.getShort(1));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> out.Reset(new JBBPBitOutputStream(new ByteArrayOutputStream())));
+    assertThrows(NullPointerException.class, () -> out.Reset((OutputStream) null));
+  }
+
+  @Test
+  public void testReset_RetargetedInsideSessionWritesThroughBeforeFlush() throws Exception {
+    final JBBPOut out = BeginBin(JBBPByteOrder.BIG_ENDIAN, JBBPBitOrder.LSB0);
+    out.Int(0x01020304);
+
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    out.Reset(stream).Short(0x0102);
+    assertArrayEquals(new byte[] {1, 2}, stream.toByteArray());
+
+    final ByteBuffer buffer = ByteBuffer.allocate(8);
+    out.Reset(buffer).Int(0x05060708);
+    assertEquals(4, buffer.position());
+    assertEquals(0x05060708, buffer.getInt(0));
+    assertArrayEquals(new byte[] {1, 2}, stream.toByteArray());
+  }
+
+  @Test
+  public void testReset_ExternalBitStreamIsNotRetargeted() throws Exception {
+    final ByteArrayOutputStream target = new ByteArrayOutputStream();
+    final JBBPBitOutputStream bitStream = new JBBPBitOutputStream(target);
+    final JBBPOut out = BeginBin(bitStream);
+    out.Byte(1);
+
+    assertThrows(IllegalStateException.class, () -> out.Reset(new ByteArrayOutputStream()));
+    assertThrows(IllegalStateException.class, () -> out.Reset(ByteBuffer.allocate(4)));
+
+    out.Byte(2).End();
+    assertArrayEquals(new byte[] {1, 2}, target.toByteArray());
+  }
+
   @Bin
   private static class TestWithLongUintField {
     @Bin(type = BinType.UINT)
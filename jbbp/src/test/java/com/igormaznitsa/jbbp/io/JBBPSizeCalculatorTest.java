@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.igormaznitsa.jbbp.JBBPNamedNumericFieldMap;
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.JBBPVarFieldProcessor;
+import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
+import com.igormaznitsa.jbbp.exceptions.JBBPIllegalArgumentException;
+import com.igormaznitsa.jbbp.mapper.Bin;
+import com.igormaznitsa.jbbp.mapper.BinType;
+import com.igormaznitsa.jbbp.model.JBBPAbstractArrayField;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class JBBPSizeCalculatorTest {
+
+  private static String repeat(final char c, final int times) {
+    final char[] chars = new char[times];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  @Test
+  public void testObjectSize_SameAsWritten() throws Exception {
+    final SizeRoot root = new SizeRoot();
+    root.a = 3;
+    root.b = 17;
+    root.text = "\u4e2d\u6587 text";
+    root.longText = repeat('x', 300);
+    root.texts = new String[] {null, "", "\ud83d\ude00"};
+    root.chars = "abc";
+    root.values = new int[] {1, 2, 3};
+    root.doubles = new double[] {1.0d, 2.0d};
+    root.nested = new SizeItem();
+    root.items = new SizeItem[] {new SizeItem(), new SizeItem(), new SizeItem()};
+
+    final byte[] written = JBBPOut.BeginBin().Bin(root).End().toByteArray();
+    assertEquals(written.length, JBBPSizeCalculator.byteLengthOf(root));
+    assertEquals(4 + 8 + 8 * (1 + 11) + 8 * (3 + 300) + 8 * (1 + 1 + 5) + 16 * 3 + 32 * 3 + 64 * 2
+            + 4 * 12, JBBPSizeCalculator.bitLengthOf(root));
+  }
+
+  @Test
+  public void testObjectSize_CustomField() throws Exception {
+    final WithCustom obj = new WithCustom();
+    final JBBPCustomFieldWriter writer =
+        (context, out, instance, field, annotation, value) -> out.write(new byte[(Integer) value]);
+    assertThrows(JBBPIllegalArgumentException.class, () -> JBBPSizeCalculator.bitLengthOf(obj));
+    assertEquals(8 + 5 * 8, JBBPSizeCalculator.bitLengthOf(obj, writer));
+    assertEquals(JBBPOut.BeginBin().Bin(obj, writer).End().toByteArray().length,
+        JBBPSizeCalculator.byteLengthOf(obj, writer));
+  }
+
+  @Test
+  public void testScriptSize_SameAsParsed() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(
+        "bit:3 a; bit:7 b; align:4; ubyte len; byte [len] data; skip:(len-1); stringj s; stringj [2] ss;"
+            + "items [len] { int x; bit:4 [2] q; } empty [len-3] { long z; } reset$$; bit:1; align:(len);"
+            + "val:(len*2) v; bit:(len) [1] w; bit:5; uint u; floatj f; ushort [_] rest;");
+    final byte[] data = JBBPOut.BeginBin()
+        .Bits(JBBPBitNumber.BITS_3, 1).Bits(JBBPBitNumber.BITS_7, 2).Align(4)
+        .Byte(3).Byte(1, 2, 3).Skip(2).String("\u00e9\u00e9").Strings("", repeat('z', 200))
+        .Int(1).Bits(JBBPBitNumber.BITS_4, 1, 2).Int(2).Bits(JBBPBitNumber.BITS_4, 1, 2)
+        .Int(3).Bits(JBBPBitNumber.BITS_4, 1, 2).ResetCounter()
+        .Bit(1).Align(3).Bits(JBBPBitNumber.BITS_3, 5).Bits(JBBPBitNumber.BITS_5, 0).Int(7).Float(1.5f).Short(1, 2, 3)
+        .End().toByteArray();
+
+    final JBBPFieldStruct parsed = parser.parse(data);
+    assertEquals(data.length, JBBPSizeCalculator.byteLengthOf(parser.getCompiledBlock(), parsed));
+    assertEquals(data.length * 8L,
+        JBBPSizeCalculator.bitLengthOf(parser.getCompiledBlock(), parsed));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPSizeCalculator.bitLengthOf(JBBPParser.prepare("int unknown;").getCompiledBlock(), parsed));
+  }
+
+  @Test
+  public void testScriptSize_VarFieldThroughSizer() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte n; var:2 v; bit:4 b;");
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {1, 2, 3, 4},
+        new JBBPVarFieldProcessorStub(), null);
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPSizeCalculator.bitLengthOf(parser.getCompiledBlock(), parsed));
+    assertEquals(8 + 16 + 4, JBBPSizeCalculator.bitLengthOf(parser.getCompiledBlock(), parsed,
+        null, (field, customType, extraData) -> extraData * 8L));
+    assertEquals(4, JBBPSizeCalculator.byteLengthOf(parser.getCompiledBlock(), parsed,
+        null, (field, customType, extraData) -> extraData * 8L));
+  }
+
+  private static final class JBBPVarFieldProcessorStub implements JBBPVarFieldProcessor {
+    @Override
+    public JBBPAbstractArrayField<? extends JBBPAbstractField> readVarArray(
+        final JBBPBitInputStream inStream, final int arraySize,
+        final JBBPNamedFieldInfo fieldName, final int extraValue,
+        final JBBPByteOrder byteOrder,
+        final JBBPNamedNumericFieldMap numericFieldMap,
+        final JBBPArraySizeLimiter arraySizeLimiter) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JBBPAbstractField readVarField(
+        final JBBPBitInputStream inStream,
+        final JBBPNamedFieldInfo fieldName, final int extraValue,
+        final JBBPByteOrder byteOrder,
+        final JBBPNamedNumericFieldMap numericFieldMap)
+        throws IOException {
+      return new JBBPFieldInt(fieldName, inStream.readUnsignedShort(byteOrder));
+    }
+  }
+
+  public static class SizeItem {
+    @Bin(order = 1, type = BinType.BIT_ARRAY, bitNumber = JBBPBitNumber.BITS_4)
+    public byte[] nibbles = new byte[] {1, 2, 3};
+  }
+
+  public static class SizeRoot {
+    @Bin(order = 1, type = BinType.BIT, bitNumber = JBBPBitNumber.BITS_4)
+    public byte a;
+    @Bin(order = 2, type = BinType.UBYTE)
+    public int b;
+    @Bin(order = 3)
+    public String text;
+    @Bin(order = 4)
+    public String longText;
+    @Bin(order = 5)
+    public String[] texts;
+    @Bin(order = 6, type = BinType.USHORT_ARRAY)
+    public String chars;
+    @Bin(order = 7)
+    public int[] values;
+    @Bin(order = 8)
+    public double[] doubles;
+    @Bin(order = 9)
+    public SizeItem nested;
+    @Bin(order = 10)
+    public SizeItem[] items;
+  }
+
+  public static class WithCustom {
+    @Bin(order = 1)
+    public byte a = 1;
+    @Bin(order = 2, custom = true)
+    public int size = 5;
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.igormaznitsa.jbbp.JBBPCustomFieldTypeProcessor;
+import com.igormaznitsa.jbbp.JBBPCustomScalarFieldTypeProcessor;
 import com.igormaznitsa.jbbp.JBBPParser;
 import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
 import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
@@ -34,9 +35,11 @@ import com.igormaznitsa.jbbp.model.JBBPFieldArrayByte;
 import com.igormaznitsa.jbbp.model.JBBPFieldArrayInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldInt;
 import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import com.igormaznitsa.jbbp.utils.JBBPCustomFieldTypeProcessorAggregator;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -122,6 +125,108 @@ public class CustomThreeByteIntegerTypeTest extends AbstractParserIntegrationTes
         .findFieldForType(JBBPFieldArrayInt.class).getArray());
   }
 
+  @Test
+  public void testScalarProcessor_SingleFieldsAndArrays() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("int24 a; <int24 b; int24 [2] c; int24 [_] d;",
+            new Int24ScalarCustomTypeProcessor());
+    final JBBPFieldStruct struct = parser.parse(
+        new byte[] {1, 2, 3, 1, 2, 3, 0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0, 4, 0, 0, 5});
+    assertEquals(0x010203, struct.findFieldForNameAndType("a", JBBPFieldInt.class).getAsInt());
+    assertEquals(0x030201, struct.findFieldForNameAndType("b", JBBPFieldInt.class).getAsInt());
+    assertArrayEquals(new int[] {1, 2},
+        struct.findFieldForNameAndType("c", JBBPFieldArrayInt.class).getArray());
+    assertArrayEquals(new int[] {3, 4, 5},
+        struct.findFieldForNameAndType("d", JBBPFieldArrayInt.class).getArray());
+  }
+
+  @Test
+  public void testScalarProcessor_WholeStreamArrayLimit() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("int24 [_] d;", new Int24ScalarCustomTypeProcessor());
+    assertArrayEquals(new int[] {1, 2},
+        parser.parse(new ByteArrayInputStream(new byte[] {0, 0, 1, 0, 0, 2, 0, 0, 3}), null, null,
+                () -> -2)
+            .findFieldForType(JBBPFieldArrayInt.class).getArray());
+  }
+
+  @Test
+  public void testScalarProcessor_ThroughAggregator() throws Exception {
+    final AtomicInteger int24Calls = new AtomicInteger();
+    final JBBPParser parser =
+        JBBPParser.prepare("int24 a; some [2] {int24 b;} int24 [2] c;",
+            new JBBPCustomFieldTypeProcessorAggregator(new Int24ScalarCustomTypeProcessor() {
+              @Override
+              public long readCustomScalarValue(final JBBPBitInputStream in,
+                                                final JBBPBitOrder bitOrder, final int parserFlags,
+                                                final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                                final int extraData) throws IOException {
+                int24Calls.incrementAndGet();
+                return super.readCustomScalarValue(in, bitOrder, parserFlags,
+                    customTypeFieldInfo, extraData);
+              }
+            }, new JBBPCustomFieldTypeProcessor() {
+              @Override
+              public String[] getCustomFieldTypes() {
+                return new String[] {"int24old"};
+              }
+
+              @Override
+              public boolean isAllowed(final JBBPFieldTypeParameterContainer fieldType,
+                                       final String fieldName, final int extraData,
+                                       final boolean isArray) {
+                return true;
+              }
+
+              @Override
+              public JBBPAbstractField readCustomFieldType(final JBBPBitInputStream in,
+                                                           final JBBPBitOrder bitOrder,
+                                                           final int parserFlags,
+                                                           final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                                           final JBBPNamedFieldInfo fieldName,
+                                                           final int extraData,
+                                                           final boolean readWholeStream,
+                                                           final int arrayLength,
+                                                           final JBBPArraySizeLimiter arraySizeLimiter) {
+                throw new AssertionError("Must not be called");
+              }
+            }));
+    final JBBPFieldStruct struct =
+        parser.parse(new byte[] {0, 0, 1, 0, 0, 2, 0, 0, 3, 0, 0, 4, 0, 0, 5});
+    assertEquals(5, int24Calls.get());
+    assertEquals(1, struct.findFieldForNameAndType("a", JBBPFieldInt.class).getAsInt());
+    assertArrayEquals(new int[] {4, 5},
+        struct.findFieldForNameAndType("c", JBBPFieldArrayInt.class).getArray());
+  }
+
+  @Test
+  public void testScalarProcessor_OverriddenFieldReadIsCalled() throws Exception {
+    final AtomicInteger fieldReads = new AtomicInteger();
+    final JBBPParser parser =
+        JBBPParser.prepare("int24 a; int24 [2] b;", new Int24ScalarCustomTypeProcessor() {
+          @Override
+          public JBBPAbstractField readCustomFieldType(final JBBPBitInputStream in,
+                                                       final JBBPBitOrder bitOrder,
+                                                       final int parserFlags,
+                                                       final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                                       final JBBPNamedFieldInfo fieldName,
+                                                       final int extraData,
+                                                       final boolean readWholeStream,
+                                                       final int arrayLength,
+                                                       final JBBPArraySizeLimiter arraySizeLimiter)
+              throws IOException {
+            fieldReads.incrementAndGet();
+            return super.readCustomFieldType(in, bitOrder, parserFlags, customTypeFieldInfo,
+                fieldName, extraData, readWholeStream, arrayLength, arraySizeLimiter);
+          }
+        });
+    final JBBPFieldStruct struct = parser.parse(new byte[] {0, 0, 1, 0, 0, 2, 0, 0, 3});
+    assertEquals(2, fieldReads.get());
+    assertEquals(1, struct.findFieldForNameAndType("a", JBBPFieldInt.class).getAsInt());
+    assertArrayEquals(new int[] {2, 3},
+        struct.findFieldForNameAndType("b", JBBPFieldArrayInt.class).getArray());
+  }
+
   /**
    * Buffer to accumulate integer values.
    */
@@ -209,4 +314,37 @@ public class CustomThreeByteIntegerTypeTest extends AbstractParserIntegrationTes
     }
 
   }
+
+  /**
+   * Three byte integer processor reading values as primitives.
+   */
+  private static class Int24ScalarCustomTypeProcessor
+      implements JBBPCustomScalarFieldTypeProcessor {
+
+    @Override
+    public String[] getCustomFieldTypes() {
+      return new String[] {"int24"};
+    }
+
+    @Override
+    public boolean isAllowed(final JBBPFieldTypeParameterContainer fieldType,
+                             final String fieldName, final int extraData, final boolean isArray) {
+      return extraData == 0;
+    }
+
+    @Override
+    public boolean isIntValue(final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                              final int extraData) {
+      return true;
+    }
+
+    @Override
+    public long readCustomScalarValue(final JBBPBitInputStream in, final JBBPBitOrder bitOrder,
+                                      final int parserFlags,
+                                      final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                      final int extraData) throws IOException {
+      return Int24CustomTypeProcessor.readThreeBytesAsInt(in, customTypeFieldInfo.getByteOrder(),
+          bitOrder);
+    }
+  }
 }
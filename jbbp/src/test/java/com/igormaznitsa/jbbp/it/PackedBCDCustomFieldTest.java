@@ -16,10 +16,12 @@
 
 package com.igormaznitsa.jbbp.it;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.igormaznitsa.jbbp.JBBPCustomFieldTypeProcessor;
+import com.igormaznitsa.jbbp.JBBPCustomScalarFieldTypeProcessor;
 import com.igormaznitsa.jbbp.JBBPParser;
 import com.igormaznitsa.jbbp.compiler.JBBPNamedFieldInfo;
 import com.igormaznitsa.jbbp.compiler.tokenizer.JBBPFieldTypeParameterContainer;
@@ -118,6 +120,45 @@ public class PackedBCDCustomFieldTest implements JBBPCustomFieldTypeProcessor {
     assertEquals(1234567L, result.findFieldForType(JBBPFieldLong.class).getAsLong());
   }
 
+  @Test
+  public void testParse_ScalarProcessor_SingleAndArray() throws Exception {
+    final PackedBCDCustomFieldTest base = this;
+    final JBBPParser parser = JBBPParser.prepare("bcd:4 a; sbcd:2 [2] b;",
+        new JBBPCustomScalarFieldTypeProcessor() {
+          @Override
+          public String[] getCustomFieldTypes() {
+            return types;
+          }
+
+          @Override
+          public boolean isAllowed(final JBBPFieldTypeParameterContainer fieldType,
+                                   final String fieldName, final int extraData,
+                                   final boolean isArray) {
+            return base.isAllowed(fieldType, fieldName, extraData, isArray);
+          }
+
+          @Override
+          public boolean isIntValue(final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                    final int extraData) {
+            return false;
+          }
+
+          @Override
+          public long readCustomScalarValue(final JBBPBitInputStream in,
+                                            final JBBPBitOrder bitOrder, final int parserFlags,
+                                            final JBBPFieldTypeParameterContainer customTypeFieldInfo,
+                                            final int extraData) throws IOException {
+            return readValueFromPackedDecimal(in, extraData,
+                "sbcd".equals(customTypeFieldInfo.getTypeName()));
+          }
+        });
+    final JBBPFieldStruct result =
+        parser.parse(new byte[] {0x12, 0x34, 0x56, 0x7F, 0x12, 0x3D, 0x45, 0x6C});
+    assertEquals(1234567L, result.findFieldForNameAndType("a", JBBPFieldLong.class).getAsLong());
+    assertArrayEquals(new long[] {-123L, 456L},
+        result.findFieldForNameAndType("b", JBBPFieldArrayLong.class).getArray());
+  }
+
   @Test
   public void testParse_SingleDefaultNonamedPackedDecimal_LittleEndian_Exception()
       throws Exception {
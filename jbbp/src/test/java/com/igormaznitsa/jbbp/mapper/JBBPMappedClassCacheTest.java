@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.igormaznitsa.jbbp.io.JBBPOut;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JBBPMappedClassCacheTest {
+
+  @Test
+  void testHitsMissesAndRemove() {
+    final JBBPMappedClassCache cache = new JBBPMappedClassCache(0);
+    assertNull(cache.get(First.class));
+    assertEquals(1L, cache.getMissCount());
+
+    final List<MappedFieldRecord> records = JBBPMapper.findAffectedFields(First.class, null);
+    cache.put(First.class, records);
+    assertSame(records, cache.get(First.class));
+    assertSame(records, cache.get(First.class));
+    assertEquals(2L, cache.getHitCount());
+    assertEquals(1L, cache.getMissCount());
+    assertEquals(1, cache.size());
+
+    assertTrue(cache.remove(First.class));
+    assertFalse(cache.remove(First.class));
+    assertNull(cache.get(First.class));
+    assertEquals(2L, cache.getMissCount());
+
+    cache.resetCounters();
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(0L, cache.getMissCount());
+  }
+
+  @Test
+  void testMaxSize() {
+    final JBBPMappedClassCache cache = new JBBPMappedClassCache(1);
+    cache.put(First.class, JBBPMapper.findAffectedFields(First.class, null));
+    cache.put(Second.class, JBBPMapper.findAffectedFields(Second.class, null));
+    assertEquals(1, cache.size());
+    assertNotNull(cache.get(Second.class));
+
+    cache.setMaxSize(0);
+    cache.put(First.class, JBBPMapper.findAffectedFields(First.class, null));
+    assertEquals(2, cache.size());
+    cache.clear();
+    assertEquals(0, cache.size());
+
+    assertThrows(IllegalArgumentException.class, () -> cache.setMaxSize(-1));
+  }
+
+  @Test
+  void testMaxSize_EarliestCachedEvictedFirst() {
+    final JBBPMappedClassCache cache = new JBBPMappedClassCache(2);
+    cache.put(First.class, JBBPMapper.findAffectedFields(First.class, null));
+    cache.put(Second.class, JBBPMapper.findAffectedFields(Second.class, null));
+    cache.put(Third.class, JBBPMapper.findAffectedFields(Third.class, null));
+    assertEquals(2, cache.size());
+    assertNull(cache.get(First.class));
+    assertNotNull(cache.get(Second.class));
+    assertNotNull(cache.get(Third.class));
+
+    assertTrue(cache.remove(Second.class));
+    cache.put(First.class, JBBPMapper.findAffectedFields(First.class, null));
+    cache.put(Second.class, JBBPMapper.findAffectedFields(Second.class, null));
+    assertEquals(2, cache.size());
+    assertNull(cache.get(Third.class));
+    assertNotNull(cache.get(First.class));
+    assertNotNull(cache.get(Second.class));
+  }
+
+  @Test
+  void testSharedMapperCache() {
+    final JBBPMappedClassCache cache = JBBPMapper.getFieldCache();
+    JBBPMapper.findAffectedFields(First.class, null);
+    final long hits = cache.getHitCount();
+    JBBPMapper.findAffectedFields(new First(), null);
+    assertTrue(cache.getHitCount() > hits);
+    assertTrue(cache.remove(First.class));
+  }
+
+  @Test
+  void testWritePlansKeptInSharedCache() throws Exception {
+    final JBBPMappedClassCache cache = JBBPMapper.getFieldCache();
+    cache.remove(First.class);
+    assertNull(cache.findWritePlans(First.class, 1));
+
+    final First first = new First();
+    first.a = 0x01020304;
+    assertArrayEquals(new byte[] {1, 2, 3, 4}, JBBPOut.BeginBin().Bin(first).End().toByteArray());
+    final long hits = cache.getHitCount();
+    final long misses = cache.getMissCount();
+    final Object[] plans = cache.findWritePlans(First.class, 1);
+    assertNotNull(plans);
+    assertNotNull(plans[0]);
+    assertEquals(hits, cache.getHitCount());
+    assertEquals(misses, cache.getMissCount());
+    assertThrows(IllegalArgumentException.class, () -> cache.findWritePlans(First.class, 1, null));
+
+    assertTrue(cache.remove(First.class));
+    assertArrayEquals(new byte[] {1, 2, 3, 4}, JBBPOut.BeginBin().Bin(first).End().toByteArray());
+    assertNotSame(plans, cache.findWritePlans(First.class, 1));
+    assertTrue(cache.remove(First.class));
+  }
+
+  public static class First {
+    @Bin
+    public int a;
+  }
+
+  public static class Second {
+    @Bin
+    public byte b;
+  }
+
+  public static class Third {
+    @Bin
+    public short c;
+  }
+}
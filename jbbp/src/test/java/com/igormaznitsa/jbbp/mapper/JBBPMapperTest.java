@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -35,8 +36,10 @@ import com.igormaznitsa.jbbp.exceptions.JBBPNumericFieldValueConversionException
 import com.igormaznitsa.jbbp.io.JBBPBitNumber;
 import com.igormaznitsa.jbbp.io.JBBPOut;
 import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
 import java.io.ByteArrayInputStream;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.Test;
 
 public class JBBPMapperTest {
@@ -1380,6 +1383,212 @@ public class JBBPMapperTest {
     assertEquals(0, parsed.b);
   }
 
+  @Test
+  void testMap_PrimitiveSettersAndDefaultConstructorForManyInstances() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("byte a; short b; int c; long d; bool e; floatj f; doublej g; inner {byte h;}");
+    for (int i = 0; i < 100; i++) {
+      final byte[] data = new byte[] {(byte) i, 0, 2, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 4, 1,
+          0x3F, (byte) 0x80, 0, 0, 0x3F, (byte) 0xF0, 0, 0, 0, 0, 0, 0, (byte) (i + 1)};
+      final WithSetters mapped = parser.parse(data).mapTo(new WithSetters());
+      assertEquals((byte) i, mapped.getA());
+      assertEquals(2, mapped.getB());
+      assertEquals(3, mapped.getC());
+      assertEquals(4L, mapped.getD());
+      assertTrue(mapped.isE());
+      assertEquals(1.0f, mapped.getF());
+      assertEquals(1.0d, mapped.getG());
+      assertEquals((byte) (i + 1), mapped.inner.h);
+    }
+  }
+
+  @Test
+  void testMap_ReuseExistingValues() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("ubyte len; items [len] { byte a; ushort [2] c; } int [2] ints; floatj [1] f;");
+    final byte[] data = new byte[] {2, 1, 0, 2, 0, 3, 4, 0, 5, 0, 6, 0, 0, 0, 7, 0, 0, 0, 8, 0x3F, (byte) 0x80, 0, 0};
+
+    final Reused reused = parser.parse(data).mapTo(new Reused(), JBBPMapper.FLAG_REUSE_EXISTING_VALUES);
+    final Reused.Item[] items = reused.items;
+    final Reused.Item item = items[1];
+    final char[] chars = item.c;
+    final int[] ints = reused.ints;
+    final float[] floats = reused.f;
+
+    data[1] = 11;
+    data[14] = 17;
+    parser.parse(data).mapTo(reused, JBBPMapper.FLAG_REUSE_EXISTING_VALUES);
+    assertSame(items, reused.items);
+    assertSame(item, reused.items[1]);
+    assertSame(chars, reused.items[1].c);
+    assertSame(ints, reused.ints);
+    assertSame(floats, reused.f);
+    assertEquals(11, reused.items[0].a);
+    assertArrayEquals(new int[] {17, 8}, reused.ints);
+    assertArrayEquals(new char[] {5, 6}, reused.items[1].c);
+    assertEquals(1.0f, reused.f[0]);
+
+    parser.parse(data).mapTo(reused);
+    assertSame(items, reused.items);
+    assertNotSame(ints, reused.ints);
+
+    final byte[] shorter = new byte[] {1, 21, 0, 2, 0, 3, 0, 0, 0, 7, 0, 0, 0, 8, 0, 0, 0, 0};
+    assertThrows(JBBPMapperException.class, () -> parser.parse(shorter).mapTo(reused));
+    parser.parse(shorter).mapTo(reused, JBBPMapper.FLAG_REUSE_EXISTING_VALUES);
+    assertEquals(1, reused.items.length);
+    assertSame(items[0], reused.items[0]);
+    assertEquals(21, reused.items[0].a);
+  }
+
+  @Test
+  void testMap_ParallelStructArray() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("int len; items [len] { int a; inner { byte b; } }");
+    final int number = 20_000;
+    final JBBPOut out = JBBPOut.BeginBin().Int(number);
+    for (int i = 0; i < number; i++) {
+      out.Int(i * 3).Byte(i);
+    }
+    final JBBPFieldStruct parsed = parser.parse(out.End().toByteArray());
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final Reused.Holder sequential = parsed.mapTo(new Reused.Holder());
+      final Reused.Holder parallel = parsed.mapTo(new Reused.Holder(), 0, pool, 100);
+      assertEquals(number, parallel.items.length);
+      for (int i = 0; i < number; i++) {
+        assertEquals(sequential.items[i].a, parallel.items[i].a);
+        assertEquals(sequential.items[i].inner.b, parallel.items[i].inner.b);
+        assertEquals(i * 3, parallel.items[i].a);
+      }
+
+      final Reused.Holder small = JBBPMapper.map(parsed, new Reused.Holder(), null, 0, null,
+          pool, number + 1);
+      assertEquals((number - 1) * 3, small.items[number - 1].a);
+
+      final JBBPFieldStruct broken =
+          JBBPParser.prepare("int len; items [len] { int a; inner { int b; } }")
+              .parse(JBBPOut.BeginBin().Int(200).Byte(new byte[200 * 8]).End().toByteArray());
+      assertThrows(JBBPMapperException.class, () -> broken.mapTo(new Reused.Holder(), 0, pool, 10));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  public static class Reused {
+    @Bin(order = 1, type = BinType.UBYTE)
+    public int len;
+    @Bin(order = 2)
+    public Item[] items;
+    @Bin(order = 3)
+    public int[] ints;
+    @Bin(order = 4)
+    public float[] f;
+
+    public static class Item {
+      @Bin(order = 1)
+      public byte a;
+      @Bin(order = 2, type = BinType.USHORT_ARRAY)
+      public char[] c;
+    }
+
+    public static class Holder {
+      @Bin
+      public Element[] items;
+    }
+
+    public static class Element {
+      @Bin(order = 1)
+      public int a;
+      @Bin(order = 2)
+      public Inner inner;
+    }
+
+    public static class Inner {
+      @Bin
+      public byte b;
+    }
+  }
+
+  public static class WithSetters {
+    @Bin(order = 1)
+    private byte a;
+    @Bin(order = 2)
+    private short b;
+    @Bin(order = 3)
+    private int c;
+    @Bin(order = 4)
+    private long d;
+    @Bin(order = 5)
+    private boolean e;
+    @Bin(order = 6)
+    private float f;
+    @Bin(order = 7)
+    private double g;
+    @Bin(order = 8)
+    public Inner inner;
+
+    public byte getA() {
+      return this.a;
+    }
+
+    public void setA(final byte value) {
+      this.a = value;
+    }
+
+    public short getB() {
+      return this.b;
+    }
+
+    public void setB(final short value) {
+      this.b = value;
+    }
+
+    public int getC() {
+      return this.c;
+    }
+
+    public void setC(final int value) {
+      this.c = value;
+    }
+
+    public long getD() {
+      return this.d;
+    }
+
+    public void setD(final long value) {
+      this.d = value;
+    }
+
+    public boolean isE() {
+      return this.e;
+    }
+
+    public void setE(final boolean value) {
+      this.e = value;
+    }
+
+    public float getF() {
+      return this.f;
+    }
+
+    public void setF(final float value) {
+      this.f = value;
+    }
+
+    public double getG() {
+      return this.g;
+    }
+
+    public void setG(final double value) {
+      this.g = value;
+    }
+
+    public static class Inner {
+      @Bin
+      byte h;
+    }
+  }
+
   public static class StaticTop {
     @Bin
     public StaticLevelOne levelOne;
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.exceptions.JBBPMapperException;
+import com.igormaznitsa.jbbp.model.JBBPAbstractField;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import java.io.ByteArrayInputStream;
+import org.junit.jupiter.api.Test;
+
+public class JBBPMappingPlanTest {
+
+  @Test
+  void testMapStructArrayWithNestedPlans() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare("ubyte len; int; items [len] { byte a; inner { short b; } } byte [2] tail;");
+    final JBBPMappingPlan plan = JBBPMappingPlan.make(parser.getCompiledBlock(), Root.class);
+
+    for (int n = 0; n < 3; n++) {
+      final byte[] data = new byte[1 + 4 + n * 3 + 2];
+      data[0] = (byte) n;
+      for (int i = 0; i < n; i++) {
+        data[5 + i * 3] = (byte) (i + 10);
+        data[5 + i * 3 + 2] = (byte) (i + 20);
+      }
+      data[data.length - 2] = 1;
+      data[data.length - 1] = 2;
+
+      final JBBPFieldStruct parsed = parser.parse(data);
+      final Root byPlan = plan.map(parsed, new Root());
+      final Root byMapper = parsed.mapTo(new Root());
+
+      assertEquals(n, byPlan.len);
+      assertEquals(n, byPlan.items.length);
+      for (int i = 0; i < n; i++) {
+        assertEquals(i + 10, byPlan.items[i].a);
+        assertEquals(i + 20, byPlan.items[i].inner.b);
+        assertEquals(byMapper.items[i].a, byPlan.items[i].a);
+        assertEquals(byMapper.items[i].inner.b, byPlan.items[i].inner.b);
+      }
+      assertArrayEquals(new byte[] {1, 2}, byPlan.tail);
+    }
+  }
+
+  @Test
+  void testPlanCachedByParserAndMapsReorderedStructure() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; int; items [len] { byte a; inner { short b; } } byte [2] tail;");
+    final JBBPMappingPlan plan = parser.getMappingPlan(Root.class);
+    assertSame(plan, parser.getMappingPlan(Root.class));
+    assertNotSame(plan, parser.getMappingPlan(WholeRoot.class));
+    assertSame(Root.class, plan.getMappingClass());
+    assertSame(parser.getCompiledBlock(), plan.getCompiledBlock());
+
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {1, 0, 0, 0, 0, 3, 0, 4, 5, 6});
+    final JBBPAbstractField[] fields = parsed.getArray();
+    final JBBPFieldStruct reordered = new JBBPFieldStruct(parsed.getNameInfo(),
+        new JBBPAbstractField[] {fields[3], fields[2], fields[1], fields[0]});
+
+    for (final JBBPFieldStruct struct : new JBBPFieldStruct[] {reordered, parsed, reordered}) {
+      final Root root = plan.map(struct, new Root());
+      assertEquals(1, root.len);
+      assertEquals(3, root.items[0].a);
+      assertEquals(4, root.items[0].inner.b);
+      assertArrayEquals(new byte[] {5, 6}, root.tail);
+    }
+  }
+
+  @Test
+  void testMapForPathAndStructPath() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("header { ushort id; body { int value; } }");
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {0, 7, 0, 0, 1, 2});
+
+    final WithPath withPath = JBBPMappingPlan.make(parser.getCompiledBlock(), WithPath.class)
+        .map(parsed, new WithPath());
+    assertEquals(0x0102, withPath.value);
+
+    final Header header =
+        JBBPMappingPlan.make(parser.getCompiledBlock(), "header", Header.class, null)
+            .map(parsed.findFieldForNameAndType("header", JBBPFieldStruct.class), new Header());
+    assertEquals(7, header.id);
+  }
+
+  @Test
+  void testMissingFieldsAndForeignStructure() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; int;",
+        JBBPParser.FLAG_SKIP_REMAINING_FIELDS_IF_EOF);
+    final JBBPMappingPlan plan =
+        JBBPMappingPlan.make(JBBPParser.prepare("ubyte len; byte [2] tail;").getCompiledBlock(),
+            Root.class);
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {3});
+    assertThrows(JBBPMapperException.class, () -> plan.map(parsed, new Root()));
+
+    final Root root = plan.map(parsed, new Root(), null, JBBPMapper.FLAG_IGNORE_MISSING_VALUES);
+    assertEquals(3, root.len);
+    assertNull(root.tail);
+
+    assertThrows(IllegalArgumentException.class, () -> plan.map(parsed, new Header()));
+  }
+
+  @Test
+  void testParseIntoWithoutStructureTree() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(
+        "ubyte len; int; items [len] { byte a; inner { short b; } } byte [2] tail; "
+            + "{ byte hidden; } rest [_] { byte a; inner { short b; } }");
+    final JBBPMappingPlan plan = JBBPMappingPlan.make(parser.getCompiledBlock(), WholeRoot.class);
+    final byte[] data = new byte[] {2, 0, 0, 0, 0, 10, 0, 20, 11, 0, 21, 1, 2, 99, 30, 0, 40};
+
+    final WholeRoot direct = parser.parseInto(data, plan, new WholeRoot());
+    final WholeRoot mapped = parser.parse(data).mapTo(new WholeRoot());
+
+    assertEquals(2, direct.len);
+    assertEquals(2, direct.items.length);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(mapped.items[i].a, direct.items[i].a);
+      assertEquals(mapped.items[i].inner.b, direct.items[i].inner.b);
+    }
+    assertEquals(1, direct.rest.length);
+    assertEquals(30, direct.rest[0].a);
+    assertEquals(40, direct.rest[0].inner.b);
+    assertArrayEquals(mapped.tail, direct.tail);
+  }
+
+  @Test
+  void testParseIntoReusesExistingInstances() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("ubyte len; int; items [len] { byte a; inner { short b; } } byte [2] tail;");
+    final JBBPMappingPlan plan = JBBPMappingPlan.make(parser.getCompiledBlock(), Root.class);
+    final Root root = parser.parseInto(new byte[] {1, 0, 0, 0, 0, 5, 0, 6, 1, 2}, plan, new Root());
+    final Item item = root.items[0];
+    final Inner inner = item.inner;
+
+    assertSame(root,
+        parser.parseInto(new byte[] {1, 0, 0, 0, 0, 7, 0, 8, 3, 4}, plan, root));
+    assertSame(item, root.items[0]);
+    assertSame(inner, root.items[0].inner);
+    assertEquals(7, item.a);
+    assertEquals(8, inner.b);
+    assertArrayEquals(new byte[] {3, 4}, root.tail);
+
+    assertThrows(JBBPMapperException.class,
+        () -> parser.parseInto(new byte[] {2, 0, 0, 0, 0, 7, 0, 8, 9, 0, 10, 3, 4}, plan, root));
+  }
+
+  @Test
+  void testParseIntoFallbackAndMissingFields() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare("header { ushort id; body { int value; } }");
+    final WithPath withPath = parser.parseInto(new byte[] {0, 7, 0, 0, 1, 2},
+        JBBPMappingPlan.make(parser.getCompiledBlock(), WithPath.class), new WithPath());
+    assertEquals(0x0102, withPath.value);
+
+    final JBBPParser eofParser =
+        JBBPParser.prepare("ubyte len; int; byte [2] tail;", JBBPParser.FLAG_SKIP_REMAINING_FIELDS_IF_EOF);
+    final JBBPMappingPlan plan = JBBPMappingPlan.make(eofParser.getCompiledBlock(), Root.class);
+    assertThrows(JBBPMapperException.class,
+        () -> eofParser.parseInto(new byte[] {3}, plan, new Root()));
+    final Root root = eofParser.parseInto(new ByteArrayInputStream(new byte[] {3}), plan,
+        new Root(), null, null, null, JBBPMapper.FLAG_IGNORE_MISSING_VALUES);
+    assertEquals(3, root.len);
+    assertNull(root.tail);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> parser.parseInto(new byte[] {3}, plan, new Root()));
+    assertThrows(IllegalArgumentException.class,
+        () -> eofParser.parseInto(new byte[] {3}, plan, new WithPath()));
+  }
+
+  public static class Root {
+    @Bin(order = 1, type = BinType.UBYTE)
+    public int len;
+    @Bin(order = 2)
+    public Item[] items;
+    @Bin(order = 3)
+    public byte[] tail;
+  }
+
+  public static class WholeRoot extends Root {
+    @Bin(order = 4)
+    public Item[] rest;
+  }
+
+  public static class Item {
+    @Bin(order = 1)
+    public byte a;
+    @Bin(order = 2)
+    public Inner inner;
+  }
+
+  public static class Inner {
+    @Bin
+    public short b;
+  }
+
+  public static class WithPath {
+    @Bin(path = "header.body.value")
+    public int value;
+  }
+
+  public static class Header {
+    @Bin
+    public char id;
+  }
+}
@@ -18,6 +18,8 @@ package com.igormaznitsa.jbbp.model;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 
@@ -106,5 +108,18 @@ public class JBBPFieldArrayIntTest {
     }
   }
 
+  @Test
+  public void testCopyValueArrayTo() {
+    final int[] target = new int[array.length];
+    assertTrue(test.copyValueArrayTo(target, false));
+    assertArrayEquals(array, target);
+
+    assertTrue(test.copyValueArrayTo(target, true));
+    assertArrayEquals((int[]) test.getValueArrayAsObject(true), target);
+
+    assertFalse(test.copyValueArrayTo(new int[array.length + 1], false));
+    assertFalse(test.copyValueArrayTo(new long[array.length], false));
+  }
+
 
 }
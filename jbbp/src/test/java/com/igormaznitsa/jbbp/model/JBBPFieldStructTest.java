@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -32,6 +33,7 @@ import com.igormaznitsa.jbbp.exceptions.JBBPFinderException;
 import com.igormaznitsa.jbbp.exceptions.JBBPTooManyFieldsFoundException;
 import com.igormaznitsa.jbbp.mapper.Bin;
 import com.igormaznitsa.jbbp.utils.JBBPUtils;
+import java.lang.reflect.Field;
 import org.junit.jupiter.api.Test;
 
 public class JBBPFieldStructTest {
@@ -154,6 +156,62 @@ public class JBBPFieldStructTest {
     assertSame(field, struct1.findFieldForPath("struct1.struct2.field3"));
   }
 
+  @Test
+  public void testFindForName_WideStructure() {
+    final int size = JBBPFieldStruct.NAME_INDEX_THRESHOLD * 20;
+    final JBBPAbstractField[] fields = new JBBPAbstractField[size + 3];
+    for (int i = 0; i < size; i++) {
+      fields[i] = new JBBPFieldInt(new JBBPNamedFieldInfo("wide.f" + i, "f" + i, i * 4), i);
+    }
+    fields[size] = new JBBPFieldByte(null, (byte) 1);
+    fields[size + 1] = new JBBPFieldByte(new JBBPNamedFieldInfo("wide.f7", "f7", 0), (byte) 2);
+    final JBBPFieldStruct inner =
+        new JBBPFieldStruct(new JBBPNamedFieldInfo("wide.inner", "inner", 0),
+            new JBBPAbstractField[] {fields[3]});
+    fields[size + 2] = inner;
+    final JBBPFieldStruct struct =
+        new JBBPFieldStruct(new JBBPNamedFieldInfo("wide", "wide", 0), fields);
+
+    for (int i = 0; i < size; i++) {
+      assertSame(fields[i], struct.findFieldForName(" F" + i));
+      assertTrue(struct.nameExists("f" + i));
+    }
+    assertNull(struct.findFieldForName("f" + size));
+    assertFalse(struct.nameExists("unknown"));
+    assertSame(fields[7], struct.findFieldForNameAndType("f7", JBBPFieldInt.class));
+    assertSame(fields[size + 1], struct.findFieldForNameAndType("f7", JBBPFieldByte.class));
+    assertNull(struct.findFieldForNameAndType("f8", JBBPFieldByte.class));
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(fields[3], struct.findFieldForPath("wide.inner.f3"));
+      assertSame(fields[5], struct.findFieldForPath("wide.F5"));
+      assertNull(struct.findFieldForPath("wide.inner.f5"));
+      assertThrows(JBBPFinderException.class, () -> struct.findFieldForPath("wide.f3.f1"));
+    }
+  }
+
+  @Test
+  public void testFindForPath_CacheAllocatedOnlyForRepeatedLookups() throws Exception {
+    final JBBPFieldInt field = new JBBPFieldInt(new JBBPNamedFieldInfo("s.a", "a", 0), 1);
+    final JBBPFieldStruct struct = new JBBPFieldStruct(new JBBPNamedFieldInfo("s", "s", 0),
+        new JBBPAbstractField[] {field});
+    final JBBPFieldStruct other = new JBBPFieldStruct(new JBBPNamedFieldInfo("s", "s", 0),
+        new JBBPAbstractField[] {field});
+    final Field lookup = JBBPFieldStruct.class.getDeclaredField("lookup");
+    lookup.setAccessible(true);
+    final Field cache = lookup.getType().getDeclaredField("pathCache");
+    cache.setAccessible(true);
+
+    assertNull(lookup.get(struct));
+    assertSame(field, struct.findFieldForPath("s.a"));
+    assertSame(field, other.findFieldForPath("s.a"));
+    assertSame(lookup.get(other), lookup.get(struct));
+    assertNull(cache.get(lookup.get(struct)));
+    assertSame(field, struct.findFieldForPath("s.a"));
+    assertNotNull(cache.get(lookup.get(struct)));
+    assertSame(field, struct.findFieldForPath("s.a"));
+  }
+
   @Test
   public void testFindFieldForType() {
     final JBBPFieldByte field1 =
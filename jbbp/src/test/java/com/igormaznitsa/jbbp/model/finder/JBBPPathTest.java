@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Igor Maznitsa.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.igormaznitsa.jbbp.model.finder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.igormaznitsa.jbbp.JBBPParser;
+import com.igormaznitsa.jbbp.exceptions.JBBPFinderException;
+import com.igormaznitsa.jbbp.model.JBBPFieldArrayUByte;
+import com.igormaznitsa.jbbp.model.JBBPFieldInt;
+import com.igormaznitsa.jbbp.model.JBBPFieldLong;
+import com.igormaznitsa.jbbp.model.JBBPFieldStruct;
+import org.junit.jupiter.api.Test;
+
+public class JBBPPathTest {
+
+  private static final String SCRIPT = "byte; header { ubyte [2] magic; { byte skipped; } "
+      + "session { int id; long stamp; } } items [_] { byte a; }";
+
+  @Test
+  public void testCompileAndFind() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(SCRIPT);
+    final JBBPPath idPath = JBBPPath.compile(parser.getCompiledBlock(), " Header.Session.ID ");
+    final JBBPPath stampPath = JBBPPath.compile(parser.getCompiledBlock(), "header.session.stamp");
+
+    assertEquals("header.session.id", idPath.getPath());
+    assertEquals(3, idPath.getDepth());
+
+    for (int i = 0; i < 3; i++) {
+      final JBBPFieldStruct parsed = parser.parse(new byte[] {9, 1, 2, 3, 0, 0, 0, (byte) i,
+          0, 0, 0, 0, 0, 0, 0, (byte) (i + 1), 5, 6});
+      assertSame(parsed.findFieldForPath("header.session.id"), idPath.find(parsed));
+      assertSame(parsed.findFieldForPath("header.session.id"),
+          idPath.find(parsed, JBBPFieldInt.class));
+      assertNull(idPath.find(parsed, JBBPFieldLong.class));
+      assertEquals(i, idPath.getInt(parsed));
+      assertEquals(i, idPath.getLong(parsed));
+      assertEquals(i + 1, stampPath.getLong(parsed));
+    }
+  }
+
+  @Test
+  public void testFindInShortStructure() throws Exception {
+    final JBBPParser parser =
+        JBBPParser.prepare(SCRIPT, JBBPParser.FLAG_SKIP_REMAINING_FIELDS_IF_EOF);
+    final JBBPPath path = JBBPPath.compile(parser.getCompiledBlock(), "header.session.id");
+    final JBBPFieldStruct parsed = parser.parse(new byte[] {9, 1, 2});
+
+    assertNull(path.find(parsed));
+    assertThrows(JBBPFinderException.class, () -> path.getInt(parsed));
+    assertNull(path.find(JBBPParser.prepare("header { session { int id; } }")
+        .parse(new byte[] {0, 0, 0, 1})));
+  }
+
+  @Test
+  public void testErrors() throws Exception {
+    final JBBPParser parser = JBBPParser.prepare(SCRIPT);
+    assertThrows(NullPointerException.class, () -> JBBPPath.compile(null, "header"));
+    assertThrows(NullPointerException.class,
+        () -> JBBPPath.compile(parser.getCompiledBlock(), null));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPPath.compile(parser.getCompiledBlock(), "header.unknown"));
+    assertThrows(IllegalArgumentException.class,
+        () -> JBBPPath.compile(parser.getCompiledBlock(), "items.a"));
+
+    final JBBPPath magic = JBBPPath.compile(parser.getCompiledBlock(), "header.magic");
+    final JBBPFieldStruct parsed = parser.parse(new byte[18]);
+    assertSame(parsed.findFieldForPath("header.magic"),
+        magic.find(parsed, JBBPFieldArrayUByte.class));
+    assertThrows(JBBPFinderException.class, () -> magic.getInt(parsed));
+  }
+}
@@ -610,6 +610,22 @@ public class JBBPUtilsTest {
     assertTrue(JBBPUtils.arrayStartsWith(new byte[111], new byte[0]));
   }
 
+  @Test
+  public void testIndexOf() {
+    final byte[] pattern = new byte[] {3, 4, 3};
+    final int[] table = JBBPUtils.makeSearchShiftTable(pattern);
+    final byte[] array = new byte[] {1, 3, 4, 4, 3, 4, 3, 3, 4, 3};
+    assertEquals(4, JBBPUtils.indexOf(array, 0, array.length, pattern, table));
+    assertEquals(7, JBBPUtils.indexOf(array, 5, 5, pattern, table));
+    assertEquals(-1, JBBPUtils.indexOf(array, 5, 4, pattern, table));
+    assertEquals(-1, JBBPUtils.indexOf(array, 0, 2, pattern, table));
+
+    final byte[] single = new byte[] {4};
+    assertEquals(2, JBBPUtils.indexOf(array, 0, array.length, single,
+        JBBPUtils.makeSearchShiftTable(single)));
+    assertThrows(IllegalArgumentException.class, () -> JBBPUtils.makeSearchShiftTable(new byte[0]));
+  }
+
   @Test
   public void testArrayStartsWith_TooLongSubstring() {
     assertFalse(JBBPUtils.arrayStartsWith(new byte[] {1, 2}, new byte[] {1, 2, 3}));
@@ -779,4 +795,12 @@ public class JBBPUtilsTest {
             "000000C0#00_00_00_00_00_00_00_00$00_00_00_00_00_00_00_00$00_00_00_--_--_--_--_--$--_--_--_--_--_--_--_--\n",
         asString);
   }
+
+  @Test
+  public void testGetUtf8Length() {
+    for (final String s : new String[] {"", "abc", "\u00e9t\u00e9", "\u4e2d\u6587",
+        "a\ud83d\ude00b", "\ud83d", "x\ude00y", "\ud83d\ud83d"}) {
+      assertEquals(JBBPUtils.strToUtf8(s).length, JBBPUtils.getUtf8Length(s), s);
+    }
+  }
 }